@@ -47,6 +47,7 @@ import org.apache.fineract.infrastructure.core.data.CommandProcessingResultBuild
 import org.apache.fineract.infrastructure.core.exception.PlatformDataIntegrityException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.NonTransientDataAccessException;
@@ -106,6 +107,7 @@ public class GLAccountWritePlatformServiceJpaRepositoryImpl implements GLAccount
         }
     }
 
+    @CacheEvict(value = "productToGLAccountMappings", allEntries = true)
     @Transactional
     @Override
     public CommandProcessingResult updateGLAccount(final Long glAccountId, final JsonCommand command) {
@@ -180,6 +182,7 @@ public class GLAccountWritePlatformServiceJpaRepositoryImpl implements GLAccount
         }
     }
 
+    @CacheEvict(value = "productToGLAccountMappings", allEntries = true)
     @Transactional
     @Override
     public CommandProcessingResult deleteGLAccount(final Long glAccountId) {
@@ -48,15 +48,14 @@ import org.apache.fineract.accounting.journalentry.data.SavingsTransactionDTO;
 import org.apache.fineract.accounting.journalentry.data.SharesDTO;
 import org.apache.fineract.accounting.journalentry.data.SharesTransactionDTO;
 import org.apache.fineract.accounting.journalentry.data.TaxPaymentDTO;
-import org.apache.fineract.accounting.journalentry.domain.JournalEntry;
-import org.apache.fineract.accounting.journalentry.domain.JournalEntryRepository;
 import org.apache.fineract.accounting.journalentry.domain.JournalEntryType;
 import org.apache.fineract.accounting.journalentry.exception.JournalEntryInvalidException;
 import org.apache.fineract.accounting.journalentry.exception.JournalEntryInvalidException.GlJournalEntryInvalidReason;
+import org.apache.fineract.accounting.journalentry.service.JournalEntryBatchWriter.PendingJournalEntry;
 import org.apache.fineract.accounting.producttoaccountmapping.domain.PortfolioProductType;
-import org.apache.fineract.accounting.producttoaccountmapping.domain.ProductToGLAccountMapping;
-import org.apache.fineract.accounting.producttoaccountmapping.domain.ProductToGLAccountMappingRepository;
+import org.apache.fineract.accounting.producttoaccountmapping.domain.ProductToGLAccountMappingSnapshot;
 import org.apache.fineract.accounting.producttoaccountmapping.exception.ProductToGLAccountMappingNotFoundException;
+import org.apache.fineract.accounting.producttoaccountmapping.service.ProductToGLAccountMappingLookupService;
 import org.apache.fineract.infrastructure.Odoo.OdooService;
 import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
 import org.apache.fineract.infrastructure.core.data.EnumOptionData;
@@ -67,12 +66,10 @@ import org.apache.fineract.organisation.office.domain.OfficeRepositoryWrapper;
 import org.apache.fineract.portfolio.account.PortfolioAccountType;
 import org.apache.fineract.portfolio.account.service.AccountTransfersReadPlatformService;
 import org.apache.fineract.portfolio.charge.domain.ChargeRepositoryWrapper;
-import org.apache.fineract.portfolio.client.domain.ClientTransaction;
 import org.apache.fineract.portfolio.client.domain.ClientTransactionRepositoryWrapper;
 import org.apache.fineract.portfolio.loanaccount.data.LoanTransactionEnumData;
 import org.apache.fineract.portfolio.loanaccount.domain.LoanTransaction;
 import org.apache.fineract.portfolio.loanaccount.domain.LoanTransactionRepository;
-import org.apache.fineract.portfolio.paymentdetail.domain.PaymentDetail;
 import org.apache.fineract.portfolio.savings.data.SavingsAccountTransactionEnumData;
 import org.apache.fineract.portfolio.savings.domain.SavingsAccountTransaction;
 import org.apache.fineract.portfolio.savings.domain.SavingsAccountTransactionRepository;
@@ -90,8 +87,7 @@ public class AccountingProcessorHelper {
     public static final String PROVISIONING_TRANSACTION_IDENTIFIER = "P";
     public static final String SHARE_TRANSACTION_IDENTIFIER = "SH";
 
-    private final JournalEntryRepository glJournalEntryRepository;
-    private final ProductToGLAccountMappingRepository accountMappingRepository;
+    private final ProductToGLAccountMappingLookupService accountMappingLookupService;
     private final FinancialActivityAccountRepositoryWrapper financialActivityAccountRepository;
     private final GLClosureRepository closureRepository;
     private final GLAccountRepositoryWrapper accountRepositoryWrapper;
@@ -103,6 +99,7 @@ public class AccountingProcessorHelper {
     private final ChargeRepositoryWrapper chargeRepositoryWrapper;
     private final ConfigurationDomainService configurationDomainService;
     private final OdooService oddoService;
+    private final JournalEntryBatchWriter journalEntryBatchWriter;
 
     public LoanDTO populateLoanDtoFromMap(final Map<String, Object> accountingBridgeData, final boolean cashBasedAccountingEnabled,
             final boolean upfrontAccrualBasedAccountingEnabled, final boolean periodicAccrualBasedAccountingEnabled) {
@@ -807,153 +804,77 @@ public class AccountingProcessorHelper {
 
     private void createCreditJournalEntryForClientPayments(final Office office, final String currencyCode, final GLAccount account,
             final Long clientId, final Long transactionId, final LocalDate transactionDate, final BigDecimal amount) {
-        final boolean manualEntry = false;
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
-        final PaymentDetail paymentDetail = null;
-        final Long shareTransactionId = null;
-
-        clientTransaction = this.clientTransactionRepository.findOneWithNotFoundDetection(clientId, transactionId);
-
-        String modifiedTransactionId = transactionId.toString();
-        modifiedTransactionId = CLIENT_TRANSACTION_IDENTIFIER + transactionId;
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.CREDIT, amount, null, PortfolioProductType.CLIENT.getValue(), clientId, null,
-                loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        this.clientTransactionRepository.findOneWithNotFoundDetection(clientId, transactionId);
+        addJournalEntry(office, account, currencyCode, CLIENT_TRANSACTION_IDENTIFIER + transactionId, transactionDate,
+                JournalEntryType.CREDIT, amount, PortfolioProductType.CLIENT, clientId, null, null, transactionId, null);
     }
 
     private void createCreditJournalEntryForSavings(final Office office, final String currencyCode, final GLAccount account,
             final Long savingsId, final String transactionId, final LocalDate transactionDate, final BigDecimal amount)
             throws DataAccessException {
-        final boolean manualEntry = false;
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
-        final Long shareTransactionId = null;
-        final PaymentDetail paymentDetail = null;
+        Long savingsTransactionId = null;
         String modifiedTransactionId = transactionId;
         if (StringUtils.isNumeric(transactionId)) {
-            long id = Long.parseLong(transactionId);
-            savingsAccountTransaction = this.savingsAccountTransactionRepository.findById(id).orElseThrow();
+            savingsTransactionId = Long.parseLong(transactionId);
             modifiedTransactionId = SAVINGS_TRANSACTION_IDENTIFIER + transactionId;
         }
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.CREDIT, amount, null, PortfolioProductType.SAVING.getValue(), savingsId,
-                null, loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        addJournalEntry(office, account, currencyCode, modifiedTransactionId, transactionDate, JournalEntryType.CREDIT, amount,
+                PortfolioProductType.SAVING, savingsId, null, savingsTransactionId, null, null);
     }
 
     private void createCreditJournalEntryForLoan(final Office office, final String currencyCode, final GLAccount account, final Long loanId,
             final String transactionId, final LocalDate transactionDate, final BigDecimal amount) {
-        final boolean manualEntry = false;
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
-        final PaymentDetail paymentDetail = null;
-        final Long shareTransactionId = null;
+        Long loanTransactionId = null;
         String modifiedTransactionId = transactionId;
         if (StringUtils.isNumeric(transactionId)) {
-            long id = Long.parseLong(transactionId);
-            loanTransaction = this.loanTransactionRepository.findById(id).orElseThrow();
+            loanTransactionId = Long.parseLong(transactionId);
             modifiedTransactionId = LOAN_TRANSACTION_IDENTIFIER + transactionId;
         }
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.CREDIT, amount, null, PortfolioProductType.LOAN.getValue(), loanId, null,
-                loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        addJournalEntry(office, account, currencyCode, modifiedTransactionId, transactionDate, JournalEntryType.CREDIT, amount,
+                PortfolioProductType.LOAN, loanId, loanTransactionId, null, null, null);
     }
 
     public void createProvisioningDebitJournalEntry(LocalDate transactionDate, Long provisioningentryId, Office office, String currencyCode,
             GLAccount account, BigDecimal amount) {
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
-        PaymentDetail paymentDetail = null;
-        final Long shareTransactionId = null;
-        final boolean manualEntry = false;
-        String modifiedTransactionId = PROVISIONING_TRANSACTION_IDENTIFIER + provisioningentryId;
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.DEBIT, amount, null, PortfolioProductType.PROVISIONING.getValue(),
-                provisioningentryId, null, loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        addJournalEntry(office, account, currencyCode, PROVISIONING_TRANSACTION_IDENTIFIER + provisioningentryId, transactionDate,
+                JournalEntryType.DEBIT, amount, PortfolioProductType.PROVISIONING, provisioningentryId, null, null, null, null);
     }
 
     public void createProvisioningCreditJournalEntry(LocalDate transactionDate, Long provisioningentryId, Office office,
             String currencyCode, GLAccount account, BigDecimal amount) {
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
-        PaymentDetail paymentDetail = null;
-        final Long shareTransactionId = null;
-        final boolean manualEntry = false;
-        String modifiedTransactionId = PROVISIONING_TRANSACTION_IDENTIFIER + provisioningentryId;
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.CREDIT, amount, null, PortfolioProductType.PROVISIONING.getValue(),
-                provisioningentryId, null, loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        addJournalEntry(office, account, currencyCode, PROVISIONING_TRANSACTION_IDENTIFIER + provisioningentryId, transactionDate,
+                JournalEntryType.CREDIT, amount, PortfolioProductType.PROVISIONING, provisioningentryId, null, null, null, null);
     }
 
     private void createDebitJournalEntryForLoan(final Office office, final String currencyCode, final GLAccount account, final Long loanId,
             final String transactionId, final LocalDate transactionDate, final BigDecimal amount) {
-        final boolean manualEntry = false;
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
-        final PaymentDetail paymentDetail = null;
-        final Long shareTransactionId = null;
+        Long loanTransactionId = null;
         String modifiedTransactionId = transactionId;
         if (StringUtils.isNumeric(transactionId)) {
-            long id = Long.parseLong(transactionId);
-            loanTransaction = this.loanTransactionRepository.findById(id).orElseThrow();
+            loanTransactionId = Long.parseLong(transactionId);
             modifiedTransactionId = LOAN_TRANSACTION_IDENTIFIER + transactionId;
         }
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.DEBIT, amount, null, PortfolioProductType.LOAN.getValue(), loanId, null,
-                loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        addJournalEntry(office, account, currencyCode, modifiedTransactionId, transactionDate, JournalEntryType.DEBIT, amount,
+                PortfolioProductType.LOAN, loanId, loanTransactionId, null, null, null);
     }
 
     private void createDebitJournalEntryForSavings(final Office office, final String currencyCode, final GLAccount account,
             final Long savingsId, final String transactionId, final LocalDate transactionDate, final BigDecimal amount) {
-        final boolean manualEntry = false;
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
-        final PaymentDetail paymentDetail = null;
-        final Long shareTransactionId = null;
+        Long savingsTransactionId = null;
         String modifiedTransactionId = transactionId;
         if (StringUtils.isNumeric(transactionId)) {
-            long id = Long.parseLong(transactionId);
-            savingsAccountTransaction = this.savingsAccountTransactionRepository.findById(id).orElseThrow();
+            savingsTransactionId = Long.parseLong(transactionId);
             modifiedTransactionId = SAVINGS_TRANSACTION_IDENTIFIER + transactionId;
         }
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.DEBIT, amount, null, PortfolioProductType.SAVING.getValue(), savingsId, null,
-                loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        addJournalEntry(office, account, currencyCode, modifiedTransactionId, transactionDate, JournalEntryType.DEBIT, amount,
+                PortfolioProductType.SAVING, savingsId, null, savingsTransactionId, null, null);
     }
 
     private void createDebitJournalEntryForClientPayments(final Office office, final String currencyCode, final GLAccount account,
             final Long clientId, final Long transactionId, final LocalDate transactionDate, final BigDecimal amount) {
-        final boolean manualEntry = false;
-        ClientTransaction clientTransaction = null;
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        final PaymentDetail paymentDetail = null;
-        final Long shareTransactionId = null;
-
-        clientTransaction = this.clientTransactionRepository.findOneWithNotFoundDetection(clientId, transactionId);
-        String modifiedTransactionId = transactionId.toString();
-        modifiedTransactionId = CLIENT_TRANSACTION_IDENTIFIER + transactionId;
-
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.DEBIT, amount, null, PortfolioProductType.CLIENT.getValue(), clientId, null,
-                loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        this.clientTransactionRepository.findOneWithNotFoundDetection(clientId, transactionId);
+        addJournalEntry(office, account, currencyCode, CLIENT_TRANSACTION_IDENTIFIER + transactionId, transactionDate,
+                JournalEntryType.DEBIT, amount, PortfolioProductType.CLIENT, clientId, null, null, transactionId, null);
     }
 
     public void createJournalEntriesForShares(final Office office, final String currencyCode, final int accountTypeToDebitId,
@@ -1056,40 +977,35 @@ public class AccountingProcessorHelper {
 
     private void createDebitJournalEntryForShares(final Office office, final String currencyCode, final GLAccount account,
             final Long shareAccountId, final String transactionId, final LocalDate transactionDate, final BigDecimal amount) {
-        final boolean manualEntry = false;
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
-        final PaymentDetail paymentDetail = null;
         Long shareTransactionId = null;
         String modifiedTransactionId = transactionId;
         if (StringUtils.isNumeric(transactionId)) {
             shareTransactionId = Long.parseLong(transactionId);
             modifiedTransactionId = SHARE_TRANSACTION_IDENTIFIER + transactionId;
         }
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.DEBIT, amount, null, PortfolioProductType.SHARES.getValue(), shareAccountId,
-                null, loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        addJournalEntry(office, account, currencyCode, modifiedTransactionId, transactionDate, JournalEntryType.DEBIT, amount,
+                PortfolioProductType.SHARES, shareAccountId, null, null, null, shareTransactionId);
     }
 
     private void createCreditJournalEntryForShares(final Office office, final String currencyCode, final GLAccount account,
             final Long shareAccountId, final String transactionId, final LocalDate transactionDate, final BigDecimal amount) {
-        final boolean manualEntry = false;
-        LoanTransaction loanTransaction = null;
-        SavingsAccountTransaction savingsAccountTransaction = null;
-        ClientTransaction clientTransaction = null;
         Long shareTransactionId = null;
-        final PaymentDetail paymentDetail = null;
         String modifiedTransactionId = transactionId;
         if (StringUtils.isNumeric(transactionId)) {
             shareTransactionId = Long.parseLong(transactionId);
             modifiedTransactionId = SHARE_TRANSACTION_IDENTIFIER + transactionId;
         }
-        final JournalEntry journalEntry = JournalEntry.createNew(office, paymentDetail, account, currencyCode, modifiedTransactionId,
-                manualEntry, transactionDate, JournalEntryType.CREDIT, amount, null, PortfolioProductType.SHARES.getValue(), shareAccountId,
-                null, loanTransaction, savingsAccountTransaction, clientTransaction, shareTransactionId);
-        JournalEntry JE = this.glJournalEntryRepository.saveAndFlush(journalEntry);
+        addJournalEntry(office, account, currencyCode, modifiedTransactionId, transactionDate, JournalEntryType.CREDIT, amount,
+                PortfolioProductType.SHARES, shareAccountId, null, null, null, shareTransactionId);
+    }
+
+    private void addJournalEntry(final Office office, final GLAccount account, final String currencyCode, final String transactionId,
+            final LocalDate transactionDate, final JournalEntryType type, final BigDecimal amount, final PortfolioProductType entityType,
+            final Long entityId, final Long loanTransactionId, final Long savingsTransactionId, final Long clientTransactionId,
+            final Long shareTransactionId) {
+        this.journalEntryBatchWriter.add(new PendingJournalEntry(office.getId(), account.getId(), currencyCode, transactionId,
+                transactionDate, type, amount, entityType.getValue(), entityId, loanTransactionId, savingsTransactionId,
+                clientTransactionId, shareTransactionId));
     }
 
     public GLAccount getLinkedGLAccountForLoanProduct(final Long loanProductId, final int accountMappingTypeId, final Long paymentTypeId) {
@@ -1099,35 +1015,31 @@ public class AccountingProcessorHelper {
                     .findByFinancialActivityTypeWithNotFoundDetection(accountMappingTypeId);
             glAccount = financialActivityAccount.getGlAccount();
         } else {
-            ProductToGLAccountMapping accountMapping = this.accountMappingRepository.findCoreProductToFinAccountMapping(loanProductId,
-                    PortfolioProductType.LOAN.getValue(), accountMappingTypeId);
+            final ProductToGLAccountMappingSnapshot accountMappings = this.accountMappingLookupService
+                    .retrieveSnapshot(PortfolioProductType.LOAN, loanProductId);
 
             /****
              * Get more specific mapping for FUND source accounts (based on payment channels). Note that fund source
              * placeholder ID would be same for both cash and accrual accounts
              ***/
             if (accountMappingTypeId == CashAccountsForLoan.FUND_SOURCE.getValue()) {
-                final ProductToGLAccountMapping paymentChannelSpecificAccountMapping = this.accountMappingRepository
-                        .findByProductIdAndProductTypeAndFinancialAccountTypeAndPaymentTypeId(loanProductId,
-                                PortfolioProductType.LOAN.getValue(), accountMappingTypeId, paymentTypeId);
-                if (paymentChannelSpecificAccountMapping != null) {
-                    accountMapping = paymentChannelSpecificAccountMapping;
-                }
+                glAccount = getMappedGLAccount(accountMappings.getPaymentTypeAccountId(accountMappingTypeId, paymentTypeId));
+            } else {
+                glAccount = getMappedGLAccount(accountMappings.getCoreAccountId(accountMappingTypeId));
             }
 
-            if (accountMapping == null) {
+            if (glAccount == null) {
                 throw new ProductToGLAccountMappingNotFoundException(PortfolioProductType.LOAN, loanProductId,
                         AccrualAccountsForLoan.fromInt(accountMappingTypeId).toString());
 
             }
-            glAccount = accountMapping.getGlAccount();
         }
         return glAccount;
     }
 
     private GLAccount getLinkedGLAccountForLoanCharges(final Long loanProductId, final int accountMappingTypeId, final Long chargeId) {
-        ProductToGLAccountMapping accountMapping = this.accountMappingRepository.findCoreProductToFinAccountMapping(loanProductId,
-                PortfolioProductType.LOAN.getValue(), accountMappingTypeId);
+        final ProductToGLAccountMappingSnapshot accountMappings = this.accountMappingLookupService
+                .retrieveSnapshot(PortfolioProductType.LOAN, loanProductId);
         /*****
          * Get more specific mappings for Charges and penalties (based on the actual charge /penalty coupled with the
          * loan product). Note the income from fees and income from penalties placeholder ID would be the same for both
@@ -1137,21 +1049,16 @@ public class AccountingProcessorHelper {
         // Vishwas TODO: remove this condition as it should always be true
         if (accountMappingTypeId == CashAccountsForLoan.INCOME_FROM_FEES.getValue()
                 || accountMappingTypeId == CashAccountsForLoan.INCOME_FROM_PENALTIES.getValue()) {
-            final ProductToGLAccountMapping chargeSpecificIncomeAccountMapping = this.accountMappingRepository
-                    .findProductIdAndProductTypeAndFinancialAccountTypeAndChargeId(loanProductId, PortfolioProductType.LOAN.getValue(),
-                            accountMappingTypeId, chargeId);
-            if (chargeSpecificIncomeAccountMapping != null) {
-                accountMapping = chargeSpecificIncomeAccountMapping;
-            }
+            return getMappedGLAccount(accountMappings.getChargeAccountId(accountMappingTypeId, chargeId));
         }
-        return accountMapping.getGlAccount();
+        return getMappedGLAccount(accountMappings.getCoreAccountId(accountMappingTypeId));
     }
 
     private GLAccount getLinkedGLAccountForSavingsCharges(final Long savingsProductId, final int accountMappingTypeId,
             final Long chargeId) {
 
-        ProductToGLAccountMapping accountMapping = this.accountMappingRepository.findCoreProductToFinAccountMapping(savingsProductId,
-                PortfolioProductType.SAVING.getValue(), accountMappingTypeId);
+        final ProductToGLAccountMappingSnapshot accountMappings = this.accountMappingLookupService
+                .retrieveSnapshot(PortfolioProductType.SAVING, savingsProductId);
         /*****
          * Get more specific mappings for Charges and penalties (based on the actual charge /penalty coupled with the
          * loan product). Note the income from fees and income from penalties placeholder ID would be the same for both
@@ -1166,16 +1073,10 @@ public class AccountingProcessorHelper {
             if (glAccount != null) {
                 return glAccount;
             }
-            final ProductToGLAccountMapping chargeSpecificIncomeAccountMapping = this.accountMappingRepository
-                    .findProductIdAndProductTypeAndFinancialAccountTypeAndChargeId(savingsProductId, PortfolioProductType.SAVING.getValue(),
-                            accountMappingTypeId, chargeId);
-            if (chargeSpecificIncomeAccountMapping != null) {
-
-                accountMapping = chargeSpecificIncomeAccountMapping;
-            }
+            return getMappedGLAccount(accountMappings.getChargeAccountId(accountMappingTypeId, chargeId));
         }
 
-        return accountMapping.getGlAccount();
+        return getMappedGLAccount(accountMappings.getCoreAccountId(accountMappingTypeId));
     }
 
     private GLAccount getLinkedGLAccountForSavingsProduct(final Long savingsProductId, final int accountMappingTypeId,
@@ -1186,21 +1087,17 @@ public class AccountingProcessorHelper {
                     .findByFinancialActivityTypeWithNotFoundDetection(accountMappingTypeId);
             glAccount = financialActivityAccount.getGlAccount();
         } else {
-            ProductToGLAccountMapping accountMapping = this.accountMappingRepository.findCoreProductToFinAccountMapping(savingsProductId,
-                    PortfolioProductType.SAVING.getValue(), accountMappingTypeId);
+            final ProductToGLAccountMappingSnapshot accountMappings = this.accountMappingLookupService
+                    .retrieveSnapshot(PortfolioProductType.SAVING, savingsProductId);
             /****
              * Get more specific mapping for FUND source accounts (based on payment channels). Note that fund source
              * placeholder ID would be same for both cash and accrual accounts
              ***/
             if (accountMappingTypeId == CashAccountsForSavings.SAVINGS_REFERENCE.getValue()) {
-                final ProductToGLAccountMapping paymentChannelSpecificAccountMapping = this.accountMappingRepository
-                        .findByProductIdAndProductTypeAndFinancialAccountTypeAndPaymentTypeId(savingsProductId,
-                                PortfolioProductType.SAVING.getValue(), accountMappingTypeId, paymentTypeId);
-                if (paymentChannelSpecificAccountMapping != null) {
-                    accountMapping = paymentChannelSpecificAccountMapping;
-                }
+                glAccount = getMappedGLAccount(accountMappings.getPaymentTypeAccountId(accountMappingTypeId, paymentTypeId));
+            } else {
+                glAccount = getMappedGLAccount(accountMappings.getCoreAccountId(accountMappingTypeId));
             }
-            glAccount = accountMapping.getGlAccount();
         }
         return glAccount;
     }
@@ -1213,38 +1110,26 @@ public class AccountingProcessorHelper {
                     .findByFinancialActivityTypeWithNotFoundDetection(accountMappingTypeId);
             glAccount = financialActivityAccount.getGlAccount();
         } else {
-            ProductToGLAccountMapping accountMapping = this.accountMappingRepository.findCoreProductToFinAccountMapping(shareProductId,
-                    PortfolioProductType.SHARES.getValue(), accountMappingTypeId);
+            final ProductToGLAccountMappingSnapshot accountMappings = this.accountMappingLookupService
+                    .retrieveSnapshot(PortfolioProductType.SHARES, shareProductId);
 
             if (accountMappingTypeId == CashAccountsForShares.SHARES_REFERENCE.getValue()) {
-                final ProductToGLAccountMapping paymentChannelSpecificAccountMapping = this.accountMappingRepository
-                        .findByProductIdAndProductTypeAndFinancialAccountTypeAndPaymentTypeId(shareProductId,
-                                PortfolioProductType.SHARES.getValue(), accountMappingTypeId, paymentTypeId);
-                if (paymentChannelSpecificAccountMapping != null) {
-                    accountMapping = paymentChannelSpecificAccountMapping;
-                }
+                glAccount = getMappedGLAccount(accountMappings.getPaymentTypeAccountId(accountMappingTypeId, paymentTypeId));
+            } else {
+                glAccount = getMappedGLAccount(accountMappings.getCoreAccountId(accountMappingTypeId));
             }
-            glAccount = accountMapping.getGlAccount();
         }
         return glAccount;
     }
 
     private GLAccount getLinkedGLAccountForShareCharges(final Long shareProductId, final int accountMappingTypeId, final Long chargeId) {
-        ProductToGLAccountMapping accountMapping = this.accountMappingRepository.findCoreProductToFinAccountMapping(shareProductId,
-                PortfolioProductType.SHARES.getValue(), accountMappingTypeId);
         /*****
          * Get more specific mappings for Charges and penalties (based on the actual charge /penalty coupled with the
          * loan product). Note the income from fees and income from penalties placeholder ID would be the same for both
          * cash and accrual based accounts
          *****/
-
-        final ProductToGLAccountMapping chargeSpecificIncomeAccountMapping = this.accountMappingRepository
-                .findProductIdAndProductTypeAndFinancialAccountTypeAndChargeId(shareProductId, PortfolioProductType.SHARES.getValue(),
-                        accountMappingTypeId, chargeId);
-        if (chargeSpecificIncomeAccountMapping != null) {
-            accountMapping = chargeSpecificIncomeAccountMapping;
-        }
-        return accountMapping.getGlAccount();
+        return getMappedGLAccount(this.accountMappingLookupService.retrieveSnapshot(PortfolioProductType.SHARES, shareProductId)
+                .getChargeAccountId(accountMappingTypeId, chargeId));
     }
 
     private boolean isOrganizationAccount(final int accountMappingTypeId) {
@@ -1307,6 +1192,10 @@ public class AccountingProcessorHelper {
         return this.accountRepositoryWrapper.findOneWithNotFoundDetection(accountId);
     }
 
+    private GLAccount getMappedGLAccount(final Long accountId) {
+        return accountId == null ? null : getGLAccountById(accountId);
+    }
+
     public void createAccrualBasedJournalEntriesAndReversalsForSavings(final Office office, final String currencyCode,
             final Integer accountTypeToBeDebited, final Integer accountTypeToBeCredited, final Long savingsProductId,
             final Long paymentTypeId, final Long loanId, final String transactionId, final LocalDate transactionDate,
@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.journalentry.service;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.apache.fineract.accounting.journalentry.domain.JournalEntryRepository;
+import org.apache.fineract.accounting.journalentry.domain.JournalEntryType;
+import org.apache.fineract.accounting.journalentry.exception.JournalEntryInvalidException;
+import org.apache.fineract.accounting.journalentry.exception.JournalEntryInvalidException.GlJournalEntryInvalidReason;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Writes the journal entries generated by the accounting processors.
+ * <p>
+ * Inside {@link #collect(Runnable)} the lines of a business transaction are only accumulated. When the processor is done,
+ * the debits and credits of every currency are checked to balance and all lines are inserted with one batched prepared
+ * statement, instead of one flushed entity per line. Lines added outside of a collecting scope are accumulated for the
+ * surrounding database transaction and go through the same check and batch just before it commits; without a
+ * transaction they are rejected, so no line is ever written on its own.
+ */
+@Service
+@RequiredArgsConstructor
+public class JournalEntryBatchWriter {
+
+    private static final String INSERT_SQL = "insert into acc_gl_journal_entry (office_id, account_id, currency_code, transaction_id, "
+            + "loan_transaction_id, savings_transaction_id, client_transaction_id, share_transaction_id, reversed, manual_entry, "
+            + "entry_date, type_enum, amount, entity_type_enum, entity_id, odoo_ack, is_oddo_posted, createdby_id, created_date, "
+            + "lastmodifiedby_id, lastmodified_date) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, false, false, ?, ?, ?, ?, ?, false, false, ?, ?, ?, ?)";
+
+    private static final ThreadLocal<List<PendingJournalEntry>> PENDING = new ThreadLocal<>();
+    private static final String PENDING_OF_TRANSACTION = JournalEntryBatchWriter.class.getName() + ".pendingOfTransaction";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JournalEntryRepository journalEntryRepository;
+    private final AuditorAware<Long> auditorAware;
+
+    /**
+     * Runs the given work, collecting the journal entries it creates, and writes them once it has completed. Nested calls
+     * join the outermost scope.
+     */
+    public void collect(final Runnable work) {
+        if (PENDING.get() != null) {
+            work.run();
+            return;
+        }
+        final List<PendingJournalEntry> pending = new ArrayList<>();
+        PENDING.set(pending);
+        try {
+            work.run();
+        } finally {
+            PENDING.remove();
+        }
+        write(pending);
+    }
+
+    public void add(final PendingJournalEntry journalEntry) {
+        final List<PendingJournalEntry> pending = PENDING.get();
+        if (pending != null) {
+            pending.add(journalEntry);
+        } else {
+            pendingOfTransaction().add(journalEntry);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PendingJournalEntry> pendingOfTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Journal entries can only be added inside collect() or a transaction");
+        }
+        final Object boundPending = TransactionSynchronizationManager.getResource(PENDING_OF_TRANSACTION);
+        if (boundPending != null) {
+            return (List<PendingJournalEntry>) boundPending;
+        }
+        final List<PendingJournalEntry> pending = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(PENDING_OF_TRANSACTION, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void beforeCommit(final boolean readOnly) {
+                write(pending);
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_OF_TRANSACTION);
+            }
+        });
+        return pending;
+    }
+
+    private void write(final List<PendingJournalEntry> journalEntries) {
+        if (journalEntries.isEmpty()) {
+            return;
+        }
+        validateDebitsEqualCredits(journalEntries);
+
+        // the referenced portfolio transactions may still only exist in the persistence context
+        this.journalEntryRepository.flush();
+
+        final Long auditor = this.auditorAware.getCurrentAuditor().orElse(null);
+        final LocalDateTime now = DateUtils.getLocalDateTimeOfSystem();
+        this.jdbcTemplate.batchUpdate(INSERT_SQL, journalEntries, journalEntries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.officeId);
+            ps.setLong(2, entry.accountId);
+            ps.setString(3, entry.currencyCode);
+            ps.setString(4, entry.transactionId);
+            setNullableLong(ps, 5, entry.loanTransactionId);
+            setNullableLong(ps, 6, entry.savingsTransactionId);
+            setNullableLong(ps, 7, entry.clientTransactionId);
+            setNullableLong(ps, 8, entry.shareTransactionId);
+            ps.setObject(9, entry.transactionDate);
+            ps.setInt(10, entry.type.getValue());
+            ps.setBigDecimal(11, entry.amount);
+            ps.setInt(12, entry.entityType);
+            setNullableLong(ps, 13, entry.entityId);
+            setNullableLong(ps, 14, auditor);
+            ps.setObject(15, now);
+            setNullableLong(ps, 16, auditor);
+            ps.setObject(17, now);
+        });
+    }
+
+    private static void validateDebitsEqualCredits(final List<PendingJournalEntry> journalEntries) {
+        final Map<String, BigDecimal> balanceByCurrency = new HashMap<>();
+        for (final PendingJournalEntry entry : journalEntries) {
+            final BigDecimal signedAmount = entry.type == JournalEntryType.DEBIT ? entry.amount : entry.amount.negate();
+            balanceByCurrency.merge(entry.currencyCode, signedAmount, BigDecimal::add);
+        }
+        for (final BigDecimal balance : balanceByCurrency.values()) {
+            if (balance.signum() != 0) {
+                final PendingJournalEntry first = journalEntries.get(0);
+                throw new JournalEntryInvalidException(GlJournalEntryInvalidReason.DEBIT_CREDIT_SUM_MISMATCH, first.transactionDate,
+                        null, null);
+            }
+        }
+    }
+
+    private static void setNullableLong(final PreparedStatement ps, final int index, final Long value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    /**
+     * A journal entry line that has not been written yet. The associations are only held by id, so creating a line never
+     * loads the portfolio transaction it belongs to.
+     */
+    public static final class PendingJournalEntry {
+
+        private final Long officeId;
+        private final Long accountId;
+        private final String currencyCode;
+        private final String transactionId;
+        private final LocalDate transactionDate;
+        private final JournalEntryType type;
+        private final BigDecimal amount;
+        private final Integer entityType;
+        private final Long entityId;
+        private final Long loanTransactionId;
+        private final Long savingsTransactionId;
+        private final Long clientTransactionId;
+        private final Long shareTransactionId;
+
+        public PendingJournalEntry(final Long officeId, final Long accountId, final String currencyCode, final String transactionId,
+                final LocalDate transactionDate, final JournalEntryType type, final BigDecimal amount, final Integer entityType,
+                final Long entityId, final Long loanTransactionId, final Long savingsTransactionId, final Long clientTransactionId,
+                final Long shareTransactionId) {
+            this.officeId = officeId;
+            this.accountId = accountId;
+            this.currencyCode = currencyCode;
+            this.transactionId = transactionId;
+            this.transactionDate = transactionDate;
+            this.type = type;
+            this.amount = amount;
+            this.entityType = entityType;
+            this.entityId = entityId;
+            this.loanTransactionId = loanTransactionId;
+            this.savingsTransactionId = savingsTransactionId;
+            this.clientTransactionId = clientTransactionId;
+            this.shareTransactionId = shareTransactionId;
+        }
+    }
+}
@@ -19,41 +19,70 @@
 package org.apache.fineract.accounting.journalentry.service;
 
 import java.math.BigDecimal;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.fineract.accounting.common.AccountingEnumerations;
 import org.apache.fineract.accounting.glaccount.domain.GLAccountType;
 import org.apache.fineract.accounting.journalentry.api.JournalEntryJsonInputParams;
-import org.apache.fineract.accounting.journalentry.data.JournalEntryData;
 import org.apache.fineract.accounting.journalentry.data.JournalEntryDataValidator;
 import org.apache.fineract.accounting.journalentry.domain.JournalEntryType;
 import org.apache.fineract.infrastructure.core.api.JsonCommand;
 import org.apache.fineract.infrastructure.core.data.CommandProcessingResult;
 import org.apache.fineract.infrastructure.core.data.CommandProcessingResultBuilder;
-import org.apache.fineract.infrastructure.core.data.EnumOptionData;
 import org.apache.fineract.infrastructure.core.domain.JdbcSupport;
 import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
 import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
 import org.apache.fineract.infrastructure.jobs.annotation.CronTarget;
+import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
+import org.apache.fineract.infrastructure.jobs.service.JobCancellationRegistry;
 import org.apache.fineract.infrastructure.jobs.service.JobName;
+import org.apache.fineract.infrastructure.jobs.service.JobRunMetricsHolder;
+import org.apache.fineract.infrastructure.jobs.service.JobWorkerPool;
 import org.apache.fineract.organisation.office.domain.OfficeRepositoryWrapper;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Calculates the organization and office running balances of journal entries that are not yet marked as calculated.
+ * <p>
+ * The running balances of a GL account only depend on the entries of that account, so every account with pending
+ * entries is an independent partition. Partitions are processed in parallel on the shared {@link JobWorkerPool}. Each
+ * partition walks its entries in {@code (entry_date, id)} order by keyset pagination, writes the balances of a page with
+ * one batched prepared update in a transaction of its own and records the last calculated entry of the account in
+ * {@code acc_gl_running_balance_watermark}. When the pending entries of an account all come after its watermark, the
+ * calculation continues from the watermark instead of recalculating the whole first pending day.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class JournalEntryRunningBalanceUpdateServiceImpl implements JournalEntryRunningBalanceUpdateService {
 
+    private static final int PAGE_SIZE = 10000;
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String ENTRY_COLUMNS = "select je.id as id, je.office_id as officeId, je.entry_date as entryDate, "
+            + "je.type_enum as entryType, je.amount as amount from acc_gl_journal_entry je ";
+    private static final String AFTER_POSITION = "(je.entry_date > ? or (je.entry_date = ? and je.id > ?))";
+    private static final String UP_TO_POSITION = "(je.entry_date < ? or (je.entry_date = ? and je.id <= ?))";
+
+    private static final String UPDATE_BALANCES_SQL = "update acc_gl_journal_entry set is_running_balance_calculated = true, "
+            + "organization_running_balance = ?, office_running_balance = ? where id = ?";
+    private static final String UPDATE_OFFICE_BALANCE_SQL = "update acc_gl_journal_entry set office_running_balance = ? where id = ?";
+
     private final JdbcTemplate jdbcTemplate;
 
     private final OfficeRepositoryWrapper officeRepositoryWrapper;
@@ -62,19 +91,23 @@ public class JournalEntryRunningBalanceUpdateServiceImpl implements JournalEntry
 
     private final FromJsonHelper fromApiJsonHelper;
     private final DatabaseSpecificSQLGenerator sqlGenerator;
-
-    private final GLJournalEntryMapper entryMapper = new GLJournalEntryMapper();
+    private final TransactionTemplate transactionTemplate;
+    private final JobWorkerPool jobWorkerPool;
 
     @Override
     @CronTarget(jobName = JobName.ACCOUNTING_RUNNING_BALANCE_UPDATE)
-    public void updateRunningBalance() {
-        String dateFinder = "select MIN(je.entry_date) as entityDate from acc_gl_journal_entry  je "
-                + "where je.is_running_balance_calculated=false ";
+    public void updateRunningBalance() throws JobExecutionException {
+        final RunningBalanceRun run = new RunningBalanceRun(null);
         try {
-            LocalDate entityDate = this.jdbcTemplate.queryForObject(dateFinder, LocalDate.class);
-            updateOrganizationRunningBalance(entityDate);
-        } catch (EmptyResultDataAccessException e) {
-            log.debug("No results found for updation of running balance ");
+            final List<Throwable> errors = run.execute();
+            if (!errors.isEmpty()) {
+                throw new JobExecutionException(errors);
+            }
+        } finally {
+            final Map<String, Object> runMetrics = JobRunMetricsHolder.getRunMetrics();
+            if (runMetrics != null) {
+                runMetrics.put("runningBalance", run.toMetrics());
+            }
         }
     }
 
@@ -85,211 +118,295 @@ public class JournalEntryRunningBalanceUpdateServiceImpl implements JournalEntry
                 command.parsedJson());
         CommandProcessingResultBuilder commandProcessingResultBuilder = new CommandProcessingResultBuilder()
                 .withCommandId(command.commandId());
-        if (officeId == null) {
-            updateRunningBalance();
-        } else {
+        if (officeId != null) {
             this.officeRepositoryWrapper.findOneWithNotFoundDetection(officeId);
-            String dateFinder = "select MIN(je.entry_date) as entityDate " + "from acc_gl_journal_entry  je "
-                    + "where je.is_running_balance_calculated=false  and je.office_id=?";
-            try {
-                LocalDate entityDate = this.jdbcTemplate.queryForObject(dateFinder, LocalDate.class, officeId);
-                updateRunningBalance(officeId, entityDate);
-            } catch (EmptyResultDataAccessException e) {
-                log.debug("No results found for updation of office running balance with office id: {}", officeId);
-            }
             commandProcessingResultBuilder.withOfficeId(officeId);
         }
+        final List<Throwable> errors = new RunningBalanceRun(officeId).execute();
+        if (!errors.isEmpty()) {
+            final Throwable error = errors.get(0);
+            throw error instanceof RuntimeException ? (RuntimeException) error : new IllegalStateException(error);
+        }
         return commandProcessingResultBuilder.build();
     }
 
-    private void updateOrganizationRunningBalance(LocalDate entityDate) {
-        Map<Long, BigDecimal> runningBalanceMap = new HashMap<>(5);
-        Map<Long, Map<Long, BigDecimal>> officesRunningBalance = new HashMap<>();
-
-        final String organizationRunningBalanceQuery = "select je.organization_running_balance as runningBalance,je.account_id as accountId from acc_gl_journal_entry je "
-                + "inner join (select max(id) as id from acc_gl_journal_entry where entry_date < ? group by account_id,entry_date) je2 ON je2.id = je.id "
-                + "inner join (select max(entry_date) as date from acc_gl_journal_entry where entry_date < ? group by account_id) je3 ON je.entry_date = je3.date "
-                + "group by je.id order by je.entry_date DESC " + sqlGenerator.limit(10000, 0);
-
-        List<Map<String, Object>> list = jdbcTemplate.queryForList(organizationRunningBalanceQuery, // NOSONAR
-                entityDate, entityDate);
-
-        for (Map<String, Object> entries : list) {
-            Long accountId = Long.parseLong(entries.get("accountId").toString()); // Drizzle
-                                                                                  // is
-                                                                                  // returning
-                                                                                  // Big
-                                                                                  // Integer
-                                                                                  // where
-                                                                                  // as
-                                                                                  // MySQL
-                                                                                  // returns
-                                                                                  // Long.
-            if (!runningBalanceMap.containsKey(accountId)) {
-                runningBalanceMap.put(accountId, (BigDecimal) entries.get("runningBalance"));
-            }
+    /**
+     * Returns the GL accounts with entries whose running balance is not calculated yet, mapped to the date of their
+     * earliest such entry. When an office is given only the entries of that office are considered.
+     */
+    private Map<Long, LocalDate> retrievePendingAccounts(final Long officeId) {
+        final Map<Long, LocalDate> pendingAccounts = new LinkedHashMap<>();
+        final StringBuilder sql = new StringBuilder("select je.account_id as accountId, min(je.entry_date) as entryDate ")
+                .append("from acc_gl_journal_entry je where je.is_running_balance_calculated = false ");
+        final List<Object> params = new ArrayList<>();
+        if (officeId != null) {
+            sql.append("and je.office_id = ? ");
+            params.add(officeId);
         }
+        sql.append("group by je.account_id");
+        this.jdbcTemplate.query(sql.toString(),
+                rs -> pendingAccounts.put(rs.getLong("accountId"), JdbcSupport.getLocalDate(rs, "entryDate")), params.toArray());
+        return pendingAccounts;
+    }
 
-        final String offlineRunningBalanceQuery = "select je.office_running_balance as runningBalance,je.account_id as accountId,je.office_id as officeId "
-                + "from acc_gl_journal_entry je "
-                + "inner join (select max(id) as id from acc_gl_journal_entry where entry_date < ? group by office_id,account_id,entry_date) je2 ON je2.id = je.id "
-                + "inner join (select max(entry_date) as date from acc_gl_journal_entry where entry_date < ? group by office_id,account_id) je3 ON je.entry_date = je3.date "
-                + "group by je.id order by je.entry_date DESC " + sqlGenerator.limit(10000, 0);
-
-        List<Map<String, Object>> officesRunningBalanceList = jdbcTemplate.queryForList(offlineRunningBalanceQuery, // NOSONAR
-                entityDate, entityDate);
-        for (Map<String, Object> entries : officesRunningBalanceList) {
-            Long accountId = Long.parseLong(entries.get("accountId").toString());
-            Long officeId = Long.parseLong(entries.get("officeId").toString());
-            Map<Long, BigDecimal> runningBalance = null;
-            if (officesRunningBalance.containsKey(officeId)) {
-                runningBalance = officesRunningBalance.get(officeId);
-            } else {
-                runningBalance = new HashMap<>();
-                officesRunningBalance.put(officeId, runningBalance);
-            }
-            if (!runningBalance.containsKey(accountId)) {
-                runningBalance.put(accountId, (BigDecimal) entries.get("runningBalance"));
-            }
-        }
+    /**
+     * Calculates the running balances of one GL account from its first pending entry onwards. Without an office both the
+     * organization and the office running balances are calculated and the entries are marked as calculated; with an
+     * office only the office running balances of that office are recalculated, as the office level command always did.
+     */
+    private long updateAccountRunningBalance(final Long accountId, final LocalDate fromDate, final Long officeId,
+            final JobCancellationRegistry.CancellationToken cancellation) {
+        final GLAccountType accountType = GLAccountType.fromInt(this.jdbcTemplate
+                .queryForObject("select classification_enum from acc_gl_account where id = ?", Integer.class, accountId));
+        final EntryPosition startPosition = officeId == null ? resolveStartPosition(accountId, fromDate) : new EntryPosition(fromDate, 0L);
+        final Map<Long, BigDecimal> officeBalances = new HashMap<>();
+        BigDecimal organizationBalance = officeId == null
+                ? retrieveBalanceUpTo("organization_running_balance", accountId, null, startPosition)
+                : BigDecimal.ZERO;
 
-        List<JournalEntryData> entryDatas = jdbcTemplate.query(entryMapper.organizationRunningBalanceSchema(), entryMapper, entityDate);
-        if (entryDatas.size() > 0) {
-            // run a batch update of 1000 SQL statements at a time
-            final Integer batchUpdateSize = 1000;
-            ArrayList<String> updateSql = new ArrayList<>();
-            int batchIndex = 0;
-            for (int index = 0; index < entryDatas.size(); index++) {
-                JournalEntryData entryData = entryDatas.get(index);
-                Map<Long, BigDecimal> officeRunningBalanceMap = null;
-                if (officesRunningBalance.containsKey(entryData.getOfficeId())) {
-                    officeRunningBalanceMap = officesRunningBalance.get(entryData.getOfficeId());
+        long updatedEntries = 0;
+        EntryPosition position = startPosition;
+        List<PendingEntry> page = retrievePage(accountId, officeId, position);
+        while (!page.isEmpty()) {
+            final List<Object[]> updates = new ArrayList<>(page.size());
+            for (final PendingEntry entry : page) {
+                final BigDecimal amount = isIncrease(accountType, entry.entryType) ? entry.amount : entry.amount.negate();
+                final BigDecimal officeBalance = officeBalances
+                        .computeIfAbsent(entry.officeId, id -> retrieveBalanceUpTo("office_running_balance", accountId, id, startPosition))
+                        .add(amount);
+                officeBalances.put(entry.officeId, officeBalance);
+                if (officeId == null) {
+                    organizationBalance = organizationBalance.add(amount);
+                    updates.add(new Object[] { organizationBalance, officeBalance, entry.id });
                 } else {
-                    officeRunningBalanceMap = new HashMap<>();
-                    officesRunningBalance.put(entryData.getOfficeId(), officeRunningBalanceMap);
+                    updates.add(new Object[] { officeBalance, entry.id });
                 }
-                BigDecimal officeRunningBalance = calculateRunningBalance(entryData, officeRunningBalanceMap);
-                BigDecimal runningBalance = calculateRunningBalance(entryData, runningBalanceMap);
-                String sql = "UPDATE acc_gl_journal_entry SET is_running_balance_calculated=true, organization_running_balance="
-                        + runningBalance + ",office_running_balance=" + officeRunningBalance + " WHERE  id=" + entryData.getId();
-                updateSql.add(sql);
-                batchIndex++;
-                if (batchIndex == batchUpdateSize || index == entryDatas.size() - 1) {
-                    // run a batch update of the 1000 update SQL statements
-                    String[] batch = new String[updateSql.size()];
-                    updateSql.toArray(batch);
-                    this.jdbcTemplate.batchUpdate(batch);
-                    // reset counter and string array
-                    batchIndex = 0;
-                    updateSql.clear();
+            }
+            final PendingEntry last = page.get(page.size() - 1);
+            this.transactionTemplate.executeWithoutResult(status -> {
+                this.jdbcTemplate.batchUpdate(officeId == null ? UPDATE_BALANCES_SQL : UPDATE_OFFICE_BALANCE_SQL, updates, BATCH_SIZE,
+                        (ps, args) -> {
+                            for (int i = 0; i < args.length; i++) {
+                                ps.setObject(i + 1, args[i]);
+                            }
+                        });
+                if (officeId == null) {
+                    saveWatermark(accountId, last.entryDate, last.id);
                 }
+            });
+            updatedEntries += page.size();
+            position = new EntryPosition(last.entryDate, last.id);
+            if (page.size() < PAGE_SIZE || isCancelled(cancellation)) {
+                break;
             }
+            page = retrievePage(accountId, officeId, position);
         }
-
+        return updatedEntries;
     }
 
-    private void updateRunningBalance(Long officeId, LocalDate entityDate) {
-        Map<Long, BigDecimal> runningBalanceMap = new HashMap<>(5);
-
-        final String offlineRunningBalanceQuery = "select je.office_running_balance as runningBalance,je.account_id as accountId from acc_gl_journal_entry je "
-                + "inner join (select max(id) as id from acc_gl_journal_entry where office_id=?  and entry_date < ? group by account_id,entry_date) je2 ON je2.id = je.id "
-                + "inner join (select max(entry_date) as date from acc_gl_journal_entry where office_id=? and entry_date < ? group by account_id) je3 ON je.entry_date = je3.date "
-                + "group by je.id order by je.entry_date DESC " + sqlGenerator.limit(10000, 0);
-
-        List<Map<String, Object>> list = jdbcTemplate.queryForList(offlineRunningBalanceQuery, // NOSONAR
-                officeId, entityDate, officeId, entityDate);
-        for (Map<String, Object> entries : list) {
-            Long accountId = (Long) entries.get("accountId");
-            if (!runningBalanceMap.containsKey(accountId)) {
-                runningBalanceMap.put(accountId, (BigDecimal) entries.get("runningBalance"));
-            }
+    /**
+     * The calculation of an account may continue from its watermark only when every pending entry of the account comes
+     * after it. A pending entry before the watermark is a backdated posting, which requires the recalculation of all the
+     * entries from its date onwards.
+     */
+    private EntryPosition resolveStartPosition(final Long accountId, final LocalDate fromDate) {
+        final EntryPosition restart = new EntryPosition(fromDate, 0L);
+        final List<EntryPosition> watermarks = this.jdbcTemplate.query(
+                "select entry_date, journal_entry_id from acc_gl_running_balance_watermark where account_id = ?",
+                (rs, rowNum) -> new EntryPosition(JdbcSupport.getLocalDate(rs, "entry_date"), rs.getLong("journal_entry_id")), accountId);
+        if (watermarks.isEmpty() || fromDate.isBefore(watermarks.get(0).entryDate)) {
+            return restart;
         }
-        List<JournalEntryData> entryDatas = jdbcTemplate.query(entryMapper.officeRunningBalanceSchema(), entryMapper, officeId, entityDate);
-        String[] updateSql = new String[entryDatas.size()];
-        int i = 0;
-        for (JournalEntryData entryData : entryDatas) {
-            BigDecimal runningBalance = calculateRunningBalance(entryData, runningBalanceMap);
-            String sql = "UPDATE acc_gl_journal_entry SET office_running_balance=" + runningBalance + " WHERE id=" + entryData.getId();
-            updateSql[i++] = sql;
+        final EntryPosition watermark = watermarks.get(0);
+        final Long firstPendingId = this.jdbcTemplate.queryForObject("select min(je.id) from acc_gl_journal_entry je "
+                + "where je.account_id = ? and je.entry_date = ? and je.is_running_balance_calculated = false", Long.class, accountId,
+                fromDate);
+        if (fromDate.isAfter(watermark.entryDate) || (firstPendingId != null && firstPendingId > watermark.entryId)) {
+            return watermark;
         }
-        this.jdbcTemplate.batchUpdate(updateSql);
+        return restart;
     }
 
-    private BigDecimal calculateRunningBalance(JournalEntryData entry, Map<Long, BigDecimal> runningBalanceMap) {
-        BigDecimal runningBalance = BigDecimal.ZERO;
-        if (runningBalanceMap.containsKey(entry.getGlAccountId())) {
-            runningBalance = runningBalanceMap.get(entry.getGlAccountId());
+    private List<PendingEntry> retrievePage(final Long accountId, final Long officeId, final EntryPosition position) {
+        final StringBuilder sql = new StringBuilder(ENTRY_COLUMNS).append("where je.account_id = ? ");
+        final List<Object> params = new ArrayList<>();
+        params.add(accountId);
+        if (officeId != null) {
+            sql.append("and je.office_id = ? ");
+            params.add(officeId);
         }
-        GLAccountType accounttype = GLAccountType.fromInt(entry.getGlAccountType().getId().intValue());
-        JournalEntryType entryType = JournalEntryType.fromInt(entry.getEntryType().getId().intValue());
-        boolean isIncrease = false;
-        switch (accounttype) {
+        sql.append("and ").append(AFTER_POSITION).append(" order by je.entry_date, je.id ").append(this.sqlGenerator.limit(PAGE_SIZE));
+        params.add(position.entryDate);
+        params.add(position.entryDate);
+        params.add(position.entryId);
+        return this.jdbcTemplate.query(sql.toString(),
+                (rs, rowNum) -> new PendingEntry(rs.getLong("id"), rs.getLong("officeId"), JdbcSupport.getLocalDate(rs, "entryDate"),
+                        JournalEntryType.fromInt(JdbcSupport.getInteger(rs, "entryType")), rs.getBigDecimal("amount")),
+                params.toArray());
+    }
+
+    /**
+     * Returns the running balance stored on the last entry of the account, optionally restricted to an office, at or
+     * before the given position, or zero when there is none.
+     */
+    private BigDecimal retrieveBalanceUpTo(final String balanceColumn, final Long accountId, final Long officeId,
+            final EntryPosition position) {
+        final StringBuilder sql = new StringBuilder("select je.").append(balanceColumn)
+                .append(" from acc_gl_journal_entry je where je.account_id = ? ");
+        final List<Object> params = new ArrayList<>();
+        params.add(accountId);
+        if (officeId != null) {
+            sql.append("and je.office_id = ? ");
+            params.add(officeId);
+        }
+        sql.append("and ").append(UP_TO_POSITION).append(" order by je.entry_date desc, je.id desc ").append(this.sqlGenerator.limit(1));
+        params.add(position.entryDate);
+        params.add(position.entryDate);
+        params.add(position.entryId);
+        final List<BigDecimal> balances = this.jdbcTemplate.queryForList(sql.toString(), BigDecimal.class, params.toArray());
+        return balances.isEmpty() || balances.get(0) == null ? BigDecimal.ZERO : balances.get(0);
+    }
+
+    /**
+     * Writes the watermark of the account with a single upsert, so that two runs creating the first watermark of an
+     * account at the same time cannot fail on its primary key.
+     */
+    private void saveWatermark(final Long accountId, final LocalDate entryDate, final Long entryId) {
+        final String sql = this.sqlGenerator.upsert(
+                "insert into acc_gl_running_balance_watermark (account_id, entry_date, journal_entry_id, updated_on) values (?, ?, ?, ?)",
+                "account_id",
+                "entry_date = " + this.sqlGenerator.insertedValue("entry_date") + ", journal_entry_id = "
+                        + this.sqlGenerator.insertedValue("journal_entry_id") + ", updated_on = "
+                        + this.sqlGenerator.insertedValue("updated_on"));
+        this.jdbcTemplate.update(sql, accountId, entryDate, entryId, DateUtils.getLocalDateTimeOfSystem());
+    }
+
+    private static boolean isIncrease(final GLAccountType accountType, final JournalEntryType entryType) {
+        switch (accountType) {
             case ASSET:
-                if (entryType.isDebitType()) {
-                    isIncrease = true;
-                }
-            break;
-            case EQUITY:
-                if (entryType.isCreditType()) {
-                    isIncrease = true;
-                }
-            break;
             case EXPENSE:
-                if (entryType.isDebitType()) {
-                    isIncrease = true;
-                }
-            break;
+                return entryType.isDebitType();
+            case EQUITY:
             case INCOME:
-                if (entryType.isCreditType()) {
-                    isIncrease = true;
-                }
-            break;
             case LIABILITY:
-                if (entryType.isCreditType()) {
-                    isIncrease = true;
-                }
-            break;
+                return entryType.isCreditType();
+            default:
+                return false;
         }
-        if (isIncrease) {
-            runningBalance = runningBalance.add(entry.getAmount());
-        } else {
-            runningBalance = runningBalance.subtract(entry.getAmount());
-        }
-        runningBalanceMap.put(entry.getGlAccountId(), runningBalance);
-        return runningBalance;
     }
 
-    private static final class GLJournalEntryMapper implements RowMapper<JournalEntryData> {
+    private static boolean isCancelled(final JobCancellationRegistry.CancellationToken cancellation) {
+        return cancellation != null && cancellation.isCancellationRequested();
+    }
+
+    /**
+     * One calculation over all the accounts with pending entries. The accounts are handed out one at a time to as many
+     * workers as the pool has threads, so a single busy account does not hold back the others.
+     */
+    private final class RunningBalanceRun {
+
+        private final Long officeId;
+        private final JobCancellationRegistry.CancellationToken cancellation = JobCancellationRegistry.currentToken();
+        private final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicLong processedAccounts = new AtomicLong();
+        private final AtomicLong updatedEntries = new AtomicLong();
+        private int pendingAccounts;
+        private int workers;
+
+        private RunningBalanceRun(final Long officeId) {
+            this.officeId = officeId;
+        }
+
+        private List<Throwable> execute() {
+            final Map<Long, LocalDate> accounts = retrievePendingAccounts(this.officeId);
+            this.pendingAccounts = accounts.size();
+            if (accounts.isEmpty()) {
+                log.debug("No results found for updation of running balance");
+                return this.errors;
+            }
+            final Queue<Map.Entry<Long, LocalDate>> queue = new ConcurrentLinkedQueue<>(accounts.entrySet());
+            this.workers = jobWorkerPool.workersFor(accounts.size());
+            if (this.workers <= 1) {
+                work(queue);
+            } else {
+                final List<Future<Void>> futures = new ArrayList<>(this.workers);
+                for (int i = 0; i < this.workers; i++) {
+                    futures.add(jobWorkerPool.submit(() -> {
+                        work(queue);
+                        return null;
+                    }));
+                }
+                for (final Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        futures.forEach(f -> f.cancel(true));
+                        this.errors.add(e);
+                        break;
+                    } catch (final ExecutionException e) {
+                        this.errors.add(e.getCause());
+                    }
+                }
+            }
+            if (isCancelled(this.cancellation) && this.processedAccounts.get() < accounts.size()) {
+                this.errors.add(new CancellationException("Cancelled after the running balances of " + this.processedAccounts.get()
+                        + " of " + accounts.size() + " accounts were calculated"));
+            }
+            return this.errors;
+        }
 
-        public String officeRunningBalanceSchema() {
-            return "select je.id as id,je.account_id as glAccountId,je.type_enum as entryType,je.amount as amount, "
-                    + "glAccount.classification_enum as classification,je.office_id as officeId "
-                    + "from acc_gl_journal_entry je , acc_gl_account glAccount " + "where je.account_id = glAccount.id "
-                    + "and je.office_id=? and je.entry_date >= ? order by je.entry_date,je.id";
+        private void work(final Queue<Map.Entry<Long, LocalDate>> queue) {
+            Map.Entry<Long, LocalDate> account;
+            while (!isCancelled(this.cancellation) && (account = queue.poll()) != null) {
+                try {
+                    this.updatedEntries
+                            .addAndGet(updateAccountRunningBalance(account.getKey(), account.getValue(), this.officeId, this.cancellation));
+                    this.processedAccounts.incrementAndGet();
+                } catch (final RuntimeException e) {
+                    log.error("Failed to update the running balance of GL account {}", account.getKey(), e);
+                    this.errors.add(e);
+                }
+            }
         }
 
-        public String organizationRunningBalanceSchema() {
-            return "select je.id as id,je.account_id as glAccountId," + "je.type_enum as entryType,je.amount as amount, "
-                    + "glAccount.classification_enum as classification,je.office_id as officeId  "
-                    + "from acc_gl_journal_entry je , acc_gl_account glAccount " + "where je.account_id = glAccount.id "
-                    + "and je.entry_date >= ? order by je.entry_date,je.id";
+        private Map<String, Object> toMetrics() {
+            final Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("pendingAccounts", this.pendingAccounts);
+            metrics.put("processedAccounts", this.processedAccounts.get());
+            metrics.put("updatedEntries", this.updatedEntries.get());
+            metrics.put("workers", this.workers);
+            metrics.put("failedAccounts", this.errors.size());
+            return metrics;
         }
+    }
 
-        @Override
-        public JournalEntryData mapRow(final ResultSet rs, @SuppressWarnings("unused") final int rowNum) throws SQLException {
+    private static final class EntryPosition {
 
-            final Long id = rs.getLong("id");
-            final Long glAccountId = rs.getLong("glAccountId");
-            final Long officeId = rs.getLong("officeId");
-            final int accountTypeId = JdbcSupport.getInteger(rs, "classification");
-            final EnumOptionData accountType = AccountingEnumerations.gLAccountType(accountTypeId);
-            final BigDecimal amount = rs.getBigDecimal("amount");
-            final int entryTypeId = JdbcSupport.getInteger(rs, "entryType");
-            final EnumOptionData entryType = AccountingEnumerations.journalEntryType(entryTypeId);
+        private final LocalDate entryDate;
+        private final Long entryId;
 
-            return new JournalEntryData(id, officeId, null, null, glAccountId, null, accountType, null, entryType, amount, null, null, null,
-                    null, null, null, null, null, null, null, null, null, null, null, null, null);
+        private EntryPosition(final LocalDate entryDate, final Long entryId) {
+            this.entryDate = entryDate;
+            this.entryId = entryId;
         }
     }
 
+    private static final class PendingEntry {
+
+        private final Long id;
+        private final Long officeId;
+        private final LocalDate entryDate;
+        private final JournalEntryType entryType;
+        private final BigDecimal amount;
+
+        private PendingEntry(final Long id, final Long officeId, final LocalDate entryDate, final JournalEntryType entryType,
+                final BigDecimal amount) {
+            this.id = id;
+            this.officeId = officeId;
+            this.entryDate = entryDate;
+            this.entryType = entryType;
+            this.amount = amount;
+        }
+    }
 }
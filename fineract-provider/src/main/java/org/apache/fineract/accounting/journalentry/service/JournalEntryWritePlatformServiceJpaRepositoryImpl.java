@@ -107,6 +107,7 @@ public class JournalEntryWritePlatformServiceJpaRepositoryImpl implements Journa
     private final PaymentDetailWritePlatformService paymentDetailWritePlatformService;
     private final FinancialActivityAccountRepositoryWrapper financialActivityAccountRepositoryWrapper;
     private final CashBasedAccountingProcessorForClientTransactions accountingProcessorForClientTransactions;
+    private final JournalEntryBatchWriter journalEntryBatchWriter;
 
     @Transactional
     @Override
@@ -434,8 +435,8 @@ public class JournalEntryWritePlatformServiceJpaRepositoryImpl implements Journa
                     expenseMap.put(entry.getExpenseAccount(), amount);
                 }
             }
-            createJournalEntry(provisioningEntry.getCreatedDate(), provisioningEntry.getId(), key.office, key.currency, liabilityMap,
-                    expenseMap);
+            this.journalEntryBatchWriter.collect(() -> createJournalEntry(provisioningEntry.getCreatedDate(), provisioningEntry.getId(),
+                    key.office, key.currency, liabilityMap, expenseMap));
         }
         return "P" + provisioningEntry.getId();
     }
@@ -480,7 +481,7 @@ public class JournalEntryWritePlatformServiceJpaRepositoryImpl implements Journa
                     upfrontAccrualBasedAccountingEnabled, periodicAccrualBasedAccountingEnabled);
             final AccountingProcessorForLoan accountingProcessorForLoan = this.accountingProcessorForLoanFactory
                     .determineProcessor(loanDTO);
-            accountingProcessorForLoan.createJournalEntriesForLoan(loanDTO);
+            this.journalEntryBatchWriter.collect(() -> accountingProcessorForLoan.createJournalEntriesForLoan(loanDTO));
         }
     }
 
@@ -496,7 +497,7 @@ public class JournalEntryWritePlatformServiceJpaRepositoryImpl implements Journa
                     accrualBasedAccountingEnabled);
             final AccountingProcessorForSavings accountingProcessorForSavings = this.accountingProcessorForSavingsFactory
                     .determineProcessor(savingsDTO);
-            accountingProcessorForSavings.createJournalEntriesForSavings(savingsDTO);
+            this.journalEntryBatchWriter.collect(() -> accountingProcessorForSavings.createJournalEntriesForSavings(savingsDTO));
         }
     }
 
@@ -512,7 +513,7 @@ public class JournalEntryWritePlatformServiceJpaRepositoryImpl implements Journa
                     accrualBasedAccountingEnabled);
             final AccountingProcessorForShares accountingProcessorForShares = this.accountingProcessorForSharesFactory
                     .determineProcessor(sharesDTO);
-            accountingProcessorForShares.createJournalEntriesForShares(sharesDTO);
+            this.journalEntryBatchWriter.collect(() -> accountingProcessorForShares.createJournalEntriesForShares(sharesDTO));
         }
 
     }
@@ -755,7 +756,8 @@ public class JournalEntryWritePlatformServiceJpaRepositoryImpl implements Journa
     @Override
     public void createJournalEntriesForClientTransactions(Map<String, Object> accountingBridgeData) {
         final ClientTransactionDTO clientTransactionDTO = this.helper.populateClientTransactionDtoFromMap(accountingBridgeData);
-        accountingProcessorForClientTransactions.createJournalEntriesForClientTransaction(clientTransactionDTO);
+        this.journalEntryBatchWriter
+                .collect(() -> accountingProcessorForClientTransactions.createJournalEntriesForClientTransaction(clientTransactionDTO));
     }
 
     private static class OfficeCurrencyKey {
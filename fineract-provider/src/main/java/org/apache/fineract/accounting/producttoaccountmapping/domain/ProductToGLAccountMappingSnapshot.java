@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.producttoaccountmapping.domain;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable view of all GL account mappings of one product, used by the accounting processors to resolve the account
+ * of a journal entry line without querying the mappings again. It only holds the ids of the GL accounts, which are
+ * loaded within the posting's own transaction, so the cached snapshot never hands out account state.
+ */
+public final class ProductToGLAccountMappingSnapshot {
+
+    private final Map<Integer, Long> coreAccountIds;
+    private final Map<Integer, Map<Long, Long>> paymentTypeAccountIds;
+    private final Map<Integer, Map<Long, Long>> chargeAccountIds;
+
+    private ProductToGLAccountMappingSnapshot(final Builder builder) {
+        this.coreAccountIds = Collections.unmodifiableMap(new HashMap<>(builder.coreAccountIds));
+        this.paymentTypeAccountIds = copyOf(builder.paymentTypeAccountIds);
+        this.chargeAccountIds = copyOf(builder.chargeAccountIds);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the id of the account mapped to the financial account type, or <code>null</code> when the product has no
+     * such mapping.
+     */
+    public Long getCoreAccountId(final int financialAccountType) {
+        return this.coreAccountIds.get(financialAccountType);
+    }
+
+    /**
+     * Returns the id of the account mapped to the financial account type for the payment type, falling back to the core
+     * mapping.
+     */
+    public Long getPaymentTypeAccountId(final int financialAccountType, final Long paymentTypeId) {
+        final Map<Long, Long> accountIds = this.paymentTypeAccountIds.get(financialAccountType);
+        if (accountIds != null && paymentTypeId != null && accountIds.containsKey(paymentTypeId)) {
+            return accountIds.get(paymentTypeId);
+        }
+        return getCoreAccountId(financialAccountType);
+    }
+
+    /**
+     * Returns the id of the account mapped to the financial account type for the charge, falling back to the core
+     * mapping.
+     */
+    public Long getChargeAccountId(final int financialAccountType, final Long chargeId) {
+        final Map<Long, Long> accountIds = this.chargeAccountIds.get(financialAccountType);
+        if (accountIds != null && chargeId != null && accountIds.containsKey(chargeId)) {
+            return accountIds.get(chargeId);
+        }
+        return getCoreAccountId(financialAccountType);
+    }
+
+    private static Map<Integer, Map<Long, Long>> copyOf(final Map<Integer, Map<Long, Long>> accountIds) {
+        final Map<Integer, Map<Long, Long>> copy = new HashMap<>();
+        accountIds.forEach((financialAccountType, ids) -> copy.put(financialAccountType, Collections.unmodifiableMap(new HashMap<>(ids))));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    public static final class Builder {
+
+        private final Map<Integer, Long> coreAccountIds = new HashMap<>();
+        private final Map<Integer, Map<Long, Long>> paymentTypeAccountIds = new HashMap<>();
+        private final Map<Integer, Map<Long, Long>> chargeAccountIds = new HashMap<>();
+
+        private Builder() {}
+
+        /**
+         * Adds one mapping; it is specific to a payment type or a charge when their id is given, a core mapping otherwise.
+         */
+        public Builder mapping(final Integer financialAccountType, final Long glAccountId, final Long paymentTypeId, final Long chargeId) {
+            if (paymentTypeId != null) {
+                this.paymentTypeAccountIds.computeIfAbsent(financialAccountType, type -> new HashMap<>()).put(paymentTypeId, glAccountId);
+            } else if (chargeId != null) {
+                this.chargeAccountIds.computeIfAbsent(financialAccountType, type -> new HashMap<>()).put(chargeId, glAccountId);
+            } else {
+                this.coreAccountIds.put(financialAccountType, glAccountId);
+            }
+            return this;
+        }
+
+        public ProductToGLAccountMappingSnapshot build() {
+            return new ProductToGLAccountMappingSnapshot(this);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.producttoaccountmapping.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.apache.fineract.accounting.producttoaccountmapping.domain.PortfolioProductType;
+import org.apache.fineract.accounting.producttoaccountmapping.domain.ProductToGLAccountMappingSnapshot;
+import org.apache.fineract.infrastructure.core.domain.JdbcSupport;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Service
+@RequiredArgsConstructor
+public class ProductToGLAccountMappingLookupServiceImpl implements ProductToGLAccountMappingLookupService {
+
+    private static final String SNAPSHOTS_OF_TRANSACTION = ProductToGLAccountMappingLookupServiceImpl.class.getName() + ".snapshots";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Also reached on every call while caching is switched off, so snapshots are kept for the rest of the transaction
+     * as well; one posting resolves many journal entry lines against the same product.
+     */
+    @Override
+    @Cacheable(value = "productToGLAccountMappings", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('|' + #productType.name() + '|' + #productId)")
+    public ProductToGLAccountMappingSnapshot retrieveSnapshot(final PortfolioProductType productType, final Long productId) {
+        final Map<String, ProductToGLAccountMappingSnapshot> snapshots = snapshotsOfTransaction();
+        if (snapshots == null) {
+            return loadSnapshot(productType, productId);
+        }
+        return snapshots.computeIfAbsent(productType.name() + "|" + productId, key -> loadSnapshot(productType, productId));
+    }
+
+    private ProductToGLAccountMappingSnapshot loadSnapshot(final PortfolioProductType productType, final Long productId) {
+        final ProductToGLAccountMappingSnapshot.Builder snapshot = ProductToGLAccountMappingSnapshot.builder();
+        this.jdbcTemplate.query(
+                "select financial_account_type, gl_account_id, payment_type, charge_id from acc_product_mapping "
+                        + "where product_id = ? and product_type = ?",
+                rs -> {
+                    snapshot.mapping(JdbcSupport.getInteger(rs, "financial_account_type"), JdbcSupport.getLong(rs, "gl_account_id"),
+                            JdbcSupport.getLong(rs, "payment_type"), JdbcSupport.getLong(rs, "charge_id"));
+                }, productId, productType.getValue());
+        return snapshot.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ProductToGLAccountMappingSnapshot> snapshotsOfTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        final Object boundSnapshots = TransactionSynchronizationManager.getResource(SNAPSHOTS_OF_TRANSACTION);
+        if (boundSnapshots != null) {
+            return (Map<String, ProductToGLAccountMappingSnapshot>) boundSnapshots;
+        }
+        final Map<String, ProductToGLAccountMappingSnapshot> snapshots = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(SNAPSHOTS_OF_TRANSACTION, snapshots);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCompletion(final int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SNAPSHOTS_OF_TRANSACTION);
+            }
+        });
+        return snapshots;
+    }
+}
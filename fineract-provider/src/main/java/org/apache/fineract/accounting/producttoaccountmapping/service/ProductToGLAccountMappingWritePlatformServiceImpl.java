@@ -38,6 +38,7 @@ import org.apache.fineract.accounting.producttoaccountmapping.serialization.Prod
 import org.apache.fineract.infrastructure.core.api.JsonCommand;
 import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
 import org.apache.fineract.portfolio.savings.DepositAccountType;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -53,6 +54,7 @@ public class ProductToGLAccountMappingWritePlatformServiceImpl implements Produc
 
     @Override
     @Transactional
+    @CacheEvict(value = "productToGLAccountMappings", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('|LOAN|' + #loanProductId)")
     public void createLoanProductToGLAccountMapping(final Long loanProductId, final JsonCommand command) {
         final JsonElement element = this.fromApiJsonHelper.parse(command.json());
         final Integer accountingRuleTypeId = this.fromApiJsonHelper.extractIntegerNamed("accountingRule", element, Locale.getDefault());
@@ -159,6 +161,7 @@ public class ProductToGLAccountMappingWritePlatformServiceImpl implements Produc
 
     @Override
     @Transactional
+    @CacheEvict(value = "productToGLAccountMappings", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('|SAVING|' + #savingProductId)")
     public void createSavingProductToGLAccountMapping(final Long savingProductId, final JsonCommand command,
             DepositAccountType accountType) {
         final JsonElement element = this.fromApiJsonHelper.parse(command.json());
@@ -260,6 +263,7 @@ public class ProductToGLAccountMappingWritePlatformServiceImpl implements Produc
 
     @Override
     @Transactional
+    @CacheEvict(value = "productToGLAccountMappings", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('|SHARES|' + #shareProductId)")
     public void createShareProductToGLAccountMapping(final Long shareProductId, final JsonCommand command) {
 
         this.deserializer.validateForShareProductCreate(command.json());
@@ -304,6 +308,7 @@ public class ProductToGLAccountMappingWritePlatformServiceImpl implements Produc
 
     @Override
     @Transactional
+    @CacheEvict(value = "productToGLAccountMappings", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('|LOAN|' + #loanProductId)")
     public Map<String, Object> updateLoanProductToGLAccountMapping(final Long loanProductId, final JsonCommand command,
             final boolean accountingRuleChanged, final int accountingRuleTypeId) {
         /***
@@ -335,6 +340,7 @@ public class ProductToGLAccountMappingWritePlatformServiceImpl implements Produc
 
     @Override
     @Transactional
+    @CacheEvict(value = "productToGLAccountMappings", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('|SAVING|' + #savingsProductId)")
     public Map<String, Object> updateSavingsProductToGLAccountMapping(final Long savingsProductId, final JsonCommand command,
             final boolean accountingRuleChanged, final int accountingRuleTypeId, final DepositAccountType accountType) {
         /***
@@ -367,6 +373,7 @@ public class ProductToGLAccountMappingWritePlatformServiceImpl implements Produc
 
     @Override
     @Transactional
+    @CacheEvict(value = "productToGLAccountMappings", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('|SHARES|' + #shareProductId)")
     public Map<String, Object> updateShareProductToGLAccountMapping(final Long shareProductId, final JsonCommand command,
             final boolean accountingRuleChanged, final int accountingRuleTypeId) {
         /***
@@ -134,6 +134,22 @@ public class LoanProductProvisioningEntry extends AbstractPersistableCustom {
         return this.expenseAccount;
     }
 
+    public Long getCriteriaId() {
+        return this.criteriaId;
+    }
+
+    public LoanProduct getLoanProduct() {
+        return this.loanProduct;
+    }
+
+    public ProvisioningCategory getProvisioningCategory() {
+        return this.provisioningCategory;
+    }
+
+    public Long getOverdueInDays() {
+        return this.overdueInDays;
+    }
+
     // TODO Note that this domain class does equals() & hashCode() on getId()
     // for @JoinColumn attributes, which not all other classes do...
 
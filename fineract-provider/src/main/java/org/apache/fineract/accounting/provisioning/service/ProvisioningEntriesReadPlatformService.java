@@ -20,6 +20,7 @@ package org.apache.fineract.accounting.provisioning.service;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.function.Consumer;
 import org.apache.fineract.accounting.provisioning.data.LoanProductProvisioningEntryData;
 import org.apache.fineract.accounting.provisioning.data.ProvisioningEntryData;
 import org.apache.fineract.infrastructure.core.service.Page;
@@ -29,6 +30,12 @@ public interface ProvisioningEntriesReadPlatformService {
 
     Collection<LoanProductProvisioningEntryData> retrieveLoanProductsProvisioningData(LocalDate date);
 
+    /**
+     * Passes the provisioning data of every loan to the consumer while the rows are streamed, instead of collecting them.
+     * The rows are streamed on the connection of the current transaction, so the consumer must not run any queries.
+     */
+    void retrieveLoanProductsProvisioningData(LocalDate date, Consumer<LoanProductProvisioningEntryData> consumer);
+
     ProvisioningEntryData retrieveProvisioningEntryData(Long entryId);
 
     Page<ProvisioningEntryData> retrieveAllProvisioningEntries(Integer offset, Integer limit);
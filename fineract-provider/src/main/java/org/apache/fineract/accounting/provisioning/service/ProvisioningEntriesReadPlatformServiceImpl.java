@@ -20,12 +20,14 @@ package org.apache.fineract.accounting.provisioning.service;
 
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.fineract.accounting.provisioning.data.LoanData;
@@ -36,21 +38,28 @@ import org.apache.fineract.infrastructure.core.service.Page;
 import org.apache.fineract.infrastructure.core.service.PaginationHelper;
 import org.apache.fineract.infrastructure.core.service.SearchParameters;
 import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseTypeResolver;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProvisioningEntriesReadPlatformServiceImpl implements ProvisioningEntriesReadPlatformService {
 
+    private static final int PROVISIONING_FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
 
     private final PaginationHelper loanProductProvisioningEntryDataPaginationHelper;
     private final PaginationHelper provisioningEntryDataPaginationHelper;
     private final DatabaseSpecificSQLGenerator sqlGenerator;
+    private final DatabaseTypeResolver databaseTypeResolver;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public Collection<LoanProductProvisioningEntryData> retrieveLoanProductsProvisioningData(LocalDate date) {
@@ -60,6 +69,24 @@ public class ProvisioningEntriesReadPlatformServiceImpl implements ProvisioningE
         return this.jdbcTemplate.query(sql, mapper, formattedDate, formattedDate, formattedDate);
     }
 
+    /**
+     * Reads the rows on a forward-only cursor. MySQL only streams them with a fetch size of {@link Integer#MIN_VALUE}, and
+     * PostgreSQL only honours the fetch size with auto-commit turned off, so the query joins or opens a transaction.
+     */
+    @Override
+    public void retrieveLoanProductsProvisioningData(LocalDate date, Consumer<LoanProductProvisioningEntryData> consumer) {
+        String formattedDate = DateUtils.DEFAULT_DATE_FORMATER.format(date);
+        LoanProductProvisioningEntryMapper mapper = new LoanProductProvisioningEntryMapper(sqlGenerator);
+        this.transactionTemplate.executeWithoutResult(status -> this.jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(mapper.schema(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(this.databaseTypeResolver.isMySQL() ? Integer.MIN_VALUE : PROVISIONING_FETCH_SIZE);
+            statement.setString(1, formattedDate);
+            statement.setString(2, formattedDate);
+            statement.setString(3, formattedDate);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, rs.getRow()))));
+    }
+
     private static final class LoanProductProvisioningEntryMapper implements RowMapper<LoanProductProvisioningEntryData> {
 
         private final StringBuilder sqlQuery;
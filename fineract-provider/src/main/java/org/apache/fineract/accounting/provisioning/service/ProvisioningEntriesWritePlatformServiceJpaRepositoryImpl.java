@@ -19,12 +19,19 @@
 package org.apache.fineract.accounting.provisioning.service;
 
 import com.google.gson.JsonObject;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.fineract.accounting.glaccount.domain.GLAccount;
@@ -62,13 +69,12 @@ import org.apache.fineract.organisation.provisioning.data.ProvisioningCriteriaDa
 import org.apache.fineract.organisation.provisioning.domain.ProvisioningCategory;
 import org.apache.fineract.organisation.provisioning.domain.ProvisioningCategoryRepository;
 import org.apache.fineract.organisation.provisioning.service.ProvisioningCriteriaReadPlatformService;
-import org.apache.fineract.portfolio.loanaccount.domain.Loan;
-import org.apache.fineract.portfolio.loanaccount.domain.LoanRepository;
 import org.apache.fineract.portfolio.loanproduct.domain.LoanProduct;
 import org.apache.fineract.portfolio.loanproduct.domain.LoanProductRepository;
 import org.apache.fineract.useradministration.domain.AppUser;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.jpa.JpaSystemException;
 import org.springframework.stereotype.Service;
 
@@ -89,7 +95,7 @@ public class ProvisioningEntriesWritePlatformServiceJpaRepositoryImpl implements
     private final ProvisioningEntriesDefinitionJsonDeserializer fromApiJsonDeserializer;
     private final FromJsonHelper fromApiJsonHelper;
     private final ApplicationEventPublisher eventPublisher;
-    private final LoanRepository loanRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Override
     public CommandProcessingResult createProvisioningJournalEntries(Long provisioningEntryId, JsonCommand command) {
@@ -102,7 +108,7 @@ public class ProvisioningEntriesWritePlatformServiceJpaRepositoryImpl implements
         return new CommandProcessingResultBuilder().withCommandId(command.commandId()).withEntityId(requestedEntry.getId()).build();
     }
 
-    private void revertAndAddJournalEntries(ProvisioningEntryData existingEntryData, ProvisioningEntry requestedEntry) {
+    private ProvisioningEntry revertAndAddJournalEntries(ProvisioningEntryData existingEntryData, ProvisioningEntry requestedEntry) {
         if (existingEntryData != null) {
             validateForCreateJournalEntry(existingEntryData, requestedEntry);
             this.journalEntryWritePlatformService.revertProvisioningJournalEntries(requestedEntry.getCreatedDate(),
@@ -114,8 +120,9 @@ public class ProvisioningEntriesWritePlatformServiceJpaRepositoryImpl implements
             requestedEntry.setJournalEntryCreated(Boolean.TRUE);
         }
 
-        this.provisioningEntryRepository.saveAndFlush(requestedEntry);
+        ProvisioningEntry savedEntry = this.provisioningEntryRepository.saveAndFlush(requestedEntry);
         this.journalEntryWritePlatformService.createProvisioningJournalEntries(requestedEntry);
+        return savedEntry;
     }
 
     private void validateForCreateJournalEntry(ProvisioningEntryData existingEntry, ProvisioningEntry requested) {
@@ -189,15 +196,17 @@ public class ProvisioningEntriesWritePlatformServiceJpaRepositoryImpl implements
         LocalDate lastModifiedDate = null;
         Set<LoanProductProvisioningEntry> nullEntries = null;
         ProvisioningEntry requestedEntry = new ProvisioningEntry(currentUser, date, lastModifiedBy, lastModifiedDate, nullEntries);
-        Collection<LoanProductProvisioningEntry> entries = generateLoanProvisioningEntry(requestedEntry, date);
-        requestedEntry.setProvisioningEntries(entries);
+        Collection<LoanProvisioningGroup> groups = generateLoanProvisioningEntry(requestedEntry, date);
+        requestedEntry.setProvisioningEntries(entriesOf(groups));
+        ProvisioningEntry savedEntry;
         if (addJournalEntries) {
             ProvisioningEntryData exisProvisioningEntryData = this.provisioningEntriesReadPlatformService
                     .retrieveExistingProvisioningIdDateWithJournals();
-            revertAndAddJournalEntries(exisProvisioningEntryData, requestedEntry);
+            savedEntry = revertAndAddJournalEntries(exisProvisioningEntryData, requestedEntry);
         } else {
-            this.provisioningEntryRepository.saveAndFlush(requestedEntry);
+            savedEntry = this.provisioningEntryRepository.saveAndFlush(requestedEntry);
         }
+        linkLoans(savedEntry, groups);
         return requestedEntry;
     }
 
@@ -207,41 +216,85 @@ public class ProvisioningEntriesWritePlatformServiceJpaRepositoryImpl implements
                 .orElseThrow(() -> new ProvisioningEntryNotfoundException(provisioningEntryId));
         requestedEntry.getLoanProductProvisioningEntries().clear();
         this.provisioningEntryRepository.saveAndFlush(requestedEntry);
-        Collection<LoanProductProvisioningEntry> entries = generateLoanProvisioningEntry(requestedEntry, requestedEntry.getCreatedDate());
-        requestedEntry.setProvisioningEntries(entries);
-        this.provisioningEntryRepository.saveAndFlush(requestedEntry);
+        Collection<LoanProvisioningGroup> groups = generateLoanProvisioningEntry(requestedEntry, requestedEntry.getCreatedDate());
+        requestedEntry.setProvisioningEntries(entriesOf(groups));
+        linkLoans(this.provisioningEntryRepository.saveAndFlush(requestedEntry), groups);
         return new CommandProcessingResultBuilder().withCommandId(command.commandId()).withEntityId(requestedEntry.getId()).build();
     }
 
-    private Collection<LoanProductProvisioningEntry> generateLoanProvisioningEntry(ProvisioningEntry parent, LocalDate date) {
-        Collection<LoanProductProvisioningEntryData> entries = this.provisioningEntriesReadPlatformService
-                .retrieveLoanProductsProvisioningData(date);
-        Map<Integer, LoanProductProvisioningEntry> provisioningEntries = new HashMap<>();
-        for (LoanProductProvisioningEntryData data : entries) {
-            LoanProduct loanProduct = this.loanProductRepository.findById(data.getProductId()).orElseThrow();
-            Office office = this.officeRepositoryWrapper.findOneWithNotFoundDetection(data.getOfficeId());
-            ProvisioningCategory provisioningCategory = provisioningCategoryRepository.findById(data.getCategoryId()).orElse(null);
-            GLAccount liabilityAccount = glAccountRepository.findById(data.getLiablityAccount()).orElseThrow();
-            GLAccount expenseAccount = glAccountRepository.findById(data.getExpenseAccount()).orElseThrow();
+    /**
+     * Aggregates the provisioning data of all loans while it is streamed. The rows only carry ids, and as nothing may be
+     * queried until they have all been read, the products, offices, categories and GL accounts of the entries are loaded
+     * afterwards, once each. The loans of every entry are collected by id so that they can be linked with
+     * {@link #linkLoans(ProvisioningEntry, Collection)} once the entries have been saved. An entry needs a category, so
+     * loans whose category is gone by then are left out with a warning.
+     */
+    private Collection<LoanProvisioningGroup> generateLoanProvisioningEntry(ProvisioningEntry parent, LocalDate date) {
+        final Map<LoanProvisioningKey, LoanProvisioningGroup> groups = new LinkedHashMap<>();
+        this.provisioningEntriesReadPlatformService.retrieveLoanProductsProvisioningData(date,
+                data -> groups.computeIfAbsent(LoanProvisioningKey.of(data), LoanProvisioningGroup::new).addLoan(data.getLoanId(),
+                        data.getBalance(), data.getPercentage()));
+
+        final Map<Long, LoanProduct> loanProducts = new HashMap<>();
+        final Map<Long, Office> offices = new HashMap<>();
+        final Map<Long, ProvisioningCategory> provisioningCategories = new HashMap<>();
+        final Map<Long, GLAccount> glAccounts = new HashMap<>();
+        for (Iterator<LoanProvisioningGroup> iterator = groups.values().iterator(); iterator.hasNext();) {
+            LoanProvisioningGroup group = iterator.next();
+            LoanProvisioningKey key = group.key;
+            ProvisioningCategory provisioningCategory = key.categoryId == null ? null
+                    : provisioningCategories.computeIfAbsent(key.categoryId,
+                            id -> this.provisioningCategoryRepository.findById(id).orElse(null));
+            if (provisioningCategory == null) {
+                log.warn("Provisioning category {} not found, skipping the provisioning of loans {}", key.categoryId, group.loanIds);
+                iterator.remove();
+                continue;
+            }
+            LoanProduct loanProduct = loanProducts.computeIfAbsent(key.productId,
+                    id -> this.loanProductRepository.findById(id).orElseThrow());
             MonetaryCurrency currency = loanProduct.getPrincipalAmount().getCurrency();
-            Money money = Money.of(currency, data.getBalance());
-            Money amountToReserve = money.percentageOf(data.getPercentage(), MoneyHelper.getRoundingMode());
-            Long criteraId = data.getCriteriaId();
-            LoanProductProvisioningEntry entry = new LoanProductProvisioningEntry(loanProduct, office, data.getCurrencyCode(),
-                    provisioningCategory, data.getOverdueInDays(), amountToReserve.getAmount(), liabilityAccount, expenseAccount,
-                    criteraId);
-            Loan loan = this.loanRepository.getReferenceById(data.getLoanId());
-            entry.setProvisioningEntry(parent);
-            if (!provisioningEntries.containsKey(entry.partialHashCode())) {
-                entry.addLoan(loan);
-                provisioningEntries.put(entry.partialHashCode(), entry);
-            } else {
-                LoanProductProvisioningEntry entry1 = provisioningEntries.get(entry.partialHashCode());
-                entry1.addLoan(loan);
-                entry1.addReservedAmount(entry.getReservedAmount());
+            BigDecimal reservedAmount = BigDecimal.ZERO;
+            for (int i = 0; i < group.balances.size(); i++) {
+                Money money = Money.of(currency, group.balances.get(i));
+                Money amountToReserve = money.percentageOf(group.percentages.get(i), MoneyHelper.getRoundingMode());
+                reservedAmount = reservedAmount.add(amountToReserve.getAmount());
             }
+            Office office = offices.computeIfAbsent(key.officeId, this.officeRepositoryWrapper::findOneWithNotFoundDetection);
+            GLAccount liabilityAccount = glAccounts.computeIfAbsent(key.liabilityAccountId,
+                    id -> this.glAccountRepository.findById(id).orElseThrow());
+            GLAccount expenseAccount = glAccounts.computeIfAbsent(key.expenseAccountId,
+                    id -> this.glAccountRepository.findById(id).orElseThrow());
+            group.entry = new LoanProductProvisioningEntry(loanProduct, office, key.currencyCode, provisioningCategory, key.overdueInDays,
+                    reservedAmount, liabilityAccount, expenseAccount, key.criteriaId);
+            group.entry.setProvisioningEntry(parent);
+        }
+        return groups.values();
+    }
+
+    private static Collection<LoanProductProvisioningEntry> entriesOf(Collection<LoanProvisioningGroup> groups) {
+        return groups.stream().map(group -> group.entry).collect(Collectors.toList());
+    }
+
+    /**
+     * Links the loans to their saved provisioning entries with one batched insert. Saving may have merged the generated
+     * entries into copies, so they are matched by their grouping key rather than by value, which includes the amount.
+     */
+    private void linkLoans(ProvisioningEntry savedEntry, Collection<LoanProvisioningGroup> groups) {
+        Map<LoanProvisioningKey, Long> savedEntryIds = new HashMap<>();
+        for (LoanProductProvisioningEntry entry : savedEntry.getLoanProductProvisioningEntries()) {
+            savedEntryIds.put(LoanProvisioningKey.of(entry), entry.getId());
+        }
+        List<Object[]> links = new ArrayList<>();
+        for (LoanProvisioningGroup group : groups) {
+            Long entryId = savedEntryIds.getOrDefault(group.key, group.entry.getId());
+            for (Long loanId : group.loanIds) {
+                links.add(new Object[] { loanId, entryId });
+            }
+        }
+        if (!links.isEmpty()) {
+            this.jdbcTemplate.batchUpdate(
+                    "insert into m_loanproduct_provisioning_entry_loans (loan_id, loanproduct_provision_entry_id) values (?, ?)", links);
         }
-        return provisioningEntries.values();
     }
 
     public void postWebHook(ProvisioningEntry requestedEntry) {
@@ -277,4 +330,53 @@ public class ProvisioningEntriesWritePlatformServiceJpaRepositoryImpl implements
         payload.addProperty("createdByFullName", currentUser.getDisplayName());
         payload.addProperty("actionName", "CREATE");
     }
+
+    /**
+     * The grouping the entries always had: everything but the reserved amount.
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class LoanProvisioningKey {
+
+        private final Long criteriaId;
+        private final Long officeId;
+        private final String currencyCode;
+        private final Long productId;
+        private final Long categoryId;
+        private final Long overdueInDays;
+        private final Long liabilityAccountId;
+        private final Long expenseAccountId;
+
+        private static LoanProvisioningKey of(LoanProductProvisioningEntryData data) {
+            return new LoanProvisioningKey(data.getCriteriaId(), data.getOfficeId(), data.getCurrencyCode(), data.getProductId(),
+                    data.getCategoryId(), data.getOverdueInDays(), data.getLiablityAccount(), data.getExpenseAccount());
+        }
+
+        private static LoanProvisioningKey of(LoanProductProvisioningEntry entry) {
+            Long categoryId = entry.getProvisioningCategory() == null ? null : entry.getProvisioningCategory().getId();
+            return new LoanProvisioningKey(entry.getCriteriaId(), entry.getOffice().getId(), entry.getCurrencyCode(),
+                    entry.getLoanProduct().getId(), categoryId, entry.getOverdueInDays(), entry.getLiabilityAccount().getId(),
+                    entry.getExpenseAccount().getId());
+        }
+    }
+
+    private static final class LoanProvisioningGroup {
+
+        private final LoanProvisioningKey key;
+        private final List<Long> loanIds = new ArrayList<>();
+        private final List<BigDecimal> balances = new ArrayList<>();
+        private final List<BigDecimal> percentages = new ArrayList<>();
+        private LoanProductProvisioningEntry entry;
+
+        private LoanProvisioningGroup(LoanProvisioningKey key) {
+            this.key = key;
+        }
+
+        private LoanProvisioningGroup addLoan(Long loanId, BigDecimal balance, BigDecimal percentage) {
+            this.loanIds.add(loanId);
+            this.balances.add(balance);
+            this.percentages.add(percentage);
+            return this;
+        }
+    }
 }
@@ -0,0 +1,37 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.trialbalance.service;
+
+import java.time.LocalDate;
+
+public interface TrialBalanceIncrementalUpdateService {
+
+    /**
+     * Rolls the journal entries not yet marked as part of the trial balance into m_trial_balance, leaving the entries
+     * of {@code cutoffDate} and later for a later run, the same way the full rebuild leaves out the current day.
+     */
+    void rollPendingJournalEntries(LocalDate cutoffDate);
+
+    /**
+     * Rolls all journal entries dated after the last day of m_trial_balance and before {@code cutoffDate} into
+     * m_trial_balance, whether they are marked or not, and marks them. The closing balances are the same running
+     * balances the incremental mode computes, so both modes can be used on the same table.
+     */
+    void rebuildFromLastTrialBalanceDate(LocalDate cutoffDate);
+}
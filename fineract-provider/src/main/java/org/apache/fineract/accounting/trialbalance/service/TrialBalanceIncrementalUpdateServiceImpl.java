@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.trialbalance.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fineract.infrastructure.core.domain.JdbcSupport;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps m_trial_balance up to date from the journal entries whose {@code is_trial_balance_calculated} flag is not set
+ * yet. The pending entries are aggregated per office, account, transaction date and entry date, added to existing rows
+ * or inserted as new ones, and the closing balances of every touched office and account are rolled forward from the
+ * earliest date the delta touched, so back-dated entries correct the rows after them.
+ * <p>
+ * The entries read are marked one by one in the same transaction. An entry that commits while a run is going on is
+ * therefore not lost, whatever its id: it is simply still pending for the next run.
+ * <p>
+ * The full rebuild reads all entries dated after the last day of m_trial_balance instead of the pending ones, and rolls
+ * them in the same way, so a closing balance is the signed running balance of the account whichever mode wrote it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrialBalanceIncrementalUpdateServiceImpl implements TrialBalanceIncrementalUpdateService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String ENTRIES_SQL = "select je.id, je.office_id, je.account_id, je.transaction_date, "
+            + "Date(je.entry_date) as entry_date, CASE WHEN je.type_enum=1 THEN (-1) * je.amount ELSE je.amount END as amount "
+            + "from acc_gl_journal_entry je where ";
+    private static final String PENDING_ENTRIES_SQL = ENTRIES_SQL
+            + "je.is_trial_balance_calculated = false and je.transaction_date < ?";
+    private static final String ENTRIES_AFTER_LAST_TRIAL_BALANCE_SQL = ENTRIES_SQL
+            + "je.transaction_date > (select coalesce(max(created_date), '2010-01-01') from m_trial_balance) and je.transaction_date < ?";
+    private static final String OPENING_BALANCE_SQL = "select closing_balance from m_trial_balance where office_id = ? and account_id = ? "
+            + "and created_date < ? order by created_date desc, entry_date desc limit 1";
+    private static final String EXISTING_ROWS_SQL = "select created_date, entry_date, amount, closing_balance from m_trial_balance "
+            + "where office_id = ? and account_id = ? and created_date >= ?";
+    private static final String INSERT_ROW_SQL = "insert into m_trial_balance (office_id, account_id, amount, entry_date, created_date, "
+            + "closing_balance) values (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_ROW_SQL = "update m_trial_balance set amount = ?, closing_balance = ? "
+            + "where office_id = ? and account_id = ? and created_date = ? and entry_date = ?";
+    private static final String MARK_CALCULATED_SQL = "update acc_gl_journal_entry set is_trial_balance_calculated = true where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void rollPendingJournalEntries(final LocalDate cutoffDate) {
+        rollJournalEntries(PENDING_ENTRIES_SQL, cutoffDate);
+    }
+
+    @Override
+    @Transactional
+    public void rebuildFromLastTrialBalanceDate(final LocalDate cutoffDate) {
+        rollJournalEntries(ENTRIES_AFTER_LAST_TRIAL_BALANCE_SQL, cutoffDate);
+    }
+
+    private void rollJournalEntries(final String entriesSql, final LocalDate cutoffDate) {
+        final Map<TrialBalanceAccount, NavigableMap<TrialBalanceDay, BigDecimal>> deltas = new HashMap<>();
+        final List<Object[]> calculatedEntries = new ArrayList<>();
+        this.jdbcTemplate.query(entriesSql, rs -> {
+            final TrialBalanceAccount account = new TrialBalanceAccount(rs.getLong("office_id"), rs.getLong("account_id"));
+            final TrialBalanceDay day = new TrialBalanceDay(JdbcSupport.getLocalDate(rs, "transaction_date"),
+                    JdbcSupport.getLocalDate(rs, "entry_date"));
+            deltas.computeIfAbsent(account, key -> new TreeMap<>()).merge(day, rs.getBigDecimal("amount"), BigDecimal::add);
+            calculatedEntries.add(new Object[] { rs.getLong("id") });
+        }, cutoffDate);
+        if (calculatedEntries.isEmpty()) {
+            return;
+        }
+
+        final List<Object[]> inserts = new ArrayList<>();
+        final List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<TrialBalanceAccount, NavigableMap<TrialBalanceDay, BigDecimal>> delta : deltas.entrySet()) {
+            rollDelta(delta.getKey(), delta.getValue(), inserts, updates);
+        }
+        batchUpdate(INSERT_ROW_SQL, inserts);
+        batchUpdate(UPDATE_ROW_SQL, updates);
+        batchUpdate(MARK_CALCULATED_SQL, calculatedEntries);
+
+        log.info("{}: {} journal entries rolled into the trial balance, accounts touched: {}, rows inserted: {}, rows updated: {}",
+                ThreadLocalContextUtil.getTenant().getName(), calculatedEntries.size(), deltas.size(), inserts.size(), updates.size());
+    }
+
+    private void rollDelta(final TrialBalanceAccount account, final NavigableMap<TrialBalanceDay, BigDecimal> delta,
+            final List<Object[]> inserts, final List<Object[]> updates) {
+        final LocalDate fromDate = delta.firstKey().transactionDate;
+        final List<BigDecimal> openingBalance = this.jdbcTemplate.queryForList(OPENING_BALANCE_SQL, BigDecimal.class, account.officeId,
+                account.accountId, fromDate);
+
+        final NavigableMap<TrialBalanceDay, BigDecimal> existing = new TreeMap<>();
+        final Map<TrialBalanceDay, BigDecimal> existingClosingBalances = new HashMap<>();
+        this.jdbcTemplate.query(EXISTING_ROWS_SQL, rs -> {
+            final TrialBalanceDay day = new TrialBalanceDay(JdbcSupport.getLocalDate(rs, "created_date"),
+                    JdbcSupport.getLocalDate(rs, "entry_date"));
+            existing.put(day, rs.getBigDecimal("amount"));
+            existingClosingBalances.put(day, rs.getBigDecimal("closing_balance"));
+        }, account.officeId, account.accountId, fromDate);
+
+        final NavigableMap<TrialBalanceDay, BigDecimal> days = new TreeMap<>(existing);
+        delta.forEach((day, amount) -> days.merge(day, amount, BigDecimal::add));
+
+        BigDecimal closingBalance = openingBalance.isEmpty() || openingBalance.get(0) == null ? BigDecimal.ZERO : openingBalance.get(0);
+        for (Map.Entry<TrialBalanceDay, BigDecimal> day : days.entrySet()) {
+            final TrialBalanceDay key = day.getKey();
+            final BigDecimal amount = day.getValue();
+            closingBalance = closingBalance.add(amount);
+            if (!existing.containsKey(key)) {
+                inserts.add(
+                        new Object[] { account.officeId, account.accountId, amount, key.entryDate, key.transactionDate, closingBalance });
+            } else if (existing.get(key).compareTo(amount) != 0 || existingClosingBalances.get(key) == null
+                    || existingClosingBalances.get(key).compareTo(closingBalance) != 0) {
+                updates.add(
+                        new Object[] { amount, closingBalance, account.officeId, account.accountId, key.transactionDate, key.entryDate });
+            }
+        }
+    }
+
+    private void batchUpdate(final String sql, final List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            this.jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    private static final class TrialBalanceAccount {
+
+        private final Long officeId;
+        private final Long accountId;
+
+        TrialBalanceAccount(final Long officeId, final Long accountId) {
+            this.officeId = officeId;
+            this.accountId = accountId;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof TrialBalanceAccount)) {
+                return false;
+            }
+            final TrialBalanceAccount other = (TrialBalanceAccount) obj;
+            return Objects.equals(this.officeId, other.officeId) && Objects.equals(this.accountId, other.accountId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.officeId, this.accountId);
+        }
+    }
+
+    /**
+     * One m_trial_balance row of an office and account, ordered the way closing balances are rolled forward.
+     */
+    private static final class TrialBalanceDay implements Comparable<TrialBalanceDay> {
+
+        private final LocalDate transactionDate;
+        private final LocalDate entryDate;
+
+        TrialBalanceDay(final LocalDate transactionDate, final LocalDate entryDate) {
+            this.transactionDate = transactionDate;
+            this.entryDate = entryDate;
+        }
+
+        @Override
+        public int compareTo(final TrialBalanceDay other) {
+            final int byTransactionDate = this.transactionDate.compareTo(other.transactionDate);
+            return byTransactionDate != 0 ? byTransactionDate : this.entryDate.compareTo(other.entryDate);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof TrialBalanceDay)) {
+                return false;
+            }
+            final TrialBalanceDay other = (TrialBalanceDay) obj;
+            return this.transactionDate.equals(other.transactionDate) && this.entryDate.equals(other.entryDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.transactionDate, this.entryDate);
+        }
+    }
+}
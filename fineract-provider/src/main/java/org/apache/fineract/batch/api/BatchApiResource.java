@@ -92,12 +92,15 @@ public class BatchApiResource {
     @Produces({ MediaType.APPLICATION_JSON })
     @Operation(summary = "Batch requests in a single transaction", description = "The Apache Fineract Batch API is also capable of executing all the requests in a single transaction, by setting a Query Parameter, \"enclosingTransaction=true\". So, if one or more of the requests in a batch returns an erroneous response all of the Data base transactions made by other successful requests will be rolled back.\n"
             + "\n"
-            + "If there has been a rollback in a transaction then a single response will be provided, with a '400' status code and a body consisting of the error details of the first failed request.")
+            + "If there has been a rollback in a transaction then a single response will be provided, with a '400' status code and a body consisting of the error details of the first failed request.\n"
+            + "\n"
+            + "Without an enclosing transaction, the requests which do not reference another request can be executed concurrently by setting the Query Parameter \"parallel=true\". Requests referencing another request still run after the request they reference, and the responses are returned in request order. Only use it for requests which do not affect each other, such as repayments on different loans.")
     @RequestBody(required = true, content = @Content(array = @ArraySchema(schema = @Schema(implementation = BatchRequest.class, description = "request body"))))
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Success", content = @Content(array = @ArraySchema(schema = @Schema(implementation = BatchResponse.class)))) })
     public String handleBatchRequests(
             @DefaultValue("false") @QueryParam("enclosingTransaction") @Parameter(description = "enclosingTransaction", required = false) final boolean enclosingTransaction,
+            @DefaultValue("false") @QueryParam("parallel") @Parameter(description = "parallel", required = false) final boolean parallel,
             @Parameter(hidden = true) final String jsonRequestString, @Context UriInfo uriInfo) {
 
         // Handles user authentication
@@ -113,6 +116,9 @@ public class BatchApiResource {
         // be rolled back on error
         if (enclosingTransaction) {
             result = service.handleBatchRequestsWithEnclosingTransaction(requestList, uriInfo);
+        } else if (parallel) {
+            // Independent requests may run concurrently, dependent requests still run after their parent
+            result = service.handleBatchRequestsInParallel(requestList, uriInfo);
         } else {
             result = service.handleBatchRequestsWithoutEnclosingTransaction(requestList, uriInfo);
         }
@@ -45,6 +45,18 @@ public interface BatchApiService {
      */
     List<BatchResponse> handleBatchRequestsWithoutEnclosingTransaction(List<BatchRequest> requestList, UriInfo uriInfo);
 
+    /**
+     * Returns a list of {@link org.apache.fineract.batch.domain.BatchResponse}s like
+     * {@link #handleBatchRequestsWithoutEnclosingTransaction(List, UriInfo)}, but runs the independent root requests,
+     * together with the requests depending on them, concurrently. It will be used when the Query Parameter "parallel" is
+     * set to 'true' and "enclosingTransaction" is not. The responses are returned in request order.
+     *
+     * @param requestList
+     * @param uriInfo
+     * @return List&lt;BatchResponse&gt;
+     */
+    List<BatchResponse> handleBatchRequestsInParallel(List<BatchRequest> requestList, UriInfo uriInfo);
+
     /**
      * returns a list of {@link org.apache.fineract.batch.domain.BatchResponse}s by getting the appropriate
      * CommandStrategy for every {@link org.apache.fineract.batch.domain.BatchRequest}. It will be used when the Query
@@ -22,6 +22,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
@@ -61,6 +65,7 @@ public class BatchApiServiceImpl implements BatchApiService {
     private final CommandStrategyProvider strategyProvider;
     private final ResolutionHelper resolutionHelper;
     private final TransactionTemplate transactionTemplate;
+    private final BatchRequestWorkerPool workerPool;
 
     /**
      * Returns the response list by getting a proper {@link org.apache.fineract.batch.command.CommandStrategy}.
@@ -68,9 +73,12 @@ public class BatchApiServiceImpl implements BatchApiService {
      *
      * @param requestList
      * @param uriInfo
+     * @param parallel
+     *            whether independent root requests (together with the requests depending on them) may run concurrently
      * @return {@code List<BatchResponse>}
      */
-    private List<BatchResponse> handleBatchRequests(final List<BatchRequest> requestList, final UriInfo uriInfo) {
+    private List<BatchResponse> handleBatchRequests(final List<BatchRequest> requestList, final UriInfo uriInfo,
+            final boolean parallel) {
 
         final List<BatchResponse> responseList = new ArrayList<>(requestList.size());
 
@@ -83,14 +91,12 @@ public class BatchApiServiceImpl implements BatchApiService {
             responseList.add(response);
             return responseList;
         }
-        for (BatchRequestNode rootNode : batchRequestNodes) {
-            final BatchRequest rootRequest = rootNode.getRequest();
-            final CommandStrategy commandStrategy = this.strategyProvider
-                    .getCommandStrategy(CommandContext.resource(rootRequest.getRelativeUrl()).method(rootRequest.getMethod()).build());
-            final BatchResponse rootResponse = safelyExecuteStrategy(commandStrategy, rootRequest, uriInfo);
-
-            responseList.add(rootResponse);
-            responseList.addAll(this.processChildRequests(rootNode, rootResponse, uriInfo));
+        if (parallel && batchRequestNodes.size() > 1) {
+            responseList.addAll(this.processRootRequestsInParallel(batchRequestNodes, uriInfo));
+        } else {
+            for (BatchRequestNode rootNode : batchRequestNodes) {
+                this.processRootRequest(rootNode, uriInfo, responseList);
+            }
         }
 
         Collections.sort(responseList, Comparator.comparing(BatchResponse::getRequestId));
@@ -99,6 +105,100 @@ public class BatchApiServiceImpl implements BatchApiService {
 
     }
 
+    /**
+     * Processes a root request and the requests depending on it, adding every response to the given list as soon as it
+     * is available.
+     */
+    private void processRootRequest(final BatchRequestNode rootNode, final UriInfo uriInfo, final List<BatchResponse> responses) {
+        final BatchRequest rootRequest = rootNode.getRequest();
+        final CommandStrategy commandStrategy = this.strategyProvider
+                .getCommandStrategy(CommandContext.resource(rootRequest.getRelativeUrl()).method(rootRequest.getMethod()).build());
+        final BatchResponse rootResponse = safelyExecuteStrategy(commandStrategy, rootRequest, uriInfo);
+
+        responses.add(rootResponse);
+        this.processChildRequests(rootNode, rootResponse, uriInfo, responses);
+    }
+
+    /**
+     * Root requests never reference another request, so each root and the requests depending on it form an independent
+     * tree. The trees are run on the {@link BatchRequestWorkerPool}, while the requests within a tree keep running one
+     * after another so that references can still be resolved against the parent response. When a tree fails, the
+     * responses it already produced are kept and only its remaining requests are marked as failed. When the pool has no
+     * room left for a tree, its requests are answered with 503 (Service Unavailable) without being run, so the client
+     * can retry them later.
+     */
+    private List<BatchResponse> processRootRequestsInParallel(final List<BatchRequestNode> rootNodes, final UriInfo uriInfo) {
+        final List<List<BatchResponse>> treeResponses = new ArrayList<>(rootNodes.size());
+        final List<Future<List<BatchResponse>>> futures = new ArrayList<>(rootNodes.size());
+        for (BatchRequestNode rootNode : rootNodes) {
+            final List<BatchResponse> responses = Collections.synchronizedList(new ArrayList<>());
+            treeResponses.add(responses);
+            Future<List<BatchResponse>> future;
+            try {
+                future = this.workerPool.submit(() -> {
+                    this.processRootRequest(rootNode, uriInfo, responses);
+                    return responses;
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("Batch worker pool is saturated, rejecting batch request {}", rootNode.getRequest().getRequestId());
+                future = null;
+            }
+            futures.add(future);
+        }
+
+        final List<BatchResponse> responses = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            final BatchRequestNode rootNode = rootNodes.get(i);
+            if (futures.get(i) == null) {
+                addUnansweredRequests(rootNode, responses, Status.SERVICE_UNAVAILABLE,
+                        "Too many batch requests are being processed, retry later");
+                continue;
+            }
+            String failure = null;
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                failure = "Batch request processing was interrupted";
+            } catch (ExecutionException e) {
+                log.warn("Exception while executing batch request {}", rootNode.getRequest().getRequestId(), e.getCause());
+                failure = e.getCause().getMessage();
+            } catch (CancellationException e) {
+                failure = "Batch request processing was interrupted";
+            }
+            synchronized (treeResponses.get(i)) {
+                responses.addAll(treeResponses.get(i));
+            }
+            if (failure != null) {
+                addUnansweredRequests(rootNode, responses, Status.INTERNAL_SERVER_ERROR, failure);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Adds an error response for every request of the tree that has no response yet.
+     */
+    private void addUnansweredRequests(final BatchRequestNode node, final List<BatchResponse> responses, final Status status,
+            final String message) {
+        final Long requestId = node.getRequest().getRequestId();
+        if (responses.stream().noneMatch(response -> requestId.equals(response.getRequestId()))) {
+            responses.add(errorResponse(node.getRequest(), status, message));
+        }
+        for (BatchRequestNode childNode : node.getChildRequests()) {
+            addUnansweredRequests(childNode, responses, status, message);
+        }
+    }
+
+    private BatchResponse errorResponse(final BatchRequest request, final Status status, final String message) {
+        final BatchResponse response = new BatchResponse();
+        response.setRequestId(request.getRequestId());
+        response.setStatusCode(status.getStatusCode());
+        response.setBody(message);
+        return response;
+    }
+
     private BatchResponse safelyExecuteStrategy(CommandStrategy commandStrategy, BatchRequest request, UriInfo uriInfo) {
         try {
             return commandStrategy.execute(request, uriInfo);
@@ -116,9 +216,9 @@ public class BatchApiServiceImpl implements BatchApiService {
         }
     }
 
-    private List<BatchResponse> processChildRequests(final BatchRequestNode rootRequest, BatchResponse rootResponse, UriInfo uriInfo) {
+    private void processChildRequests(final BatchRequestNode rootRequest, BatchResponse rootResponse, UriInfo uriInfo,
+            final List<BatchResponse> childResponses) {
 
-        final List<BatchResponse> childResponses = new ArrayList<>();
         if (rootRequest.getChildRequests().size() > 0) {
 
             for (BatchRequestNode childNode : rootRequest.getChildRequests()) {
@@ -147,7 +247,7 @@ public class BatchApiServiceImpl implements BatchApiService {
                                 "Parent request with id " + rootResponse.getRequestId() + " was erroneous!");
                         childResponse.setBody(conflictError.getMessage());
                     }
-                    childResponses.addAll(this.processChildRequests(childNode, childResponse, uriInfo));
+                    this.processChildRequests(childNode, childResponse, uriInfo, childResponses);
 
                 } catch (Throwable ex) {
 
@@ -160,14 +260,18 @@ public class BatchApiServiceImpl implements BatchApiService {
                 childResponses.add(childResponse);
             }
         }
-
-        return childResponses;
     }
 
     @Override
     public List<BatchResponse> handleBatchRequestsWithoutEnclosingTransaction(final List<BatchRequest> requestList, UriInfo uriInfo) {
 
-        return handleBatchRequests(requestList, uriInfo);
+        return handleBatchRequests(requestList, uriInfo, false);
+    }
+
+    @Override
+    public List<BatchResponse> handleBatchRequestsInParallel(final List<BatchRequest> requestList, final UriInfo uriInfo) {
+
+        return handleBatchRequests(requestList, uriInfo, true);
     }
 
     @Override
@@ -179,7 +283,7 @@ public class BatchApiServiceImpl implements BatchApiService {
                 @Override
                 public List<BatchResponse> doInTransaction(TransactionStatus status) {
                     try {
-                        responseList.addAll(handleBatchRequests(requestList, uriInfo));
+                        responseList.addAll(handleBatchRequests(requestList, uriInfo, false));
                         return responseList;
                     } catch (RuntimeException ex) {
 
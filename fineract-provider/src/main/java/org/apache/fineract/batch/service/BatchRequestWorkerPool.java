@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.batch.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.service.ContextPropagatingCallable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded worker pool on which the Batch API runs independent request trees when a batch is submitted with
+ * "parallel=true". The pool is shared by all batches, so the number of requests executed concurrently stays capped at
+ * its size however many parallel batches are in flight. Trees waiting for a worker are held in a queue of
+ * {@code fineract.batch.queue-capacity}; once it is full, further trees are rejected rather than piling up.
+ */
+@Component
+public class BatchRequestWorkerPool implements DisposableBean {
+
+    private static final int DEFAULT_POOL_SIZE = 8;
+    private static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+    private final ThreadPoolExecutor executor;
+
+    public BatchRequestWorkerPool(final FineractProperties fineractProperties) {
+        final int poolSize = resolvePoolSize(fineractProperties);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(resolveQueueCapacity(fineractProperties)), new CustomizableThreadFactory("fineract-batch-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @throws RejectedExecutionException
+     *             when all workers are busy and the queue is full
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        return this.executor.submit(new ContextPropagatingCallable<>(task));
+    }
+
+    @Override
+    public void destroy() {
+        this.executor.shutdownNow();
+    }
+
+    private static int resolvePoolSize(final FineractProperties fineractProperties) {
+        if (fineractProperties.getBatch() == null || fineractProperties.getBatch().getWorkerPoolSize() <= 0) {
+            return DEFAULT_POOL_SIZE;
+        }
+        return fineractProperties.getBatch().getWorkerPoolSize();
+    }
+
+    private static int resolveQueueCapacity(final FineractProperties fineractProperties) {
+        if (fineractProperties.getBatch() == null || fineractProperties.getBatch().getQueueCapacity() <= 0) {
+            return DEFAULT_QUEUE_CAPACITY;
+        }
+        return fineractProperties.getBatch().getQueueCapacity();
+    }
+}
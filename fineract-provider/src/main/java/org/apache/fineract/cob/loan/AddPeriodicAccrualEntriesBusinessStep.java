@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cob.loan;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import lombok.RequiredArgsConstructor;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.apache.fineract.portfolio.loanaccount.data.LoanScheduleAccrualData;
+import org.apache.fineract.portfolio.loanaccount.domain.Loan;
+import org.apache.fineract.portfolio.loanaccount.service.LoanAccrualWritePlatformService;
+import org.apache.fineract.portfolio.loanaccount.service.LoanReadPlatformService;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class AddPeriodicAccrualEntriesBusinessStep implements LoanCOBBusinessStep {
+
+    private final LoanReadPlatformService loanReadPlatformService;
+    private final LoanAccrualWritePlatformService loanAccrualWritePlatformService;
+
+    @Override
+    public Loan execute(final Loan loan) {
+        final LocalDate tillDate = DateUtils.getBusinessLocalDate();
+        final Collection<LoanScheduleAccrualData> accrualData = this.loanReadPlatformService.retrivePeriodicAccrualData(tillDate,
+                loan.getId());
+        if (accrualData.isEmpty()) {
+            return loan;
+        }
+        try {
+            this.loanAccrualWritePlatformService.addPeriodicAccruals(tillDate, loan.getId(), accrualData);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to add periodic accruals for loan " + loan.getId(), e);
+        }
+        return loan;
+    }
+
+    @Override
+    public String getEnumStyledName() {
+        return "ADD_PERIODIC_ACCRUAL_ENTRIES";
+    }
+
+    @Override
+    public String getHumanReadableName() {
+        return "Add periodic accrual entries";
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cob.loan;
+
+import java.util.List;
+
+/**
+ * Marks loans that the close of business job is working on, so that commands against them are rejected until the job
+ * is done with them.
+ */
+public interface LoanAccountLockService {
+
+    /**
+     * Locks the loans that are not locked yet and returns them, in their given order. It waits for the commands that are
+     * still running against the loans, see {@link #isLoanLocked(Long)}.
+     */
+    List<Long> lockLoans(List<Long> loanIds, String lockOwner);
+
+    void unlockLoan(Long loanId);
+
+    void releaseLocks(String lockOwner);
+
+    /**
+     * Has to be called within the transaction of a command against the loan. The loan row stays locked until that
+     * transaction ends, so the loan cannot be locked while the command is running.
+     */
+    boolean isLoanLocked(Long loanId);
+}
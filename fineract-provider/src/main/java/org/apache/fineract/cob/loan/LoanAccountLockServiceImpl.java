@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cob.loan;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class LoanAccountLockServiceImpl implements LoanAccountLockService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LoanAccountLockServiceImpl(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public List<Long> lockLoans(final List<Long> loanIds, final String lockOwner) {
+        if (loanIds.isEmpty()) {
+            return loanIds;
+        }
+        final String placeholders = String.join(", ", Collections.nCopies(loanIds.size(), "?"));
+        this.jdbcTemplate.queryForList("select id from m_loan where id in (" + placeholders + ") order by id for update", Long.class,
+                loanIds.toArray());
+        final Set<Long> lockedLoanIds = new HashSet<>(this.jdbcTemplate.queryForList(
+                "select loan_id from m_loan_account_locks where loan_id in (" + placeholders + ")", Long.class, loanIds.toArray()));
+        final List<Long> lockableLoanIds = loanIds.stream().filter(loanId -> !lockedLoanIds.contains(loanId))
+                .collect(Collectors.toList());
+
+        final LocalDateTime lockPlacedOn = DateUtils.getLocalDateTimeOfSystem();
+        this.jdbcTemplate.batchUpdate("insert into m_loan_account_locks (loan_id, lock_owner, lock_placed_on) values (?, ?, ?)",
+                lockableLoanIds.stream().map(loanId -> new Object[] { loanId, lockOwner, lockPlacedOn }).collect(Collectors.toList()));
+        return lockableLoanIds;
+    }
+
+    @Override
+    public void unlockLoan(final Long loanId) {
+        this.jdbcTemplate.update("delete from m_loan_account_locks where loan_id = ?", loanId);
+    }
+
+    @Override
+    public void releaseLocks(final String lockOwner) {
+        this.jdbcTemplate.update("delete from m_loan_account_locks where lock_owner = ?", lockOwner);
+    }
+
+    @Override
+    public boolean isLoanLocked(final Long loanId) {
+        this.jdbcTemplate.queryForList("select id from m_loan where id = ? for update", Long.class, loanId);
+        // a locking read sees the lock even when it was committed after this transaction started
+        return !this.jdbcTemplate.queryForList("select loan_id from m_loan_account_locks where loan_id = ? for update", Long.class, loanId)
+                .isEmpty();
+    }
+}
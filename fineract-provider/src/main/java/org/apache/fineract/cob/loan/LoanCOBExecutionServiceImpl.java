@@ -0,0 +1,268 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cob.loan;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.fineract.cob.service.BusinessStepService;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.jobs.annotation.CronTarget;
+import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
+import org.apache.fineract.infrastructure.jobs.exception.JobRangeFailureException;
+import org.apache.fineract.infrastructure.jobs.service.JobName;
+import org.apache.fineract.infrastructure.jobs.service.JobRangeCheckpointService;
+import org.apache.fineract.infrastructure.jobs.service.JobRunMetricsHolder;
+import org.apache.fineract.infrastructure.jobs.service.JobWorkerPool;
+import org.apache.fineract.infrastructure.jobs.service.KeysetPartitionedJobPipeline;
+import org.apache.fineract.portfolio.loanaccount.domain.Loan;
+import org.apache.fineract.portfolio.loanaccount.domain.LoanRepositoryWrapper;
+import org.apache.fineract.portfolio.loanaccount.service.LoanReadPlatformService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Close of business for loans: every active loan is loaded once and run through the {@link LoanCOBBusinessStep}s
+ * configured for the job in {@code m_batch_business_steps}, in their configured order.
+ *
+ * Loans are read in id order and partitioned in ranges over the shared job worker pool by
+ * {@link KeysetPartitionedJobPipeline}, which also checkpoints every committed range so that a re-run on the same
+ * business date resumes after the last one. A range is locked in {@code m_loan_account_locks} before it is processed
+ * and each loan is unlocked as soon as its steps are committed; commands against a locked loan are rejected. A loan
+ * that somebody else holds locked is skipped and reported as failed instead of failing its whole range. All steps
+ * of one loan run in a single transaction, so a loan is either fully closed for the day or not at all.
+ */
+@Service
+public class LoanCOBExecutionServiceImpl implements LoanCOBExecutionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoanCOBExecutionServiceImpl.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String LOCK_OWNER = JobName.LOAN_COB.name();
+
+    private final List<LoanCOBBusinessStep> businessSteps;
+    private final BusinessStepService businessStepService;
+    private final LoanAccountLockService loanAccountLockService;
+    private final LoanReadPlatformService loanReadPlatformService;
+    private final LoanRepositoryWrapper loanRepositoryWrapper;
+    private final TransactionTemplate transactionTemplate;
+    private final JobWorkerPool jobWorkerPool;
+    private final JobRangeCheckpointService jobRangeCheckpointService;
+    private final FineractProperties fineractProperties;
+
+    @Autowired
+    public LoanCOBExecutionServiceImpl(final List<LoanCOBBusinessStep> businessSteps, final BusinessStepService businessStepService,
+            final LoanAccountLockService loanAccountLockService, final LoanReadPlatformService loanReadPlatformService,
+            final LoanRepositoryWrapper loanRepositoryWrapper, final TransactionTemplate transactionTemplate,
+            final JobWorkerPool jobWorkerPool, final JobRangeCheckpointService jobRangeCheckpointService,
+            final FineractProperties fineractProperties) {
+        this.businessSteps = businessSteps;
+        this.businessStepService = businessStepService;
+        this.loanAccountLockService = loanAccountLockService;
+        this.loanReadPlatformService = loanReadPlatformService;
+        this.loanRepositoryWrapper = loanRepositoryWrapper;
+        this.transactionTemplate = transactionTemplate;
+        this.jobWorkerPool = jobWorkerPool;
+        this.jobRangeCheckpointService = jobRangeCheckpointService;
+        this.fineractProperties = fineractProperties;
+    }
+
+    @Override
+    @CronTarget(jobName = JobName.LOAN_COB)
+    public void executeLoanCOB(final Map<String, String> jobParameters) throws JobExecutionException {
+        final int threadPoolSize = Integer.parseInt(jobParameters.get("thread-pool-size"));
+        final int batchSize = Integer.parseInt(jobParameters.get("batch-size"));
+        final int queueCapacity = jobParameters.containsKey("queue-capacity") ? Integer.parseInt(jobParameters.get("queue-capacity"))
+                : threadPoolSize * 2;
+
+        final List<LoanCOBBusinessStep> steps = resolveConfiguredSteps();
+        final StepStatistics statistics = new StepStatistics(steps);
+        if (this.fineractProperties.getJob() == null || !this.fineractProperties.getJob().isLoanCobEnabled()) {
+            // without it commands are not checked against the locks this job places
+            throw new JobExecutionException(
+                    List.of(new IllegalStateException("Loan COB is not enabled, see fineract.job.loan-cob-enabled")));
+        }
+        LOG.info("{}: starting Loan COB with steps {}", ThreadLocalContextUtil.getTenant().getName(), statistics.stepNames());
+
+        // locks still held at this point were left behind by a run that did not finish
+        this.loanAccountLockService.releaseLocks(LOCK_OWNER);
+        try {
+            new KeysetPartitionedJobPipeline(JobName.LOAN_COB.name(), threadPoolSize, batchSize, queueCapacity,
+                    this.loanReadPlatformService::retrieveActiveLoanIds, loanIds -> executeRange(loanIds, steps, statistics),
+                    this.jobWorkerPool, this.jobRangeCheckpointService).run();
+        } finally {
+            this.loanAccountLockService.releaseLocks(LOCK_OWNER);
+            final Map<String, Object> runMetrics = JobRunMetricsHolder.getRunMetrics();
+            if (runMetrics != null) {
+                runMetrics.put("stepStats", statistics.toMetrics());
+            }
+        }
+    }
+
+    private List<LoanCOBBusinessStep> resolveConfiguredSteps() {
+        final Map<String, LoanCOBBusinessStep> availableSteps = this.businessSteps.stream()
+                .collect(Collectors.toMap(LoanCOBBusinessStep::getEnumStyledName, Function.identity()));
+        final List<LoanCOBBusinessStep> steps = new ArrayList<>();
+        for (final String stepName : this.businessStepService.retrieveStepNames(JobName.LOAN_COB.name())) {
+            final LoanCOBBusinessStep step = availableSteps.get(stepName);
+            if (step == null) {
+                throw new IllegalStateException("Unknown Loan COB business step " + stepName + ", available steps are "
+                        + availableSteps.keySet());
+            }
+            steps.add(step);
+        }
+        return steps;
+    }
+
+    private void executeRange(final List<Long> loanIds, final List<LoanCOBBusinessStep> steps, final StepStatistics statistics)
+            throws JobExecutionException {
+        final List<Long> lockedLoanIds = this.loanAccountLockService.lockLoans(loanIds, LOCK_OWNER);
+        final List<Throwable> errors = new ArrayList<>();
+        final List<Long> failedLoanIds = new ArrayList<>();
+        if (lockedLoanIds.size() < loanIds.size()) {
+            final List<Long> skippedLoanIds = new ArrayList<>(loanIds);
+            skippedLoanIds.removeAll(lockedLoanIds);
+            LOG.warn("Loan COB skipped loans {}, they are locked by someone else", skippedLoanIds);
+            errors.add(new IllegalStateException("Loan COB skipped loans " + skippedLoanIds + ", they are locked by someone else"));
+            failedLoanIds.addAll(skippedLoanIds);
+        }
+        for (final Long loanId : lockedLoanIds) {
+            try {
+                executeStepsWithRetry(loanId, steps, statistics);
+            } catch (final Exception e) {
+                LOG.error("Loan COB failed for loan {}", loanId, e);
+                errors.add(e);
+                failedLoanIds.add(loanId);
+            } finally {
+                this.loanAccountLockService.unlockLoan(loanId);
+            }
+        }
+        if (!errors.isEmpty()) {
+            // the other loans of the range are checkpointed, so a resume only runs the steps of the failed ones again
+            throw new JobRangeFailureException(failedLoanIds, errors);
+        }
+    }
+
+    @SuppressFBWarnings(value = {
+            "DMI_RANDOM_USED_ONLY_ONCE" }, justification = "False positive for random object created and used only once")
+    private void executeStepsWithRetry(final Long loanId, final List<LoanCOBBusinessStep> steps, final StepStatistics statistics) {
+        final int maxNumberOfRetries = ThreadLocalContextUtil.getTenant().getConnection().getMaxRetriesOnDeadlock();
+        final int maxIntervalBetweenRetries = ThreadLocalContextUtil.getTenant().getConnection().getMaxIntervalBetweenRetries();
+        int numberOfRetries = 0;
+        while (true) {
+            try {
+                this.transactionTemplate.executeWithoutResult(status -> executeSteps(loanId, steps, statistics));
+                return;
+            } catch (CannotAcquireLockException | ObjectOptimisticLockingFailureException exception) {
+                if (numberOfRetries >= maxNumberOfRetries) {
+                    throw exception;
+                }
+                numberOfRetries++;
+                LOG.info("Loan COB for loan {} has been retried {} time(s)", loanId, numberOfRetries);
+                try {
+                    Thread.sleep(1000L + RANDOM.nextInt(maxIntervalBetweenRetries + 1) * 1000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    private void executeSteps(final Long loanId, final List<LoanCOBBusinessStep> steps, final StepStatistics statistics) {
+        Loan loan = this.loanRepositoryWrapper.findOneWithNotFoundDetection(loanId);
+        for (final LoanCOBBusinessStep step : steps) {
+            final long startNanos = System.nanoTime();
+            boolean failed = true;
+            try {
+                loan = step.execute(loan);
+                // later steps partly read and write through plain JDBC, they have to see what this one did
+                this.loanRepositoryWrapper.flush();
+                failed = false;
+            } finally {
+                statistics.record(step, System.nanoTime() - startNanos, failed);
+            }
+        }
+    }
+
+    /**
+     * Execution counts and timings per business step, shared by all partitions of a run.
+     */
+    private static final class StepStatistics {
+
+        private final Map<String, StepTiming> timings = new LinkedHashMap<>();
+
+        StepStatistics(final List<LoanCOBBusinessStep> steps) {
+            for (final LoanCOBBusinessStep step : steps) {
+                this.timings.put(step.getEnumStyledName(), new StepTiming());
+            }
+        }
+
+        List<String> stepNames() {
+            return new ArrayList<>(this.timings.keySet());
+        }
+
+        void record(final LoanCOBBusinessStep step, final long elapsedNanos, final boolean failed) {
+            final StepTiming timing = this.timings.get(step.getEnumStyledName());
+            timing.executions.incrementAndGet();
+            timing.totalNanos.addAndGet(elapsedNanos);
+            timing.maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            if (failed) {
+                timing.failures.incrementAndGet();
+            }
+        }
+
+        List<Map<String, Object>> toMetrics() {
+            final List<Map<String, Object>> metrics = new ArrayList<>(this.timings.size());
+            for (final Map.Entry<String, StepTiming> entry : this.timings.entrySet()) {
+                final StepTiming timing = entry.getValue();
+                final long executions = timing.executions.get();
+                final Map<String, Object> stepMetrics = new LinkedHashMap<>();
+                stepMetrics.put("step", entry.getKey());
+                stepMetrics.put("executions", executions);
+                stepMetrics.put("failures", timing.failures.get());
+                stepMetrics.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(timing.totalNanos.get()));
+                stepMetrics.put("avgMicros", executions == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(timing.totalNanos.get() / executions));
+                stepMetrics.put("maxMillis", TimeUnit.NANOSECONDS.toMillis(timing.maxNanos.get()));
+                metrics.add(stepMetrics);
+            }
+            return metrics;
+        }
+    }
+
+    private static final class StepTiming {
+
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cob.loan;
+
+import java.time.LocalDate;
+import lombok.RequiredArgsConstructor;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.apache.fineract.portfolio.loanaccount.domain.Loan;
+import org.apache.fineract.portfolio.loanaccount.domain.LoanRepaymentScheduleInstallment;
+import org.apache.fineract.portfolio.loanaccount.service.LoanWritePlatformService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recalculates interest for loans with interest recalculation enabled that have an unpaid installment in the past and
+ * were not recalculated yet on the current business date. Recalculation triggered by floating rate changes is still
+ * done by the stand-alone "Recalculate Interest For Loans" job.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecalculateInterestBusinessStep implements LoanCOBBusinessStep {
+
+    private final LoanWritePlatformService loanWritePlatformService;
+
+    @Override
+    public Loan execute(final Loan loan) {
+        if (!loan.isOpen() || loan.isNpa() || !loan.repaymentScheduleDetail().isInterestRecalculationEnabled()) {
+            return loan;
+        }
+        final LocalDate businessDate = DateUtils.getBusinessLocalDate();
+        if (businessDate.equals(loan.fetchInterestRecalculateFromDate()) || !hasUnpaidInstallmentDueBefore(loan, businessDate)) {
+            return loan;
+        }
+        this.loanWritePlatformService.recalculateInterest(loan.getId());
+        return loan;
+    }
+
+    private boolean hasUnpaidInstallmentDueBefore(final Loan loan, final LocalDate businessDate) {
+        for (final LoanRepaymentScheduleInstallment installment : loan.getRepaymentScheduleInstallments()) {
+            if (installment.getDueDate().isBefore(businessDate) && installment.isNotFullyPaidOff()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getEnumStyledName() {
+        return "RECALCULATE_INTEREST";
+    }
+
+    @Override
+    public String getHumanReadableName() {
+        return "Recalculate interest";
+    }
+}
@@ -19,15 +19,18 @@
 package org.apache.fineract.commands.provider;
 
 import com.google.common.base.Preconditions;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Map;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.fineract.commands.annotation.CommandType;
+import org.apache.fineract.commands.domain.CommandWrapper;
 import org.apache.fineract.commands.exception.UnsupportedCommandException;
 import org.apache.fineract.commands.handler.NewCommandSourceHandler;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
@@ -36,7 +39,12 @@ import org.springframework.stereotype.Component;
  * {@link CommandHandlerProvider} provides {@link NewCommandSourceHandler}s for a given entity and action. <br>
  * <br>
  * A {@link NewCommandSourceHandler} can be registered and the annotation {@link CommandType} is used to determine the
- * entity and the action the handler is capable to process.
+ * entity and the action the handler is capable to process. Handlers for datatable, note, survey and disbursement detail
+ * resources are selected by {@link ResourceCommandHandler} instead, as their routing depends on more than the entity and
+ * the action.<br>
+ * <br>
+ * The dispatch table is built once all singletons are instantiated and is immutable afterwards; duplicate registrations
+ * and missing resource handlers fail the application start-up rather than the first request that needs them.
  *
  * @author Markus Geiss
  * @version 1.0
@@ -47,10 +55,11 @@ import org.springframework.stereotype.Component;
 @Component
 @NoArgsConstructor
 @Slf4j
-public class CommandHandlerProvider implements ApplicationContextAware {
+public class CommandHandlerProvider implements ApplicationContextAware, SmartInitializingSingleton {
 
     private ApplicationContext applicationContext;
-    private HashMap<String, String> registeredHandlers;
+    private Map<String, Map<String, NewCommandSourceHandler>> registeredHandlers;
+    private Map<ResourceCommandHandler, NewCommandSourceHandler> resourceHandlers;
 
     /**
      * Returns a handler for the given entity and action.<br>
@@ -66,36 +75,83 @@ public class CommandHandlerProvider implements ApplicationContextAware {
     public NewCommandSourceHandler getHandler(final String entity, final String action) {
         Preconditions.checkArgument(StringUtils.isNoneEmpty(entity), "An entity must be given!");
         Preconditions.checkArgument(StringUtils.isNoneEmpty(action), "An action must be given!");
+        Preconditions.checkState(this.registeredHandlers != null, "Command handlers are not registered yet!");
 
-        final String key = entity + "|" + action;
-        if (!this.registeredHandlers.containsKey(key)) {
-            throw new UnsupportedCommandException(key);
+        final Map<String, NewCommandSourceHandler> handlersForEntity = this.registeredHandlers.get(entity);
+        final NewCommandSourceHandler handler = handlersForEntity == null ? null : handlersForEntity.get(action);
+        if (handler == null) {
+            throw new UnsupportedCommandException(entity + "|" + action);
+        }
+        return handler;
+    }
+
+    /**
+     * Returns the handler for the given command, taking the resource specific routing of datatable, note, survey and
+     * disbursement detail commands into account.<br>
+     * <br>
+     * Throws an {@link UnsupportedCommandException} if no handler for the given command can be found.
+     *
+     * @param wrapper
+     *            the command to lookup the handler, must be given.
+     */
+    public NewCommandSourceHandler getHandler(final CommandWrapper wrapper) {
+        if (!ResourceCommandHandler.isResourceCommand(wrapper)) {
+            return getHandler(wrapper.entityName(), wrapper.actionName());
         }
-        return (NewCommandSourceHandler) this.applicationContext.getBean(this.registeredHandlers.get(key));
+        final ResourceCommandHandler resourceHandler = ResourceCommandHandler.resolve(wrapper);
+        if (resourceHandler == null) {
+            throw new UnsupportedCommandException(wrapper.commandName());
+        }
+        return this.resourceHandlers.get(resourceHandler);
     }
 
     private void initializeHandlerRegistry() {
-        if (this.registeredHandlers == null) {
-            this.registeredHandlers = new HashMap<>();
+        final Map<String, Map<String, NewCommandSourceHandler>> handlers = new HashMap<>();
+        final Map<String, String> handlerNames = new HashMap<>();
 
-            final String[] commandHandlerBeans = this.applicationContext.getBeanNamesForAnnotation(CommandType.class);
-            if (ArrayUtils.isNotEmpty(commandHandlerBeans)) {
-                for (final String commandHandlerName : commandHandlerBeans) {
-                    log.debug("Register command handler '{}' ...", commandHandlerName);
-                    final CommandType commandType = this.applicationContext.findAnnotationOnBean(commandHandlerName, CommandType.class);
-                    try {
-                        this.registeredHandlers.put(commandType.entity() + "|" + commandType.action(), commandHandlerName);
-                    } catch (final Throwable th) {
-                        log.error("Unable to register command handler '{}'!", commandHandlerName, th);
-                    }
-                }
+        final String[] commandHandlerBeans = this.applicationContext.getBeanNamesForAnnotation(CommandType.class);
+        for (final String commandHandlerName : commandHandlerBeans) {
+            log.debug("Register command handler '{}' ...", commandHandlerName);
+            final CommandType commandType = this.applicationContext.findAnnotationOnBean(commandHandlerName, CommandType.class);
+            final String key = commandType.entity() + "|" + commandType.action();
+            final String registeredName = handlerNames.putIfAbsent(key, commandHandlerName);
+            if (registeredName != null) {
+                throw new IllegalStateException("Command handlers '" + registeredName + "' and '" + commandHandlerName
+                        + "' are both registered for " + key);
             }
+            handlers.computeIfAbsent(commandType.entity(), entity -> new HashMap<>()).put(commandType.action(),
+                    lookupHandler(commandHandlerName));
+        }
+
+        final Map<String, Map<String, NewCommandSourceHandler>> immutableHandlers = new HashMap<>();
+        handlers.forEach((entity, handlersForEntity) -> immutableHandlers.put(entity, Map.copyOf(handlersForEntity)));
+        this.registeredHandlers = Map.copyOf(immutableHandlers);
+
+        final Map<ResourceCommandHandler, NewCommandSourceHandler> resolvedResourceHandlers = new EnumMap<>(ResourceCommandHandler.class);
+        for (final ResourceCommandHandler resourceHandler : ResourceCommandHandler.values()) {
+            resolvedResourceHandlers.put(resourceHandler, lookupHandler(resourceHandler.getBeanName()));
+        }
+        this.resourceHandlers = resolvedResourceHandlers;
+
+        log.info("Registered {} command handlers and {} resource command handlers", handlerNames.size(),
+                resolvedResourceHandlers.size());
+    }
+
+    private NewCommandSourceHandler lookupHandler(final String commandHandlerName) {
+        try {
+            return this.applicationContext.getBean(commandHandlerName, NewCommandSourceHandler.class);
+        } catch (final BeansException e) {
+            throw new IllegalStateException("Unable to register command handler '" + commandHandlerName + "'", e);
         }
     }
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
         this.initializeHandlerRegistry();
     }
 }
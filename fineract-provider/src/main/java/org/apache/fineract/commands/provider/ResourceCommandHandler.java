@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.commands.provider;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.fineract.commands.annotation.CommandType;
+import org.apache.fineract.commands.domain.CommandWrapper;
+
+/**
+ * Command handlers for resources whose routing depends on the href, entity and sub-entity of a command rather than on
+ * its entity and action only. The handlers are not annotated with {@link CommandType} and are looked up by bean name
+ * once, when {@link CommandHandlerProvider} builds its dispatch table.
+ */
+@Getter
+@RequiredArgsConstructor
+enum ResourceCommandHandler {
+
+    CREATE_DATATABLE("createDatatableCommandHandler"), //
+    DELETE_DATATABLE("deleteDatatableCommandHandler"), //
+    UPDATE_DATATABLE("updateDatatableCommandHandler"), //
+    CREATE_DATATABLE_ENTRY("createDatatableEntryCommandHandler"), //
+    UPDATE_ONE_TO_MANY_DATATABLE_ENTRY("updateOneToManyDatatableEntryCommandHandler"), //
+    UPDATE_ONE_TO_ONE_DATATABLE_ENTRY("updateOneToOneDatatableEntryCommandHandler"), //
+    DELETE_ONE_TO_MANY_DATATABLE_ENTRY("deleteOneToManyDatatableEntryCommandHandler"), //
+    DELETE_ONE_TO_ONE_DATATABLE_ENTRY("deleteOneToOneDatatableEntryCommandHandler"), //
+    REGISTER_DATATABLE("registerDatatableCommandHandler"), //
+    CREATE_NOTE("createNoteCommandHandler"), //
+    UPDATE_NOTE("updateNoteCommandHandler"), //
+    DELETE_NOTE("deleteNoteCommandHandler"), //
+    REGISTER_SURVEY("registerSurveyCommandHandler"), //
+    FULFIL_SURVEY("fullFilSurveyCommandHandler"), //
+    UPDATE_DISBURSEMENT_DATE("updateLoanDisbuseDateCommandHandler"), //
+    ADD_AND_DELETE_DISBURSEMENT_DETAILS("addAndDeleteLoanDisburseDetailsCommandHandler");
+
+    private final String beanName;
+
+    static boolean isResourceCommand(final CommandWrapper wrapper) {
+        return wrapper.isDatatableResource() || wrapper.isNoteResource() || wrapper.isSurveyResource()
+                || wrapper.isLoanDisburseDetailResource();
+    }
+
+    /**
+     * Returns the resource handler for the given command, or <code>null</code> if the command targets one of the
+     * resources but none of its handlers supports it.
+     */
+    static ResourceCommandHandler resolve(final CommandWrapper wrapper) {
+        if (wrapper.isDatatableResource()) {
+            return resolveDatatable(wrapper);
+        } else if (wrapper.isNoteResource()) {
+            if (wrapper.isCreate()) {
+                return CREATE_NOTE;
+            } else if (wrapper.isUpdate()) {
+                return UPDATE_NOTE;
+            } else if (wrapper.isDelete()) {
+                return DELETE_NOTE;
+            }
+        } else if (wrapper.isSurveyResource()) {
+            if (wrapper.isRegisterSurvey()) {
+                return REGISTER_SURVEY;
+            } else if (wrapper.isFullFilSurvey()) {
+                return FULFIL_SURVEY;
+            }
+        } else if (wrapper.isLoanDisburseDetailResource()) {
+            if (wrapper.isUpdateDisbursementDate()) {
+                return UPDATE_DISBURSEMENT_DATE;
+            } else if (wrapper.addAndDeleteDisbursementDetails()) {
+                return ADD_AND_DELETE_DISBURSEMENT_DETAILS;
+            }
+        }
+        return null;
+    }
+
+    private static ResourceCommandHandler resolveDatatable(final CommandWrapper wrapper) {
+        if (wrapper.isCreateDatatable()) {
+            return CREATE_DATATABLE;
+        } else if (wrapper.isDeleteDatatable()) {
+            return DELETE_DATATABLE;
+        } else if (wrapper.isUpdateDatatable()) {
+            return UPDATE_DATATABLE;
+        } else if (wrapper.isCreate()) {
+            return CREATE_DATATABLE_ENTRY;
+        } else if (wrapper.isUpdateMultiple()) {
+            return UPDATE_ONE_TO_MANY_DATATABLE_ENTRY;
+        } else if (wrapper.isUpdateOneToOne()) {
+            return UPDATE_ONE_TO_ONE_DATATABLE_ENTRY;
+        } else if (wrapper.isDeleteMultiple()) {
+            return DELETE_ONE_TO_MANY_DATATABLE_ENTRY;
+        } else if (wrapper.isDeleteOneToOne()) {
+            return DELETE_ONE_TO_ONE_DATATABLE_ENTRY;
+        } else if (wrapper.isRegisterDatatable()) {
+            return REGISTER_DATATABLE;
+        }
+        return null;
+    }
+}
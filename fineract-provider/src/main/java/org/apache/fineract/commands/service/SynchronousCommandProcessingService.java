@@ -29,15 +29,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.fineract.batch.exception.ErrorHandler;
 import org.apache.fineract.batch.exception.ErrorInfo;
+import org.apache.fineract.cob.exceptions.LoanAccountLockedException;
+import org.apache.fineract.cob.loan.LoanAccountLockService;
 import org.apache.fineract.commands.domain.CommandSource;
 import org.apache.fineract.commands.domain.CommandSourceRepository;
 import org.apache.fineract.commands.domain.CommandWrapper;
 import org.apache.fineract.commands.exception.RollbackTransactionAsCommandIsNotApprovedByCheckerException;
-import org.apache.fineract.commands.exception.UnsupportedCommandException;
 import org.apache.fineract.commands.handler.NewCommandSourceHandler;
 import org.apache.fineract.commands.provider.CommandHandlerProvider;
 import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
 import org.apache.fineract.infrastructure.core.api.JsonCommand;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
 import org.apache.fineract.infrastructure.core.data.CommandProcessingResult;
 import org.apache.fineract.infrastructure.core.data.CommandProcessingResultBuilder;
 import org.apache.fineract.infrastructure.core.serialization.ToApiJsonSerializer;
@@ -56,6 +58,9 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class SynchronousCommandProcessingService implements CommandProcessingService {
 
+    private static final Gson GSON = new Gson();
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+
     private final PlatformSecurityContext context;
     private final ApplicationContext applicationContext;
     private final ToApiJsonSerializer<Map<String, Object>> toApiJsonSerializer;
@@ -63,12 +68,16 @@ public class SynchronousCommandProcessingService implements CommandProcessingSer
     private final CommandSourceRepository commandSourceRepository;
     private final ConfigurationDomainService configurationDomainService;
     private final CommandHandlerProvider commandHandlerProvider;
+    private final LoanAccountLockService loanAccountLockService;
+    private final FineractProperties fineractProperties;
 
     @Transactional
     @Override
     public CommandProcessingResult processAndLogCommand(final CommandWrapper wrapper, final JsonCommand command,
             final boolean isApprovedByChecker) {
 
+        rejectCommandOnLockedLoan(wrapper);
+
         final boolean rollbackTransaction = this.configurationDomainService.isMakerCheckerEnabledForTask(wrapper.taskPermissionName());
 
         final NewCommandSourceHandler handler = findCommandHandler(wrapper);
@@ -143,62 +152,21 @@ public class SynchronousCommandProcessingService implements CommandProcessingSer
                 .withEntityId(commandSourceResult.getResourceId()).build();
     }
 
-    private NewCommandSourceHandler findCommandHandler(final CommandWrapper wrapper) {
-        NewCommandSourceHandler handler = null;
-
-        if (wrapper.isDatatableResource()) {
-            if (wrapper.isCreateDatatable()) {
-                handler = this.applicationContext.getBean("createDatatableCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isDeleteDatatable()) {
-                handler = this.applicationContext.getBean("deleteDatatableCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isUpdateDatatable()) {
-                handler = this.applicationContext.getBean("updateDatatableCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isCreate()) {
-                handler = this.applicationContext.getBean("createDatatableEntryCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isUpdateMultiple()) {
-                handler = this.applicationContext.getBean("updateOneToManyDatatableEntryCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isUpdateOneToOne()) {
-                handler = this.applicationContext.getBean("updateOneToOneDatatableEntryCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isDeleteMultiple()) {
-                handler = this.applicationContext.getBean("deleteOneToManyDatatableEntryCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isDeleteOneToOne()) {
-                handler = this.applicationContext.getBean("deleteOneToOneDatatableEntryCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isRegisterDatatable()) {
-                handler = this.applicationContext.getBean("registerDatatableCommandHandler", NewCommandSourceHandler.class);
-            } else {
-                throw new UnsupportedCommandException(wrapper.commandName());
-            }
-        } else if (wrapper.isNoteResource()) {
-            if (wrapper.isCreate()) {
-                handler = this.applicationContext.getBean("createNoteCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isUpdate()) {
-                handler = this.applicationContext.getBean("updateNoteCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isDelete()) {
-                handler = this.applicationContext.getBean("deleteNoteCommandHandler", NewCommandSourceHandler.class);
-            } else {
-                throw new UnsupportedCommandException(wrapper.commandName());
-            }
-        } else if (wrapper.isSurveyResource()) {
-            if (wrapper.isRegisterSurvey()) {
-                handler = this.applicationContext.getBean("registerSurveyCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.isFullFilSurvey()) {
-                handler = this.applicationContext.getBean("fullFilSurveyCommandHandler", NewCommandSourceHandler.class);
-            } else {
-                throw new UnsupportedCommandException(wrapper.commandName());
-            }
-        } else if (wrapper.isLoanDisburseDetailResource()) {
-            if (wrapper.isUpdateDisbursementDate()) {
-                handler = this.applicationContext.getBean("updateLoanDisbuseDateCommandHandler", NewCommandSourceHandler.class);
-            } else if (wrapper.addAndDeleteDisbursementDetails()) {
-                handler = this.applicationContext.getBean("addAndDeleteLoanDisburseDetailsCommandHandler", NewCommandSourceHandler.class);
-            } else {
-                throw new UnsupportedCommandException(wrapper.commandName());
-            }
-        } else {
-            handler = this.commandHandlerProvider.getHandler(wrapper.entityName(), wrapper.actionName());
+    private void rejectCommandOnLockedLoan(final CommandWrapper wrapper) {
+        if (this.fineractProperties.getJob() == null || !this.fineractProperties.getJob().isLoanCobEnabled()) {
+            return;
+        }
+        Long loanId = wrapper.getLoanId();
+        if (loanId == null && "LOAN".equals(wrapper.getEntityName())) {
+            loanId = wrapper.getEntityId();
+        }
+        if (loanId != null && this.loanAccountLockService.isLoanLocked(loanId)) {
+            throw new LoanAccountLockedException(loanId);
         }
+    }
 
-        return handler;
+    private NewCommandSourceHandler findCommandHandler(final CommandWrapper wrapper) {
+        return this.commandHandlerProvider.getHandler(wrapper);
     }
 
     @Override
@@ -222,55 +190,51 @@ public class SynchronousCommandProcessingService implements CommandProcessingSer
     }
 
     private void publishEvent(final String entityName, final String actionName, JsonCommand command, final Object result) {
-        Gson gson = new Gson();
         try {
-            final AppUser appUser = this.context.authenticatedUser(CommandWrapper.wrap(actionName, entityName, null, null));
-
-            final HookEventSource hookEventSource = new HookEventSource(entityName, actionName);
-
             // TODO: Add support for publishing array events
-            if (command.json() != null && command.json().startsWith("{")) {
-                Type type = new TypeToken<Map<String, Object>>() {
-
-                }.getType();
-                Map<String, Object> myMap = gson.fromJson(command.json(), type);
-
-                Map<String, Object> reqmap = new HashMap<>();
+            final String requestJson = command.json();
+            if (requestJson == null || !requestJson.startsWith("{")) {
+                return;
+            }
+            final AppUser appUser = this.context.authenticatedUser(CommandWrapper.wrap(actionName, entityName, null, null));
+            final Long createdBy = appUser.getId();
+            final String createdByName = appUser.getUsername();
+            final String createdByFullName = appUser.getDisplayName();
+            final Object response = result instanceof CommandProcessingResult
+                    ? CommandProcessingResult.fromCommandProcessingResult((CommandProcessingResult) result)
+                    : result;
+            final String timestamp = Instant.now().toString();
+
+            // the payload is only serialized if a hook listens to this event, and then on the hook delivery thread
+            final HookEvent applicationEvent = new HookEvent(new HookEventSource(entityName, actionName), () -> {
+                final Map<String, Object> reqmap = new HashMap<>();
                 reqmap.put("entityName", entityName);
                 reqmap.put("actionName", actionName);
-                reqmap.put("createdBy", context.authenticatedUser().getId());
-                reqmap.put("createdByName", context.authenticatedUser().getUsername());
-                reqmap.put("createdByFullName", context.authenticatedUser().getDisplayName());
-
-                reqmap.put("request", myMap);
-                if (result instanceof CommandProcessingResult) {
-                    CommandProcessingResult resultCopy = CommandProcessingResult
-                            .fromCommandProcessingResult((CommandProcessingResult) result);
-
+                reqmap.put("createdBy", createdBy);
+                reqmap.put("createdByName", createdByName);
+                reqmap.put("createdByFullName", createdByFullName);
+                reqmap.put("request", GSON.fromJson(requestJson, MAP_TYPE));
+                if (response instanceof CommandProcessingResult) {
+                    final CommandProcessingResult resultCopy = (CommandProcessingResult) response;
                     reqmap.put("officeId", resultCopy.getOfficeId());
                     reqmap.put("clientId", resultCopy.getClientId());
                     resultCopy.setOfficeId(null);
                     reqmap.put("response", resultCopy);
-                } else if (result instanceof ErrorInfo) {
-                    ErrorInfo ex = (ErrorInfo) result;
+                } else if (response instanceof ErrorInfo) {
+                    final ErrorInfo ex = (ErrorInfo) response;
                     reqmap.put("status", "Exception");
 
-                    Map<String, Object> errorMap = gson.fromJson(ex.getMessage(), type);
+                    final Map<String, Object> errorMap = GSON.fromJson(ex.getMessage(), MAP_TYPE);
                     errorMap.put("errorCode", ex.getErrorCode());
                     errorMap.put("statusCode", ex.getStatusCode());
 
                     reqmap.put("response", errorMap);
                 }
+                reqmap.put("timestamp", timestamp);
+                return this.toApiResultJsonSerializer.serialize(reqmap);
+            }, appUser, ThreadLocalContextUtil.getContext());
 
-                reqmap.put("timestamp", Instant.now().toString());
-
-                final String serializedResult = this.toApiResultJsonSerializer.serialize(reqmap);
-
-                final HookEvent applicationEvent = new HookEvent(hookEventSource, serializedResult, appUser,
-                        ThreadLocalContextUtil.getContext());
-
-                applicationContext.publishEvent(applicationEvent);
-            }
+            applicationContext.publishEvent(applicationEvent);
         } catch (Exception e) {
             log.error("Error", e);
         }
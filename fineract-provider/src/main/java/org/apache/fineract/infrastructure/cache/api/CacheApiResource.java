@@ -43,6 +43,7 @@ import org.apache.fineract.commands.domain.CommandWrapper;
 import org.apache.fineract.commands.service.CommandWrapperBuilder;
 import org.apache.fineract.commands.service.PortfolioCommandSourceWritePlatformService;
 import org.apache.fineract.infrastructure.cache.data.CacheData;
+import org.apache.fineract.infrastructure.cache.data.CacheStatisticsData;
 import org.apache.fineract.infrastructure.cache.service.RuntimeDelegatingCacheManager;
 import org.apache.fineract.infrastructure.core.api.ApiRequestParameterHelper;
 import org.apache.fineract.infrastructure.core.data.CommandProcessingResult;
@@ -61,7 +62,8 @@ import org.springframework.stereotype.Component;
 @Scope("singleton")
 @Tag(name = "Cache", description = "The following settings are possible for cache:\n" + "\n" + "No Caching: caching turned off\n"
         + "Single node: caching on for single instance deployments of platorm (works for multiple tenants but only one tomcat)\n"
-        + "By default caching is set to No Caching. Switching between caches results in the cache been clear e.g. from Single node to No cache and back again would clear down the single node cache.")
+        + "Multi node: caching on every node of a horizontally scaled deployment, evictions are passed on to the other nodes\n"
+        + "By default caching is set to Single node. Switching between caches results in the cache been clear e.g. from Single node to No cache and back again would clear down the single node cache.")
 public class CacheApiResource {
 
     private static final Set<String> RESPONSE_DATA_PARAMETERS = new HashSet<>(Arrays.asList("id"));
@@ -69,6 +71,7 @@ public class CacheApiResource {
 
     private final PlatformSecurityContext context;
     private final DefaultToApiJsonSerializer<CacheData> toApiJsonSerializer;
+    private final DefaultToApiJsonSerializer<CacheStatisticsData> statisticsJsonSerializer;
     private final ApiRequestParameterHelper apiRequestParameterHelper;
     private final PortfolioCommandSourceWritePlatformService commandsSourceWritePlatformService;
     private final RuntimeDelegatingCacheManager cacheService;
@@ -76,11 +79,14 @@ public class CacheApiResource {
     @Autowired
     public CacheApiResource(final PlatformSecurityContext context,
             @Qualifier("runtimeDelegatingCacheManager") final RuntimeDelegatingCacheManager cacheService,
-            final DefaultToApiJsonSerializer<CacheData> toApiJsonSerializer, final ApiRequestParameterHelper apiRequestParameterHelper,
+            final DefaultToApiJsonSerializer<CacheData> toApiJsonSerializer,
+            final DefaultToApiJsonSerializer<CacheStatisticsData> statisticsJsonSerializer,
+            final ApiRequestParameterHelper apiRequestParameterHelper,
             final PortfolioCommandSourceWritePlatformService commandsSourceWritePlatformService) {
         this.context = context;
         this.cacheService = cacheService;
         this.toApiJsonSerializer = toApiJsonSerializer;
+        this.statisticsJsonSerializer = statisticsJsonSerializer;
         this.apiRequestParameterHelper = apiRequestParameterHelper;
         this.commandsSourceWritePlatformService = commandsSourceWritePlatformService;
     }
@@ -100,6 +106,22 @@ public class CacheApiResource {
         return this.toApiJsonSerializer.serialize(settings, codes, RESPONSE_DATA_PARAMETERS);
     }
 
+    @GET
+    @Path("statistics")
+    @Operation(summary = "Retrieve Cache Statistics", description = "Returns the configured size and the hit, miss and eviction counts "
+            + "of every cache region.\n" + "\n" + "Example Requests:\n" + "\n" + "caches/statistics")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK", content = @Content(array = @ArraySchema(schema = @Schema(implementation = CacheApiResourceSwagger.GetCacheStatisticsResponse.class)))) })
+    public String retrieveStatistics(@Context final UriInfo uriInfo) {
+
+        this.context.authenticatedUser().validateHasReadPermission(this.resourceNameForPermissions);
+
+        final Collection<CacheStatisticsData> statistics = this.cacheService.retrieveStatistics();
+
+        final ApiRequestJsonSerializationSettings settings = this.apiRequestParameterHelper.process(uriInfo.getQueryParameters());
+        return this.statisticsJsonSerializer.serialize(settings, statistics);
+    }
+
     @PUT
     @Operation(summary = "Switch Cache", description = "Switches the cache to chosen one.")
     @RequestBody(required = true, content = @Content(schema = @Schema(implementation = CacheApiResourceSwagger.PutCachesRequest.class)))
@@ -41,6 +41,36 @@ final class CacheApiResourceSwagger {
         public boolean enabled;
     }
 
+    @Schema(description = "GetCacheStatisticsResponse")
+    public static final class GetCacheStatisticsResponse {
+
+        private GetCacheStatisticsResponse() {
+
+        }
+
+        @Schema(example = "code_values")
+        public String cacheName;
+        @Schema(example = "5000")
+        public Long heapEntries;
+        public Long offHeapMb;
+        @Schema(example = "1200")
+        public Long gets;
+        @Schema(example = "1150")
+        public Long hits;
+        @Schema(example = "50")
+        public Long misses;
+        @Schema(example = "95.83")
+        public Float hitPercentage;
+        @Schema(example = "50")
+        public Long puts;
+        @Schema(example = "3")
+        public Long removals;
+        @Schema(example = "0")
+        public Long evictions;
+        @Schema(example = "12.5")
+        public Float averageGetTimeMicros;
+    }
+
     @Schema(description = "PutCachesRequest")
     public static final class PutCachesRequest {
 
@@ -0,0 +1,60 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.cache.data;
+
+import lombok.Getter;
+import org.apache.fineract.infrastructure.cache.domain.CacheType;
+
+/**
+ * An eviction from one cache region that is passed on to the other nodes. Without a key the whole region is cleared. A
+ * switch of the cache type made through the caches API is passed on the same way, without a region.
+ */
+@Getter
+public final class CacheInvalidationData {
+
+    private final String cacheName;
+    private final Object key;
+    private final CacheType cacheType;
+
+    public CacheInvalidationData(final String cacheName, final Object key) {
+        this(cacheName, key, null);
+    }
+
+    private CacheInvalidationData(final String cacheName, final Object key, final CacheType cacheType) {
+        this.cacheName = cacheName;
+        this.key = key;
+        this.cacheType = cacheType;
+    }
+
+    public static CacheInvalidationData allEntries(final String cacheName) {
+        return new CacheInvalidationData(cacheName, null);
+    }
+
+    public static CacheInvalidationData cacheTypeSwitch(final CacheType cacheType) {
+        return new CacheInvalidationData(null, null, cacheType);
+    }
+
+    public boolean isAllEntries() {
+        return this.key == null;
+    }
+
+    public boolean isCacheTypeSwitch() {
+        return this.cacheType != null;
+    }
+}
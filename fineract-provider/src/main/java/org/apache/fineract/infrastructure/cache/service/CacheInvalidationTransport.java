@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.cache.service;
+
+import java.util.function.Consumer;
+import org.apache.fineract.infrastructure.cache.data.CacheInvalidationData;
+
+/**
+ * Carries cache evictions between the nodes of a multi node deployment, so that every node can drop the entries that
+ * another node evicted from its local cache. {@link DatabaseCacheInvalidationTransport} needs nothing but the tenant
+ * store database; a message broker based implementation can replace it as a primary bean.
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Passes an eviction or a cache type switch made on this node on to the other nodes. Within a transaction it is only
+     * passed on once the transaction has committed, so that the other nodes cannot load the old data again in between.
+     */
+    void publish(CacheInvalidationData invalidation);
+
+    /**
+     * Starts handing the evictions and cache type switches published by the other nodes to the receiver. Calling it
+     * again while started has no effect.
+     */
+    void start(Consumer<CacheInvalidationData> receiver);
+
+    void stop();
+}
@@ -0,0 +1,284 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.cache.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fineract.infrastructure.cache.data.CacheInvalidationData;
+import org.apache.fineract.infrastructure.cache.domain.CacheType;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Passes cache evictions between nodes through the {@code c_cache_invalidation} table of the tenant store database,
+ * which every node already connects to. Each node writes its evictions to the table and polls it for the rows written
+ * by the other nodes. Rows are purged once they are older than the retention period.
+ *
+ * Rows of concurrent inserts may become visible out of id order. Every id skipped by a poll is therefore kept as an open
+ * gap and looked up again on the following polls, until its row shows up or the gap is older than the gap timeout.
+ */
+@Slf4j
+@Component
+public class DatabaseCacheInvalidationTransport implements CacheInvalidationTransport, DisposableBean {
+
+    private static final long DEFAULT_POLL_INTERVAL_MILLIS = 2000L;
+    private static final long DEFAULT_RETENTION_MINUTES = 60L;
+    // an insert becomes visible within seconds once it got its id, an id still missing after that was rolled back
+    private static final Duration GAP_TIMEOUT = Duration.ofMinutes(5);
+    private static final int MAX_OPEN_GAPS = 1000;
+    private static final int MAX_KEY_LENGTH = 500;
+
+    private static final String KEY_TYPE_STRING = "string";
+    private static final String KEY_TYPE_LONG = "long";
+    private static final String KEY_TYPE_INTEGER = "integer";
+    private static final String KEY_TYPE_CACHE_TYPE = "cache_type";
+    private static final String CACHE_TYPE_SWITCH_NAME = "cache_type";
+
+    private static final String SELECT_ROWS_SQL = "select id, node_id, cache_name, cache_key, key_type from c_cache_invalidation";
+    private static final RowMapper<InvalidationRow> ROW_MAPPER = (rs, rowNum) -> new InvalidationRow(rs.getLong("id"),
+            rs.getString("node_id"), rs.getString("cache_name"), rs.getString("cache_key"), rs.getString("key_type"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long pollIntervalMillis;
+    private final Duration retention;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // only used by the poller thread
+    private final Map<Long, LocalDateTime> openGaps = new HashMap<>();
+    private long lastSeenId;
+    private LocalDateTime lastPurge;
+
+    private ScheduledExecutorService poller;
+
+    public DatabaseCacheInvalidationTransport(@Qualifier("hikariTenantDataSource") final DataSource dataSource,
+            final FineractProperties fineractProperties) {
+        this(new JdbcTemplate(dataSource), pollIntervalMillisOf(fineractProperties.getCache()),
+                retentionOf(fineractProperties.getCache()));
+    }
+
+    DatabaseCacheInvalidationTransport(final JdbcTemplate jdbcTemplate, final long pollIntervalMillis, final Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.retention = retention;
+    }
+
+    @Override
+    public void publish(final CacheInvalidationData invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(invalidation);
+            return;
+        }
+        // the transaction runs against the tenant database, this insert against the tenant store, so it has to wait
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                insert(invalidation);
+            }
+        });
+    }
+
+    private void insert(final CacheInvalidationData invalidation) {
+        final String cacheName;
+        final Object key;
+        String keyType;
+        if (invalidation.isCacheTypeSwitch()) {
+            cacheName = CACHE_TYPE_SWITCH_NAME;
+            key = invalidation.getCacheType().getValue();
+            keyType = KEY_TYPE_CACHE_TYPE;
+        } else {
+            cacheName = invalidation.getCacheName();
+            key = invalidation.getKey();
+            keyType = keyTypeOf(key);
+            if (keyType != null && key.toString().length() > MAX_KEY_LENGTH) {
+                keyType = null;
+            }
+            if (key != null && keyType == null) {
+                log.debug("Key {} cannot be passed on, the other nodes clear cache {}", key, cacheName);
+            }
+        }
+        try {
+            this.jdbcTemplate.update(
+                    "insert into c_cache_invalidation (node_id, cache_name, cache_key, key_type, created_on) values (?, ?, ?, ?, ?)",
+                    this.nodeId, cacheName, keyType == null ? null : key.toString(), keyType, DateUtils.getLocalDateTimeOfSystem());
+        } catch (final DataAccessException e) {
+            log.error("Eviction from cache {} could not be passed on to the other nodes", cacheName, e);
+        }
+    }
+
+    @Override
+    public synchronized void start(final Consumer<CacheInvalidationData> receiver) {
+        if (this.poller != null) {
+            return;
+        }
+        final Long maxId = this.jdbcTemplate.queryForObject("select max(id) from c_cache_invalidation", Long.class);
+        this.lastSeenId = maxId == null ? 0L : maxId;
+        this.openGaps.clear();
+        this.lastPurge = DateUtils.getLocalDateTimeOfSystem();
+        this.poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("fineract-cache-invalidation-"));
+        this.poller.scheduleWithFixedDelay(() -> poll(receiver), this.pollIntervalMillis, this.pollIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Polling cache invalidations of the other nodes every {} ms as node {}", this.pollIntervalMillis, this.nodeId);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (this.poller != null) {
+            this.poller.shutdownNow();
+            this.poller = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    void poll(final Consumer<CacheInvalidationData> receiver) {
+        try {
+            final LocalDateTime now = DateUtils.getLocalDateTimeOfSystem();
+            if (!this.openGaps.isEmpty()) {
+                final List<Long> gapIds = new ArrayList<>(this.openGaps.keySet());
+                final String placeholders = String.join(", ", Collections.nCopies(gapIds.size(), "?"));
+                for (final InvalidationRow row : this.jdbcTemplate.query(SELECT_ROWS_SQL + " where id in (" + placeholders + ")",
+                        ROW_MAPPER, gapIds.toArray())) {
+                    this.openGaps.remove(row.id);
+                    accept(row, receiver);
+                }
+                this.openGaps.values().removeIf(openedOn -> openedOn.plus(GAP_TIMEOUT).isBefore(now));
+            }
+            // the rows of this node are read as well, they close the gaps they would otherwise leave
+            for (final InvalidationRow row : this.jdbcTemplate.query(SELECT_ROWS_SQL + " where id > ? order by id", ROW_MAPPER,
+                    this.lastSeenId)) {
+                openGaps(row.id, now);
+                this.lastSeenId = row.id;
+                accept(row, receiver);
+            }
+            purgeExpired();
+        } catch (final RuntimeException e) {
+            // an escaping exception would cancel the scheduled polling for good
+            log.warn("Polling cache invalidations failed", e);
+        }
+    }
+
+    private void openGaps(final long id, final LocalDateTime now) {
+        final long skipped = id - this.lastSeenId - 1;
+        if (skipped > MAX_OPEN_GAPS - this.openGaps.size()) {
+            log.warn("Not waiting for the {} cache invalidations skipped before {}, too many are outstanding", skipped, id);
+            return;
+        }
+        for (long gapId = this.lastSeenId + 1; gapId < id; gapId++) {
+            this.openGaps.put(gapId, now);
+        }
+    }
+
+    private void accept(final InvalidationRow row, final Consumer<CacheInvalidationData> receiver) {
+        if (!this.nodeId.equals(row.nodeId)) {
+            receiver.accept(row.toData());
+        }
+    }
+
+    private void purgeExpired() {
+        final LocalDateTime now = DateUtils.getLocalDateTimeOfSystem();
+        if (this.lastPurge.plus(this.retention).isAfter(now)) {
+            return;
+        }
+        final int purged = this.jdbcTemplate.update("delete from c_cache_invalidation where created_on < ?", now.minus(this.retention));
+        this.lastPurge = now;
+        log.debug("Purged {} expired cache invalidations", purged);
+    }
+
+    private static long pollIntervalMillisOf(final FineractProperties.FineractCacheProperties cacheProperties) {
+        return cacheProperties != null && cacheProperties.getInvalidationPollIntervalMillis() > 0
+                ? cacheProperties.getInvalidationPollIntervalMillis()
+                : DEFAULT_POLL_INTERVAL_MILLIS;
+    }
+
+    private static Duration retentionOf(final FineractProperties.FineractCacheProperties cacheProperties) {
+        return Duration.ofMinutes(cacheProperties != null && cacheProperties.getInvalidationRetentionMinutes() > 0
+                ? cacheProperties.getInvalidationRetentionMinutes()
+                : DEFAULT_RETENTION_MINUTES);
+    }
+
+    private static String keyTypeOf(final Object key) {
+        if (key instanceof String) {
+            return KEY_TYPE_STRING;
+        }
+        if (key instanceof Long) {
+            return KEY_TYPE_LONG;
+        }
+        if (key instanceof Integer) {
+            return KEY_TYPE_INTEGER;
+        }
+        return null;
+    }
+
+    private static final class InvalidationRow {
+
+        private final long id;
+        private final String nodeId;
+        private final String cacheName;
+        private final String key;
+        private final String keyType;
+
+        private InvalidationRow(final long id, final String nodeId, final String cacheName, final String key, final String keyType) {
+            this.id = id;
+            this.nodeId = nodeId;
+            this.cacheName = cacheName;
+            this.key = key;
+            this.keyType = keyType;
+        }
+
+        private CacheInvalidationData toData() {
+            if (this.key == null || this.keyType == null) {
+                return CacheInvalidationData.allEntries(this.cacheName);
+            }
+            switch (this.keyType) {
+                case KEY_TYPE_CACHE_TYPE:
+                    return CacheInvalidationData.cacheTypeSwitch(CacheType.fromInt(Integer.valueOf(this.key)));
+                case KEY_TYPE_LONG:
+                    return new CacheInvalidationData(this.cacheName, Long.valueOf(this.key));
+                case KEY_TYPE_INTEGER:
+                    return new CacheInvalidationData(this.cacheName, Integer.valueOf(this.key));
+                default:
+                    return new CacheInvalidationData(this.cacheName, this.key);
+            }
+        }
+    }
+}
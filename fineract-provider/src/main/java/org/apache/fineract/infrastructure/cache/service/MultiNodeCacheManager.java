@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.cache.service;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.fineract.infrastructure.cache.data.CacheInvalidationData;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Keeps the caches local to every node like the single node cache, but passes every eviction on to the other nodes
+ * through the {@link CacheInvalidationTransport} and applies the evictions they pass on in return.
+ */
+final class MultiNodeCacheManager implements CacheManager {
+
+    private final CacheManager localCacheManager;
+    private final CacheInvalidationTransport transport;
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    MultiNodeCacheManager(final CacheManager localCacheManager, final CacheInvalidationTransport transport) {
+        this.localCacheManager = localCacheManager;
+        this.transport = transport;
+    }
+
+    @Override
+    public Cache getCache(final String name) {
+        final Cache localCache = this.localCacheManager.getCache(name);
+        if (localCache == null) {
+            return null;
+        }
+        return this.caches.computeIfAbsent(name, cacheName -> new BroadcastingCache(localCache, this.transport));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return this.localCacheManager.getCacheNames();
+    }
+
+    void apply(final CacheInvalidationData invalidation) {
+        final Cache localCache = this.localCacheManager.getCache(invalidation.getCacheName());
+        if (localCache == null) {
+            return;
+        }
+        if (invalidation.isAllEntries()) {
+            localCache.clear();
+        } else {
+            localCache.evict(invalidation.getKey());
+        }
+    }
+
+    private static final class BroadcastingCache implements Cache {
+
+        private final Cache delegate;
+        private final CacheInvalidationTransport transport;
+
+        private BroadcastingCache(final Cache delegate, final CacheInvalidationTransport transport) {
+            this.delegate = delegate;
+            this.transport = transport;
+        }
+
+        @Override
+        public String getName() {
+            return this.delegate.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return this.delegate.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(final Object key) {
+            return this.delegate.get(key);
+        }
+
+        @Override
+        public <T> T get(final Object key, final Class<T> type) {
+            return this.delegate.get(key, type);
+        }
+
+        @Override
+        public <T> T get(final Object key, final Callable<T> valueLoader) {
+            return this.delegate.get(key, valueLoader);
+        }
+
+        @Override
+        public void put(final Object key, final Object value) {
+            this.delegate.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(final Object key, final Object value) {
+            return this.delegate.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(final Object key) {
+            this.delegate.evict(key);
+            this.transport.publish(new CacheInvalidationData(getName(), key));
+        }
+
+        @Override
+        public boolean evictIfPresent(final Object key) {
+            final boolean evicted = this.delegate.evictIfPresent(key);
+            // the other nodes may hold the entry even when this one does not
+            this.transport.publish(new CacheInvalidationData(getName(), key));
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            this.delegate.clear();
+            this.transport.publish(CacheInvalidationData.allEntries(getName()));
+        }
+
+        @Override
+        public boolean invalidate() {
+            final boolean invalidated = this.delegate.invalidate();
+            this.transport.publish(CacheInvalidationData.allEntries(getName()));
+            return invalidated;
+        }
+    }
+}
@@ -18,15 +18,32 @@
  */
 package org.apache.fineract.infrastructure.cache.service;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import javax.cache.management.CacheStatisticsMXBean;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import org.apache.fineract.infrastructure.cache.CacheApiConstants;
 import org.apache.fineract.infrastructure.cache.CacheEnumerations;
 import org.apache.fineract.infrastructure.cache.data.CacheData;
+import org.apache.fineract.infrastructure.cache.data.CacheInvalidationData;
+import org.apache.fineract.infrastructure.cache.data.CacheStatisticsData;
 import org.apache.fineract.infrastructure.cache.domain.CacheType;
 import org.apache.fineract.infrastructure.core.data.EnumOptionData;
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.ResourcePools;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.SizedResourcePool;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.jsr107.Eh107Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,20 +57,28 @@ import org.springframework.stereotype.Component;
  * At present this implementation of {@link CacheManager} just delegates to the real {@link CacheManager} to use.
  *
  * By default it is {@link NoOpCacheManager} but we can change that by checking some persisted configuration in the
- * database on startup and allow user to switch implementation through UI/API
+ * database on startup and allow user to switch implementation through UI/API. The multi node cache uses the same local
+ * caches as the single node one and additionally keeps them consistent with the other nodes through the
+ * {@link CacheInvalidationTransport}. The transport also carries switches of the cache type made through the API, so it
+ * keeps running whatever cache type is in use.
  */
 @Component(value = "runtimeDelegatingCacheManager")
 public class RuntimeDelegatingCacheManager implements CacheManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(RuntimeDelegatingCacheManager.class);
 
-    private final CacheManager cacheManager;
+    private final JCacheCacheManager cacheManager;
+    private final MultiNodeCacheManager multiNodeCacheManager;
+    private final CacheInvalidationTransport invalidationTransport;
     private final CacheManager noOpCacheManager = new NoOpCacheManager();
-    private CacheManager currentCacheManager;
+    // switched by the transport's poller thread as well
+    private volatile CacheManager currentCacheManager;
 
     @Autowired
-    public RuntimeDelegatingCacheManager(final JCacheCacheManager cacheManager) {
+    public RuntimeDelegatingCacheManager(final JCacheCacheManager cacheManager, final CacheInvalidationTransport invalidationTransport) {
         this.cacheManager = cacheManager;
+        this.multiNodeCacheManager = new MultiNodeCacheManager(cacheManager, invalidationTransport);
+        this.invalidationTransport = invalidationTransport;
         this.currentCacheManager = this.noOpCacheManager;
     }
 
@@ -71,41 +96,85 @@ public class RuntimeDelegatingCacheManager implements CacheManager {
 
         final boolean noCacheEnabled = this.currentCacheManager instanceof NoOpCacheManager;
         final boolean ehcacheEnabled = this.currentCacheManager instanceof JCacheCacheManager;
-
-        // final boolean distributedCacheEnabled = false;
+        final boolean distributedCacheEnabled = this.currentCacheManager instanceof MultiNodeCacheManager;
 
         final EnumOptionData noCacheType = CacheEnumerations.cacheType(CacheType.NO_CACHE);
         final EnumOptionData singleNodeCacheType = CacheEnumerations.cacheType(CacheType.SINGLE_NODE);
-        // final EnumOptionData multiNodeCacheType =
-        // CacheEnumerations.cacheType(CacheType.MULTI_NODE);
+        final EnumOptionData multiNodeCacheType = CacheEnumerations.cacheType(CacheType.MULTI_NODE);
 
         final CacheData noCache = CacheData.instance(noCacheType, noCacheEnabled);
         final CacheData singleNodeCache = CacheData.instance(singleNodeCacheType, ehcacheEnabled);
-        // final CacheData distributedCache =
-        // CacheData.instance(multiNodeCacheType, distributedCacheEnabled);
+        final CacheData distributedCache = CacheData.instance(multiNodeCacheType, distributedCacheEnabled);
 
-        final Collection<CacheData> caches = Arrays.asList(noCache, singleNodeCache);
+        final Collection<CacheData> caches = Arrays.asList(noCache, singleNodeCache, distributedCache);
         return caches;
     }
 
-    public Map<String, Object> switchToCache(final boolean ehcacheEnabled, final CacheType toCacheType) {
+    /**
+     * Returns the configured size and the hit, miss and eviction counts of every region of the single node cache. The
+     * counts are kept while caching is switched off, in which case they simply stop growing.
+     */
+    @SuppressWarnings("unchecked")
+    public Collection<CacheStatisticsData> retrieveStatistics() {
+        final javax.cache.CacheManager jCacheManager = this.cacheManager.getCacheManager();
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final List<CacheStatisticsData> statistics = new ArrayList<>();
+        if (jCacheManager == null) {
+            return statistics;
+        }
+        for (final String cacheName : jCacheManager.getCacheNames()) {
+            final javax.cache.Cache<Object, Object> cache = jCacheManager.getCache(cacheName);
+            final ResourcePools resourcePools = cache.getConfiguration(Eh107Configuration.class).unwrap(CacheRuntimeConfiguration.class)
+                    .getResourcePools();
+            final SizedResourcePool heap = resourcePools.getPoolForResource(ResourceType.Core.HEAP);
+            final SizedResourcePool offHeap = resourcePools.getPoolForResource(ResourceType.Core.OFFHEAP);
+            final Long heapEntries = heap == null ? null : heap.getSize();
+            final Long offHeapMb = offHeap == null ? null : MemoryUnit.MB.convert(offHeap.getSize(), (MemoryUnit) offHeap.getUnit());
+
+            final CacheStatisticsMXBean mxBean = findStatisticsBean(mBeanServer, cacheName);
+            if (mxBean == null) {
+                statistics.add(new CacheStatisticsData(cacheName, heapEntries, offHeapMb, 0L, 0L, 0L, 0f, 0L, 0L, 0L, 0f));
+                continue;
+            }
+            statistics.add(new CacheStatisticsData(cacheName, heapEntries, offHeapMb, mxBean.getCacheGets(), mxBean.getCacheHits(),
+                    mxBean.getCacheMisses(), mxBean.getCacheHitPercentage(), mxBean.getCachePuts(), mxBean.getCacheRemovals(),
+                    mxBean.getCacheEvictions(), mxBean.getAverageGetTime()));
+        }
+        return statistics;
+    }
 
-        final Map<String, Object> changes = new HashMap<>();
+    private CacheStatisticsMXBean findStatisticsBean(final MBeanServer mBeanServer, final String cacheName) {
+        final Set<ObjectName> names;
+        try {
+            names = mBeanServer.queryNames(new ObjectName("javax.cache:type=CacheStatistics,Cache=" + cacheName + ",*"), null);
+        } catch (final MalformedObjectNameException e) {
+            LOG.warn("No statistics can be looked up for cache {}", cacheName, e);
+            return null;
+        }
+        if (names.isEmpty()) {
+            return null;
+        }
+        return JMX.newMXBeanProxy(mBeanServer, names.iterator().next(), CacheStatisticsMXBean.class);
+    }
 
-        final boolean noCacheEnabled = !ehcacheEnabled;
-        final boolean distributedCacheEnabled = !ehcacheEnabled;
+    public synchronized Map<String, Object> switchToCache(final CacheType currentCacheType, final CacheType toCacheType) {
+        // started on the first switch, which the first request makes once the tenant store is up to date
+        this.invalidationTransport.start(this::receive);
+
+        final Map<String, Object> changes = new HashMap<>();
+        final boolean changed = currentCacheType != toCacheType;
 
         switch (toCacheType) {
             case INVALID:
             break;
             case NO_CACHE:
-                if (!noCacheEnabled) {
+                if (changed) {
                     changes.put(CacheApiConstants.cacheTypeParameter, toCacheType.getValue());
                 }
                 this.currentCacheManager = this.noOpCacheManager;
             break;
             case SINGLE_NODE:
-                if (!ehcacheEnabled) {
+                if (changed) {
                     changes.put(CacheApiConstants.cacheTypeParameter, toCacheType.getValue());
                     clearEhCache();
                 }
@@ -116,15 +185,41 @@ public class RuntimeDelegatingCacheManager implements CacheManager {
                 }
             break;
             case MULTI_NODE:
-                if (!distributedCacheEnabled) {
+                if (changed) {
                     changes.put(CacheApiConstants.cacheTypeParameter, toCacheType.getValue());
+                    clearEhCache();
                 }
+                this.currentCacheManager = this.multiNodeCacheManager;
             break;
         }
 
         return changes;
     }
 
+    /**
+     * Makes the other nodes switch to the cache type this node switched to.
+     */
+    public void publishCacheTypeSwitch(final CacheType cacheType) {
+        this.invalidationTransport.publish(CacheInvalidationData.cacheTypeSwitch(cacheType));
+    }
+
+    private void receive(final CacheInvalidationData invalidation) {
+        if (invalidation.isCacheTypeSwitch()) {
+            LOG.info("Switching to cache type {} as another node did", invalidation.getCacheType());
+            switchToCache(currentCacheType(), invalidation.getCacheType());
+        } else if (this.currentCacheManager == this.multiNodeCacheManager) {
+            this.multiNodeCacheManager.apply(invalidation);
+        }
+    }
+
+    private CacheType currentCacheType() {
+        final CacheManager current = this.currentCacheManager;
+        if (current == this.multiNodeCacheManager) {
+            return CacheType.MULTI_NODE;
+        }
+        return current == this.cacheManager ? CacheType.SINGLE_NODE : CacheType.NO_CACHE;
+    }
+
     private void clearEhCache() {
         Iterable<String> cacheNames = cacheManager.getCacheNames();
         for (String cacheName : cacheNames) {
@@ -19,19 +19,17 @@
 package org.apache.fineract.infrastructure.configuration.domain;
 
 import java.time.LocalDate;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.fineract.infrastructure.cache.domain.CacheType;
 import org.apache.fineract.infrastructure.cache.domain.PlatformCache;
 import org.apache.fineract.infrastructure.cache.domain.PlatformCacheRepository;
 import org.apache.fineract.infrastructure.configuration.data.GlobalConfigurationPropertyData;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
-import org.apache.fineract.useradministration.domain.Permission;
-import org.apache.fineract.useradministration.domain.PermissionRepository;
 import org.apache.fineract.useradministration.exception.PermissionNotFoundException;
+import org.apache.fineract.useradministration.service.PermissionLookupService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -41,17 +39,17 @@ public class ConfigurationDomainServiceJpa implements ConfigurationDomainService
     public static final String ENABLE_BUSINESS_DATE = "enable_business_date";
     public static final String ENABLE_AUTOMATIC_COB_DATE_ADJUSTMENT = "enable_automatic_cob_date_adjustment";
     public static final String ENFORCE_OVERDUE_LOANS_FOR_MIN_BALANCE = "enforce_loan_overdue_amount_min_balance_check";
-    private final PermissionRepository permissionRepository;
     private final GlobalConfigurationRepositoryWrapper globalConfigurationRepository;
     private final PlatformCacheRepository cacheTypeRepository;
-    private static Map<String, GlobalConfigurationPropertyData> configurations = new HashMap<>();
+    private final PermissionLookupService permissionLookupService;
+    private static Map<String, GlobalConfigurationPropertyData> configurations = new ConcurrentHashMap<>();
 
     @Autowired
-    public ConfigurationDomainServiceJpa(final PermissionRepository permissionRepository,
-            final GlobalConfigurationRepositoryWrapper globalConfigurationRepository, final PlatformCacheRepository cacheTypeRepository) {
-        this.permissionRepository = permissionRepository;
+    public ConfigurationDomainServiceJpa(final GlobalConfigurationRepositoryWrapper globalConfigurationRepository,
+            final PlatformCacheRepository cacheTypeRepository, final PermissionLookupService permissionLookupService) {
         this.globalConfigurationRepository = globalConfigurationRepository;
         this.cacheTypeRepository = cacheTypeRepository;
+        this.permissionLookupService = permissionLookupService;
     }
 
     @Override
@@ -65,15 +63,13 @@ public class ConfigurationDomainServiceJpa implements ConfigurationDomainService
             throw new PermissionNotFoundException(taskPermissionCode);
         }
 
-        final Permission thisTask = this.permissionRepository.findOneByCode(taskPermissionCode);
-        if (thisTask == null) {
+        // every write command asks twice. The global maker-checker flag comes along with the permission, so that a
+        // change of it reaches all nodes through the cache instead of only this node's configuration map.
+        final Boolean makerCheckerEnabled = this.permissionLookupService.isMakerCheckerEnabledForTask(taskPermissionCode);
+        if (makerCheckerEnabled == null) {
             throw new PermissionNotFoundException(taskPermissionCode);
         }
-
-        final String makerCheckerConfigurationProperty = "maker-checker";
-        final GlobalConfigurationPropertyData property = getGlobalConfigurationPropertyData(makerCheckerConfigurationProperty);
-
-        return thisTask.hasMakerCheckerEnabled() && property.isEnabled();
+        return makerCheckerEnabled;
     }
 
     @Override
@@ -126,6 +122,11 @@ public class ConfigurationDomainServiceJpa implements ConfigurationDomainService
         return this.cacheTypeRepository.findById(1L).map(PlatformCache::isEhcacheEnabled).orElseThrow();
     }
 
+    @Override
+    public CacheType retrieveCacheType() {
+        return this.cacheTypeRepository.findById(1L).map(PlatformCache::getCacheType).orElseThrow();
+    }
+
     @Transactional
     @Override
     public void updateCache(final CacheType cacheType) {
@@ -383,7 +384,6 @@ public class ConfigurationDomainServiceJpa implements ConfigurationDomainService
         return property.getValue();
     }
 
-    @Cacheable(value = "configByName", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat(#propertyName)")
     private GlobalConfigurationPropertyData getGlobalConfigurationPropertyData(final String propertyName) {
         String identifier = ThreadLocalContextUtil.getTenant().getTenantIdentifier();
         String key = identifier + "_" + propertyName;
@@ -31,6 +31,7 @@ import org.apache.fineract.infrastructure.security.service.PlatformSecurityConte
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.NonTransientDataAccessException;
 import org.springframework.orm.jpa.JpaSystemException;
@@ -60,6 +61,7 @@ public class GlobalConfigurationWritePlatformServiceJpaRepositoryImpl implements
 
     @Transactional
     @Override
+    @CacheEvict(value = "makerCheckerPermissions", allEntries = true)
     public CommandProcessingResult update(final Long configId, final JsonCommand command) {
 
         this.context.authenticatedUser();
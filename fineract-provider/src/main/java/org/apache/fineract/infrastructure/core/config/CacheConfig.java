@@ -16,24 +16,38 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
 package org.apache.fineract.infrastructure.core.config;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.cache.CacheManager;
 import javax.cache.Caching;
 import javax.cache.spi.CachingProvider;
+import lombok.RequiredArgsConstructor;
 import org.ehcache.config.builders.CacheConfigurationBuilder;
 import org.ehcache.config.builders.ExpiryPolicyBuilder;
 import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
 import org.ehcache.jsr107.Eh107Configuration;
 import org.springframework.cache.jcache.JCacheCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Declares the cache regions used through {@code @Cacheable} and {@code @CacheEvict}. Every region has its own heap
+ * size and expiry, and may get an off-heap tier below the heap; the defaults below can be overridden per region through
+ * {@code fineract.cache.regions.<name>.*}. Statistics are enabled for every region and exposed by the caches API.
+ */
 @Configuration
+@RequiredArgsConstructor
 public class CacheConfig {
 
+    private static final Map<String, CacheRegion> REGIONS = declareRegions();
+
+    private final FineractProperties fineractProperties;
+
     @Bean
     public JCacheCacheManager ehCacheManager() {
         JCacheCacheManager jCacheCacheManager = new JCacheCacheManager();
@@ -45,29 +59,100 @@ public class CacheConfig {
         CachingProvider provider = Caching.getCachingProvider();
         CacheManager cacheManager = provider.getCacheManager();
 
-        javax.cache.configuration.Configuration<Object, Object> defaultTemplate = Eh107Configuration.fromEhcacheCacheConfiguration(
-                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(10000))
-                        .withExpiry(ExpiryPolicyBuilder.noExpiration()).build());
-
-        cacheManager.createCache("users", defaultTemplate);
-        cacheManager.createCache("usersByUsername", defaultTemplate);
-        cacheManager.createCache("tenantsById", defaultTemplate);
-        cacheManager.createCache("offices", defaultTemplate);
-        cacheManager.createCache("officesForDropdown", defaultTemplate);
-        cacheManager.createCache("officesById", defaultTemplate);
-        cacheManager.createCache("charges", defaultTemplate);
-        cacheManager.createCache("funds", defaultTemplate);
-        cacheManager.createCache("code_values", defaultTemplate);
-        cacheManager.createCache("codes", defaultTemplate);
-        cacheManager.createCache("hooks", defaultTemplate);
-        cacheManager.createCache("tfConfig", defaultTemplate);
-
-        javax.cache.configuration.Configuration<Object, Object> accessTokenTemplate = Eh107Configuration.fromEhcacheCacheConfiguration(
-                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(10000))
-                        .withExpiry(ExpiryPolicyBuilder.timeToIdleExpiration(Duration.ofHours(2))).build());
-
-        cacheManager.createCache("userTFAccessToken", accessTokenTemplate);
+        final Map<String, FineractProperties.FineractCacheRegionProperties> overrides = regionOverrides();
+        final Map<String, CacheRegion> regions = new LinkedHashMap<>(REGIONS);
+        // regions only known to the configuration start from the default settings
+        overrides.keySet().forEach(name -> regions.putIfAbsent(name, CacheRegion.heap(10000)));
 
+        for (Map.Entry<String, CacheRegion> region : regions.entrySet()) {
+            final CacheRegion settings = region.getValue().overriddenBy(overrides.get(region.getKey()));
+            cacheManager.createCache(region.getKey(), Eh107Configuration.fromEhcacheCacheConfiguration(settings.toConfiguration()));
+            cacheManager.enableStatistics(region.getKey(), true);
+        }
         return cacheManager;
     }
+
+    private Map<String, FineractProperties.FineractCacheRegionProperties> regionOverrides() {
+        if (this.fineractProperties.getCache() == null || this.fineractProperties.getCache().getRegions() == null) {
+            return Collections.emptyMap();
+        }
+        return this.fineractProperties.getCache().getRegions();
+    }
+
+    private static Map<String, CacheRegion> declareRegions() {
+        final Map<String, CacheRegion> regions = new LinkedHashMap<>();
+        // users are evicted on every change but are also loaded by other nodes, so they do not live forever
+        regions.put("users", CacheRegion.heap(10000).timeToLive(Duration.ofMinutes(30)));
+        regions.put("usersByUsername", CacheRegion.heap(10000).timeToLive(Duration.ofMinutes(30)));
+        regions.put("tenantsById", CacheRegion.heap(100));
+        regions.put("offices", CacheRegion.heap(1000));
+        regions.put("officesForDropdown", CacheRegion.heap(1000));
+        regions.put("officesById", CacheRegion.heap(10000));
+        regions.put("charges", CacheRegion.heap(1000));
+        regions.put("funds", CacheRegion.heap(1000));
+        regions.put("code_values", CacheRegion.heap(5000));
+        regions.put("codes", CacheRegion.heap(1000));
+        regions.put("hooks", CacheRegion.heap(1000));
+        regions.put("tfConfig", CacheRegion.heap(1000));
+        regions.put("validationLimit", CacheRegion.heap(100));
+        regions.put("makerCheckerPermissions", CacheRegion.heap(10000));
+        regions.put("productToGLAccountMappings", CacheRegion.heap(5000));
+        regions.put("tellers", CacheRegion.heap(1000));
+        regions.put("userTFAccessToken", CacheRegion.heap(10000).timeToIdle(Duration.ofHours(2)));
+        return regions;
+    }
+
+    private static final class CacheRegion {
+
+        private final long heapEntries;
+        private final long offHeapMb;
+        private final Duration timeToLive;
+        private final Duration timeToIdle;
+
+        private CacheRegion(final long heapEntries, final long offHeapMb, final Duration timeToLive, final Duration timeToIdle) {
+            this.heapEntries = heapEntries;
+            this.offHeapMb = offHeapMb;
+            this.timeToLive = timeToLive;
+            this.timeToIdle = timeToIdle;
+        }
+
+        private static CacheRegion heap(final long heapEntries) {
+            return new CacheRegion(heapEntries, 0L, null, null);
+        }
+
+        private CacheRegion timeToLive(final Duration duration) {
+            return new CacheRegion(this.heapEntries, this.offHeapMb, duration, this.timeToIdle);
+        }
+
+        private CacheRegion timeToIdle(final Duration duration) {
+            return new CacheRegion(this.heapEntries, this.offHeapMb, this.timeToLive, duration);
+        }
+
+        private CacheRegion overriddenBy(final FineractProperties.FineractCacheRegionProperties properties) {
+            if (properties == null) {
+                return this;
+            }
+            return new CacheRegion(properties.getHeapEntries() != null ? properties.getHeapEntries() : this.heapEntries,
+                    properties.getOffHeapMb() != null ? properties.getOffHeapMb() : this.offHeapMb,
+                    properties.getTimeToLive() != null ? properties.getTimeToLive() : this.timeToLive,
+                    properties.getTimeToIdle() != null ? properties.getTimeToIdle() : this.timeToIdle);
+        }
+
+        private org.ehcache.config.CacheConfiguration<Object, Object> toConfiguration() {
+            ResourcePoolsBuilder resourcePools = ResourcePoolsBuilder.heap(this.heapEntries);
+            if (this.offHeapMb > 0) {
+                // the off-heap tier stores serialized copies, so only Serializable values can be kept in such regions
+                resourcePools = resourcePools.offheap(this.offHeapMb, MemoryUnit.MB);
+            }
+            final CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class,
+                    Object.class, resourcePools);
+            if (this.timeToLive != null) {
+                return builder.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(this.timeToLive)).build();
+            }
+            if (this.timeToIdle != null) {
+                return builder.withExpiry(ExpiryPolicyBuilder.timeToIdleExpiration(this.timeToIdle)).build();
+            }
+            return builder.withExpiry(ExpiryPolicyBuilder.noExpiration()).build();
+        }
+    }
 }
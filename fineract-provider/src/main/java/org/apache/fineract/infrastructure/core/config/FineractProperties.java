@@ -19,7 +19,9 @@
 
 package org.apache.fineract.infrastructure.core.config;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -41,6 +43,18 @@ public class FineractProperties {
 
     private FineractTemplateProperties template;
 
+    private FineractJobProperties job;
+
+    private FineractHookProperties hook;
+
+    private FineractBatchProperties batch;
+
+    private FineractBusinessEventProperties businessEvent;
+
+    private FineractReportProperties report;
+
+    private FineractCacheProperties cache;
+
     @Getter
     @Setter
     public static class FineractTenantProperties {
@@ -56,6 +70,9 @@ public class FineractProperties {
         private String description;
         private String protocol;
         private String subprotocol;
+        private int poolRefreshIntervalSeconds;
+        private int upgradeParallelism;
+        private boolean upgradeAsync;
     }
 
     @Getter
@@ -116,4 +133,76 @@ public class FineractProperties {
         private boolean regexWhitelistEnabled;
         private List<String> regexWhitelist;
     }
+
+    @Getter
+    @Setter
+    public static class FineractJobProperties {
+
+        private int workerPoolSize;
+        private int maxWorkersPerJob;
+        private boolean loanCobEnabled;
+    }
+
+    @Getter
+    @Setter
+    public static class FineractHookProperties {
+
+        private int workerPoolSize;
+        private int queueCapacity;
+        private int batchSize;
+        private int maxRetries;
+        private long retryBackoffMillis;
+        private int hookQueueCapacity;
+        private long deliveryTimeoutMillis;
+        private int circuitBreakerFailureThreshold;
+        private long circuitBreakerOpenMillis;
+        private List<String> loanPayloadFields;
+        private List<String> clientPayloadFields;
+        private List<String> savingsPayloadFields;
+        private int maxPayloadBytes;
+    }
+
+    @Getter
+    @Setter
+    public static class FineractBatchProperties {
+
+        private int workerPoolSize;
+        private int queueCapacity;
+    }
+
+    @Getter
+    @Setter
+    public static class FineractBusinessEventProperties {
+
+        private int workerPoolSize;
+        private int queueCapacity;
+    }
+
+    @Getter
+    @Setter
+    public static class FineractReportProperties {
+
+        private int exportFetchSize;
+        private int xlsxRowWindow;
+        private boolean xlsxCompressTempFiles;
+    }
+
+    @Getter
+    @Setter
+    public static class FineractCacheProperties {
+
+        private Map<String, FineractCacheRegionProperties> regions;
+        private long invalidationPollIntervalMillis;
+        private long invalidationRetentionMinutes;
+    }
+
+    @Getter
+    @Setter
+    public static class FineractCacheRegionProperties {
+
+        private Long heapEntries;
+        private Long offHeapMb;
+        private Duration timeToLive;
+        private Duration timeToIdle;
+    }
 }
@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.core.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Usage of the connection pool of one tenant connection, as reported by the tenantpools management endpoint.
+ */
+@Getter
+@AllArgsConstructor
+public class TenantDataSourcePoolData {
+
+    private final Long connectionId;
+    private final String poolName;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int totalConnections;
+    private final int pendingThreads;
+    private final int maximumPoolSize;
+    private final int minimumIdle;
+    private final long acquireCount;
+    private final double acquireMeanMillis;
+    private final double acquireMaxMillis;
+}
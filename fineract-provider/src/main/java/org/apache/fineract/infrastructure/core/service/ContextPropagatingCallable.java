@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.core.service;
+
+import java.util.concurrent.Callable;
+import org.apache.fineract.infrastructure.core.domain.FineractContext;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Wraps a task so that it runs with the tenant {@link FineractContext} (data source, tenant, auth token, business dates
+ * and action context) and the authentication of the thread that created the wrapper. Both are captured on construction;
+ * once the task is done, the thread running it gets back exactly the context it had before, so that pooled threads
+ * reused across tenants keep none of it.
+ */
+public final class ContextPropagatingCallable<T> implements Callable<T> {
+
+    private final Callable<T> task;
+    private final FineractContext context;
+    private final Authentication authentication;
+
+    public ContextPropagatingCallable(final Callable<T> task) {
+        this.task = task;
+        this.context = ThreadLocalContextUtil.getContext();
+        this.authentication = SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Override
+    public T call() throws Exception {
+        final FineractContext previousContext = ThreadLocalContextUtil.snapshot();
+        final SecurityContext previousSecurityContext = SecurityContextHolder.getContext();
+        ThreadLocalContextUtil.init(this.context);
+        final SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(this.authentication);
+        SecurityContextHolder.setContext(securityContext);
+        try {
+            return this.task.call();
+        } finally {
+            if (previousSecurityContext.getAuthentication() == null) {
+                SecurityContextHolder.clearContext();
+            } else {
+                SecurityContextHolder.setContext(previousSecurityContext);
+            }
+            ThreadLocalContextUtil.restore(previousContext);
+        }
+    }
+}
@@ -22,6 +22,13 @@ import static org.apache.fineract.infrastructure.core.domain.FineractPlatformTen
 import static org.apache.fineract.infrastructure.core.domain.FineractPlatformTenantConnection.toProtocol;
 
 import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.sql.DataSource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.fineract.infrastructure.core.config.FineractProperties;
@@ -46,17 +53,33 @@ public class DataSourcePerTenantServiceFactory {
     private final ApplicationContext context;
     private final DataSource tenantDataSource;
     private final HikariDataSourceFactory hikariDataSourceFactory;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger replacements = new AtomicInteger();
 
     public DataSourcePerTenantServiceFactory(@Qualifier("hikariTenantDataSource") DataSource tenantDataSource, HikariConfig hikariConfig,
-            FineractProperties fineractProperties, ApplicationContext context, HikariDataSourceFactory hikariDataSourceFactory) {
+            FineractProperties fineractProperties, ApplicationContext context, HikariDataSourceFactory hikariDataSourceFactory,
+            MeterRegistry meterRegistry) {
         this.hikariConfig = hikariConfig;
         this.fineractProperties = fineractProperties;
         this.context = context;
         this.tenantDataSource = tenantDataSource;
         this.hikariDataSourceFactory = hikariDataSourceFactory;
+        this.meterRegistry = meterRegistry;
     }
 
     public DataSource createNewDataSourceFor(final FineractPlatformTenantConnection tenantConnection) {
+        return createDataSourceFor(tenantConnection, "_pool");
+    }
+
+    /**
+     * Creates a pool that replaces one of {@code tenantConnection} which is still retiring. It gets a pool name of its own,
+     * so its MBean and meters do not clash with the ones of the retiring pool.
+     */
+    public DataSource createReplacementDataSourceFor(final FineractPlatformTenantConnection tenantConnection) {
+        return createDataSourceFor(tenantConnection, "_pool_" + this.replacements.incrementAndGet());
+    }
+
+    private DataSource createDataSourceFor(final FineractPlatformTenantConnection tenantConnection, final String poolNameSuffix) {
         String protocol = toProtocol(tenantDataSource);
         // Default properties for Writing
         String schemaServer = tenantConnection.getSchemaServer();
@@ -86,7 +109,7 @@ public class DataSourcePerTenantServiceFactory {
         HikariConfig config = new HikariConfig();
         config.setReadOnly(fineractProperties.getMode().isReadOnlyMode());
         config.setJdbcUrl(jdbcUrl);
-        config.setPoolName(schemaName + "_pool");
+        config.setPoolName(schemaName + poolNameSuffix);
         config.setUsername(schemaUsername);
         config.setPassword(schemaPassword);
         config.setMinimumIdle(tenantConnection.getInitialSize());
@@ -98,6 +121,8 @@ public class DataSourcePerTenantServiceFactory {
 
         // https://github.com/brettwooldridge/HikariCP/wiki/MBean-(JMX)-Monitoring-and-Management
         config.setRegisterMbeans(true);
+        // publishes the hikaricp.connections.* meters (acquire time, pending threads...) tagged with the pool name
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
 
         // https://github.com/brettwooldridge/HikariCP/wiki/MySQL-Configuration
         // These are the properties for each Tenant DB; the same configuration
@@ -108,6 +133,72 @@ public class DataSourcePerTenantServiceFactory {
         return hikariDataSourceFactory.create(config);
     }
 
+    /**
+     * @return true if a pool created for {@code current} connects to the same database with the same credentials as
+     *         {@code updated} would, so it can be kept and at most resized
+     */
+    public boolean isSameDatabase(final FineractPlatformTenantConnection current, final FineractPlatformTenantConnection updated) {
+        return Objects.equals(current.getSchemaServer(), updated.getSchemaServer())
+                && Objects.equals(current.getSchemaServerPort(), updated.getSchemaServerPort())
+                && Objects.equals(current.getSchemaName(), updated.getSchemaName())
+                && Objects.equals(current.getSchemaUsername(), updated.getSchemaUsername())
+                && Objects.equals(current.getSchemaPassword(), updated.getSchemaPassword())
+                && Objects.equals(current.getSchemaConnectionParameters(), updated.getSchemaConnectionParameters())
+                && Objects.equals(current.getReadOnlySchemaServer(), updated.getReadOnlySchemaServer())
+                && Objects.equals(current.getReadOnlySchemaServerPort(), updated.getReadOnlySchemaServerPort())
+                && Objects.equals(current.getReadOnlySchemaName(), updated.getReadOnlySchemaName())
+                && Objects.equals(current.getReadOnlySchemaUsername(), updated.getReadOnlySchemaUsername())
+                && Objects.equals(current.getReadOnlySchemaPassword(), updated.getReadOnlySchemaPassword())
+                && Objects.equals(current.getReadOnlySchemaConnectionParameters(), updated.getReadOnlySchemaConnectionParameters());
+    }
+
+    /**
+     * Applies the pool sizes of {@code tenantConnection} to a running pool created by {@link #createNewDataSourceFor}.
+     * Hikari grows or shrinks the pool in the background, connections in use are not interrupted.
+     *
+     * @return true if any of the settings changed
+     */
+    public boolean resizeDataSourceFor(final DataSource dataSource, final FineractPlatformTenantConnection tenantConnection) {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return false;
+        }
+        final HikariConfigMXBean config = ((HikariDataSource) dataSource).getHikariConfigMXBean();
+        if (config.getMaximumPoolSize() == tenantConnection.getMaxActive() && config.getMinimumIdle() == tenantConnection.getInitialSize()
+                && config.getValidationTimeout() == tenantConnection.getValidationInterval()) {
+            return false;
+        }
+        config.setMaximumPoolSize(tenantConnection.getMaxActive());
+        config.setMinimumIdle(tenantConnection.getInitialSize());
+        config.setValidationTimeout(tenantConnection.getValidationInterval());
+        return true;
+    }
+
+    /**
+     * Retires a pool created by {@link #createNewDataSourceFor}: its idle connections are closed right away, and the
+     * connections still in use are closed once they are returned, so the requests using them can finish.
+     */
+    public void retireDataSource(final DataSource dataSource) {
+        final HikariPoolMXBean pool = poolOf(dataSource);
+        if (pool != null) {
+            pool.softEvictConnections();
+        }
+    }
+
+    /**
+     * @return true if any connection of the pool is still in use
+     */
+    public boolean isInUse(final DataSource dataSource) {
+        final HikariPoolMXBean pool = poolOf(dataSource);
+        return pool != null && pool.getActiveConnections() > 0;
+    }
+
+    private static HikariPoolMXBean poolOf(final DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return null;
+        }
+        return ((HikariDataSource) dataSource).getHikariPoolMXBean();
+    }
+
     private String getPropertyValue(final String baseValue, final String propertyName, final String defaultValue) {
         // If the property already has set, return It
         if (null != baseValue) {
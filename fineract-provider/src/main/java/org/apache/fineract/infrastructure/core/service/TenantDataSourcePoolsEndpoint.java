@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.core.service;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import org.apache.fineract.infrastructure.core.data.TenantDataSourcePoolData;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Management endpoint listing the connection pools of the tenant databases with their active, idle and pending counts
+ * and the time spent waiting for a connection. Like the other actuator endpoints it is only reachable over HTTP once
+ * added to management.endpoints.web.exposure.include.
+ */
+@Component
+@Endpoint(id = "tenantpools")
+@RequiredArgsConstructor
+public class TenantDataSourcePoolsEndpoint {
+
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+
+    private final TomcatJdbcDataSourcePerTenantService dataSourcePerTenantService;
+    private final MeterRegistry meterRegistry;
+
+    @ReadOperation
+    public List<TenantDataSourcePoolData> pools() {
+        final List<TenantDataSourcePoolData> pools = new ArrayList<>();
+        for (Map.Entry<Long, DataSource> entry : this.dataSourcePerTenantService.retrieveTenantDataSources().entrySet()) {
+            if (!(entry.getValue() instanceof HikariDataSource)) {
+                continue;
+            }
+            final HikariDataSource dataSource = (HikariDataSource) entry.getValue();
+            final HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            if (pool == null) {
+                continue;
+            }
+            final HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+            final Timer acquire = this.meterRegistry.find(ACQUIRE_TIMER).tag("pool", dataSource.getPoolName()).timer();
+            pools.add(new TenantDataSourcePoolData(entry.getKey(), dataSource.getPoolName(), pool.getActiveConnections(),
+                    pool.getIdleConnections(), pool.getTotalConnections(), pool.getThreadsAwaitingConnection(),
+                    config.getMaximumPoolSize(), config.getMinimumIdle(), acquire == null ? 0 : acquire.count(),
+                    acquire == null ? 0 : acquire.mean(TimeUnit.MILLISECONDS), acquire == null ? 0 : acquire.max(TimeUnit.MILLISECONDS)));
+        }
+        return pools;
+    }
+}
@@ -127,4 +127,33 @@ public final class ThreadLocalContextUtil {
     public static Map<String, Object> getJobParams() {
         return jobParams.get();
     }
+
+    /**
+     * @return the context of the current thread as it is, unlike {@link #getContext()} without failing on missing
+     *         business dates, so that it can be put back with {@link #restore(FineractContext)}
+     */
+    static FineractContext snapshot() {
+        return new FineractContext(contextHolder.get(), tenantContext.get(), authTokenContext.get(), businessDateContext.get(),
+                actionContext.get());
+    }
+
+    /**
+     * Puts back a context taken with {@link #snapshot()}, removing what was not set at that time, so that a pooled thread
+     * does not carry the context of a task over to the next one.
+     */
+    static void restore(final FineractContext snapshot) {
+        restore(contextHolder, snapshot.getContextHolder());
+        restore(tenantContext, snapshot.getTenantContext());
+        restore(authTokenContext, snapshot.getAuthTokenContext());
+        restore(businessDateContext, snapshot.getBusinessDateContext());
+        restore(actionContext, snapshot.getActionContext());
+    }
+
+    private static <T> void restore(final ThreadLocal<T> threadLocal, final T value) {
+        if (value == null) {
+            threadLocal.remove();
+        } else {
+            threadLocal.set(value);
+        }
+    }
 }
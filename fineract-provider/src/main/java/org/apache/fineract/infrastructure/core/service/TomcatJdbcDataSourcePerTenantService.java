@@ -18,11 +18,26 @@
  */
 package org.apache.fineract.infrastructure.core.service;
 
-import java.util.HashMap;
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
 import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
 import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenantConnection;
+import org.apache.fineract.infrastructure.security.service.TenantDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
@@ -32,20 +47,60 @@ import org.springframework.stereotype.Service;
  * {@link ThreadLocal} variable for this request.
  *
  * {@link ThreadLocalContextUtil} is used to retrieve the {@link FineractPlatformTenant} for the request.
+ *
+ * The lookup runs on every connection checkout, so it is a plain concurrent map read; a pool is created once per
+ * tenant connection the first time it is asked for. Changes to tenant_server_connections are picked up every
+ * fineract.tenant.pool-refresh-interval-seconds: pool sizes are applied to the running pool, a changed database or
+ * credentials replace it, and pools of removed connections are retired. A retired pool is closed at a later refresh,
+ * once the requests still using its connections have returned them.
  */
 @Service
+@Slf4j
 public class TomcatJdbcDataSourcePerTenantService implements RoutingDataSourceService {
 
-    private final Map<Long, DataSource> tenantToDataSourceMap = new HashMap<>(1);
+    // a retired pool whose connections are still in use after this long is assumed to leak them, and is closed anyway
+    private static final long RETIRED_POOL_GRACE_PERIOD_NANOS = Duration.ofMinutes(30).toNanos();
+
+    private final ConcurrentMap<Long, TenantDataSource> tenantToDataSourceMap = new ConcurrentHashMap<>();
+    private final Queue<RetiredDataSource> retiredDataSources = new ConcurrentLinkedQueue<>();
     private final DataSource tenantDataSource;
 
     private final DataSourcePerTenantServiceFactory dataSourcePerTenantServiceFactory;
+    private final TenantDetailsService tenantDetailsService;
+    private final FineractProperties fineractProperties;
+    private ScheduledExecutorService refreshExecutor;
 
     @Autowired
     public TomcatJdbcDataSourcePerTenantService(final @Qualifier("hikariTenantDataSource") DataSource tenantDataSource,
-            final DataSourcePerTenantServiceFactory dataSourcePerTenantServiceFactory) {
+            final DataSourcePerTenantServiceFactory dataSourcePerTenantServiceFactory, final TenantDetailsService tenantDetailsService,
+            final FineractProperties fineractProperties) {
         this.tenantDataSource = tenantDataSource;
         this.dataSourcePerTenantServiceFactory = dataSourcePerTenantServiceFactory;
+        this.tenantDetailsService = tenantDetailsService;
+        this.fineractProperties = fineractProperties;
+    }
+
+    @PostConstruct
+    public void startRefresh() {
+        final int refreshInterval = this.fineractProperties.getTenant().getPoolRefreshIntervalSeconds();
+        if (refreshInterval <= 0) {
+            return;
+        }
+        this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "tenant-datasource-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refreshExecutor.scheduleWithFixedDelay(this::refreshSafely, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (this.refreshExecutor != null) {
+            this.refreshExecutor.shutdownNow();
+        }
+        this.tenantToDataSourceMap.keySet().forEach(this::evictDataSource);
+        closeRetiredDataSources(true);
     }
 
     @Override
@@ -55,21 +110,124 @@ public class TomcatJdbcDataSourcePerTenantService implements RoutingDataSourceSe
 
         final FineractPlatformTenant tenant = ThreadLocalContextUtil.getTenant();
         if (tenant != null) {
+            // if tenantConnection information available switch to the
+            // appropriate datasource for that tenant.
             final FineractPlatformTenantConnection tenantConnection = tenant.getConnection();
+            TenantDataSource possibleDS = this.tenantToDataSourceMap.get(tenantConnection.getConnectionId());
+            if (possibleDS == null) {
+                possibleDS = this.tenantToDataSourceMap.computeIfAbsent(tenantConnection.getConnectionId(),
+                        connectionId -> new TenantDataSource(tenantConnection,
+                                this.dataSourcePerTenantServiceFactory.createNewDataSourceFor(tenantConnection)));
+            }
+            tenantDataSource = possibleDS.dataSource;
+        }
 
-            synchronized (this.tenantToDataSourceMap) {
-                // if tenantConnection information available switch to the
-                // appropriate datasource for that tenant.
-                DataSource possibleDS = this.tenantToDataSourceMap.get(tenantConnection.getConnectionId());
-                if (possibleDS != null) {
-                    tenantDataSource = possibleDS;
-                } else {
-                    tenantDataSource = dataSourcePerTenantServiceFactory.createNewDataSourceFor(tenantConnection);
-                    this.tenantToDataSourceMap.put(tenantConnection.getConnectionId(), tenantDataSource);
+        return tenantDataSource;
+    }
+
+    /**
+     * @return the pools created so far, by tenant connection id
+     */
+    public Map<Long, DataSource> retrieveTenantDataSources() {
+        return this.tenantToDataSourceMap.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().dataSource));
+    }
+
+    /**
+     * Retires the pool of a tenant connection; the next request of the tenant creates a new one.
+     */
+    public void evictDataSource(final Long connectionId) {
+        final TenantDataSource evicted = this.tenantToDataSourceMap.remove(connectionId);
+        if (evicted != null) {
+            log.info("Retiring the connection pool of tenant connection {}", connectionId);
+            retire(evicted.dataSource);
+        }
+    }
+
+    /**
+     * Compares the open pools with tenant_server_connections, resizing pools whose sizes changed and replacing pools
+     * whose database or credentials changed. Pools of connections that no longer exist are retired, and retired pools
+     * whose connections have all been returned are closed.
+     */
+    public void refreshDataSources() {
+        final Map<Long, FineractPlatformTenantConnection> connections = this.tenantDetailsService.findAllTenantConnections().stream()
+                .collect(Collectors.toMap(FineractPlatformTenantConnection::getConnectionId, Function.identity(),
+                        (first, second) -> first));
+        for (Long connectionId : this.tenantToDataSourceMap.keySet()) {
+            final FineractPlatformTenantConnection updated = connections.get(connectionId);
+            if (updated == null) {
+                evictDataSource(connectionId);
+                continue;
+            }
+            this.tenantToDataSourceMap.computeIfPresent(connectionId, (id, current) -> {
+                if (this.dataSourcePerTenantServiceFactory.isSameDatabase(current.connection, updated)) {
+                    if (this.dataSourcePerTenantServiceFactory.resizeDataSourceFor(current.dataSource, updated)) {
+                        log.info("Resized the connection pool of tenant connection {} to {} connections", id, updated.getMaxActive());
+                    }
+                    return new TenantDataSource(updated, current.dataSource);
                 }
+                log.info("Database settings of tenant connection {} changed, replacing its connection pool", id);
+                // requests may still hold connections of the old pool, so it is only retired here
+                retire(current.dataSource);
+                return new TenantDataSource(updated, this.dataSourcePerTenantServiceFactory.createReplacementDataSourceFor(updated));
+            });
+        }
+        closeRetiredDataSources(false);
+    }
+
+    private void refreshSafely() {
+        try {
+            refreshDataSources();
+        } catch (RuntimeException e) {
+            log.warn("Refreshing the tenant connection pools failed", e);
+        }
+    }
+
+    private void retire(final DataSource dataSource) {
+        this.dataSourcePerTenantServiceFactory.retireDataSource(dataSource);
+        this.retiredDataSources.add(new RetiredDataSource(dataSource, System.nanoTime()));
+    }
+
+    /**
+     * Closes the retired pools whose connections have all been returned, or all of them if {@code force} is set.
+     */
+    private void closeRetiredDataSources(final boolean force) {
+        final long now = System.nanoTime();
+        this.retiredDataSources.removeIf(retired -> {
+            if (!force && this.dataSourcePerTenantServiceFactory.isInUse(retired.dataSource)
+                    && now - retired.retiredAtNanos < RETIRED_POOL_GRACE_PERIOD_NANOS) {
+                return false;
             }
+            close(retired.dataSource);
+            return true;
+        });
+    }
+
+    private static void close(final DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            ((HikariDataSource) dataSource).close();
         }
+    }
 
-        return tenantDataSource;
+    private static final class RetiredDataSource {
+
+        private final DataSource dataSource;
+        private final long retiredAtNanos;
+
+        RetiredDataSource(final DataSource dataSource, final long retiredAtNanos) {
+            this.dataSource = dataSource;
+            this.retiredAtNanos = retiredAtNanos;
+        }
+    }
+
+    private static final class TenantDataSource {
+
+        private final FineractPlatformTenantConnection connection;
+        private final DataSource dataSource;
+
+        TenantDataSource(final FineractPlatformTenantConnection connection, final DataSource dataSource) {
+            this.connection = connection;
+            this.dataSource = dataSource;
+        }
     }
 }
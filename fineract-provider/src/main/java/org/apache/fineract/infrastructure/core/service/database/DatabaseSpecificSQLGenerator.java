@@ -166,6 +166,31 @@ public class DatabaseSpecificSQLGenerator {
         }
     }
 
+    /**
+     * Turns an insert into a single statement that updates the existing row instead when the row violates the unique
+     * key on {@code keyColumns}. The values of the row that was not inserted are available to {@code updates} through
+     * {@link #insertedValue(String)}, the existing ones have to be qualified with the table name.
+     */
+    public String upsert(String insert, String keyColumns, String updates) {
+        if (databaseTypeResolver.isMySQL()) {
+            return format("%s ON DUPLICATE KEY UPDATE %s", insert, updates);
+        } else if (databaseTypeResolver.isPostgreSQL()) {
+            return format("%s ON CONFLICT (%s) DO UPDATE SET %s", insert, keyColumns, updates);
+        } else {
+            throw new IllegalStateException("Database type is not supported for upsert " + databaseTypeResolver.databaseType());
+        }
+    }
+
+    public String insertedValue(String column) {
+        if (databaseTypeResolver.isMySQL()) {
+            return format("VALUES(%s)", column);
+        } else if (databaseTypeResolver.isPostgreSQL()) {
+            return format("EXCLUDED.%s", column);
+        } else {
+            throw new IllegalStateException("Database type is not supported for upsert " + databaseTypeResolver.databaseType());
+        }
+    }
+
     public String castChar(String sql) {
         if (databaseTypeResolver.isMySQL()) {
             return format("CAST(%s AS CHAR)", sql);
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.core.service.migration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseIndependentQueryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fingerprints the Liquibase changelog shipped with this build, so that tenant databases already migrated with exactly
+ * this changelog can skip Liquibase (changelog parsing, lock and DATABASECHANGELOG comparison) at start-up.
+ *
+ * The fingerprint of the last successful migration is kept in the tenant database itself, in m_changelog_checksum.
+ */
+@Component
+@Slf4j
+public class ChangelogChecksumService {
+
+    private static final String CHANGELOG_RESOURCES = "classpath*:db/changelog/**/*.*";
+    private static final String CHANGELOG_ROOT = "db/changelog/";
+    private static final String CHECKSUM_TABLE = "m_changelog_checksum";
+
+    private final ResourcePatternResolver resourcePatternResolver;
+    private final Environment environment;
+    private final LiquibaseProperties liquibaseProperties;
+    private final DatabaseAwareMigrationContextProvider databaseAwareMigrationContextProvider;
+    private final DatabaseIndependentQueryService dbQueryService;
+
+    @Autowired
+    public ChangelogChecksumService(ResourceLoader resourceLoader, Environment environment, LiquibaseProperties liquibaseProperties,
+            DatabaseAwareMigrationContextProvider databaseAwareMigrationContextProvider, DatabaseIndependentQueryService dbQueryService) {
+        this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        this.environment = environment;
+        this.liquibaseProperties = liquibaseProperties;
+        this.databaseAwareMigrationContextProvider = databaseAwareMigrationContextProvider;
+        this.dbQueryService = dbQueryService;
+    }
+
+    /**
+     * @return a SHA-256 over every changelog resource, the contexts and the changelog parameters Liquibase would run
+     *         with, or null if the changelog could not be read (the fast path is then not used)
+     */
+    public String calculateChecksum(String... contexts) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final List<Resource> resources = Arrays.stream(this.resourcePatternResolver.getResources(CHANGELOG_RESOURCES))
+                    .sorted(Comparator.comparing(ChangelogChecksumService::relativePath)).toList();
+            for (Resource resource : resources) {
+                digest.update(relativePath(resource).getBytes(StandardCharsets.UTF_8));
+                try (InputStream content = resource.getInputStream()) {
+                    digest.update(content.readAllBytes());
+                }
+            }
+            digest.update(String.join(",", contexts).getBytes(StandardCharsets.UTF_8));
+            digest.update(String.join(",", this.environment.getActiveProfiles()).getBytes(StandardCharsets.UTF_8));
+            digest.update(this.databaseAwareMigrationContextProvider.provide().getBytes(StandardCharsets.UTF_8));
+            if (this.liquibaseProperties.getParameters() != null) {
+                digest.update(new TreeMap<>(this.liquibaseProperties.getParameters()).toString().getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.warn("Could not fingerprint the changelog, every tenant will be checked by Liquibase", e);
+            return null;
+        }
+    }
+
+    public boolean isOnChecksum(DataSource dataSource, String checksum) {
+        if (!this.dbQueryService.isTablePresent(dataSource, CHECKSUM_TABLE)) {
+            return false;
+        }
+        final List<String> stored = new JdbcTemplate(dataSource).queryForList("select checksum from " + CHECKSUM_TABLE, String.class);
+        return stored.size() == 1 && checksum.equals(stored.get(0));
+    }
+
+    public void saveChecksum(DataSource dataSource, String checksum) {
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from " + CHECKSUM_TABLE);
+        jdbcTemplate.update("insert into " + CHECKSUM_TABLE + " (checksum, updated_on) values (?, ?)", checksum,
+                DateUtils.getLocalDateTimeOfSystem());
+    }
+
+    private static String relativePath(Resource resource) {
+        try {
+            final String url = resource.getURL().toString();
+            final int root = url.lastIndexOf(CHANGELOG_ROOT);
+            return root < 0 ? url : url.substring(root);
+        } catch (IOException e) {
+            return String.valueOf(resource.getFilename());
+        }
+    }
+}
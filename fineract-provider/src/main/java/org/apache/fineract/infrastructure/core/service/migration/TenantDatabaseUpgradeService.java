@@ -20,8 +20,16 @@ package org.apache.fineract.infrastructure.core.service.migration;
 
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.sql.DataSource;
 import liquibase.exception.LiquibaseException;
 import liquibase.integration.spring.SpringLiquibase;
@@ -33,10 +41,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 /**
  * A service that picks up on tenants that are configured to auto-update their specific schema on application startup.
+ *
+ * Tenants are upgraded by up to fineract.tenant.upgrade-parallelism threads. A tenant whose database was last migrated
+ * with the very same changelog is skipped without running Liquibase. With fineract.tenant.upgrade-async the start-up
+ * only waits for the tenant store; every tenant comes online through {@link TenantUpgradeTracker} as soon as its own
+ * upgrade finished.
  */
 @Service
 public class TenantDatabaseUpgradeService implements InitializingBean {
@@ -52,18 +66,23 @@ public class TenantDatabaseUpgradeService implements InitializingBean {
     private final TenantDatabaseStateVerifier databaseStateVerifier;
     private final ExtendedSpringLiquibaseFactory liquibaseFactory;
     private final TenantDataSourceFactory tenantDataSourceFactory;
+    private final ChangelogChecksumService changelogChecksumService;
+    private final TenantUpgradeTracker tenantUpgradeTracker;
 
     @Autowired
     public TenantDatabaseUpgradeService(final TenantDetailsService detailsService,
             @Qualifier("hikariTenantDataSource") final DataSource tenantDataSource, final FineractProperties fineractProperties,
             TenantDatabaseStateVerifier databaseStateVerifier, ExtendedSpringLiquibaseFactory liquibaseFactory,
-            TenantDataSourceFactory tenantDataSourceFactory) {
+            TenantDataSourceFactory tenantDataSourceFactory, ChangelogChecksumService changelogChecksumService,
+            TenantUpgradeTracker tenantUpgradeTracker) {
         this.tenantDetailsService = detailsService;
         this.tenantDataSource = tenantDataSource;
         this.fineractProperties = fineractProperties;
         this.databaseStateVerifier = databaseStateVerifier;
         this.liquibaseFactory = liquibaseFactory;
         this.tenantDataSourceFactory = tenantDataSourceFactory;
+        this.changelogChecksumService = changelogChecksumService;
+        this.tenantUpgradeTracker = tenantUpgradeTracker;
     }
 
     @Override
@@ -110,24 +129,104 @@ public class TenantDatabaseUpgradeService implements InitializingBean {
         LOG.warn("Upgrading all tenants");
         List<FineractPlatformTenant> tenants = tenantDetailsService.findAllTenants();
         if (isNotEmpty(tenants)) {
-            for (FineractPlatformTenant tenant : tenants) {
-                upgradeIndividualTenant(tenant);
+            final String changelogChecksum = changelogChecksumService.calculateChecksum(TENANT_DB_CONTEXT);
+            final TenantUpgradeProgress progress = new TenantUpgradeProgress(tenants.size());
+            final int parallelism = Math.min(Math.max(1, fineractProperties.getTenant().getUpgradeParallelism()), tenants.size());
+            if (fineractProperties.getTenant().isUpgradeAsync()) {
+                upgradeIndividualTenantsAsync(tenants, changelogChecksum, progress, parallelism);
+                return;
+            }
+            if (parallelism == 1) {
+                for (FineractPlatformTenant tenant : tenants) {
+                    upgradeIndividualTenant(tenant, changelogChecksum, progress);
+                }
+            } else {
+                upgradeIndividualTenantsInParallel(tenants, changelogChecksum, progress, parallelism);
             }
         }
         LOG.warn("Tenant upgrades have finished");
     }
 
-    private void upgradeIndividualTenant(FineractPlatformTenant tenant) throws LiquibaseException {
+    private void upgradeIndividualTenantsInParallel(List<FineractPlatformTenant> tenants, String changelogChecksum,
+            TenantUpgradeProgress progress, int parallelism) throws LiquibaseException {
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("tenant-upgrade-"));
+        try {
+            final List<Future<Void>> upgrades = new ArrayList<>(tenants.size());
+            for (FineractPlatformTenant tenant : tenants) {
+                upgrades.add(executor.submit(() -> {
+                    upgradeIndividualTenant(tenant, changelogChecksum, progress);
+                    return null;
+                }));
+            }
+            for (Future<Void> upgrade : upgrades) {
+                upgrade.get();
+            }
+        } catch (ExecutionException e) {
+            // the first failure stops the start-up just like the sequential upgrade does
+            final Throwable cause = e.getCause();
+            if (cause instanceof LiquibaseException) {
+                throw (LiquibaseException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while upgrading the tenants", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void upgradeIndividualTenantsAsync(List<FineractPlatformTenant> tenants, String changelogChecksum,
+            TenantUpgradeProgress progress, int parallelism) {
+        tenantUpgradeTracker.markPending(tenants.stream().map(FineractPlatformTenant::getTenantIdentifier).collect(Collectors.toList()));
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("tenant-upgrade-"));
+        for (FineractPlatformTenant tenant : tenants) {
+            executor.execute(() -> {
+                try {
+                    upgradeIndividualTenant(tenant, changelogChecksum, progress);
+                    tenantUpgradeTracker.markUpgraded(tenant.getTenantIdentifier());
+                } catch (LiquibaseException | RuntimeException e) {
+                    LOG.error("Upgrade for tenant {} has failed, the tenant stays offline", tenant.getTenantIdentifier(), e);
+                    tenantUpgradeTracker.markFailed(tenant.getTenantIdentifier());
+                }
+            });
+        }
+        // lets the workers finish the queued upgrades and then exit
+        executor.shutdown();
+        LOG.warn("Tenant upgrades continue in the background, each tenant comes online when its upgrade finishes");
+    }
+
+    private void upgradeIndividualTenant(FineractPlatformTenant tenant, String changelogChecksum, TenantUpgradeProgress progress)
+            throws LiquibaseException {
         LOG.info("Upgrade for tenant {} has started", tenant.getTenantIdentifier());
+        final long startedAt = System.currentTimeMillis();
         DataSource tenantDataSource = tenantDataSourceFactory.create(tenant);
-        if (databaseStateVerifier.isFirstLiquibaseMigration(tenantDataSource)) {
-            ExtendedSpringLiquibase liquibase = liquibaseFactory.create(tenantDataSource, TENANT_DB_CONTEXT, INITIAL_SWITCH_CONTEXT);
-            applyInitialLiquibase(tenantDataSource, liquibase, tenant.getTenantIdentifier(),
-                    (ds) -> !databaseStateVerifier.isTenantOnLatestUpgradableVersion(ds));
+        try {
+            if (changelogChecksum != null && changelogChecksumService.isOnChecksum(tenantDataSource, changelogChecksum)) {
+                LOG.info("Tenant {} is already on the current changelog, skipping Liquibase ({})", tenant.getTenantIdentifier(),
+                        progress.finished());
+                return;
+            }
+            if (databaseStateVerifier.isFirstLiquibaseMigration(tenantDataSource)) {
+                ExtendedSpringLiquibase liquibase = liquibaseFactory.create(tenantDataSource, TENANT_DB_CONTEXT, INITIAL_SWITCH_CONTEXT);
+                applyInitialLiquibase(tenantDataSource, liquibase, tenant.getTenantIdentifier(),
+                        (ds) -> !databaseStateVerifier.isTenantOnLatestUpgradableVersion(ds));
+            }
+            SpringLiquibase tenantLiquibase = liquibaseFactory.create(tenantDataSource, TENANT_DB_CONTEXT);
+            tenantLiquibase.afterPropertiesSet();
+            if (changelogChecksum != null) {
+                changelogChecksumService.saveChecksum(tenantDataSource, changelogChecksum);
+            }
+            LOG.info("Upgrade for tenant {} has finished in {} ms ({})", tenant.getTenantIdentifier(),
+                    System.currentTimeMillis() - startedAt, progress.finished());
+        } finally {
+            if (tenantDataSource instanceof HikariDataSource) {
+                ((HikariDataSource) tenantDataSource).close();
+            }
         }
-        SpringLiquibase tenantLiquibase = liquibaseFactory.create(tenantDataSource, TENANT_DB_CONTEXT);
-        tenantLiquibase.afterPropertiesSet();
-        LOG.info("Upgrade for tenant {} has finished", tenant.getTenantIdentifier());
     }
 
     private void applyInitialLiquibase(DataSource dataSource, ExtendedSpringLiquibase liquibase, String id,
@@ -145,4 +244,18 @@ public class TenantDatabaseUpgradeService implements InitializingBean {
             liquibase.afterPropertiesSet();
         }
     }
+
+    private static final class TenantUpgradeProgress {
+
+        private final int total;
+        private final AtomicInteger finished = new AtomicInteger();
+
+        TenantUpgradeProgress(int total) {
+            this.total = total;
+        }
+
+        String finished() {
+            return finished.incrementAndGet() + " of " + total + " tenants done";
+        }
+    }
 }
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.core.service.migration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps track of the tenants whose schema upgrade has not finished yet, so that requests and jobs of a tenant are held
+ * back until its own upgrade is done while the other tenants are already serving.
+ *
+ * Tenants that were never marked pending are always available.
+ */
+@Component
+@Slf4j
+public class TenantUpgradeTracker {
+
+    // tenants not upgraded yet (pending or failed), with the actions waiting for them
+    private final Map<String, List<Runnable>> unavailableTenants = new ConcurrentHashMap<>();
+
+    public boolean isAvailable(final String tenantIdentifier) {
+        return tenantIdentifier == null || !this.unavailableTenants.containsKey(tenantIdentifier);
+    }
+
+    public synchronized void markPending(final Collection<String> tenantIdentifiers) {
+        tenantIdentifiers.forEach(tenantIdentifier -> this.unavailableTenants.putIfAbsent(tenantIdentifier, new ArrayList<>()));
+    }
+
+    public void markUpgraded(final String tenantIdentifier) {
+        final List<Runnable> waitingActions;
+        synchronized (this) {
+            waitingActions = this.unavailableTenants.remove(tenantIdentifier);
+        }
+        if (waitingActions != null) {
+            waitingActions.forEach(action -> runSafely(tenantIdentifier, action));
+        }
+    }
+
+    public synchronized void markFailed(final String tenantIdentifier) {
+        final List<Runnable> waitingActions = this.unavailableTenants.get(tenantIdentifier);
+        if (waitingActions != null && !waitingActions.isEmpty()) {
+            log.warn("Tenant {} stays offline because its upgrade failed; {} start-up actions will not run", tenantIdentifier,
+                    waitingActions.size());
+            waitingActions.clear();
+        }
+    }
+
+    /**
+     * Runs the action now if the tenant is available, otherwise on the upgrade thread right after the tenant's upgrade
+     * finished. The action is dropped if the upgrade fails.
+     */
+    public void whenAvailable(final String tenantIdentifier, final Runnable action) {
+        synchronized (this) {
+            final List<Runnable> waitingActions = this.unavailableTenants.get(tenantIdentifier);
+            if (waitingActions != null) {
+                waitingActions.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    private void runSafely(final String tenantIdentifier, final Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.error("Start-up action for tenant {} failed after its upgrade", tenantIdentifier, e);
+        }
+    }
+}
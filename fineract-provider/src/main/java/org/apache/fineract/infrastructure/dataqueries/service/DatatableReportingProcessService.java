@@ -95,10 +95,10 @@ public class DatatableReportingProcessService implements ReportingProcessService
         if (exportXLSX) {
 
             final Map<String, String> reportParams = getReportParams(queryParams);
-            final byte[] excelBytes = this.readExtraDataAndReportingService.retrieveReportXLSX(reportName, parameterTypeValue, reportParams,
-                    isSelfServiceUserReport, limit, offset);
+            final StreamingOutput result = this.readExtraDataAndReportingService.retrieveReportXLSX(reportName, parameterTypeValue,
+                    reportParams, isSelfServiceUserReport, limit, offset);
 
-            return Response.ok().entity(excelBytes).type("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
+            return Response.ok().entity(result).type("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
                     .header("Content-Disposition", "attachment;filename=" + reportName.replaceAll(" ", "") + ".xlsx").build();
         }
 
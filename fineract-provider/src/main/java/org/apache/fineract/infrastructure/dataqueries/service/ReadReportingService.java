@@ -57,6 +57,6 @@ public interface ReadReportingService {
     ByteArrayOutputStream generatePentahoReportAsOutputStream(String reportName, String outputTypeParam, Map<String, String> queryParams,
             Locale locale, AppUser runReportAsUser, StringBuilder errorLog);
 
-    byte[] retrieveReportXLSX(String name, String type, Map<String, String> extractedQueryParams, boolean isSelfServiceUserReport,
+    StreamingOutput retrieveReportXLSX(String name, String type, Map<String, String> extractedQueryParams, boolean isSelfServiceUserReport,
             final Integer limit, final Integer offset);
 }
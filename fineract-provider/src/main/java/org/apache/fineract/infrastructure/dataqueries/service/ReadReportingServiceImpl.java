@@ -22,14 +22,18 @@ import com.lowagie.text.Document;
 import com.lowagie.text.PageSize;
 import com.lowagie.text.pdf.PdfPTable;
 import com.lowagie.text.pdf.PdfWriter;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -42,6 +46,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractReportProperties;
 import org.apache.fineract.infrastructure.core.domain.JdbcSupport;
 import org.apache.fineract.infrastructure.core.exception.PlatformDataIntegrityException;
 import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
@@ -59,102 +64,119 @@ import org.apache.fineract.useradministration.domain.AppUser;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.owasp.esapi.ESAPI;
 import org.owasp.esapi.codecs.UnixCodec;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ReadReportingServiceImpl implements ReadReportingService {
 
+    private static final int DEFAULT_EXPORT_FETCH_SIZE = 1000;
+    private static final int CSV_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_XLSX_ROW_WINDOW = 100;
+    private static final Set<String> NUMERIC_COLUMN_TYPES = Set.of("DECIMAL", "DOUBLE", "BIGINT", "SMALLINT", "INT");
+
     private final JdbcTemplate jdbcTemplate;
     private final PlatformSecurityContext context;
     private final GenericDataService genericDataService;
     private final SqlInjectionPreventerService sqlInjectionPreventerService;
     private final DatabaseSpecificSQLGenerator sqlGenerator;
     private final FineractProperties fineractProperties;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public StreamingOutput retrieveReportCSV(final String name, final String type, final Map<String, String> queryParams,
             final boolean isSelfServiceUserReport, final Integer limit, final Integer offset) {
+        final String sql = getSQLtoRun(name, type, queryParams, isSelfServiceUserReport, limit, offset);
         return out -> {
             try {
-
-                final GenericResultsetData result = retrieveGenericResultset(name, type, queryParams, isSelfServiceUserReport, limit,
-                        offset);
-                final StringBuilder sb = generateCsvFileBuffer(result);
-
-                final InputStream in = new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
-
-                final byte[] outputByte = new byte[4096];
-                Integer readLen = in.read(outputByte, 0, 4096);
-
-                while (readLen != -1) {
-                    out.write(outputByte, 0, readLen);
-                    readLen = in.read(outputByte, 0, 4096);
-                }
-                // in.close();
-                // out.flush();
-                // out.close();
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
+                final long rows = queryForwardOnly(sql, rs -> writeCsv(rs, writer));
+                writer.flush();
+                log.info("NO. of Rows: {}", rows);
             } catch (final Exception e) {
                 throw new PlatformDataIntegrityException("error.msg.exception.error", e.getMessage(), e);
             }
         };
     }
 
-    private StringBuilder generateCsvFileBuffer(final GenericResultsetData result) {
-        final StringBuilder writer = new StringBuilder();
+    /**
+     * Runs the report SQL on a forward-only, read-only cursor so the driver hands rows over in chunks of the configured
+     * fetch size instead of materializing the whole result. The read-only transaction is needed as PostgreSQL only
+     * honours the fetch size with auto-commit turned off.
+     */
+    private <T> T queryForwardOnly(final String sql, final ResultSetExtractor<T> extractor) {
+        final TransactionTemplate readOnlyTransaction = new TransactionTemplate(this.transactionTemplate.getTransactionManager(),
+                this.transactionTemplate);
+        readOnlyTransaction.setReadOnly(true);
+        return readOnlyTransaction.execute(status -> this.jdbcTemplate.query(con -> {
+            final PreparedStatement statement = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(getExportFetchSize());
+            return statement;
+        }, extractor));
+    }
 
-        final List<ResultsetColumnHeaderData> columnHeaders = result.getColumnHeaders();
-        log.info("NO. of Columns: {}", columnHeaders.size());
-        final Integer chSize = columnHeaders.size();
-        for (int i = 0; i < chSize; i++) {
-            writer.append('"' + columnHeaders.get(i).getColumnName() + '"');
-            if (i < (chSize - 1)) {
-                writer.append(",");
-            }
+    private int getExportFetchSize() {
+        final FineractReportProperties reportProperties = this.fineractProperties.getReport();
+        if (reportProperties == null || reportProperties.getExportFetchSize() <= 0) {
+            return DEFAULT_EXPORT_FETCH_SIZE;
         }
-        writer.append('\n');
-
-        final List<ResultsetRowData> data = result.getData();
-        List<String> row;
-        Integer rSize;
-        // String currCol;
-        String currColType;
-        String currVal;
-        final String doubleQuote = "\"";
-        final String twoDoubleQuotes = doubleQuote + doubleQuote;
-        log.info("NO. of Rows: {}", data.size());
-        for (ResultsetRowData element : data) {
-            row = element.getRow();
-            rSize = row.size();
-            for (int j = 0; j < rSize; j++) {
-                // currCol = columnHeaders.get(j).getColumnName();
-                currColType = columnHeaders.get(j).getColumnType();
-                currVal = row.get(j);
-                if (currVal != null) {
-                    if (currColType.equals("DECIMAL") || currColType.equals("DOUBLE") || currColType.equals("BIGINT")
-                            || currColType.equals("SMALLINT") || currColType.equals("INT")) {
-                        writer.append(currVal);
-                    } else {
-                        writer.append('"' + this.genericDataService.replace(currVal, doubleQuote, twoDoubleQuotes) + '"');
-                    }
+        return reportProperties.getExportFetchSize();
+    }
 
+    private long writeCsv(final ResultSet rs, final Writer writer) throws SQLException {
+        try {
+            final ResultSetMetaData metaData = rs.getMetaData();
+            final int columnCount = metaData.getColumnCount();
+            log.info("NO. of Columns: {}", columnCount);
+            final boolean[] numeric = new boolean[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                numeric[i] = isNumericColumnType(metaData.getColumnTypeName(i + 1));
+                if (i > 0) {
+                    writer.write(',');
                 }
-                if (j < (rSize - 1)) {
-                    writer.append(",");
+                writer.write('"' + metaData.getColumnLabel(i + 1) + '"');
+            }
+            writer.write('\n');
+
+            long rows = 0;
+            while (rs.next()) {
+                for (int i = 0; i < columnCount; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    final String value = rs.getString(i + 1);
+                    if (value == null) {
+                        continue;
+                    }
+                    if (numeric[i]) {
+                        writer.write(value);
+                    } else {
+                        writer.write('"');
+                        writer.write(StringUtils.replace(value, "\"", "\"\""));
+                        writer.write('"');
+                    }
                 }
+                writer.write('\n');
+                rows++;
             }
-            writer.append('\n');
+            return rows;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        return writer;
+    private static boolean isNumericColumnType(final String columnType) {
+        return NUMERIC_COLUMN_TYPES.contains(columnType);
     }
 
     @Override
@@ -594,50 +616,59 @@ public class ReadReportingServiceImpl implements ReadReportingService {
     }
 
     @Override
-    public byte[] retrieveReportXLSX(final String reportName, final String type, final Map<String, String> queryParams,
+    public StreamingOutput retrieveReportXLSX(final String reportName, final String type, final Map<String, String> queryParams,
             final boolean isSelfServiceUserReport, final Integer limit, final Integer offset) {
-        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            // Create a sheet
-            Sheet sheet = workbook.createSheet("Sheet 1");
-
-            // Retrieve data from your service
-            final GenericResultsetData result = retrieveGenericResultset(reportName, type, queryParams, isSelfServiceUserReport, limit,
-                    offset);
-
-            // Generate header row
-            List<ResultsetColumnHeaderData> columnHeaders = result.getColumnHeaders();
-            Row headerRow = sheet.createRow(0);
-            for (int i = 0; i < columnHeaders.size(); i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(columnHeaders.get(i).getColumnName());
+        final String sql = getSQLtoRun(reportName, type, queryParams, isSelfServiceUserReport, limit, offset);
+        final FineractReportProperties reportProperties = this.fineractProperties.getReport();
+        final int rowWindow = reportProperties != null && reportProperties.getXlsxRowWindow() > 0 ? reportProperties.getXlsxRowWindow()
+                : DEFAULT_XLSX_ROW_WINDOW;
+        final boolean compressTempFiles = reportProperties == null || reportProperties.isXlsxCompressTempFiles();
+        return out -> {
+            // only the last rowWindow rows are kept in memory, older ones are flushed to a temporary file
+            final SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+            workbook.setCompressTempFiles(compressTempFiles);
+            try {
+                final Sheet sheet = workbook.createSheet("Sheet 1");
+                final long rows = queryForwardOnly(sql, rs -> writeSheet(rs, sheet));
+                log.info("NO. of Rows: {}", rows);
+                workbook.write(out);
+            } catch (final IOException | DataAccessException e) {
+                throw new PlatformDataIntegrityException("error.msg.reporting.error", "Table Report failed: " + e.getMessage());
+            } finally {
+                workbook.dispose();
+                workbook.close();
             }
+        };
+    }
 
-            // Generate data rows
-            List<ResultsetRowData> data = result.getData();
-            for (int i = 0; i < data.size(); i++) {
-                Row dataRow = sheet.createRow(i + 1);
-                List<String> row = data.get(i).getRow();
-                for (int j = 0; j < row.size(); j++) {
-                    Cell cell = dataRow.createCell(j);
-                    String currColType = columnHeaders.get(j).getColumnType();
-                    String currVal = row.get(j);
-                    if (currVal != null) {
-                        if (currColType.equals("DECIMAL") || currColType.equals("DOUBLE") || currColType.equals("BIGINT")
-                                || currColType.equals("SMALLINT") || currColType.equals("INT")) {
+    private long writeSheet(final ResultSet rs, final Sheet sheet) throws SQLException {
+        final ResultSetMetaData metaData = rs.getMetaData();
+        final int columnCount = metaData.getColumnCount();
+        final boolean[] numeric = new boolean[columnCount];
+        final Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < columnCount; i++) {
+            numeric[i] = isNumericColumnType(metaData.getColumnTypeName(i + 1));
+            headerRow.createCell(i).setCellValue(metaData.getColumnLabel(i + 1));
+        }
 
-                            cell.setCellValue(Double.parseDouble(currVal));
-                        } else {
-                            cell.setCellValue(genericDataService.replace(currVal, "\"", "\"\""));
-                        }
+        int rowIndex = 0;
+        while (rs.next()) {
+            final Row dataRow = sheet.createRow(++rowIndex);
+            for (int i = 0; i < columnCount; i++) {
+                final Cell cell = dataRow.createCell(i);
+                if (numeric[i]) {
+                    final double value = rs.getDouble(i + 1);
+                    if (!rs.wasNull()) {
+                        cell.setCellValue(value);
+                    }
+                } else {
+                    final String value = rs.getString(i + 1);
+                    if (value != null) {
+                        cell.setCellValue(StringUtils.replace(value, "\"", "\"\""));
                     }
                 }
             }
-
-            // Write workbook to the output stream
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
-        } catch (final IOException e) {
-            throw new PlatformDataIntegrityException("error.msg.reporting.error", "Table Report failed: " + e.getMessage());
         }
+        return rowIndex;
     }
 }
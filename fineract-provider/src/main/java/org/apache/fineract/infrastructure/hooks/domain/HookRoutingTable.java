@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.hooks.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The active hooks of a tenant by the entity and action they listen to. It is cached per tenant and evicted whenever a
+ * hook is created, updated or deleted, so dispatching an event does not need to query the hooks. Only the id and the
+ * template of a hook are kept; the {@link Hook} itself is loaded when an event is delivered to it, so the cache never
+ * holds (detached) entities.
+ */
+public final class HookRoutingTable {
+
+    private final Map<String, List<HookRoute>> routesByEvent;
+
+    private HookRoutingTable(final Map<String, List<HookRoute>> routesByEvent) {
+        this.routesByEvent = routesByEvent;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<HookRoute> routesFor(final String entityName, final String actionName) {
+        return this.routesByEvent.getOrDefault(eventKey(entityName, actionName), Collections.emptyList());
+    }
+
+    private static String eventKey(final String entityName, final String actionName) {
+        return entityName + ':' + actionName;
+    }
+
+    public static final class Builder {
+
+        private final Map<String, List<HookRoute>> routesByEvent = new HashMap<>();
+
+        private Builder() {}
+
+        public Builder route(final String entityName, final String actionName, final Long hookId, final String templateName) {
+            final List<HookRoute> routes = this.routesByEvent.computeIfAbsent(eventKey(entityName, actionName), key -> new ArrayList<>());
+            final HookRoute route = new HookRoute(hookId, templateName);
+            if (!routes.contains(route)) {
+                routes.add(route);
+            }
+            return this;
+        }
+
+        public HookRoutingTable build() {
+            final Map<String, List<HookRoute>> routes = new HashMap<>();
+            this.routesByEvent.forEach((key, hookRoutes) -> routes.put(key, List.copyOf(hookRoutes)));
+            return new HookRoutingTable(Collections.unmodifiableMap(routes));
+        }
+    }
+
+    /**
+     * A hook listening to an event: its id and the name of its template, which selects the processor.
+     */
+    public static final class HookRoute {
+
+        private final Long hookId;
+        private final String templateName;
+
+        public HookRoute(final Long hookId, final String templateName) {
+            this.hookId = hookId;
+            this.templateName = templateName;
+        }
+
+        public Long getHookId() {
+            return this.hookId;
+        }
+
+        public String getTemplateName() {
+            return this.templateName;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof HookRoute)) {
+                return false;
+            }
+            final HookRoute that = (HookRoute) o;
+            return Objects.equals(this.hookId, that.hookId) && Objects.equals(this.templateName, that.templateName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.hookId, this.templateName);
+        }
+
+        @Override
+        public String toString() {
+            return "HookRoute{hookId=" + this.hookId + ", templateName=" + this.templateName + "}";
+        }
+    }
+}
@@ -18,21 +18,40 @@
  */
 package org.apache.fineract.infrastructure.hooks.event;
 
+import java.util.function.Supplier;
 import lombok.Getter;
 import org.apache.fineract.infrastructure.core.domain.FineractContext;
 import org.apache.fineract.infrastructure.core.domain.FineractEvent;
 import org.apache.fineract.useradministration.domain.AppUser;
 
-@Getter
+/**
+ * Event published for every processed command. The payload is only built when a hook listening to the event asks for
+ * it, so events without any listening hook cost no serialization.
+ */
 public class HookEvent extends FineractEvent {
 
-    private final String payload;
+    private final transient Supplier<String> payloadSupplier;
 
+    private String payload;
+
+    @Getter
     private final AppUser appUser;
 
     public HookEvent(final HookEventSource source, final String payload, final AppUser appUser, FineractContext fineractContext) {
+        this(source, () -> payload, appUser, fineractContext);
+    }
+
+    public HookEvent(final HookEventSource source, final Supplier<String> payloadSupplier, final AppUser appUser,
+            FineractContext fineractContext) {
         super(source, fineractContext);
-        this.payload = payload;
+        this.payloadSupplier = payloadSupplier;
         this.appUser = appUser;
     }
+
+    public synchronized String getPayload() {
+        if (this.payload == null) {
+            this.payload = this.payloadSupplier.get();
+        }
+        return this.payload;
+    }
 }
@@ -0,0 +1,539 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.hooks.listener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractHookProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractContext;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.hooks.domain.Hook;
+import org.apache.fineract.infrastructure.hooks.domain.HookRepository;
+import org.apache.fineract.infrastructure.hooks.domain.HookRoutingTable.HookRoute;
+import org.apache.fineract.infrastructure.hooks.event.HookEvent;
+import org.apache.fineract.infrastructure.hooks.event.HookEventSource;
+import org.apache.fineract.infrastructure.hooks.processor.HookProcessor;
+import org.apache.fineract.infrastructure.hooks.processor.HookProcessorProvider;
+import org.apache.fineract.infrastructure.hooks.service.HookReadPlatformService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Delivers {@link HookEvent}s to the hooks listening to them, off the request thread.
+ *
+ * Events are put on a bounded queue; when it is full the event is dropped and counted rather than slowing down the
+ * command that produced it. Worker threads take events off the queue and look up the listening hooks in the tenant's
+ * cached {@link org.apache.fineract.infrastructure.hooks.domain.HookRoutingTable}, so the payload of an event is only
+ * built if at least one hook listens to it. The {@link Hook} itself is loaded in a short read-only transaction when the
+ * event is delivered; a hook that has been deleted in the meantime gets nothing. The HTTP call runs after that
+ * transaction has ended, so a slow endpoint never holds on to a connection of the tenant's pool.
+ *
+ * Every hook then delivers on its own thread with its own bounded queue, so a slow endpoint only holds up the deliveries
+ * of its own hook. The HTTP calls of a delivery are limited to the configured timeout by the HTTP client (see
+ * {@link org.apache.fineract.infrastructure.hooks.processor.ProcessorHelper}). Deliveries that fail with an I/O error
+ * or time out are put back on the queue with exponential backoff, up to the configured number of retries. After a
+ * number of consecutive failures the circuit of a hook opens and its deliveries are held back, within the capacity of
+ * its queue; once the circuit has been open for a while a single held delivery is let through to find out whether the
+ * endpoint is back, and when it succeeds the held deliveries follow. The thread, queue and meters of a hook are removed
+ * once the hook has been idle for a while, which also cleans up after deleted hooks.
+ *
+ * Queue depth, dropped events, retries, failed, rejected, timed out and held deliveries, the latency from publishing to
+ * delivery and the duration of the deliveries of every hook are published as {@code fineract.hook.*} metrics.
+ */
+@Component
+@Slf4j
+public class HookEventDispatcher implements DisposableBean {
+
+    private static final int DEFAULT_WORKER_POOL_SIZE = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 1000L;
+    private static final int DEFAULT_HOOK_QUEUE_CAPACITY = 1000;
+    private static final long DEFAULT_DELIVERY_TIMEOUT_MILLIS = 30000L;
+    private static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS = 60000L;
+    private static final long LANE_IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final HookReadPlatformService hookReadPlatformService;
+    private final HookProcessorProvider hookProcessorProvider;
+    private final HookRepository hookRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+
+    private final BlockingQueue<QueuedHookEvent> queue;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, HookLane> lanes = new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final int hookQueueCapacity;
+    private final long deliveryTimeoutMillis;
+    private final int circuitBreakerFailureThreshold;
+    private final long circuitBreakerOpenNanos;
+
+    private final Counter droppedEvents;
+    private final Counter retriedDeliveries;
+    private final Counter failedDeliveries;
+    private final Counter rejectedDeliveries;
+    private final Counter timedOutDeliveries;
+    private final Counter heldDeliveries;
+    private final Timer deliveryLatency;
+    private final AtomicLong droppedSinceStart = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public HookEventDispatcher(final FineractProperties fineractProperties, final HookReadPlatformService hookReadPlatformService,
+            final HookProcessorProvider hookProcessorProvider, final HookRepository hookRepository,
+            final TransactionTemplate transactionTemplate, final MeterRegistry meterRegistry) {
+        this.hookReadPlatformService = hookReadPlatformService;
+        this.hookProcessorProvider = hookProcessorProvider;
+        this.hookRepository = hookRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+
+        final FineractHookProperties properties = fineractProperties.getHook() == null ? new FineractHookProperties()
+                : fineractProperties.getHook();
+        final int workerPoolSize = properties.getWorkerPoolSize() > 0 ? properties.getWorkerPoolSize() : DEFAULT_WORKER_POOL_SIZE;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity() > 0 ? properties.getQueueCapacity() : DEFAULT_QUEUE_CAPACITY);
+        this.batchSize = properties.getBatchSize() > 0 ? properties.getBatchSize() : DEFAULT_BATCH_SIZE;
+        this.maxRetries = Math.max(0, properties.getMaxRetries());
+        this.retryBackoffMillis = properties.getRetryBackoffMillis() > 0 ? properties.getRetryBackoffMillis()
+                : DEFAULT_RETRY_BACKOFF_MILLIS;
+        this.hookQueueCapacity = properties.getHookQueueCapacity() > 0 ? properties.getHookQueueCapacity() : DEFAULT_HOOK_QUEUE_CAPACITY;
+        this.deliveryTimeoutMillis = properties.getDeliveryTimeoutMillis() > 0 ? properties.getDeliveryTimeoutMillis()
+                : DEFAULT_DELIVERY_TIMEOUT_MILLIS;
+        this.circuitBreakerFailureThreshold = properties.getCircuitBreakerFailureThreshold() > 0
+                ? properties.getCircuitBreakerFailureThreshold()
+                : DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+        this.circuitBreakerOpenNanos = TimeUnit.MILLISECONDS.toNanos(properties.getCircuitBreakerOpenMillis() > 0
+                ? properties.getCircuitBreakerOpenMillis()
+                : DEFAULT_CIRCUIT_BREAKER_OPEN_MILLIS);
+
+        Gauge.builder("fineract.hook.queue.depth", this.queue, BlockingQueue::size).description("Hook events waiting for delivery")
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("fineract.hook.events.dropped").description("Hook events dropped because the queue was full")
+                .register(meterRegistry);
+        this.retriedDeliveries = Counter.builder("fineract.hook.delivery.retries").description("Hook deliveries scheduled for a retry")
+                .register(meterRegistry);
+        this.failedDeliveries = Counter.builder("fineract.hook.delivery.failures")
+                .description("Hook deliveries that failed after all retries").register(meterRegistry);
+        this.rejectedDeliveries = Counter.builder("fineract.hook.delivery.rejected")
+                .description("Hook deliveries dropped because the queue of the hook was full").register(meterRegistry);
+        this.timedOutDeliveries = Counter.builder("fineract.hook.delivery.timeouts")
+                .description("Hook deliveries whose HTTP call took too long").register(meterRegistry);
+        this.heldDeliveries = Counter.builder("fineract.hook.delivery.held")
+                .description("Hook deliveries held back because the circuit of the hook was open").register(meterRegistry);
+        this.deliveryLatency = Timer.builder("fineract.hook.delivery.latency")
+                .description("Time from publishing a hook event to its delivery").register(meterRegistry);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("fineract-hook-scheduler-"));
+        this.scheduler.scheduleWithFixedDelay(() -> removeIdleLanes(LANE_IDLE_NANOS), 1L, 1L, TimeUnit.MINUTES);
+        this.workers = Executors.newFixedThreadPool(workerPoolSize, new CustomizableThreadFactory("fineract-hook-worker-"));
+        for (int i = 0; i < workerPoolSize; i++) {
+            this.workers.execute(this::drain);
+        }
+    }
+
+    public void dispatch(final HookEvent event) {
+        enqueue(new QueuedHookEvent(event, null, 0, System.nanoTime()));
+    }
+
+    private void enqueue(final QueuedHookEvent queued) {
+        if (this.queue.offer(queued)) {
+            return;
+        }
+        this.droppedEvents.increment();
+        final long dropped = this.droppedSinceStart.incrementAndGet();
+        if (dropped == 1 || dropped % 1000 == 0) {
+            final HookEventSource source = (HookEventSource) queued.event.getSource();
+            log.warn("Hook event queue is full, dropped {} event(s) so far, latest {}/{} for tenant {}", dropped, source.getEntityName(),
+                    source.getActionName(), queued.event.getContext().getTenantContext().getTenantIdentifier());
+        }
+    }
+
+    private void drain() {
+        final List<QueuedHookEvent> batch = new ArrayList<>(this.batchSize);
+        while (this.running) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            this.queue.drainTo(batch, this.batchSize - 1);
+            try {
+                route(batch);
+            } catch (RuntimeException e) {
+                log.error("Hook routing of a batch of {} event(s) failed", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void route(final List<QueuedHookEvent> batch) {
+        for (final QueuedHookEvent queued : batch) {
+            final HookEventSource source = (HookEventSource) queued.event.getSource();
+            ThreadLocalContextUtil.init(queued.event.getContext());
+            try {
+                if (queued.route != null) {
+                    submit(queued, queued.route);
+                    continue;
+                }
+                for (final HookRoute route : this.hookReadPlatformService.retrieveHookRoutingTable().routesFor(source.getEntityName(),
+                        source.getActionName())) {
+                    submit(queued, route);
+                }
+            } finally {
+                ThreadLocalContextUtil.clearTenant();
+                ThreadLocalContextUtil.clearDataSourceContext();
+            }
+        }
+    }
+
+    private void submit(final QueuedHookEvent queued, final HookRoute route) {
+        final HookProcessor processor = this.hookProcessorProvider.getProcessor(route.getTemplateName());
+        if (processor == null) {
+            return;
+        }
+        final String tenantIdentifier = queued.event.getContext().getTenantContext().getTenantIdentifier();
+        final HookLane lane = this.lanes.compute(tenantIdentifier + ':' + route.getHookId(), (key, existing) -> {
+            final HookLane hookLane = existing == null ? new HookLane(tenantIdentifier, route.getHookId()) : existing;
+            // touched while the key is locked, so an idle lane cannot be removed between here and the delivery
+            hookLane.lastUsedNanos = System.nanoTime();
+            return hookLane;
+        });
+        execute(new Delivery(queued, route, processor, lane));
+    }
+
+    private void execute(final Delivery delivery) {
+        try {
+            delivery.lane.executor.execute(delivery);
+        } catch (RejectedExecutionException e) {
+            if (!this.running || delivery.lane.executor.isShutdown()) {
+                return;
+            }
+            reject(delivery.lane);
+        }
+    }
+
+    private void reject(final HookLane lane) {
+        this.rejectedDeliveries.increment();
+        final long rejected = lane.rejectedSinceStart.incrementAndGet();
+        if (rejected == 1 || rejected % 1000 == 0) {
+            log.warn("Queue of hook {} of tenant {} is full, dropped {} delivery(ies) so far", lane.hookId, lane.tenantIdentifier,
+                    rejected);
+        }
+    }
+
+    private void deliver(final Delivery delivery) {
+        final HookLane lane = delivery.lane;
+        if (!lane.tryAcquire()) {
+            if (lane.hold(delivery)) {
+                this.heldDeliveries.increment();
+            } else {
+                reject(lane);
+            }
+            return;
+        }
+        final QueuedHookEvent queued = delivery.queued;
+        final HookEvent event = queued.event;
+        final FineractContext context = event.getContext();
+        final HookEventSource source = (HookEventSource) event.getSource();
+        final HookProcessor processor = delivery.processor;
+        ThreadLocalContextUtil.init(context);
+        final long startedAtNanos = System.nanoTime();
+        try {
+            final Hook hook = this.readOnlyTransaction.execute(status -> this.hookRepository.findById(lane.hookId).orElse(null));
+            if (hook == null) {
+                log.debug("Hook {} of tenant {} has been deleted, dropping its deliveries", lane.hookId, lane.tenantIdentifier);
+                lane.onHookDeleted();
+                return;
+            }
+            // outside of any transaction, the HTTP call must not hold a connection of the tenant's pool
+            processor.process(hook, event.getPayload(), source.getEntityName(), source.getActionName(), context);
+            this.deliveryLatency.record(System.nanoTime() - queued.publishedAtNanos, TimeUnit.NANOSECONDS);
+            lane.onSuccess().forEach(this::execute);
+        } catch (Exception cause) {
+            final boolean timedOut = ExceptionUtils.indexOfType(cause, InterruptedIOException.class) >= 0;
+            if (timedOut) {
+                this.timedOutDeliveries.increment();
+            }
+            if (lane.onFailure()) {
+                scheduleProbe(lane);
+            }
+            if (queued.attempt < this.maxRetries && ExceptionUtils.indexOfType(cause, IOException.class) >= 0) {
+                final long backoffMillis = this.retryBackoffMillis << queued.attempt;
+                log.warn("Hook {} failed in HookProcessor {} for {}/{}, retrying in {} ms: {}", lane.hookId,
+                        processor.getClass().getSimpleName(), source.getEntityName(), source.getActionName(), backoffMillis,
+                        timedOut ? "timed out after " + this.deliveryTimeoutMillis + " ms" : cause.getMessage());
+                this.retriedDeliveries.increment();
+                this.scheduler.schedule(() -> enqueue(queued.retryFor(delivery.route)), backoffMillis, TimeUnit.MILLISECONDS);
+                return;
+            }
+            this.failedDeliveries.increment();
+            log.error("Hook {} failed in HookProcessor {} for tenantIdentifier/user {}/{}, entityName: {}, actionName: {}", lane.hookId,
+                    processor.getClass().getSimpleName(), context.getTenantContext().getTenantIdentifier(),
+                    event.getAppUser().getDisplayName(), source.getEntityName(), source.getActionName(), cause);
+        } finally {
+            lane.deliveryDuration.record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+            ThreadLocalContextUtil.clearTenant();
+            ThreadLocalContextUtil.clearDataSourceContext();
+        }
+    }
+
+    private void scheduleProbe(final HookLane lane) {
+        try {
+            this.scheduler.schedule(() -> {
+                final Delivery probe = lane.takeProbe();
+                if (probe != null) {
+                    execute(probe);
+                }
+            }, this.circuitBreakerOpenNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    /**
+     * Removes the lanes that have nothing queued, held or running and have not been used for {@code idleNanos}, with
+     * their thread and meters.
+     */
+    void removeIdleLanes(final long idleNanos) {
+        final long now = System.nanoTime();
+        for (final String key : this.lanes.keySet()) {
+            this.lanes.computeIfPresent(key, (laneKey, lane) -> {
+                if (!lane.isIdle(now, idleNanos)) {
+                    return lane;
+                }
+                lane.close();
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void destroy() {
+        this.running = false;
+        this.scheduler.shutdownNow();
+        this.workers.shutdownNow();
+        this.lanes.values().forEach(HookLane::close);
+    }
+
+    /**
+     * The delivery thread, queue, circuit breaker and metrics of a single hook of a tenant. The thread stops when the
+     * hook has been idle for a minute; the lane itself is removed after {@link #LANE_IDLE_NANOS}.
+     */
+    private final class HookLane {
+
+        private final String tenantIdentifier;
+        private final Long hookId;
+        private final ThreadPoolExecutor executor;
+        private final Timer deliveryDuration;
+        private final Gauge queueDepth;
+        private final AtomicLong rejectedSinceStart = new AtomicLong();
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        // guarded by this
+        private final Deque<Delivery> held = new ArrayDeque<>();
+        private int consecutiveFailures;
+        private long openUntilNanos;
+        private boolean probing;
+        private boolean probeScheduled;
+
+        HookLane(final String tenantIdentifier, final Long hookId) {
+            this.tenantIdentifier = tenantIdentifier;
+            this.hookId = hookId;
+            this.executor = new ThreadPoolExecutor(1, 1, 1L, TimeUnit.MINUTES, new ArrayBlockingQueue<>(hookQueueCapacity),
+                    new CustomizableThreadFactory("fineract-hook-" + tenantIdentifier + "-" + hookId + "-"));
+            this.executor.allowCoreThreadTimeOut(true);
+            this.deliveryDuration = Timer.builder("fineract.hook.delivery.duration").description("Time taken by the deliveries of a hook")
+                    .tag("tenant", tenantIdentifier).tag("hook", String.valueOf(hookId)).register(meterRegistry);
+            this.queueDepth = Gauge.builder("fineract.hook.lane.queue.depth", this, HookLane::depth)
+                    .description("Deliveries of a hook waiting for their turn or held back by its circuit").tag("tenant", tenantIdentifier)
+                    .tag("hook", String.valueOf(hookId)).register(meterRegistry);
+        }
+
+        /**
+         * Whether a delivery may go ahead: always while the circuit is closed, never while it is open, and a single one
+         * once the circuit has been open long enough.
+         */
+        synchronized boolean tryAcquire() {
+            if (this.consecutiveFailures < circuitBreakerFailureThreshold) {
+                return true;
+            }
+            if (this.probing || System.nanoTime() - this.openUntilNanos < 0) {
+                return false;
+            }
+            this.probing = true;
+            return true;
+        }
+
+        /**
+         * Holds back a delivery while the circuit is open; {@code false} if the hook already holds as many as fit its
+         * queue.
+         */
+        synchronized boolean hold(final Delivery delivery) {
+            if (this.held.size() >= hookQueueCapacity) {
+                return false;
+            }
+            this.held.addLast(delivery);
+            return true;
+        }
+
+        /**
+         * @return the held deliveries, which may go ahead now that the circuit is closed
+         */
+        synchronized List<Delivery> onSuccess() {
+            if (this.consecutiveFailures >= circuitBreakerFailureThreshold) {
+                log.info("Circuit of hook {} of tenant {} closed, {} held delivery(ies) resume", this.hookId, this.tenantIdentifier,
+                        this.held.size());
+            }
+            this.consecutiveFailures = 0;
+            this.probing = false;
+            if (this.held.isEmpty()) {
+                return Collections.emptyList();
+            }
+            final List<Delivery> released = new ArrayList<>(this.held);
+            this.held.clear();
+            return released;
+        }
+
+        /**
+         * @return whether a probe has to be scheduled, because the circuit is open and no probe is scheduled yet
+         */
+        synchronized boolean onFailure() {
+            this.probing = false;
+            this.consecutiveFailures++;
+            if (this.consecutiveFailures < circuitBreakerFailureThreshold) {
+                return false;
+            }
+            this.openUntilNanos = System.nanoTime() + circuitBreakerOpenNanos;
+            log.warn("Circuit of hook {} of tenant {} open after {} consecutive failure(s), holding its deliveries for {} ms", this.hookId,
+                    this.tenantIdentifier, this.consecutiveFailures, TimeUnit.NANOSECONDS.toMillis(circuitBreakerOpenNanos));
+            if (this.probeScheduled) {
+                return false;
+            }
+            this.probeScheduled = true;
+            return true;
+        }
+
+        /**
+         * @return the oldest held delivery, to find out whether the endpoint is back, or {@code null} when nothing is
+         *         held and the next delivery will be the probe
+         */
+        synchronized Delivery takeProbe() {
+            this.probeScheduled = false;
+            return this.held.pollFirst();
+        }
+
+        synchronized void onHookDeleted() {
+            this.held.clear();
+            this.consecutiveFailures = 0;
+            this.probing = false;
+        }
+
+        synchronized boolean isIdle(final long now, final long idleNanos) {
+            return this.held.isEmpty() && !this.probeScheduled && this.executor.getQueue().isEmpty() && this.executor.getActiveCount() == 0
+                    && now - this.lastUsedNanos >= idleNanos;
+        }
+
+        synchronized int depth() {
+            return this.executor.getQueue().size() + this.held.size();
+        }
+
+        void close() {
+            this.executor.shutdownNow();
+            meterRegistry.remove(this.deliveryDuration);
+            meterRegistry.remove(this.queueDepth);
+        }
+    }
+
+    /**
+     * The delivery of an event to one hook, run on the thread of the hook's lane.
+     */
+    private final class Delivery implements Runnable {
+
+        private final QueuedHookEvent queued;
+        private final HookRoute route;
+        private final HookProcessor processor;
+        private final HookLane lane;
+
+        Delivery(final QueuedHookEvent queued, final HookRoute route, final HookProcessor processor, final HookLane lane) {
+            this.queued = queued;
+            this.route = route;
+            this.processor = processor;
+            this.lane = lane;
+        }
+
+        @Override
+        public void run() {
+            deliver(this);
+        }
+    }
+
+    /**
+     * An event on the queue; {@code route} is only set for a retry, which goes to that single hook.
+     */
+    private static final class QueuedHookEvent {
+
+        private final HookEvent event;
+        private final HookRoute route;
+        private final int attempt;
+        private final long publishedAtNanos;
+
+        QueuedHookEvent(final HookEvent event, final HookRoute route, final int attempt, final long publishedAtNanos) {
+            this.event = event;
+            this.route = route;
+            this.attempt = attempt;
+            this.publishedAtNanos = publishedAtNanos;
+        }
+
+        QueuedHookEvent retryFor(final HookRoute retryRoute) {
+            return new QueuedHookEvent(this.event, retryRoute, this.attempt + 1, this.publishedAtNanos);
+        }
+    }
+}
@@ -40,8 +40,11 @@ public class HookProcessorProvider implements ApplicationContextAware {
     }
 
     public HookProcessor getProcessor(final Hook hook) {
+        return getProcessor(hook.getHookTemplate().getName());
+    }
+
+    public HookProcessor getProcessor(final String templateName) {
         HookProcessor processor;
-        final String templateName = hook.getHookTemplate().getName();
         if (templateName.equalsIgnoreCase(smsTemplateName)) {
             processor = this.applicationContext.getBean("twilioHookProcessor", TwilioHookProcessor.class);
         } else if (templateName.equals(webTemplateName)) {
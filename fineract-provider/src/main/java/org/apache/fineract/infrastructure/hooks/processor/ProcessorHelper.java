@@ -23,11 +23,13 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import okhttp3.OkHttpClient;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -43,6 +45,7 @@ public final class ProcessorHelper {
     // org.apache.fineract.client.util.FineractClient.Builder.insecure()
 
     private static final Logger LOG = LoggerFactory.getLogger(ProcessorHelper.class);
+    private static final long DEFAULT_DELIVERY_TIMEOUT_MILLIS = 30000L;
 
     @SuppressWarnings("unused")
     private static final X509TrustManager insecureX509TrustManager = new X509TrustManager() {
@@ -67,16 +70,26 @@ public final class ProcessorHelper {
     private final boolean insecureHttpClient = Boolean.getBoolean("fineract.insecureHttpClient");
     private final SSLContext insecureSSLContext;
 
-    public ProcessorHelper() throws KeyManagementException, NoSuchAlgorithmException {
+    /**
+     * Limit on a whole call, from connecting to reading the response. OkHttp cancels a call that runs longer, which
+     * interrupting the calling thread does not reliably do.
+     */
+    private final Duration callTimeout;
+
+    public ProcessorHelper(final FineractProperties fineractProperties) throws KeyManagementException, NoSuchAlgorithmException {
         if (insecureHttpClient) {
             insecureSSLContext = createInsecureSSLContext();
         } else {
             insecureSSLContext = null;
         }
+        final long deliveryTimeoutMillis = fineractProperties.getHook() == null ? 0L
+                : fineractProperties.getHook().getDeliveryTimeoutMillis();
+        callTimeout = Duration.ofMillis(deliveryTimeoutMillis > 0 ? deliveryTimeoutMillis : DEFAULT_DELIVERY_TIMEOUT_MILLIS);
     }
 
     private OkHttpClient createClient() {
         var okBuilder = new OkHttpClient.Builder();
+        okBuilder.callTimeout(callTimeout);
         if (insecureHttpClient) {
             configureInsecureClient(okBuilder);
         }
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.hooks.processor;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractHookProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Looks up the loan, client and savings account fields that web hook templates and conditions can refer to, e.g.
+ * <code>{{loan.accountNumber}}</code> or <code>{{savingsAccount.summary.accountBalance}}</code>.
+ * <p>
+ * Only the fields configured through <code>fineract.hook.*-payload-fields</code> are read, by default all fields known
+ * below, with one query on the account's own table. Property names keep the names of the entity fields, and dotted names
+ * are returned as nested maps, so existing templates keep resolving.
+ */
+@Component
+@Slf4j
+public class WebHookPayloadEnricher {
+
+    private static final Map<String, String> LOAN_FIELDS = fields("id", "id", "accountNumber", "account_no", "externalId", "external_id",
+            "loanType", "loan_type_enum", "loanStatus", "loan_status_id", "loanSubStatus", "loan_sub_status_id", "submittedOnDate",
+            "submittedon_date", "approvedOnDate", "approvedon_date", "expectedDisbursementDate", "expected_disbursedon_date",
+            "actualDisbursementDate", "disbursedon_date", "closedOnDate", "closedon_date", "writtenOffOnDate", "writtenoffon_date",
+            "expectedMaturityDate", "expected_maturedon_date", "proposedPrincipal", "principal_amount_proposed", "approvedPrincipal",
+            "approved_principal", "netDisbursalAmount", "net_disbursal_amount", "totalOverpaid", "total_overpaid_derived",
+            "lastRepaymentAmount", "last_repayment_amount", "lastRepaymentDate", "last_repayment_date", "description", "description",
+            "kivaId", "kiva_id", "client.id", "client_id", "group.id", "group_id", "loanProduct.id", "product_id",
+            "summary.totalPrincipalOutstanding", "principal_outstanding_derived", "summary.totalInterestOutstanding",
+            "interest_outstanding_derived", "summary.totalExpectedRepayment", "total_expected_repayment_derived", "summary.totalRepayment",
+            "total_repayment_derived", "summary.totalOutstanding", "total_outstanding_derived");
+
+    private static final Map<String, String> CLIENT_FIELDS = fields("id", "id", "accountNumber", "account_no", "externalId",
+            "external_id", "status", "status_enum", "activationDate", "activation_date", "firstname", "firstname", "middlename",
+            "middlename", "lastname", "lastname", "fullname", "fullname", "displayName", "display_name", "mobileNo", "mobile_no",
+            "emailAddress", "email_address", "dateOfBirth", "date_of_birth", "submittedOnDate", "submittedon_date", "legalForm",
+            "legal_form_enum", "kivaId", "kiva_id", "office.id", "office_id", "staff.id", "staff_id");
+
+    private static final Map<String, String> SAVINGS_ACCOUNT_FIELDS = fields("id", "id", "accountNumber", "account_no", "externalId",
+            "external_id", "status", "status_enum", "accountType", "account_type_enum", "submittedOnDate", "submittedon_date",
+            "approvedOnDate", "approvedon_date", "activatedOnDate", "activatedon_date", "closedOnDate", "closedon_date",
+            "nominalAnnualInterestRate", "nominal_annual_interest_rate", "onHoldFunds", "on_hold_funds_derived", "client.id", "client_id",
+            "group.id", "group_id", "product.id", "product_id", "currency.code", "currency_code", "summary.accountBalance",
+            "account_balance_derived", "summary.totalDeposits", "total_deposits_derived", "summary.totalWithdrawals",
+            "total_withdrawals_derived");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Projection loanProjection;
+    private final Projection clientProjection;
+    private final Projection savingsAccountProjection;
+
+    public WebHookPayloadEnricher(final JdbcTemplate jdbcTemplate, final FineractProperties fineractProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        final FineractHookProperties properties = fineractProperties.getHook() == null ? new FineractHookProperties()
+                : fineractProperties.getHook();
+        this.loanProjection = new Projection("m_loan", select(LOAN_FIELDS, properties.getLoanPayloadFields()));
+        this.clientProjection = new Projection("m_client", select(CLIENT_FIELDS, properties.getClientPayloadFields()));
+        this.savingsAccountProjection = new Projection("m_savings_account",
+                select(SAVINGS_ACCOUNT_FIELDS, properties.getSavingsPayloadFields()));
+    }
+
+    public Map<String, Object> retrieveLoan(final Long loanId) {
+        return this.loanProjection.retrieve(loanId);
+    }
+
+    public Map<String, Object> retrieveClient(final Long clientId) {
+        return this.clientProjection.retrieve(clientId);
+    }
+
+    public Map<String, Object> retrieveSavingsAccount(final Long savingsAccountId) {
+        return this.savingsAccountProjection.retrieve(savingsAccountId);
+    }
+
+    private static Map<String, String> fields(final String... propertiesAndColumns) {
+        final Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < propertiesAndColumns.length; i += 2) {
+            fields.put(propertiesAndColumns[i], propertiesAndColumns[i + 1]);
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    private static Map<String, String> select(final Map<String, String> knownFields, final List<String> configuredFields) {
+        if (configuredFields == null || configuredFields.isEmpty()) {
+            return knownFields;
+        }
+        final Map<String, String> selected = new LinkedHashMap<>();
+        for (final String field : configuredFields) {
+            final String property = field.trim();
+            if (knownFields.containsKey(property)) {
+                selected.put(property, knownFields.get(property));
+            } else if (!property.isEmpty()) {
+                // only known fields are selected, the configuration never ends up in the SQL
+                log.warn("Ignoring unknown web hook payload field {}, known fields are {}", property, knownFields.keySet());
+            }
+        }
+        return selected;
+    }
+
+    private final class Projection {
+
+        private final Map<String, String> fields;
+        private final String sql;
+
+        private Projection(final String table, final Map<String, String> fields) {
+            this.fields = fields;
+            this.sql = fields.isEmpty() ? null
+                    : "select " + fields.entrySet().stream().map(field -> field.getValue() + " as " + alias(field.getKey()))
+                            .collect(Collectors.joining(", ")) + " from " + table + " where id = ?";
+        }
+
+        private Map<String, Object> retrieve(final Long id) {
+            if (this.sql == null) {
+                return null;
+            }
+            final List<Map<String, Object>> rows = WebHookPayloadEnricher.this.jdbcTemplate.queryForList(this.sql, id);
+            if (rows.isEmpty()) {
+                return null;
+            }
+            final Map<String, Object> row = rows.get(0);
+            final Map<String, Object> result = new LinkedHashMap<>();
+            for (final String property : this.fields.keySet()) {
+                put(result, property, row.get(alias(property)));
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void put(final Map<String, Object> result, final String property, final Object value) {
+            final int separator = property.indexOf('.');
+            if (separator < 0) {
+                result.put(property, value);
+                return;
+            }
+            final Map<String, Object> nested = (Map<String, Object>) result.computeIfAbsent(property.substring(0, separator),
+                    key -> new LinkedHashMap<String, Object>());
+            put(nested, property.substring(separator + 1), value);
+        }
+
+        private String alias(final String property) {
+            return "f_" + property.replace('.', '_');
+        }
+    }
+}
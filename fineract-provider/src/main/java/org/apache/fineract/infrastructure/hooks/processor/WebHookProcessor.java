@@ -18,6 +18,7 @@
  */
 package org.apache.fineract.infrastructure.hooks.processor;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
@@ -29,47 +30,55 @@ import com.google.gson.JsonParser;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractHookProperties;
 import org.apache.fineract.infrastructure.core.domain.FineractContext;
-import org.apache.fineract.infrastructure.dataqueries.service.ReadWriteNonCoreDataService;
 import org.apache.fineract.infrastructure.hooks.api.HookApiConstants;
 import org.apache.fineract.infrastructure.hooks.domain.Hook;
 import org.apache.fineract.infrastructure.hooks.domain.HookConfiguration;
 import org.apache.fineract.infrastructure.hooks.event.WebCondition;
-import org.apache.fineract.portfolio.client.domain.Client;
-import org.apache.fineract.portfolio.client.domain.ClientRepositoryWrapper;
-import org.apache.fineract.portfolio.loanaccount.domain.Loan;
-import org.apache.fineract.portfolio.loanaccount.domain.LoanRepositoryWrapper;
-import org.apache.fineract.portfolio.savings.domain.SavingsAccount;
-import org.apache.fineract.portfolio.savings.domain.SavingsAccountRepositoryWrapper;
 import org.apache.fineract.template.domain.Template;
 import org.springframework.stereotype.Service;
-import retrofit2.Callback;
+import retrofit2.Call;
+import retrofit2.Response;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class WebHookProcessor implements HookProcessor {
 
-    private final ClientRepositoryWrapper clientRepository;
-    private final ProcessorHelper processorHelper;
-    private final LoanRepositoryWrapper loanRepository;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<HashMap<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+    private static final Gson GSON = new Gson();
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss.SSS");
+    private static final MustacheFactory MUSTACHE_FACTORY = new DefaultMustacheFactory();
+    private static final int MAX_COMPILED_TEMPLATES = 1000;
+    private static final int DEFAULT_MAX_PAYLOAD_BYTES = 256 * 1024;
 
-    private final ReadWriteNonCoreDataService dataService;
+    private final ProcessorHelper processorHelper;
+    private final WebHookPayloadEnricher payloadEnricher;
+    private final FineractProperties fineractProperties;
 
-    private final SavingsAccountRepositoryWrapper savingsAccountRepositoryWrapper;
+    // templates, urls and conditions come from the hook configuration, so only a limited number of them is compiled
+    private final Map<String, Mustache> compiledTemplates = new ConcurrentHashMap<>();
 
     @Override
     public void process(final Hook hook, final String payload, final String entityName, final String actionName,
             final FineractContext context) throws IOException {
-        final HashMap<String, Object> payLoadMap = new ObjectMapper().readValue(payload, HashMap.class);
+        final HashMap<String, Object> payLoadMap = OBJECT_MAPPER.readValue(payload, PAYLOAD_TYPE);
         Long clientId = null;
         Long savingsAccountId = null;
 
@@ -85,8 +94,7 @@ public class WebHookProcessor implements HookProcessor {
             if (responseMap.get("loanId") != null) {
                 if (!"DELETE".equals(actionName)) {
                     Long loanId = Long.parseLong(String.valueOf(responseMap.get("loanId")));
-                    Loan loan = loanRepository.findOneWithNotFoundDetection(loanId);
-                    payLoadMap.put("loan", loan);
+                    putIfFound(payLoadMap, "loan", payloadEnricher.retrieveLoan(loanId));
                 }
 
             }
@@ -106,24 +114,21 @@ public class WebHookProcessor implements HookProcessor {
             }
         }
         if ((clientId != null || payLoadMap.containsKey("clientId")) && !"DELETE".equals(actionName)) {
-            clientId = null != clientId ? clientId : Long.parseLong(String.valueOf(payLoadMap.containsKey("clientId")));
-            Client client = clientRepository.findOneWithNotFoundDetection(clientId);
-
-            payLoadMap.put("client", client);
+            clientId = null != clientId ? clientId : idOf(payLoadMap.get("clientId"));
+            if (clientId != null) {
+                putIfFound(payLoadMap, "client", payloadEnricher.retrieveClient(clientId));
+            }
         }
 
         if ((savingsAccountId != null || payLoadMap.containsKey("savingsAccountId")) && !"DELETE".equals(actionName)) {
-            savingsAccountId = null != savingsAccountId ? savingsAccountId
-                    : Long.parseLong(String.valueOf(payLoadMap.containsKey("savingsAccountId")));
-            SavingsAccount savingsAccount = savingsAccountRepositoryWrapper.findOneWithNotFoundDetection(savingsAccountId);
-            payLoadMap.put("savingsAccount", savingsAccount);
+            savingsAccountId = null != savingsAccountId ? savingsAccountId : idOf(payLoadMap.get("savingsAccountId"));
+            if (savingsAccountId != null) {
+                putIfFound(payLoadMap, "savingsAccount", payloadEnricher.retrieveSavingsAccount(savingsAccountId));
+            }
         }
 
         payLoadMap.put("activity", actionName);
-        Date currentDate = new Date();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss.SSS");
-        String formattedDate = dateFormat.format(currentDate);
-        payLoadMap.put("time", formattedDate);
+        payLoadMap.put("time", LocalDateTime.now(ZoneId.systemDefault()).format(TIME_FORMATTER));
         final Set<HookConfiguration> config = hook.getHookConfig();
 
         String url = "";
@@ -175,6 +180,13 @@ public class WebHookProcessor implements HookProcessor {
             compilePayLoad = compilePayLoad(hook.getUgdTemplate(), payLoadMap);
         }
         url = getValueFromPayLoad(url, payLoadMap);
+        final int maxPayloadBytes = maxPayloadBytes();
+        final int payloadBytes = compilePayLoad.getBytes(StandardCharsets.UTF_8).length;
+        if (payloadBytes > maxPayloadBytes) {
+            log.warn("Not sending {} {} to {}: the payload of {} bytes exceeds the limit of {} bytes", entityName, actionName, url,
+                    payloadBytes, maxPayloadBytes);
+            return;
+        }
         sendRequest(url, contentType, compilePayLoad, entityName, actionName, context, basicAuthCreds, apiKey, apiKeyValue);
     }
 
@@ -226,51 +238,83 @@ public class WebHookProcessor implements HookProcessor {
 
     @SuppressWarnings("unchecked")
     private void sendRequest(final String url, final String contentType, final String payload, final String entityName,
-            final String actionName, final FineractContext context, String basicAuthCreds, String apiKey, String apiKeyValue) {
+            final String actionName, final FineractContext context, String basicAuthCreds, String apiKey, String apiKeyValue)
+            throws IOException {
 
         final String fineractEndpointUrl = System.getProperty("baseUrl");
         final WebHookService service = processorHelper.createWebHookService(url);
 
-        @SuppressWarnings("rawtypes")
-        final Callback callback = processorHelper.createCallback(url);
         final String validPayload = payload.replace("&nbsp;", " ").replace("&quot;", "\"").replaceAll("\\\\&quot;", "\"");
+        final Call<Void> call;
         if (contentType.equalsIgnoreCase("json") || contentType.contains("json")) {
 
             final JsonObject json = JsonParser.parseString(validPayload).getAsJsonObject();
 
             if (!StringUtils.isBlank(basicAuthCreds)) {
-                service.sendJsonRequestBasicAuth(entityName, actionName, context.getTenantContext().getTenantIdentifier(),
-                        fineractEndpointUrl, basicAuthCreds, json).enqueue(callback);
+                call = service.sendJsonRequestBasicAuth(entityName, actionName, context.getTenantContext().getTenantIdentifier(),
+                        fineractEndpointUrl, basicAuthCreds, json);
             } else if (!StringUtils.isBlank(apiKey)) {
-                service.sendJsonRequestApiKey(entityName, actionName, context.getTenantContext().getTenantIdentifier(), fineractEndpointUrl,
-                        apiKeyValue, json).enqueue(callback);
-            } else
-                service.sendJsonRequest(entityName, actionName, context.getTenantContext().getTenantIdentifier(), fineractEndpointUrl, json)
-                        .enqueue(callback);
+                call = service.sendJsonRequestApiKey(entityName, actionName, context.getTenantContext().getTenantIdentifier(),
+                        fineractEndpointUrl, apiKeyValue, json);
+            } else {
+                call = service.sendJsonRequest(entityName, actionName, context.getTenantContext().getTenantIdentifier(),
+                        fineractEndpointUrl, json);
+            }
         } else {
             Map<String, String> map = new HashMap<>();
-            map = new Gson().fromJson(validPayload, map.getClass());
-            service.sendFormRequest(entityName, actionName, context.getTenantContext().getTenantIdentifier(), fineractEndpointUrl, map)
-                    .enqueue(callback);
+            map = GSON.fromJson(validPayload, map.getClass());
+            call = service.sendFormRequest(entityName, actionName, context.getTenantContext().getTenantIdentifier(), fineractEndpointUrl,
+                    map);
+        }
+
+        // delivery already runs on a hook worker thread, so the call is executed in place and server side failures can
+        // be retried by the dispatcher
+        final Response<Void> response = call.execute();
+        log.info("URL: {} - Status: {}", url, response.code());
+        if (response.code() >= 500 || response.code() == 429) {
+            throw new IOException("URL: " + url + " - Status: " + response.code());
         }
     }
 
     private String compilePayLoad(final Template template, final Map<String, Object> payLoadObj) throws IOException {
-        final MustacheFactory mf = new DefaultMustacheFactory();
-        final Mustache mustache = mf.compile(new StringReader(template.getText()), "");
+        final Mustache mustache = compile(template.getText());
         StringWriter writer = new StringWriter();
         mustache.execute(writer, payLoadObj).flush();
         return writer.toString().replaceAll("<[^>]*>", "");
     }
 
     private String getValueFromPayLoad(final String template, final Map<String, Object> payLoadObj) throws IOException {
-        final MustacheFactory mf = new DefaultMustacheFactory();
-        final Mustache mustache = mf.compile(new StringReader(template), "");
+        final Mustache mustache = compile(template);
         StringWriter writer = new StringWriter();
         mustache.execute(writer, payLoadObj).flush();
         return writer.toString();
     }
 
+    private Mustache compile(final String template) {
+        if (this.compiledTemplates.size() >= MAX_COMPILED_TEMPLATES) {
+            this.compiledTemplates.clear();
+        }
+        return this.compiledTemplates.computeIfAbsent(template, text -> MUSTACHE_FACTORY.compile(new StringReader(text), ""));
+    }
+
+    private int maxPayloadBytes() {
+        final FineractHookProperties properties = this.fineractProperties.getHook();
+        if (properties == null || properties.getMaxPayloadBytes() < 0) {
+            return DEFAULT_MAX_PAYLOAD_BYTES;
+        }
+        return properties.getMaxPayloadBytes() == 0 ? Integer.MAX_VALUE : properties.getMaxPayloadBytes();
+    }
+
+    private static void putIfFound(final Map<String, Object> payLoadMap, final String key, final Map<String, Object> projection) {
+        if (projection != null) {
+            payLoadMap.put(key, projection);
+        }
+    }
+
+    private static Long idOf(final Object value) {
+        return value == null ? null : Long.parseLong(String.valueOf(value));
+    }
+
     private static boolean evaluateAND(List<WebCondition> webConditions) {
         for (WebCondition webcondition : webConditions) {
             if (!webcondition.isSatisfied()) {
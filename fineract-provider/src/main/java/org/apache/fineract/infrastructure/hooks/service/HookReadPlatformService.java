@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.List;
 import org.apache.fineract.infrastructure.hooks.data.HookData;
 import org.apache.fineract.infrastructure.hooks.domain.Hook;
+import org.apache.fineract.infrastructure.hooks.domain.HookRoutingTable;
 
 public interface HookReadPlatformService {
 
@@ -31,5 +32,7 @@ public interface HookReadPlatformService {
 
     List<Hook> retrieveHooksByEvent(String entityName, String actionName);
 
+    HookRoutingTable retrieveHookRoutingTable();
+
     HookData retrieveNewHookDetails(String templateName);
 }
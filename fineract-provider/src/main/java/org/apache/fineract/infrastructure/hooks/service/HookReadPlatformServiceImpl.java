@@ -33,6 +33,7 @@ import org.apache.fineract.infrastructure.hooks.data.HookData;
 import org.apache.fineract.infrastructure.hooks.data.HookTemplateData;
 import org.apache.fineract.infrastructure.hooks.domain.Hook;
 import org.apache.fineract.infrastructure.hooks.domain.HookRepository;
+import org.apache.fineract.infrastructure.hooks.domain.HookRoutingTable;
 import org.apache.fineract.infrastructure.hooks.exception.HookNotFoundException;
 import org.apache.fineract.infrastructure.security.service.PlatformSecurityContext;
 import org.springframework.cache.annotation.Cacheable;
@@ -73,11 +74,24 @@ public class HookReadPlatformServiceImpl implements HookReadPlatformService {
     }
 
     @Override
-    @Cacheable(value = "hooks", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('HK')")
     public List<Hook> retrieveHooksByEvent(final String entityName, final String actionName) {
         return hookRepository.findAllHooksListeningToEvent(entityName, actionName);
     }
 
+    @Override
+    @Cacheable(value = "hooks", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('HK')")
+    public HookRoutingTable retrieveHookRoutingTable() {
+        final String sql = "select e.entity_name, e.action_name, h.id as hook_id, t.name as template_name from m_hook h"
+                + " join m_hook_templates t on t.id = h.template_id join m_hook_registered_events e on e.hook_id = h.id"
+                + " where h.is_active = true order by h.id";
+        final HookRoutingTable.Builder routingTable = HookRoutingTable.builder();
+        this.jdbcTemplate.query(sql, rs -> {
+            routingTable.route(rs.getString("entity_name"), rs.getString("action_name"), rs.getLong("hook_id"),
+                    rs.getString("template_name"));
+        });
+        return routingTable.build();
+    }
+
     @Override
     public HookData retrieveNewHookDetails(final String templateName) {
 
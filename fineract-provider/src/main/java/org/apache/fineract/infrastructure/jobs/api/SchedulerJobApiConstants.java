@@ -46,10 +46,12 @@ public final class SchedulerJobApiConstants {
     public static final String jobRunErrorMessageParamName = "jobRunErrorMessage";
     public static final String triggerTypeParamName = "triggerType";
     public static final String jobRunErrorLogParamName = "jobRunErrorLog";
+    public static final String jobRunMetricsParamName = "jobRunMetrics";
     public static final String cronExpressionParamName = "cronExpression";
     public static final String schedulerStatusParamName = "active";
 
     public static final String COMMAND_EXECUTE_JOB = "executeJob";
+    public static final String COMMAND_CANCEL_JOB = "cancelJob";
     public static final String COMMAND_STOP_SCHEDULER = "stop";
     public static final String COMMAND_START_SCHEDULER = "start";
     public static final String COMMAND = "command";
@@ -62,7 +64,8 @@ public final class SchedulerJobApiConstants {
                     cronExpressionParamName, jobActiveStatusParamName, currentlyRunningParamName, lastRunHistoryObjParamName));
 
     static final Set<String> JOB_HISTORY_RESPONSE_DATA_PARAMETERS = new HashSet<>(Arrays.asList(versionParamName, jobRunStartTimeParamName,
-            jobRunEndTimeParamName, statusParamName, jobRunErrorMessageParamName, triggerTypeParamName, jobRunErrorLogParamName));
+            jobRunEndTimeParamName, statusParamName, jobRunErrorMessageParamName, triggerTypeParamName, jobRunErrorLogParamName,
+            jobRunMetricsParamName));
 
     static final Set<String> SCHEDULER_DETAIL_RESPONSE_DATA_PARAMETERS = new HashSet<>(Arrays.asList(schedulerStatusParamName));
 }
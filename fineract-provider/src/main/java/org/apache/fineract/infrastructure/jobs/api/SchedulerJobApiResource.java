@@ -127,8 +127,10 @@ public class SchedulerJobApiResource {
 
     @POST
     @Path("{" + SchedulerJobApiConstants.JOB_ID + "}")
-    @Operation(summary = "Run a Job", description = "Manually Execute Specific Job.")
-    @ApiResponses({ @ApiResponse(responseCode = "200", description = "POST: jobs/1?command=executeJob") })
+    @Operation(summary = "Run or Cancel a Job", description = "Manually Execute Specific Job, or ask a running Job to stop once the "
+            + "work in progress is done.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "POST: jobs/1?command=executeJob\n\nPOST: jobs/1?command=cancelJob") })
     public Response executeJob(@PathParam(SchedulerJobApiConstants.JOB_ID) @Parameter(description = "jobId") final Long jobId,
             @QueryParam(SchedulerJobApiConstants.COMMAND) @Parameter(description = "command") final String commandParam) {
         // check the logged in user have permissions to execute scheduler jobs
@@ -144,6 +146,9 @@ public class SchedulerJobApiResource {
             if (is(commandParam, SchedulerJobApiConstants.COMMAND_EXECUTE_JOB)) {
                 this.jobRegisterService.executeJob(jobId);
                 response = Response.status(202).build();
+            } else if (is(commandParam, SchedulerJobApiConstants.COMMAND_CANCEL_JOB)) {
+                this.jobRegisterService.cancelJob(jobId);
+                response = Response.status(202).build();
             } else {
                 throw new UnrecognizedQueryParamException(SchedulerJobApiConstants.COMMAND, commandParam);
             }
@@ -18,6 +18,7 @@
  */
 package org.apache.fineract.infrastructure.jobs.data;
 
+import com.google.gson.JsonObject;
 import java.time.LocalDateTime;
 import java.util.Date;
 import org.apache.fineract.infrastructure.core.service.DateUtils;
@@ -49,8 +50,11 @@ public class JobDetailHistoryData {
     @SuppressWarnings("unused")
     private final String jobRunErrorLog;
 
+    @SuppressWarnings("unused")
+    private final JsonObject jobRunMetrics;
+
     public JobDetailHistoryData(final Long version, final Date jobRunStartTime, final Date jobRunEndTime, final String status,
-            final String jobRunErrorMessage, final String triggerType, final String jobRunErrorLog) {
+            final String jobRunErrorMessage, final String triggerType, final String jobRunErrorLog, final JsonObject jobRunMetrics) {
         this.version = version;
         this.jobRunStartTime = jobRunStartTime;
         this.jobRunEndTime = jobRunEndTime;
@@ -58,6 +62,7 @@ public class JobDetailHistoryData {
         this.jobRunErrorMessage = jobRunErrorMessage;
         this.triggerType = triggerType;
         this.jobRunErrorLog = jobRunErrorLog;
+        this.jobRunMetrics = jobRunMetrics;
         LocalDateTime jobRunStartTimeLocalDateTime = DateUtils.convertToLocalDateTime(jobRunStartTime);
         this.jobRunStartTimeTZ = jobRunStartTimeLocalDateTime.format(DateUtils.DEFAULT_DATETIME_FORMATTER);
         LocalDateTime jobRunEndTimeLocalDateTime = DateUtils.convertToLocalDateTime(jobRunEndTime);
@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.data;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A failure of a job on a single item (or a whole chunk of items) that did not stop the rest of the job. The throwable
+ * is kept, so the job can still fail with the original causes once it is done.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class JobFailureData {
+
+    private final String item;
+    private final String exceptionType;
+    private final String message;
+    private final Throwable throwable;
+
+    public static JobFailureData of(final Object item, final Throwable throwable) {
+        return new JobFailureData(String.valueOf(item), throwable.getClass().getName(), throwable.getMessage(), throwable);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.exception;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown by a range processor of a partitioned job when some of the ids of a range failed, so that the ids which were
+ * processed can still be checkpointed and are not processed again when the job is resumed.
+ */
+public class JobRangeFailureException extends JobExecutionException {
+
+    private final List<Long> failedIds;
+
+    public JobRangeFailureException(List<Long> failedIds, List<Throwable> problems) {
+        super(problems);
+        this.failedIds = new ArrayList<>(failedIds);
+    }
+
+    public List<Long> getFailedIds() {
+        return Collections.unmodifiableList(failedIds);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a {@link CancellationToken} for every job running on this node, keyed by its job key. The
+ * {@link SchedulerJobListener} registers a job before it runs and removes it afterwards, and the token of the running
+ * job is also bound to the Quartz thread, so {@link JobExecuter} and {@link KeysetPartitionedJobPipeline} can hand it to
+ * their workers. Cancellation is cooperative: the workers stop taking new work once it is requested, the work in
+ * progress is finished.
+ */
+@Component
+public class JobCancellationRegistry {
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, CancellationToken> runningJobs = new ConcurrentHashMap<>();
+
+    public void jobStarted(final String jobKey) {
+        final CancellationToken token = new CancellationToken(jobKey);
+        this.runningJobs.put(jobKey, token);
+        CURRENT.set(token);
+    }
+
+    public void jobFinished(final String jobKey) {
+        final CancellationToken token = CURRENT.get();
+        if (token != null) {
+            this.runningJobs.remove(jobKey, token);
+        }
+        CURRENT.remove();
+    }
+
+    /**
+     * @return false if the job is not running on this node
+     */
+    public boolean requestCancellation(final String jobKey) {
+        final CancellationToken token = this.runningJobs.get(jobKey);
+        if (token == null) {
+            return false;
+        }
+        token.cancel();
+        return true;
+    }
+
+    /**
+     * @return the token of the job running on the current thread, or null outside of a job
+     */
+    public static CancellationToken currentToken() {
+        return CURRENT.get();
+    }
+
+    public static final class CancellationToken {
+
+        private final String jobKey;
+        private volatile boolean cancellationRequested;
+
+        CancellationToken(final String jobKey) {
+            this.jobKey = jobKey;
+        }
+
+        public String getJobKey() {
+            return this.jobKey;
+        }
+
+        public boolean isCancellationRequested() {
+            return this.cancellationRequested;
+        }
+
+        void cancel() {
+            this.cancellationRequested = true;
+        }
+    }
+}
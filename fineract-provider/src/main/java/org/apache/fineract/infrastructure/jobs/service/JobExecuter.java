@@ -19,178 +19,218 @@
 package org.apache.fineract.infrastructure.jobs.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedMap;
+import java.util.Map.Entry;
 import java.util.TreeMap;
-import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.apache.fineract.infrastructure.jobs.data.JobFailureData;
+import org.apache.fineract.infrastructure.jobs.service.JobCancellationRegistry.CancellationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+/**
+ * Runs a {@link JobRunner} over a list or map of items on the shared {@link JobWorkerPool}.
+ *
+ * The items are cut into chunks of {@code chunk-size} (job parameter; by default every thread gets about four chunks)
+ * and {@code number-of-threads} workers (at most {@link JobWorkerPool#getMaxWorkersPerJob()}) take the next chunk as
+ * soon as they are done with their current one, so a slow chunk only holds up its own worker. Workers stop taking
+ * chunks once the running job is cancelled through the {@link JobCancellationRegistry}. Failures are returned as
+ * {@link JobFailureData} records, and together with the chunk timings they are added to the run metrics of the job.
+ */
 @Component
+@RequiredArgsConstructor
 public class JobExecuter {
 
+    private static final Logger LOG = LoggerFactory.getLogger(JobExecuter.class);
+
     public static final String ENTITY_COLLECTION = "entityCollection";
     public static final String EXCEPTION_BUILDER = "exceptionBuilder";
 
-    public <V> String executeJob(List<V> baseList, final JobRunner<List<V>> jobRunner) {
-        final StringBuilder sb = new StringBuilder();
-        if (!baseList.isEmpty()) {
-            int numberOfThreads = getNumberOfThreads();
-            int listSize = baseList.size();
-            if (numberOfThreads <= 1 || numberOfThreads > listSize) {
-                jobRunner.runJob(baseList, sb);
-            } else {
-                int subListSize = listSize / numberOfThreads;
-                List<StringBuilder> bufferes = new ArrayList<>(numberOfThreads);
-                try {
-                    List<Thread> threads = new ArrayList<>();
-                    List<List<V>> subLists = splitList(baseList, subListSize, numberOfThreads);
-                    for (List<V> subList : subLists) {
-                        final StringBuilder threadsb = new StringBuilder();
-                        bufferes.add(threadsb);
-                        if (subList.size() > 0) {
-                            Thread thread = new Thread(new JobRunnerThread<>(jobRunner, subList, threadsb));
-                            thread.start();
-                            threads.add(thread);
-                        }
-                    }
-                    for (Thread thread : threads) {
-                        thread.join();
-                    }
-                    for (StringBuilder threadsb : bufferes) {
-                        sb.append(threadsb.toString());
-                    }
-                } catch (InterruptedException e) {
-                    sb.append("Thread Interrupted for " + jobRunner.toString() + " : " + e.getMessage());
-                }
-            }
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SLOWEST_CHUNKS_REPORTED = 5;
+    private static final int FAILURES_REPORTED = 100;
 
+    private final JobWorkerPool jobWorkerPool;
+
+    public <V> List<JobFailureData> executeJob(final List<V> baseList, final JobRunner<List<V>> jobRunner) {
+        final int numberOfThreads = getNumberOfThreads();
+        final int chunkSize = getChunkSize(baseList.size(), numberOfThreads);
+        final List<List<V>> chunks = new ArrayList<>();
+        for (int from = 0; from < baseList.size(); from += chunkSize) {
+            chunks.add(baseList.subList(from, Math.min(baseList.size(), from + chunkSize)));
         }
-        return sb.toString();
+        return execute(chunks, chunkSize, numberOfThreads, jobRunner);
     }
 
-    public <K, V> String executeJob(Map<K, V> baseMap, final JobRunner<Map<K, V>> jobRunner) {
-        final StringBuilder sb = new StringBuilder();
-        if (!baseMap.isEmpty()) {
-            int numberOfThreads = getNumberOfThreads();
-            int size = baseMap.size();
-            if (numberOfThreads <= 1 || numberOfThreads > size) {
-                jobRunner.runJob(baseMap, sb);
-            } else {
-                TreeMap<K, V> sortedMap = new TreeMap<>(baseMap);
-                int subCollectionSize = size / numberOfThreads;
-                List<StringBuilder> bufferes = new ArrayList<>(numberOfThreads);
-                List<SortedMap<K, V>> mapsList = splitMap(sortedMap, subCollectionSize, numberOfThreads);
-                List<Thread> threads = new ArrayList<>(mapsList.size());
-                try {
-                    for (SortedMap<K, V> map : mapsList) {
-                        final StringBuilder threadsb = new StringBuilder();
-                        bufferes.add(threadsb);
-                        if (!map.isEmpty()) {
-                            Thread thread = new Thread(new JobRunnerThread<>(jobRunner, map, threadsb));
-                            thread.start();
-                            threads.add(thread);
-                        }
-                    }
-
-                    for (Thread thread : threads) {
-                        thread.join();
-                    }
-                    for (StringBuilder threadsb : bufferes) {
-                        sb.append(threadsb.toString());
-                    }
-                } catch (InterruptedException e) {
-                    sb.append("Thread Interrupted for " + jobRunner.toString() + " : " + e.getMessage());
-                }
+    public <K, V> List<JobFailureData> executeJob(final Map<K, V> baseMap, final JobRunner<Map<K, V>> jobRunner) {
+        final int numberOfThreads = getNumberOfThreads();
+        final int chunkSize = getChunkSize(baseMap.size(), numberOfThreads);
+        final List<Map<K, V>> chunks = new ArrayList<>();
+        Map<K, V> chunk = new LinkedHashMap<>();
+        for (final Entry<K, V> entry : new TreeMap<>(baseMap).entrySet()) {
+            chunk.put(entry.getKey(), entry.getValue());
+            if (chunk.size() == chunkSize) {
+                chunks.add(chunk);
+                chunk = new LinkedHashMap<>();
             }
-
         }
-        return sb.toString();
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return execute(chunks, chunkSize, numberOfThreads, jobRunner);
     }
 
-    private static class JobRunnerThread<T> implements Runnable {
-
-        final FineractPlatformTenant tenant;
-        final T jobDetail;
-        final JobRunner<T> jobRunner;
-        final StringBuilder sb;
-        final Authentication auth;
-
-        public JobRunnerThread(final JobRunner<T> jobRunner, final T jobDetail, final StringBuilder sb) {
-            this.tenant = ThreadLocalContextUtil.getTenant();
-            this.jobRunner = jobRunner;
-            this.jobDetail = jobDetail;
-            this.sb = sb;
-            if (SecurityContextHolder.getContext() == null) {
-                this.auth = null;
-            } else {
-                this.auth = SecurityContextHolder.getContext().getAuthentication();
+    private <T> List<JobFailureData> execute(final List<T> chunks, final int chunkSize, final int numberOfThreads,
+            final JobRunner<T> jobRunner) {
+        if (chunks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final ChunkRun<T> run = new ChunkRun<>(chunks, jobRunner, JobCancellationRegistry.currentToken());
+        final int workerCount = this.jobWorkerPool.workersFor(Math.min(numberOfThreads, chunks.size()));
+        if (workerCount <= 1) {
+            run.work();
+        } else {
+            final List<Future<Void>> workers = new ArrayList<>(workerCount);
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(this.jobWorkerPool.submit(() -> {
+                    run.work();
+                    return null;
+                }));
             }
+            awaitWorkers(workers, run);
+        }
+        if (run.isCancelled() && run.processedChunks.get() < chunks.size()) {
+            run.failures.add(JobFailureData.of("job", new CancellationException(
+                    "Cancelled after " + run.processedChunks.get() + " of " + chunks.size() + " chunks were processed")));
         }
+        publishRunMetrics(run, chunkSize, workerCount);
+        return new ArrayList<>(run.failures);
+    }
 
-        @Override
-        public void run() {
-            ThreadLocalContextUtil.setTenant(tenant);
-            if (this.auth != null) {
-                SecurityContextHolder.getContext().setAuthentication(this.auth);
+    private void awaitWorkers(final List<Future<Void>> workers, final ChunkRun<?> run) {
+        for (final Future<Void> worker : workers) {
+            try {
+                worker.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                workers.forEach(w -> w.cancel(true));
+                run.failures.add(JobFailureData.of("job", e));
+                return;
+            } catch (final ExecutionException e) {
+                run.failures.add(JobFailureData.of("worker", e.getCause()));
             }
-            this.jobRunner.runJob(this.jobDetail, this.sb);
         }
-
     }
 
-    private <V> List<List<V>> splitList(List<V> list, int size, int MaxSize) {
-        int listSize = list.size();
-        List<List<V>> parts = new ArrayList<>();
-        int partSize = 0;
-        for (int i = 0; i < listSize; i += size) {
-            partSize++;
-            if (i + size < listSize) {
-                if (partSize == MaxSize) {
-                    parts.add(list.subList(i, listSize));
+    private void publishRunMetrics(final ChunkRun<?> run, final int chunkSize, final int workerCount) {
+        if (run.cancellation == null) {
+            // not running as a scheduled job, so there is no run history to add the metrics to
+            return;
+        }
+        Map<String, Object> runMetrics = JobRunMetricsHolder.getRunMetrics();
+        if (runMetrics == null) {
+            runMetrics = new LinkedHashMap<>();
+            JobRunMetricsHolder.setRunMetrics(runMetrics);
+        }
+        final Map<String, Object> chunkMetrics = new LinkedHashMap<>();
+        chunkMetrics.put("chunks", run.chunks.size());
+        chunkMetrics.put("chunkSize", chunkSize);
+        chunkMetrics.put("workers", workerCount);
+        chunkMetrics.put("processedChunks", run.processedChunks.get());
+        chunkMetrics.put("cancelled", run.isCancelled());
+        chunkMetrics.put("chunkTimings", run.chunkTimings.toMetrics());
+        runMetrics.put("chunkMetrics", chunkMetrics);
+
+        final List<Map<String, Object>> failures = new ArrayList<>();
+        synchronized (run.failures) {
+            for (final JobFailureData failure : run.failures) {
+                if (failures.size() == FAILURES_REPORTED) {
                     break;
                 }
-                parts.add(list.subList(i, i + size));
-            } else {
-                parts.add(list.subList(i, listSize));
+                final Map<String, Object> failureMetrics = new LinkedHashMap<>();
+                failureMetrics.put("item", failure.getItem());
+                failureMetrics.put("exceptionType", failure.getExceptionType());
+                failureMetrics.put("message", failure.getMessage());
+                failures.add(failureMetrics);
             }
+            runMetrics.put("failureCount", run.failures.size());
         }
-        return parts;
+        runMetrics.put("failures", failures);
     }
 
-    private <K, V> List<SortedMap<K, V>> splitMap(final SortedMap<K, V> map, final int size, int MaxSize) {
-        List<K> keys = new ArrayList<>(map.keySet());
-        List<SortedMap<K, V>> parts = new ArrayList<>();
-        final int listSize = map.size();
-        int partSize = 0;
-        for (int i = 0; i < listSize; i += size) {
-            partSize++;
-            if (i + size < listSize) {
-                if (partSize == MaxSize) {
-                    parts.add(map.tailMap(keys.get(i)));
-                    break;
-                }
-                parts.add(map.subMap(keys.get(i), keys.get(i + size)));
-            } else {
-                parts.add(map.tailMap(keys.get(i)));
+    private static int getChunkSize(final int size, final int numberOfThreads) {
+        final Map<String, Object> jobParams = ThreadLocalContextUtil.getJobParams();
+        if (jobParams != null && jobParams.containsKey("chunk-size")) {
+            final int chunkSize = Integer.parseInt(String.valueOf(jobParams.get("chunk-size")));
+            if (chunkSize > 0) {
+                return chunkSize;
             }
         }
-        return parts;
+        return Math.max(1, size / (numberOfThreads * CHUNKS_PER_THREAD));
     }
 
-    private int getNumberOfThreads() {
+    private static int getNumberOfThreads() {
         Map<String, Object> jobParams = ThreadLocalContextUtil.getJobParams();
         int numberOfThreads = 1;
         if (jobParams != null && jobParams.containsKey("number-of-threads")) {
             numberOfThreads = Integer.parseInt(String.valueOf(jobParams.get("number-of-threads")));
-            if (numberOfThreads == 0) {
+            if (numberOfThreads <= 0) {
                 numberOfThreads = 1;
             }
         }
         return numberOfThreads;
     }
 
+    /**
+     * The chunks of one {@link #executeJob} call and the state shared by its workers.
+     */
+    private static final class ChunkRun<T> {
+
+        private final List<T> chunks;
+        private final JobRunner<T> jobRunner;
+        private final CancellationToken cancellation;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final AtomicInteger processedChunks = new AtomicInteger();
+        private final List<JobFailureData> failures = Collections.synchronizedList(new ArrayList<>());
+        private final JobItemTimings chunkTimings = new JobItemTimings(SLOWEST_CHUNKS_REPORTED);
+
+        ChunkRun(final List<T> chunks, final JobRunner<T> jobRunner, final CancellationToken cancellation) {
+            this.chunks = chunks;
+            this.jobRunner = jobRunner;
+            this.cancellation = cancellation;
+        }
+
+        boolean isCancelled() {
+            return this.cancellation != null && this.cancellation.isCancellationRequested();
+        }
+
+        void work() {
+            while (!isCancelled()) {
+                final int index = this.nextChunk.getAndIncrement();
+                if (index >= this.chunks.size()) {
+                    return;
+                }
+                final long startNanos = System.nanoTime();
+                final List<JobFailureData> chunkFailures = new ArrayList<>();
+                try {
+                    this.jobRunner.runJob(this.chunks.get(index), chunkFailures);
+                } catch (final RuntimeException e) {
+                    LOG.error("Chunk {} of {} failed", index, this.jobRunner, e);
+                    chunkFailures.add(JobFailureData.of("chunk " + index, e));
+                }
+                this.chunkTimings.record((long) index, System.nanoTime() - startNanos);
+                this.failures.addAll(chunkFailures);
+                this.processedChunks.incrementAndGet();
+            }
+        }
+    }
 }
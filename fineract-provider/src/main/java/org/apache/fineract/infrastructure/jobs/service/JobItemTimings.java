@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects how long a job took for each of the entities it processed, as a histogram over fixed millisecond buckets
+ * plus the slowest entities of the run. Safe for concurrent use by the workers of a job; only recording an entity that
+ * is slower than the current slowest ones takes a lock.
+ */
+public final class JobItemTimings {
+
+    private static final long[] BUCKET_UPPER_BOUNDS_MILLIS = { 10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+    private final int slowestCount;
+    private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final PriorityQueue<ItemTiming> slowest = new PriorityQueue<>(Comparator.comparingLong(ItemTiming::getNanos));
+    private volatile long slowestThresholdNanos;
+
+    public JobItemTimings(final int slowestCount) {
+        this.slowestCount = Math.max(1, slowestCount);
+        for (int i = 0; i < this.buckets.length; i++) {
+            this.buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(final Long id, final long nanos) {
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulateAndGet(nanos, Math::max);
+        this.buckets[bucketOf(TimeUnit.NANOSECONDS.toMillis(nanos))].increment();
+        if (nanos > this.slowestThresholdNanos) {
+            recordSlow(id, nanos);
+        }
+    }
+
+    private synchronized void recordSlow(final Long id, final long nanos) {
+        this.slowest.add(new ItemTiming(id, nanos));
+        if (this.slowest.size() > this.slowestCount) {
+            this.slowest.poll();
+        }
+        if (this.slowest.size() == this.slowestCount) {
+            this.slowestThresholdNanos = this.slowest.peek().getNanos();
+        }
+    }
+
+    public synchronized Map<String, Object> toMetrics() {
+        final long recorded = this.count.sum();
+        final Map<String, Object> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < this.buckets.length; i++) {
+            final String bucket = i < BUCKET_UPPER_BOUNDS_MILLIS.length ? "<=" + BUCKET_UPPER_BOUNDS_MILLIS[i]
+                    : ">" + BUCKET_UPPER_BOUNDS_MILLIS[BUCKET_UPPER_BOUNDS_MILLIS.length - 1];
+            histogram.put(bucket, this.buckets[i].sum());
+        }
+        final List<ItemTiming> slowestItems = new ArrayList<>(this.slowest);
+        slowestItems.sort(Comparator.comparingLong(ItemTiming::getNanos).reversed());
+        final List<Map<String, Object>> slowestMetrics = new ArrayList<>(slowestItems.size());
+        for (final ItemTiming item : slowestItems) {
+            final Map<String, Object> itemMetrics = new LinkedHashMap<>();
+            itemMetrics.put("id", item.getId());
+            itemMetrics.put("millis", TimeUnit.NANOSECONDS.toMillis(item.getNanos()));
+            slowestMetrics.add(itemMetrics);
+        }
+
+        final Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("count", recorded);
+        metrics.put("avgMillis", recorded == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalNanos.sum() / recorded));
+        metrics.put("maxMillis", TimeUnit.NANOSECONDS.toMillis(this.maxNanos.get()));
+        metrics.put("histogramMillis", histogram);
+        metrics.put("slowest", slowestMetrics);
+        return metrics;
+    }
+
+    private static int bucketOf(final long millis) {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MILLIS.length; i++) {
+            if (millis <= BUCKET_UPPER_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUNDS_MILLIS.length;
+    }
+
+    private static final class ItemTiming {
+
+        private final Long id;
+        private final long nanos;
+
+        ItemTiming(final Long id, final long nanos) {
+            this.id = id;
+            this.nanos = nanos;
+        }
+
+        Long getId() {
+            return this.id;
+        }
+
+        long getNanos() {
+            return this.nanos;
+        }
+    }
+}
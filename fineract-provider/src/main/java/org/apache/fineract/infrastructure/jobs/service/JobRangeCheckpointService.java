@@ -0,0 +1,38 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+
+/**
+ * Persists the id ranges a partitioned job has fully committed for a given run date, so that a crashed or failed run
+ * can resume without re-processing them.
+ */
+public interface JobRangeCheckpointService {
+
+    /**
+     * @return completed ranges keyed by first id, mapped to last id (both inclusive)
+     */
+    NavigableMap<Long, Long> retrieveCompletedRanges(String jobName, LocalDate runDate);
+
+    void saveCompletedRange(String jobName, LocalDate runDate, Long rangeStart, Long rangeEnd, int processedCount);
+
+    void clearCompletedRanges(String jobName, LocalDate runDate);
+}
@@ -0,0 +1,61 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+public class JobRangeCheckpointServiceImpl implements JobRangeCheckpointService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JobRangeCheckpointServiceImpl(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public NavigableMap<Long, Long> retrieveCompletedRanges(final String jobName, final LocalDate runDate) {
+        final String sql = "select range_start, range_end from job_range_checkpoint where job_name = ? and run_date = ?";
+        final NavigableMap<Long, Long> ranges = new TreeMap<>();
+        this.jdbcTemplate.query(sql, rs -> {
+            ranges.put(rs.getLong("range_start"), rs.getLong("range_end"));
+        }, jobName, runDate);
+        return ranges;
+    }
+
+    @Override
+    public void saveCompletedRange(final String jobName, final LocalDate runDate, final Long rangeStart, final Long rangeEnd,
+            final int processedCount) {
+        final String sql = "insert into job_range_checkpoint (job_name, run_date, range_start, range_end, processed_count, completed_on) "
+                + "values (?, ?, ?, ?, ?, ?)";
+        this.jdbcTemplate.update(sql, jobName, runDate, rangeStart, rangeEnd, processedCount, DateUtils.getLocalDateTimeOfSystem());
+    }
+
+    @Override
+    public void clearCompletedRanges(final String jobName, final LocalDate runDate) {
+        this.jdbcTemplate.update("delete from job_range_checkpoint where job_name = ? and run_date = ?", jobName, runDate);
+    }
+}
@@ -22,6 +22,8 @@ public interface JobRegisterService {
 
     void executeJob(Long jobId);
 
+    void cancelJob(Long jobId);
+
     void rescheduleJob(Long jobId);
 
     void pauseScheduler();
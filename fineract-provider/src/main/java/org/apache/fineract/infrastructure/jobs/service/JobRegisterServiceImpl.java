@@ -27,11 +27,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.PostConstruct;
 import org.apache.fineract.infrastructure.core.config.FineractProperties;
 import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
 import org.apache.fineract.infrastructure.core.exception.PlatformInternalServerException;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.core.service.migration.TenantUpgradeTracker;
 import org.apache.fineract.infrastructure.jobs.annotation.CronMethodParser;
 import org.apache.fineract.infrastructure.jobs.annotation.CronMethodParser.ClassMethodNamesPair;
 import org.apache.fineract.infrastructure.jobs.domain.JobParameter;
@@ -40,6 +42,7 @@ import org.apache.fineract.infrastructure.jobs.domain.ScheduledJobDetail;
 import org.apache.fineract.infrastructure.jobs.domain.SchedulerDetail;
 import org.apache.fineract.infrastructure.jobs.exception.JobNodeIdMismatchingException;
 import org.apache.fineract.infrastructure.jobs.exception.JobNotFoundException;
+import org.apache.fineract.infrastructure.jobs.exception.JobNotRunningException;
 import org.apache.fineract.infrastructure.security.service.TenantDetailsService;
 import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
@@ -87,7 +90,7 @@ public class JobRegisterServiceImpl implements JobRegisterService, ApplicationLi
     @Autowired
     private JobParameterRepository jobParameterRepository;
 
-    private final HashMap<String, Scheduler> schedulers = new HashMap<>(4);
+    private final Map<String, Scheduler> schedulers = new ConcurrentHashMap<>(4);
 
     // This cannot be injected as Autowired due to circular dependency
     private SchedulerStopListener schedulerStopListener = new SchedulerStopListener(this);
@@ -95,6 +98,12 @@ public class JobRegisterServiceImpl implements JobRegisterService, ApplicationLi
     @Autowired
     private FineractProperties fineractProperties;
 
+    @Autowired
+    private TenantUpgradeTracker tenantUpgradeTracker;
+
+    @Autowired
+    private JobCancellationRegistry jobCancellationRegistry;
+
     @PostConstruct
     public void loadAllJobs() {
         // If the instance is not Batch Enabled will not load the Jobs
@@ -103,7 +112,15 @@ public class JobRegisterServiceImpl implements JobRegisterService, ApplicationLi
         }
         final List<FineractPlatformTenant> allTenants = this.tenantDetailsService.findAllTenants();
         for (final FineractPlatformTenant tenant : allTenants) {
-            ThreadLocalContextUtil.setTenant(tenant);
+            // a tenant still being upgraded in the background gets its jobs once its schema is up to date
+            this.tenantUpgradeTracker.whenAvailable(tenant.getTenantIdentifier(), () -> loadJobs(tenant));
+        }
+    }
+
+    private void loadJobs(final FineractPlatformTenant tenant) {
+        final FineractPlatformTenant previousTenant = ThreadLocalContextUtil.getTenant();
+        ThreadLocalContextUtil.setTenant(tenant);
+        try {
             final List<ScheduledJobDetail> scheduledJobDetails = this.schedularWritePlatformService
                     .retrieveAllJobs(fineractProperties.getNodeId());
             for (final ScheduledJobDetail jobDetails : scheduledJobDetails) {
@@ -116,6 +133,8 @@ public class JobRegisterServiceImpl implements JobRegisterService, ApplicationLi
                 schedulerDetail.updateSuspendedState(false);
                 this.schedularWritePlatformService.updateSchedulerDetail(schedulerDetail);
             }
+        } finally {
+            ThreadLocalContextUtil.setTenant(previousTenant);
         }
     }
 
@@ -249,6 +268,18 @@ public class JobRegisterServiceImpl implements JobRegisterService, ApplicationLi
         }
     }
 
+    @Override
+    public void cancelJob(final Long jobId) {
+        final ScheduledJobDetail scheduledJobDetail = this.schedularWritePlatformService.findByJobId(jobId);
+        if (scheduledJobDetail == null) {
+            throw new JobNotFoundException(String.valueOf(jobId));
+        }
+        if (!this.jobCancellationRegistry.requestCancellation(scheduledJobDetail.getJobKey())) {
+            throw new JobNotRunningException(jobId);
+        }
+        LOG.info("Cancellation requested for job {}", scheduledJobDetail.getJobName());
+    }
+
     @Override
     public boolean isSchedulerRunning() {
         return !this.schedularWritePlatformService.retriveSchedulerDetail().isSuspended();
@@ -298,7 +329,7 @@ public class JobRegisterServiceImpl implements JobRegisterService, ApplicationLi
         }
     }
 
-    private Scheduler getScheduler(final ScheduledJobDetail scheduledJobDetail) throws Exception {
+    private synchronized Scheduler getScheduler(final ScheduledJobDetail scheduledJobDetail) throws Exception {
         final String schedulername = getSchedulerName(scheduledJobDetail);
         Scheduler scheduler = this.schedulers.get(schedulername);
         if (scheduler == null) {
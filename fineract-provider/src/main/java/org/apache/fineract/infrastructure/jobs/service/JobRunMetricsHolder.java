@@ -0,0 +1,44 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import java.util.Map;
+
+/**
+ * Carries the metrics a job publishes about its own run from the job method to the {@link SchedulerJobListener}, which
+ * stores them with the run history. Both run on the same Quartz worker thread.
+ */
+public final class JobRunMetricsHolder {
+
+    private static final ThreadLocal<Map<String, Object>> RUN_METRICS = new ThreadLocal<>();
+
+    private JobRunMetricsHolder() {}
+
+    public static void setRunMetrics(final Map<String, Object> runMetrics) {
+        RUN_METRICS.set(runMetrics);
+    }
+
+    public static Map<String, Object> getRunMetrics() {
+        return RUN_METRICS.get();
+    }
+
+    public static void clear() {
+        RUN_METRICS.remove();
+    }
+}
@@ -18,8 +18,14 @@
  */
 package org.apache.fineract.infrastructure.jobs.service;
 
+import java.util.List;
+import org.apache.fineract.infrastructure.jobs.data.JobFailureData;
+
 public interface JobRunner<T> {
 
-    void runJob(final T jobDetails, final StringBuilder sb);
+    /**
+     * Processes one chunk of the job; items that fail without failing the whole chunk are added to {@code failures}.
+     */
+    void runJob(T jobDetails, List<JobFailureData> failures);
 
 }
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+public class JobWatermarkServiceImpl implements JobWatermarkService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public JobWatermarkServiceImpl(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public LocalDate retrieveDateWatermark(final String jobName) {
+        final List<LocalDate> watermarks = this.jdbcTemplate.queryForList("select watermark_date from job_watermark where job_name = ?",
+                LocalDate.class, jobName);
+        return watermarks.isEmpty() ? null : watermarks.get(0);
+    }
+
+    @Override
+    public void saveDateWatermark(final String jobName, final LocalDate watermarkDate) {
+        final int updated = this.jdbcTemplate.update("update job_watermark set watermark_date = ?, updated_on = ? where job_name = ?",
+                watermarkDate, DateUtils.getLocalDateTimeOfSystem(), jobName);
+        if (updated == 0) {
+            this.jdbcTemplate.update("insert into job_watermark (job_name, watermark_date, updated_on) values (?, ?, ?)", jobName,
+                    watermarkDate, DateUtils.getLocalDateTimeOfSystem());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractContext;
+import org.apache.fineract.infrastructure.core.service.ContextPropagatingCallable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared worker pool for batch jobs, so that jobs do not build (and tear down) their own thread pools on every run.
+ * Each submitted task runs with the tenant {@link FineractContext} and authentication of the submitting thread, and both
+ * are cleared again once the task is done, because pool threads are reused across tenants. The number of busy, queued
+ * and completed tasks is published as {@code fineract.job.worker.*} meters.
+ *
+ * A job should not keep more than {@link #getMaxWorkersPerJob()} tasks on the pool at a time, whatever parallelism its
+ * parameters ask for, so that one large job leaves threads for the jobs that run next to it.
+ */
+@Component
+public class JobWorkerPool implements DisposableBean {
+
+    private static final int DEFAULT_POOL_SIZE = 32;
+
+    private final ThreadPoolExecutor executor;
+    private final int maxWorkersPerJob;
+
+    public JobWorkerPool(final FineractProperties fineractProperties, final MeterRegistry meterRegistry) {
+        final int poolSize = resolvePoolSize(fineractProperties);
+        this.maxWorkersPerJob = resolveMaxWorkersPerJob(fineractProperties, poolSize);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("fineract-job-worker-"));
+        this.executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("fineract.job.worker.active", this.executor, ThreadPoolExecutor::getActiveCount)
+                .description("Job worker threads busy with a task").register(meterRegistry);
+        Gauge.builder("fineract.job.worker.queued", this.executor, e -> e.getQueue().size())
+                .description("Job tasks waiting for a worker thread").register(meterRegistry);
+        FunctionCounter.builder("fineract.job.worker.completed", this.executor, ThreadPoolExecutor::getCompletedTaskCount)
+                .description("Job tasks completed by the worker pool").register(meterRegistry);
+    }
+
+    public <T> Future<T> submit(final Callable<T> task) {
+        return this.executor.submit(new ContextPropagatingCallable<>(task));
+    }
+
+    public int getPoolSize() {
+        return this.executor.getMaximumPoolSize();
+    }
+
+    public int getMaxWorkersPerJob() {
+        return this.maxWorkersPerJob;
+    }
+
+    /**
+     * @return the number of workers a job may use when it asks for {@code requested}, at least one
+     */
+    public int workersFor(final int requested) {
+        return Math.max(1, Math.min(requested, this.maxWorkersPerJob));
+    }
+
+    @Override
+    public void destroy() {
+        this.executor.shutdownNow();
+    }
+
+    private static int resolvePoolSize(final FineractProperties fineractProperties) {
+        if (fineractProperties.getJob() == null || fineractProperties.getJob().getWorkerPoolSize() <= 0) {
+            return DEFAULT_POOL_SIZE;
+        }
+        return fineractProperties.getJob().getWorkerPoolSize();
+    }
+
+    private static int resolveMaxWorkersPerJob(final FineractProperties fineractProperties, final int poolSize) {
+        if (fineractProperties.getJob() == null || fineractProperties.getJob().getMaxWorkersPerJob() <= 0) {
+            // by default four jobs can run side by side at full parallelism
+            return Math.max(1, poolSize / 4);
+        }
+        return Math.min(poolSize, fineractProperties.getJob().getMaxWorkersPerJob());
+    }
+}
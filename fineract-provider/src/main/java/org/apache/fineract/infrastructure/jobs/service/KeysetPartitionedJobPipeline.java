@@ -0,0 +1,435 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.fineract.infrastructure.core.exception.MultiException;
+import org.apache.fineract.infrastructure.core.service.DateUtils;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
+import org.apache.fineract.infrastructure.jobs.exception.JobRangeFailureException;
+import org.apache.fineract.infrastructure.jobs.service.JobCancellationRegistry.CancellationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded producer/consumer pipeline for jobs that work through a large, id-ordered set of entities.
+ *
+ * The calling (Quartz) thread streams ids page by page using keyset pagination ({@code id > lastId}) and cuts them into
+ * ranges that are put on a bounded queue, so reading never runs more than {@code queueCapacity} ranges ahead of the
+ * partitions. A partition is a permit to have one range processed on the shared {@link JobWorkerPool}; there are at most
+ * {@link JobWorkerPool#getMaxWorkersPerJob()} of them, whatever parallelism the job asks for. A free partition is
+ * submitted to the pool for the next queued range and gives its permit back once the range is done, so a large job never
+ * holds a pool thread for longer than one range and the tasks of other jobs are picked up in between.
+ *
+ * A partition checkpoints every range it processes without error through {@link JobRangeCheckpointService}. When the
+ * processor throws a {@link JobRangeFailureException} naming the ids that failed, the ids of the range in between them
+ * are checkpointed as well; any other failure leaves the whole range to be processed again. A re-run for the same
+ * business date skips the checkpointed ids, and a run that finishes without failures clears its checkpoints.
+ *
+ * Throughput and per-partition lag are published through {@link JobRunMetricsHolder} and end up in the job run
+ * history. Once the job is cancelled through the {@link JobCancellationRegistry} the reader stops and the partitions
+ * drop the ranges still queued; the run fails, so its checkpoints are kept for the next run.
+ */
+public final class KeysetPartitionedJobPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeysetPartitionedJobPipeline.class);
+
+    @FunctionalInterface
+    public interface PageReader {
+
+        List<Long> readPage(Long afterId, int pageSize);
+    }
+
+    @FunctionalInterface
+    public interface RangeProcessor {
+
+        void process(List<Long> ids) throws Exception;
+    }
+
+    private final String jobName;
+    private final int partitionCount;
+    private final int rangeSize;
+    private final PageReader pageReader;
+    private final RangeProcessor rangeProcessor;
+    private final JobWorkerPool workerPool;
+    private final JobRangeCheckpointService checkpointService;
+
+    private final BlockingQueue<Range> queue;
+    private final List<PartitionProgress> partitions;
+    private final BlockingQueue<PartitionProgress> idlePartitions;
+    private final Object idleMonitor = new Object();
+    private final AtomicLong readerHighWaterMark = new AtomicLong();
+    private final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean stopped;
+
+    public KeysetPartitionedJobPipeline(final String jobName, final int partitionCount, final int rangeSize, final int queueCapacity,
+            final PageReader pageReader, final RangeProcessor rangeProcessor, final JobWorkerPool workerPool,
+            final JobRangeCheckpointService checkpointService) {
+        this.jobName = jobName;
+        this.partitionCount = workerPool.workersFor(partitionCount);
+        this.rangeSize = Math.max(1, rangeSize);
+        this.pageReader = pageReader;
+        this.rangeProcessor = rangeProcessor;
+        this.workerPool = workerPool;
+        this.checkpointService = checkpointService;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.partitions = new ArrayList<>(this.partitionCount);
+        this.idlePartitions = new ArrayBlockingQueue<>(this.partitionCount);
+        for (int i = 0; i < this.partitionCount; i++) {
+            final PartitionProgress partition = new PartitionProgress(i);
+            this.partitions.add(partition);
+            this.idlePartitions.add(partition);
+        }
+    }
+
+    public void run() throws JobExecutionException {
+        final LocalDate runDate = DateUtils.getBusinessLocalDate();
+        final NavigableMap<Long, Long> committedRanges = this.checkpointService.retrieveCompletedRanges(this.jobName, runDate);
+        if (!committedRanges.isEmpty()) {
+            LOG.info("{}: {} resumes a previous run of {}, skipping {} committed ranges", ThreadLocalContextUtil.getTenant().getName(),
+                    this.jobName, runDate, committedRanges.size());
+        }
+
+        final CancellationToken cancellation = JobCancellationRegistry.currentToken();
+        final long startNanos = System.nanoTime();
+
+        long skipped = 0;
+        try {
+            final int pageSize = this.rangeSize * this.partitionCount;
+            Long afterId = 0L;
+            List<Long> page = this.pageReader.readPage(afterId, pageSize);
+            while (page != null && !page.isEmpty()) {
+                if (isCancelled(cancellation)) {
+                    LOG.info("{}: {} was cancelled after reading up to id {}", ThreadLocalContextUtil.getTenant().getName(), this.jobName,
+                            afterId);
+                    this.errors.add(new CancellationException(this.jobName + " was cancelled"));
+                    break;
+                }
+                afterId = page.get(page.size() - 1);
+                this.readerHighWaterMark.set(afterId);
+                List<Long> pending = new ArrayList<>(this.rangeSize);
+                for (final Long id : page) {
+                    if (isCommitted(committedRanges, id)) {
+                        skipped++;
+                        continue;
+                    }
+                    pending.add(id);
+                    if (pending.size() == this.rangeSize) {
+                        enqueue(new Range(pending, System.nanoTime()), runDate, cancellation);
+                        pending = new ArrayList<>(this.rangeSize);
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    enqueue(new Range(pending, System.nanoTime()), runDate, cancellation);
+                }
+                logProgress(startNanos);
+                page = this.pageReader.readPage(afterId, pageSize);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.stopped = true;
+            this.errors.add(e);
+        } catch (final RuntimeException e) {
+            LOG.error("{}: reading ids for {} failed", ThreadLocalContextUtil.getTenant().getName(), this.jobName, e);
+            this.errors.add(e);
+        }
+
+        awaitPartitions();
+
+        final Map<String, Object> runMetrics = buildRunMetrics(runDate, startNanos, skipped, !committedRanges.isEmpty());
+        JobRunMetricsHolder.setRunMetrics(runMetrics);
+        LOG.info("{}: {} finished {}", ThreadLocalContextUtil.getTenant().getName(), this.jobName, runMetrics);
+
+        if (!this.errors.isEmpty()) {
+            throw new JobExecutionException(new ArrayList<>(this.errors));
+        }
+        this.checkpointService.clearCompletedRanges(this.jobName, runDate);
+    }
+
+    private void enqueue(final Range range, final LocalDate runDate, final CancellationToken cancellation) throws InterruptedException {
+        while (!this.queue.offer(range, 1, TimeUnit.SECONDS)) {
+            if (this.stopped) {
+                throw new IllegalStateException("The partitions of " + this.jobName + " stopped before the id stream was exhausted");
+            }
+        }
+        dispatch(runDate, cancellation);
+    }
+
+    /**
+     * Submits a free partition to the pool for every queued range, as long as there are free partitions. Called by the
+     * reader after queueing a range and by a partition after giving its permit back, so no queued range is left behind.
+     */
+    private void dispatch(final LocalDate runDate, final CancellationToken cancellation) {
+        while (!this.queue.isEmpty()) {
+            final PartitionProgress partition = this.idlePartitions.poll();
+            if (partition == null) {
+                return;
+            }
+            try {
+                this.workerPool.submit(() -> processNext(partition, runDate, cancellation));
+            } catch (final RejectedExecutionException e) {
+                LOG.error("{}: the worker pool rejected a range of {}", ThreadLocalContextUtil.getTenant().getName(), this.jobName, e);
+                this.stopped = true;
+                this.errors.add(e);
+                release(partition);
+                return;
+            }
+        }
+    }
+
+    private Void processNext(final PartitionProgress partition, final LocalDate runDate, final CancellationToken cancellation) {
+        try {
+            final Range range = this.queue.poll();
+            // a cancelled or stopped run drops the ranges still queued, so the reader is not blocked on a full queue
+            if (range != null && !this.stopped && !isCancelled(cancellation)) {
+                process(partition, range, runDate);
+            }
+        } finally {
+            release(partition);
+        }
+        if (!this.stopped) {
+            dispatch(runDate, cancellation);
+        }
+        return null;
+    }
+
+    private void process(final PartitionProgress partition, final Range range, final LocalDate runDate) {
+        partition.recordQueueLag(System.nanoTime() - range.enqueuedAtNanos);
+        try {
+            this.rangeProcessor.process(range.ids);
+        } catch (final JobRangeFailureException e) {
+            this.errors.addAll(e.getCauses());
+            checkpointSucceededIds(range, e.getFailedIds(), runDate);
+            partition.recordFailedRange(range, e.getFailedIds().size());
+            return;
+        } catch (final MultiException e) {
+            this.errors.addAll(e.getCauses());
+            partition.recordFailedRange(range, e.getCauses().size());
+            return;
+        } catch (final Exception e) {
+            LOG.error("{}: partition {} of {} failed on range {}-{}", ThreadLocalContextUtil.getTenant().getName(), partition.index,
+                    this.jobName, range.firstId(), range.lastId(), e);
+            this.errors.add(e);
+            partition.recordFailedRange(range, range.ids.size());
+            return;
+        }
+        checkpoint(runDate, range.ids);
+        partition.recordCommittedRange(range);
+    }
+
+    /**
+     * Checkpoints the ids of a partly failed range in between the failed ones, so that a resume only processes the
+     * failed ids again.
+     */
+    private void checkpointSucceededIds(final Range range, final List<Long> failedIds, final LocalDate runDate) {
+        final Set<Long> failed = new HashSet<>(failedIds);
+        List<Long> succeeded = new ArrayList<>();
+        for (final Long id : range.ids) {
+            if (!failed.contains(id)) {
+                succeeded.add(id);
+            } else if (!succeeded.isEmpty()) {
+                checkpoint(runDate, succeeded);
+                succeeded = new ArrayList<>();
+            }
+        }
+        if (!succeeded.isEmpty()) {
+            checkpoint(runDate, succeeded);
+        }
+    }
+
+    private void checkpoint(final LocalDate runDate, final List<Long> ids) {
+        final Long firstId = ids.get(0);
+        final Long lastId = ids.get(ids.size() - 1);
+        try {
+            this.checkpointService.saveCompletedRange(this.jobName, runDate, firstId, lastId, ids.size());
+        } catch (final RuntimeException e) {
+            // the range itself is committed; losing its checkpoint only means it is re-processed on a resume
+            LOG.warn("{}: could not checkpoint range {}-{} of {}", ThreadLocalContextUtil.getTenant().getName(), firstId, lastId,
+                    this.jobName, e);
+        }
+    }
+
+    private void release(final PartitionProgress partition) {
+        synchronized (this.idleMonitor) {
+            this.idlePartitions.add(partition);
+            this.idleMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every queued range is processed (or dropped) and all partitions are free again.
+     */
+    private void awaitPartitions() {
+        synchronized (this.idleMonitor) {
+            while (this.idlePartitions.size() < this.partitionCount || (!this.queue.isEmpty() && !this.stopped)) {
+                try {
+                    this.idleMonitor.wait(TimeUnit.SECONDS.toMillis(1));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    this.stopped = true;
+                    this.errors.add(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void logProgress(final long startNanos) {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        final long processed = this.partitions.stream().mapToLong(p -> p.processed.get()).sum();
+        final StringBuilder lag = new StringBuilder();
+        for (final PartitionProgress partition : this.partitions) {
+            lag.append(' ').append(partition.index).append('=').append(partition.idLag(this.readerHighWaterMark.get()));
+        }
+        LOG.info("{}: {} read up to id {}, {} processed ({}/s), queued ranges {}, partition id lag:{}",
+                ThreadLocalContextUtil.getTenant().getName(), this.jobName, this.readerHighWaterMark.get(), processed,
+                ratePerSecond(processed, System.nanoTime() - startNanos), this.queue.size(), lag);
+    }
+
+    private Map<String, Object> buildRunMetrics(final LocalDate runDate, final long startNanos, final long skipped,
+            final boolean resumed) {
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        long processed = 0;
+        long failed = 0;
+        final List<Map<String, Object>> partitionMetrics = new ArrayList<>(this.partitionCount);
+        for (final PartitionProgress partition : this.partitions) {
+            processed += partition.processed.get();
+            failed += partition.failed.get();
+            partitionMetrics.add(partition.toMetrics(this.readerHighWaterMark.get()));
+        }
+        final Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("runDate", runDate.toString());
+        metrics.put("resumed", resumed);
+        metrics.put("partitions", this.partitionCount);
+        metrics.put("rangeSize", this.rangeSize);
+        metrics.put("processed", processed);
+        metrics.put("failed", failed);
+        metrics.put("skippedFromCheckpoint", skipped);
+        metrics.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        metrics.put("processedPerSecond", ratePerSecond(processed, elapsedNanos));
+        metrics.put("partitionStats", partitionMetrics);
+        return metrics;
+    }
+
+    private static long ratePerSecond(final long count, final long elapsedNanos) {
+        return elapsedNanos <= 0 ? count : count * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    private static boolean isCommitted(final NavigableMap<Long, Long> committedRanges, final Long id) {
+        final Entry<Long, Long> range = committedRanges.floorEntry(id);
+        return range != null && id <= range.getValue();
+    }
+
+    private static boolean isCancelled(final CancellationToken cancellation) {
+        return cancellation != null && cancellation.isCancellationRequested();
+    }
+
+    private static final class Range {
+
+        private final List<Long> ids;
+        private final long enqueuedAtNanos;
+
+        Range(final List<Long> ids, final long enqueuedAtNanos) {
+            this.ids = ids;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+
+        Long firstId() {
+            return this.ids.get(0);
+        }
+
+        Long lastId() {
+            return this.ids.get(this.ids.size() - 1);
+        }
+    }
+
+    /**
+     * Counters of one partition; written only by the task that holds the partition and read by the reader thread for
+     * progress logging.
+     */
+    private static final class PartitionProgress {
+
+        private final int index;
+        private final AtomicLong committedRanges = new AtomicLong();
+        private final AtomicLong failedRanges = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong lastCommittedId = new AtomicLong();
+        private final AtomicLong queueLagNanosTotal = new AtomicLong();
+        private final AtomicLong queueLagNanosMax = new AtomicLong();
+
+        PartitionProgress(final int index) {
+            this.index = index;
+        }
+
+        void recordQueueLag(final long lagNanos) {
+            this.queueLagNanosTotal.addAndGet(lagNanos);
+            this.queueLagNanosMax.accumulateAndGet(lagNanos, Math::max);
+        }
+
+        void recordCommittedRange(final Range range) {
+            this.committedRanges.incrementAndGet();
+            this.processed.addAndGet(range.ids.size());
+            this.lastCommittedId.set(range.lastId());
+        }
+
+        void recordFailedRange(final Range range, final int failedCount) {
+            this.failedRanges.incrementAndGet();
+            this.processed.addAndGet(Math.max(0, range.ids.size() - failedCount));
+            this.failed.addAndGet(failedCount);
+        }
+
+        long idLag(final long readerHighWaterMark) {
+            return Math.max(0, readerHighWaterMark - this.lastCommittedId.get());
+        }
+
+        Map<String, Object> toMetrics(final long readerHighWaterMark) {
+            final long ranges = this.committedRanges.get() + this.failedRanges.get();
+            final Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("partition", this.index);
+            metrics.put("committedRanges", this.committedRanges.get());
+            metrics.put("failedRanges", this.failedRanges.get());
+            metrics.put("processed", this.processed.get());
+            metrics.put("failed", this.failed.get());
+            metrics.put("lastCommittedId", this.lastCommittedId.get());
+            metrics.put("idLag", idLag(readerHighWaterMark));
+            metrics.put("avgQueueLagMillis", ranges == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.queueLagNanosTotal.get() / ranges));
+            metrics.put("maxQueueLagMillis", TimeUnit.NANOSECONDS.toMillis(this.queueLagNanosMax.get()));
+            return metrics;
+        }
+    }
+}
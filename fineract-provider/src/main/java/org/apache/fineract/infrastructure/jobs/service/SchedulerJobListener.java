@@ -18,9 +18,11 @@
  */
 package org.apache.fineract.infrastructure.jobs.service;
 
+import com.google.gson.Gson;
 import java.time.LocalDate;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
@@ -55,6 +57,8 @@ public class SchedulerJobListener implements JobListener {
     private final AppUserRepositoryWrapper userRepository;
     private final GrantedAuthoritiesMapper authoritiesMapper = new NullAuthoritiesMapper();
     private final BusinessDateReadPlatformService businessDateReadPlatformService;
+    private final JobCancellationRegistry jobCancellationRegistry;
+    private final Gson gson = new Gson();
     private int stackTraceLevel = 0;
 
     @Override
@@ -63,7 +67,9 @@ public class SchedulerJobListener implements JobListener {
     }
 
     @Override
-    public void jobToBeExecuted(@SuppressWarnings("unused") final JobExecutionContext context) {
+    public void jobToBeExecuted(final JobExecutionContext context) {
+        JobRunMetricsHolder.clear();
+        this.jobCancellationRegistry.jobStarted(jobKeyOf(context));
         AppUser user = this.userRepository.fetchSystemUser();
         UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(user, user.getPassword(),
                 authoritiesMapper.mapAuthorities(user.getAuthorities()));
@@ -80,8 +86,8 @@ public class SchedulerJobListener implements JobListener {
     @Override
     public void jobWasExecuted(final JobExecutionContext context, final JobExecutionException jobException) {
         final Trigger trigger = context.getTrigger();
-        final JobKey key = context.getJobDetail().getKey();
-        final String jobKey = key.getName() + SchedulerServiceConstants.JOB_KEY_SEPERATOR + key.getGroup();
+        final String jobKey = jobKeyOf(context);
+        this.jobCancellationRegistry.jobFinished(jobKey);
         final ScheduledJobDetail scheduledJobDetails = this.schedularService.findByJobKey(jobKey);
         final Long version = this.schedularService.fetchMaxVersionBy(jobKey) + 1;
         String status = SchedulerServiceConstants.STATUS_SUCCESS;
@@ -121,14 +127,22 @@ public class SchedulerJobListener implements JobListener {
         scheduledJobDetails.updatePreviousRunStartTime(context.getFireTime());
         scheduledJobDetails.updateCurrentlyRunningStatus(false);
 
+        final Map<String, Object> runMetrics = JobRunMetricsHolder.getRunMetrics();
+        JobRunMetricsHolder.clear();
+
         final ScheduledJobRunHistory runHistory = new ScheduledJobRunHistory(scheduledJobDetails, version, context.getFireTime(),
-                new Date(), status, errorMessage, triggerType, errorLog);
+                new Date(), status, errorMessage, triggerType, errorLog, runMetrics == null ? null : this.gson.toJson(runMetrics));
         // scheduledJobDetails.addRunHistory(runHistory);
 
         this.schedularService.saveOrUpdate(scheduledJobDetails, runHistory);
 
     }
 
+    private static String jobKeyOf(final JobExecutionContext context) {
+        final JobKey key = context.getJobDetail().getKey();
+        return key.getName() + SchedulerServiceConstants.JOB_KEY_SEPERATOR + key.getGroup();
+    }
+
     private Throwable getCauseFromException(final Throwable exception) {
         if (this.stackTraceLevel <= SchedulerServiceConstants.STACK_TRACE_LEVEL && exception.getCause() != null
                 && (exception.getCause().toString().contains(SchedulerServiceConstants.SCHEDULER_EXCEPTION)
@@ -18,6 +18,8 @@
  */
 package org.apache.fineract.infrastructure.jobs.service;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Date;
@@ -144,7 +146,8 @@ public class SchedulerJobRunnerReadServiceImpl implements SchedulerJobRunnerRead
                     " job.id,job.display_name as displayName,job.next_run_time as nextRunTime,job.initializing_errorlog as initializingError,job.cron_expression as cronExpression,job.is_active as active,job.currently_running as currentlyRunning,")
                     .append(" runHistory.version,runHistory.start_time as lastRunStartTime,runHistory.end_time as lastRunEndTime,runHistory."
                             + sqlGenerator.escape("status")
-                            + ",runHistory.error_message as jobRunErrorMessage,runHistory.trigger_type as triggerType,runHistory.error_log as jobRunErrorLog ")
+                            + ",runHistory.error_message as jobRunErrorMessage,runHistory.trigger_type as triggerType,runHistory.error_log as jobRunErrorLog,"
+                            + "runHistory.run_metrics as jobRunMetrics ")
                     .append(" from job job  left join job_run_history runHistory ON job.id=runHistory.job_id and job.previous_run_start_time=runHistory.start_time ");
         }
 
@@ -169,11 +172,12 @@ public class SchedulerJobRunnerReadServiceImpl implements SchedulerJobRunnerRead
             final String jobRunErrorMessage = rs.getString("jobRunErrorMessage");
             final String triggerType = rs.getString("triggerType");
             final String jobRunErrorLog = rs.getString("jobRunErrorLog");
+            final JsonObject jobRunMetrics = parseRunMetrics(rs.getString("jobRunMetrics"));
 
             JobDetailHistoryData lastRunHistory = null;
             if (version > 0) {
                 lastRunHistory = new JobDetailHistoryData(version, jobRunStartTime, jobRunEndTime, status, jobRunErrorMessage, triggerType,
-                        jobRunErrorLog);
+                        jobRunErrorLog, jobRunMetrics);
             }
             final JobDetailData jobDetail = new JobDetailData(id, displayName, nextRunTime, initializingError, cronExpression, active,
                     currentlyRunning, lastRunHistory);
@@ -190,7 +194,8 @@ public class SchedulerJobRunnerReadServiceImpl implements SchedulerJobRunnerRead
             sqlBuilder = new StringBuilder(200)
                     .append(" runHistory.version,runHistory.start_time as runStartTime,runHistory.end_time as runEndTime,runHistory."
                             + sqlGenerator.escape("status")
-                            + ",runHistory.error_message as jobRunErrorMessage,runHistory.trigger_type as triggerType,runHistory.error_log as jobRunErrorLog ")
+                            + ",runHistory.error_message as jobRunErrorMessage,runHistory.trigger_type as triggerType,runHistory.error_log as jobRunErrorLog,"
+                            + "runHistory.run_metrics as jobRunMetrics ")
                     .append(" from job job join job_run_history runHistory ON job.id=runHistory.job_id");
         }
 
@@ -207,11 +212,18 @@ public class SchedulerJobRunnerReadServiceImpl implements SchedulerJobRunnerRead
             final String jobRunErrorMessage = rs.getString("jobRunErrorMessage");
             final String triggerType = rs.getString("triggerType");
             final String jobRunErrorLog = rs.getString("jobRunErrorLog");
+            final JsonObject jobRunMetrics = parseRunMetrics(rs.getString("jobRunMetrics"));
             final JobDetailHistoryData jobDetailHistory = new JobDetailHistoryData(version, jobRunStartTime, jobRunEndTime, status,
-                    jobRunErrorMessage, triggerType, jobRunErrorLog);
+                    jobRunErrorMessage, triggerType, jobRunErrorLog, jobRunMetrics);
             return jobDetailHistory;
         }
 
     }
 
+    private static JsonObject parseRunMetrics(final String runMetrics) {
+        if (runMetrics == null || runMetrics.isBlank()) {
+            return null;
+        }
+        return JsonParser.parseString(runMetrics).getAsJsonObject();
+    }
 }
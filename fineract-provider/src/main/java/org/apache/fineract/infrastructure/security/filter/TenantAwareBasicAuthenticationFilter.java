@@ -28,12 +28,12 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
 import org.apache.fineract.infrastructure.businessdate.service.BusinessDateReadPlatformService;
-import org.apache.fineract.infrastructure.cache.domain.CacheType;
 import org.apache.fineract.infrastructure.cache.service.CacheWritePlatformService;
 import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
 import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
 import org.apache.fineract.infrastructure.core.serialization.ToApiJsonSerializer;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.core.service.migration.TenantUpgradeTracker;
 import org.apache.fineract.infrastructure.security.data.PlatformRequestLog;
 import org.apache.fineract.infrastructure.security.exception.InvalidTenantIdentifierException;
 import org.apache.fineract.infrastructure.security.service.BasicAuthTenantDetailsService;
@@ -68,6 +68,7 @@ public class TenantAwareBasicAuthenticationFilter extends BasicAuthenticationFil
 
     private static boolean firstRequestProcessed = false;
     private static final Logger LOG = LoggerFactory.getLogger(TenantAwareBasicAuthenticationFilter.class);
+    private static final String TENANT_UPGRADE_RETRY_AFTER_SECONDS = "30";
 
     @Autowired
     private ToApiJsonSerializer<PlatformRequestLog> toApiJsonSerializer;
@@ -87,6 +88,9 @@ public class TenantAwareBasicAuthenticationFilter extends BasicAuthenticationFil
     @Autowired
     private BusinessDateReadPlatformService businessDateReadPlatformService;
 
+    @Autowired
+    private TenantUpgradeTracker tenantUpgradeTracker;
+
     private final String tenantRequestHeader = "Fineract-Platform-TenantId";
     private final boolean exceptionIfHeaderMissing = true;
 
@@ -120,6 +124,12 @@ public class TenantAwareBasicAuthenticationFilter extends BasicAuthenticationFil
                             + this.tenantRequestHeader + "' or add the parameter 'tenantIdentifier' to query string of request URL.");
                 }
 
+                if (!this.tenantUpgradeTracker.isAvailable(tenantIdentifier)) {
+                    response.setHeader("Retry-After", TENANT_UPGRADE_RETRY_AFTER_SECONDS);
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The tenant " + tenantIdentifier + " is being upgraded");
+                    return;
+                }
+
                 String pathInfo = request.getRequestURI();
                 boolean isReportRequest = false;
                 if (pathInfo != null && pathInfo.contains("report")) {
@@ -139,12 +149,7 @@ public class TenantAwareBasicAuthenticationFilter extends BasicAuthenticationFil
                     final String baseUrl = request.getRequestURL().toString().replace(request.getPathInfo(), "/");
                     System.setProperty("baseUrl", baseUrl);
 
-                    final boolean ehcacheEnabled = this.configurationDomainService.isEhcacheEnabled();
-                    if (ehcacheEnabled) {
-                        this.cacheWritePlatformService.switchToCache(CacheType.SINGLE_NODE);
-                    } else {
-                        this.cacheWritePlatformService.switchToCache(CacheType.NO_CACHE);
-                    }
+                    this.cacheWritePlatformService.switchToCache(this.configurationDomainService.retrieveCacheType());
                     TenantAwareBasicAuthenticationFilter.firstRequestProcessed = true;
                 }
             }
@@ -33,12 +33,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
 import org.apache.fineract.infrastructure.businessdate.service.BusinessDateReadPlatformService;
-import org.apache.fineract.infrastructure.cache.domain.CacheType;
 import org.apache.fineract.infrastructure.cache.service.CacheWritePlatformService;
 import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
 import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
 import org.apache.fineract.infrastructure.core.serialization.ToApiJsonSerializer;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.core.service.migration.TenantUpgradeTracker;
 import org.apache.fineract.infrastructure.security.data.PlatformRequestLog;
 import org.apache.fineract.infrastructure.security.exception.InvalidTenantIdentifierException;
 import org.apache.fineract.infrastructure.security.service.BasicAuthTenantDetailsService;
@@ -65,6 +65,7 @@ import org.springframework.web.filter.GenericFilterBean;
 public class TenantAwareTenantIdentifierFilter extends GenericFilterBean {
 
     private static AtomicBoolean firstRequestProcessed = new AtomicBoolean();
+    private static final String TENANT_UPGRADE_RETRY_AFTER_SECONDS = "30";
 
     private final BasicAuthTenantDetailsService basicAuthTenantDetailsService;
     private final ToApiJsonSerializer<PlatformRequestLog> toApiJsonSerializer;
@@ -72,6 +73,7 @@ public class TenantAwareTenantIdentifierFilter extends GenericFilterBean {
     private final CacheWritePlatformService cacheWritePlatformService;
 
     private final BusinessDateReadPlatformService businessDateReadPlatformService;
+    private final TenantUpgradeTracker tenantUpgradeTracker;
 
     private final String tenantRequestHeader = "Fineract-Platform-TenantId";
     private final boolean exceptionIfHeaderMissing = true;
@@ -111,6 +113,12 @@ public class TenantAwareTenantIdentifierFilter extends GenericFilterBean {
                             + this.tenantRequestHeader + "' or add the parameter 'tenantIdentifier' to query string of request URL.");
                 }
 
+                if (!this.tenantUpgradeTracker.isAvailable(tenantIdentifier)) {
+                    response.setHeader("Retry-After", TENANT_UPGRADE_RETRY_AFTER_SECONDS);
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The tenant " + tenantIdentifier + " is being upgraded");
+                    return;
+                }
+
                 String pathInfo = request.getRequestURI();
                 boolean isReportRequest = false;
                 if (pathInfo != null && pathInfo.contains("report")) {
@@ -131,12 +139,7 @@ public class TenantAwareTenantIdentifierFilter extends GenericFilterBean {
                             request.getContextPath() + apiUri);
                     System.setProperty("baseUrl", baseUrl);
 
-                    final boolean ehcacheEnabled = this.configurationDomainService.isEhcacheEnabled();
-                    if (ehcacheEnabled) {
-                        this.cacheWritePlatformService.switchToCache(CacheType.SINGLE_NODE);
-                    } else {
-                        this.cacheWritePlatformService.switchToCache(CacheType.NO_CACHE);
-                    }
+                    this.cacheWritePlatformService.switchToCache(this.configurationDomainService.retrieveCacheType());
                     firstRequestProcessed.set(true);
                 }
                 chain.doFilter(request, response);
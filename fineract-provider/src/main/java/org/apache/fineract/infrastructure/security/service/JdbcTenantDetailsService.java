@@ -19,8 +19,10 @@
 package org.apache.fineract.infrastructure.security.service;
 
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.sql.DataSource;
 import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenantConnection;
 import org.apache.fineract.infrastructure.security.exception.InvalidTenantIdentifierException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -64,4 +66,12 @@ public class JdbcTenantDetailsService implements TenantDetailsService {
         final List<FineractPlatformTenant> fineractPlatformTenants = this.jdbcTemplate.query(sql, rm); // NOSONAR
         return fineractPlatformTenants;
     }
+
+    @Override
+    public List<FineractPlatformTenantConnection> findAllTenantConnections() {
+        final TenantMapper rm = new TenantMapper(false);
+        final String sql = "select " + rm.schema() + " union select " + new TenantMapper(true).schema();
+
+        return this.jdbcTemplate.query(sql, rm).stream().map(FineractPlatformTenant::getConnection).collect(Collectors.toList()); // NOSONAR
+    }
 }
@@ -20,10 +20,16 @@ package org.apache.fineract.infrastructure.security.service;
 
 import java.util.List;
 import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenantConnection;
 
 public interface TenantDetailsService {
 
     FineractPlatformTenant loadTenantById(String tenantId);
 
     List<FineractPlatformTenant> findAllTenants();
+
+    /**
+     * @return the OLTP and report connections of all tenants, read from the tenants database without caching
+     */
+    List<FineractPlatformTenantConnection> findAllTenantConnections();
 }
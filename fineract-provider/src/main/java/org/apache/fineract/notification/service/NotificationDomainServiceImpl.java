@@ -19,6 +19,7 @@
 package org.apache.fineract.notification.service;
 
 import static java.util.stream.Collectors.toSet;
+import static org.apache.fineract.portfolio.businessevent.BusinessEventDeliveryMode.AFTER_COMMIT;
 
 import java.util.Collection;
 import java.util.Set;
@@ -74,34 +75,48 @@ public class NotificationDomainServiceImpl implements NotificationDomainService
     private final NotificationEventPublisher notificationEventPublisher;
     private final AppUserRepository appUserRepository;
 
+    /**
+     * Notifications are only broadcast for committed business transactions, and preparing them does not hold up the
+     * commit.
+     */
     @PostConstruct
     public void addListeners() {
-        businessEventNotifierService.addPostBusinessEventListener(ClientCreateBusinessEvent.class, new ClientCreatedListener());
-        businessEventNotifierService.addPostBusinessEventListener(SavingsApproveBusinessEvent.class, new SavingsAccountApprovedListener());
-        businessEventNotifierService.addPostBusinessEventListener(CentersCreateBusinessEvent.class, new CenterCreatedListener());
-        businessEventNotifierService.addPostBusinessEventListener(GroupsCreateBusinessEvent.class, new GroupCreatedListener());
-        businessEventNotifierService.addPostBusinessEventListener(SavingsDepositBusinessEvent.class, new SavingsAccountDepositListener());
+        businessEventNotifierService.addPostBusinessEventListener(ClientCreateBusinessEvent.class, new ClientCreatedListener(),
+                AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(SavingsApproveBusinessEvent.class, new SavingsAccountApprovedListener(),
+                AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(CentersCreateBusinessEvent.class, new CenterCreatedListener(),
+                AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(GroupsCreateBusinessEvent.class, new GroupCreatedListener(),
+                AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(SavingsDepositBusinessEvent.class, new SavingsAccountDepositListener(),
+                AFTER_COMMIT);
         businessEventNotifierService.addPostBusinessEventListener(ShareProductDividentsCreateBusinessEvent.class,
-                new ShareProductDividendCreatedListener());
+                new ShareProductDividendCreatedListener(), AFTER_COMMIT);
         businessEventNotifierService.addPostBusinessEventListener(FixedDepositAccountCreateBusinessEvent.class,
-                new FixedDepositAccountCreatedListener());
+                new FixedDepositAccountCreatedListener(), AFTER_COMMIT);
         businessEventNotifierService.addPostBusinessEventListener(RecurringDepositAccountCreateBusinessEvent.class,
-                new RecurringDepositAccountCreatedListener());
+                new RecurringDepositAccountCreatedListener(), AFTER_COMMIT);
         businessEventNotifierService.addPostBusinessEventListener(SavingsPostInterestBusinessEvent.class,
-                new SavingsPostInterestListener());
-        businessEventNotifierService.addPostBusinessEventListener(LoanCreatedBusinessEvent.class, new LoanCreatedListener());
-        businessEventNotifierService.addPostBusinessEventListener(LoanApprovedBusinessEvent.class, new LoanApprovedListener());
-        businessEventNotifierService.addPostBusinessEventListener(LoanCloseBusinessEvent.class, new LoanClosedListener());
+                new SavingsPostInterestListener(), AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(LoanCreatedBusinessEvent.class, new LoanCreatedListener(), AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(LoanApprovedBusinessEvent.class, new LoanApprovedListener(),
+                AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(LoanCloseBusinessEvent.class, new LoanClosedListener(), AFTER_COMMIT);
         businessEventNotifierService.addPostBusinessEventListener(LoanCloseAsRescheduleBusinessEvent.class,
-                new LoanCloseAsRescheduledListener());
+                new LoanCloseAsRescheduledListener(), AFTER_COMMIT);
         businessEventNotifierService.addPostBusinessEventListener(LoanTransactionMakeRepaymentPostBusinessEvent.class,
-                new LoanMakeRepaymentListener());
-        businessEventNotifierService.addPostBusinessEventListener(LoanProductCreateBusinessEvent.class, new LoanProductCreatedListener());
-        businessEventNotifierService.addPostBusinessEventListener(SavingsCreateBusinessEvent.class, new SavingsAccountCreatedListener());
-        businessEventNotifierService.addPostBusinessEventListener(SavingsCloseBusinessEvent.class, new SavingsAccountClosedListener());
-        businessEventNotifierService.addPostBusinessEventListener(ShareAccountCreateBusinessEvent.class, new ShareAccountCreatedListener());
+                new LoanMakeRepaymentListener(), AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(LoanProductCreateBusinessEvent.class, new LoanProductCreatedListener(),
+                AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(SavingsCreateBusinessEvent.class, new SavingsAccountCreatedListener(),
+                AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(SavingsCloseBusinessEvent.class, new SavingsAccountClosedListener(),
+                AFTER_COMMIT);
+        businessEventNotifierService.addPostBusinessEventListener(ShareAccountCreateBusinessEvent.class, new ShareAccountCreatedListener(),
+                AFTER_COMMIT);
         businessEventNotifierService.addPostBusinessEventListener(ShareAccountApproveBusinessEvent.class,
-                new ShareAccountApprovedListener());
+                new ShareAccountApprovedListener(), AFTER_COMMIT);
     }
 
     private class ClientCreatedListener implements BusinessEventListener<ClientCreateBusinessEvent> {
@@ -57,6 +57,7 @@ import org.apache.fineract.useradministration.domain.AppUser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.orm.jpa.JpaSystemException;
 import org.springframework.stereotype.Service;
@@ -104,6 +105,7 @@ public class TellerWritePlatformServiceJpaImpl implements TellerWritePlatformSer
 
     @Override
     @Transactional
+    @CacheEvict(value = "tellers", allEntries = true)
     public CommandProcessingResult createTeller(JsonCommand command) {
         try {
             this.context.authenticatedUser();
@@ -137,6 +139,7 @@ public class TellerWritePlatformServiceJpaImpl implements TellerWritePlatformSer
 
     @Override
     @Transactional
+    @CacheEvict(value = "tellers", allEntries = true)
     public CommandProcessingResult modifyTeller(Long tellerId, JsonCommand command) {
         try {
 
@@ -188,6 +191,7 @@ public class TellerWritePlatformServiceJpaImpl implements TellerWritePlatformSer
 
     @Override
     @Transactional
+    @CacheEvict(value = "tellers", allEntries = true)
     public CommandProcessingResult deleteTeller(Long tellerId) {
         // TODO Auto-generated method stub
 
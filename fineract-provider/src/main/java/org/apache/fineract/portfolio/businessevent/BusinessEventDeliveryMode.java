@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.portfolio.businessevent;
+
+/**
+ * When a post business event listener is invoked relative to the transaction that raised the event.
+ */
+public enum BusinessEventDeliveryMode {
+
+    /**
+     * Invoked right away, inside the business transaction; a failing listener rolls the transaction back.
+     */
+    IN_TRANSACTION,
+
+    /**
+     * Invoked on the same thread once the business transaction has committed, in a transaction of its own; not invoked
+     * at all if the business transaction rolls back.
+     */
+    AFTER_COMMIT,
+
+    /**
+     * Handed to a bounded worker pool once the business transaction has committed. The listener must not rely on lazy
+     * state of the entities carried by the event, as the session that loaded them is gone by the time it runs.
+     */
+    ASYNC
+}
@@ -19,6 +19,7 @@
 package org.apache.fineract.portfolio.businessevent.service;
 
 import java.util.Map;
+import org.apache.fineract.portfolio.businessevent.BusinessEventDeliveryMode;
 import org.apache.fineract.portfolio.businessevent.BusinessEventListener;
 import org.apache.fineract.portfolio.businessevent.domain.BusinessEvent;
 import org.apache.fineract.portfolio.common.domain.BusinessEventNotificationConstants.BusinessEntity;
@@ -50,6 +51,13 @@ public interface BusinessEventNotifierService {
      */
     <T extends BusinessEvent<?>> void addPostBusinessEventListener(Class<T> eventType, BusinessEventListener<T> listener);
 
+    /**
+     * Method is to register a class as listener for post-processing of any Business event, invoked according to the
+     * given delivery mode
+     */
+    <T extends BusinessEvent<?>> void addPostBusinessEventListener(Class<T> eventType, BusinessEventListener<T> listener,
+            BusinessEventDeliveryMode deliveryMode);
+
     /**
      * Method should be called to notify listeners after Business event execution for any post-processing of event
      */
@@ -18,60 +18,131 @@
  */
 package org.apache.fineract.portfolio.businessevent.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractBusinessEventProperties;
+import org.apache.fineract.infrastructure.core.service.ContextPropagatingCallable;
+import org.apache.fineract.portfolio.businessevent.BusinessEventDeliveryMode;
 import org.apache.fineract.portfolio.businessevent.BusinessEventListener;
 import org.apache.fineract.portfolio.businessevent.domain.BusinessEvent;
 import org.apache.fineract.portfolio.common.domain.BusinessEventNotificationConstants;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Keeps the registered listeners per event type and invokes them according to their {@link BusinessEventDeliveryMode}.
+ * Listeners registered without a delivery mode run inside the business transaction, as they always did. The time every
+ * listener takes is published as the {@code fineract.businessevent.listener.latency} timer, tagged with the event, the
+ * listener and its delivery mode.
+ */
 @Service
+@Slf4j
 @SuppressWarnings({ "unchecked", "rawtypes" })
-public class BusinessEventNotifierServiceImpl implements BusinessEventNotifierService {
+public class BusinessEventNotifierServiceImpl implements BusinessEventNotifierService, DisposableBean {
+
+    private static final int DEFAULT_WORKER_POOL_SIZE = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    private final Map<Class, List<RegisteredListener>> preListeners = new ConcurrentHashMap<>();
+    private final Map<Class, List<RegisteredListener>> postListeners = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate afterCommitTransactionTemplate;
+    private final TransactionTemplate asyncTransactionTemplate;
+    private final ThreadPoolExecutor asyncExecutor;
+    private final Counter rejectedAsyncDeliveries;
+
+    public BusinessEventNotifierServiceImpl(final FineractProperties fineractProperties,
+            final PlatformTransactionManager transactionManager, final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        // the business transaction's resources are still bound while afterCommit runs, so listeners need a new one
+        this.afterCommitTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.afterCommitTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.asyncTransactionTemplate = new TransactionTemplate(transactionManager);
 
-    private final Map<Class, List<BusinessEventListener>> preListeners = new HashMap<>();
-    private final Map<Class, List<BusinessEventListener>> postListeners = new HashMap<>();
+        final FineractBusinessEventProperties properties = fineractProperties.getBusinessEvent();
+        final int workerPoolSize = properties != null && properties.getWorkerPoolSize() > 0 ? properties.getWorkerPoolSize()
+                : DEFAULT_WORKER_POOL_SIZE;
+        final int queueCapacity = properties != null && properties.getQueueCapacity() > 0 ? properties.getQueueCapacity()
+                : DEFAULT_QUEUE_CAPACITY;
+        final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.asyncExecutor = new ThreadPoolExecutor(workerPoolSize, workerPoolSize, 60L, TimeUnit.SECONDS, queue,
+                new CustomizableThreadFactory("fineract-business-event-"));
+        this.asyncExecutor.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("fineract.businessevent.async.queue.depth", queue, BlockingQueue::size)
+                .description("Business events waiting for asynchronous listeners").register(meterRegistry);
+        this.rejectedAsyncDeliveries = Counter.builder("fineract.businessevent.async.rejected")
+                .description("Asynchronous listener invocations run on the calling thread because the queue was full")
+                .register(meterRegistry);
+    }
 
     @Override
     public void notifyPreBusinessEvent(BusinessEvent<?> businessEvent) {
-        List<BusinessEventListener> businessEventListeners = preListeners.get(businessEvent.getClass());
+        List<RegisteredListener> businessEventListeners = preListeners.get(businessEvent.getClass());
         if (businessEventListeners != null) {
-            for (BusinessEventListener eventListener : businessEventListeners) {
-                eventListener.onBusinessEvent(businessEvent);
+            for (RegisteredListener eventListener : businessEventListeners) {
+                eventListener.invoke(businessEvent);
             }
         }
     }
 
     @Override
     public <T extends BusinessEvent<?>> void addPreBusinessEventListener(Class<T> eventType, BusinessEventListener<T> listener) {
-        List<BusinessEventListener> businessEventListeners = preListeners.get(eventType);
-        if (businessEventListeners == null) {
-            businessEventListeners = new ArrayList<>();
-            preListeners.put(eventType, businessEventListeners);
-        }
-        businessEventListeners.add(listener);
+        register(preListeners, "pre", eventType, listener, BusinessEventDeliveryMode.IN_TRANSACTION);
     }
 
     @Override
     public void notifyPostBusinessEvent(BusinessEvent<?> businessEvent) {
-        List<BusinessEventListener> businessEventListeners = postListeners.get(businessEvent.getClass());
-        if (businessEventListeners != null) {
-            for (BusinessEventListener eventListener : businessEventListeners) {
-                eventListener.onBusinessEvent(businessEvent);
+        List<RegisteredListener> businessEventListeners = postListeners.get(businessEvent.getClass());
+        if (businessEventListeners == null) {
+            return;
+        }
+        List<RegisteredListener> deferredListeners = null;
+        for (RegisteredListener eventListener : businessEventListeners) {
+            if (eventListener.deliveryMode == BusinessEventDeliveryMode.IN_TRANSACTION) {
+                eventListener.invoke(businessEvent);
+            } else {
+                if (deferredListeners == null) {
+                    deferredListeners = new ArrayList<>();
+                }
+                deferredListeners.add(eventListener);
             }
         }
+        if (deferredListeners != null) {
+            deliverAfterCommit(businessEvent, deferredListeners);
+        }
     }
 
     @Override
     public <T extends BusinessEvent<?>> void addPostBusinessEventListener(Class<T> eventType, BusinessEventListener<T> listener) {
-        List<BusinessEventListener> businessEventListeners = postListeners.get(eventType);
-        if (businessEventListeners == null) {
-            businessEventListeners = new ArrayList<>();
-            postListeners.put(eventType, businessEventListeners);
-        }
-        businessEventListeners.add(listener);
+        addPostBusinessEventListener(eventType, listener, BusinessEventDeliveryMode.IN_TRANSACTION);
+    }
+
+    @Override
+    public <T extends BusinessEvent<?>> void addPostBusinessEventListener(Class<T> eventType, BusinessEventListener<T> listener,
+            BusinessEventDeliveryMode deliveryMode) {
+        register(postListeners, "post", eventType, listener, deliveryMode);
     }
 
     @Override
@@ -80,4 +151,96 @@ public class BusinessEventNotifierServiceImpl implements BusinessEventNotifierSe
 
     }
 
+    @Override
+    public void destroy() {
+        this.asyncExecutor.shutdownNow();
+    }
+
+    private void register(final Map<Class, List<RegisteredListener>> listeners, final String phase, final Class<?> eventType,
+            final BusinessEventListener<?> listener, final BusinessEventDeliveryMode deliveryMode) {
+        listeners.computeIfAbsent(eventType, type -> new CopyOnWriteArrayList<>())
+                .add(new RegisteredListener(listener, deliveryMode, phase, eventType, this.meterRegistry));
+    }
+
+    private void deliverAfterCommit(final BusinessEvent<?> businessEvent, final List<RegisteredListener> listeners) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(businessEvent, listeners);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                deliver(businessEvent, listeners);
+            }
+        });
+    }
+
+    private void deliver(final BusinessEvent<?> businessEvent, final List<RegisteredListener> listeners) {
+        for (RegisteredListener eventListener : listeners) {
+            if (eventListener.deliveryMode == BusinessEventDeliveryMode.ASYNC) {
+                submit(businessEvent, eventListener);
+            } else {
+                invokeSafely(this.afterCommitTransactionTemplate, businessEvent, eventListener);
+            }
+        }
+    }
+
+    private void submit(final BusinessEvent<?> businessEvent, final RegisteredListener eventListener) {
+        try {
+            this.asyncExecutor.submit(new ContextPropagatingCallable<>(() -> {
+                invokeSafely(this.asyncTransactionTemplate, businessEvent, eventListener);
+                return null;
+            }));
+        } catch (RejectedExecutionException e) {
+            this.rejectedAsyncDeliveries.increment();
+            log.warn("Business event queue is full, invoking {} on the calling thread", eventListener.name);
+            invokeSafely(this.afterCommitTransactionTemplate, businessEvent, eventListener);
+        }
+    }
+
+    private void invokeSafely(final TransactionTemplate transactionTemplate, final BusinessEvent<?> businessEvent,
+            final RegisteredListener eventListener) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> eventListener.invoke(businessEvent));
+        } catch (RuntimeException e) {
+            // the business transaction is committed already, there is nothing to roll back
+            log.error("Business event listener {} failed for {}", eventListener.name, businessEvent.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static final class RegisteredListener {
+
+        private final BusinessEventListener listener;
+        private final BusinessEventDeliveryMode deliveryMode;
+        private final String name;
+        private final Timer latency;
+        private final Counter failures;
+
+        RegisteredListener(final BusinessEventListener<?> listener, final BusinessEventDeliveryMode deliveryMode, final String phase,
+                final Class<?> eventType, final MeterRegistry meterRegistry) {
+            this.listener = listener;
+            this.deliveryMode = deliveryMode;
+            final String simpleName = listener.getClass().getSimpleName();
+            this.name = simpleName.isEmpty() ? listener.getClass().getName() : simpleName;
+            this.latency = Timer.builder("fineract.businessevent.listener.latency").description("Time spent in a business event listener")
+                    .tag("event", eventType.getSimpleName()).tag("listener", this.name).tag("phase", phase)
+                    .tag("mode", deliveryMode.name()).register(meterRegistry);
+            this.failures = Counter.builder("fineract.businessevent.listener.failures")
+                    .description("Business event listener invocations that threw an exception").tag("event", eventType.getSimpleName())
+                    .tag("listener", this.name).tag("phase", phase).tag("mode", deliveryMode.name()).register(meterRegistry);
+        }
+
+        void invoke(final BusinessEvent<?> businessEvent) {
+            final long startNanos = System.nanoTime();
+            try {
+                this.listener.onBusinessEvent(businessEvent);
+            } catch (RuntimeException e) {
+                this.failures.increment();
+                throw e;
+            } finally {
+                this.latency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
 }
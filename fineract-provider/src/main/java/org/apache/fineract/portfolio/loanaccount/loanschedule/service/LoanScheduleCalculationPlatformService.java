@@ -19,6 +19,7 @@
 package org.apache.fineract.portfolio.loanaccount.loanschedule.service;
 
 import org.apache.fineract.infrastructure.core.api.JsonQuery;
+import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
 import org.apache.fineract.portfolio.loanaccount.loanschedule.data.LoanScheduleData;
 import org.apache.fineract.portfolio.loanaccount.loanschedule.data.LoanTopUpData;
 import org.apache.fineract.portfolio.loanaccount.loanschedule.domain.LoanScheduleModel;
@@ -33,6 +34,6 @@ public interface LoanScheduleCalculationPlatformService {
 
     LoanTopUpData calculateTopUpCarryForwardSchedules(JsonQuery query);
 
-    void reprocessLoanTransactionsAndSchedule();
+    void reprocessLoanTransactionsAndSchedule() throws JobExecutionException;
 
 }
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
 import org.apache.fineract.infrastructure.core.api.JsonQuery;
@@ -33,6 +34,8 @@ import org.apache.fineract.infrastructure.core.exception.PlatformApiDataValidati
 import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
 import org.apache.fineract.infrastructure.core.service.DateUtils;
 import org.apache.fineract.infrastructure.jobs.annotation.CronTarget;
+import org.apache.fineract.infrastructure.jobs.data.JobFailureData;
+import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
 import org.apache.fineract.infrastructure.jobs.service.JobExecuter;
 import org.apache.fineract.infrastructure.jobs.service.JobName;
 import org.apache.fineract.infrastructure.jobs.service.JobRunner;
@@ -335,16 +338,19 @@ public class LoanScheduleCalculationPlatformServiceImpl implements LoanScheduleC
 
     @Override
     @CronTarget(jobName = JobName.REPROCESS_LOAN_TRANSACTIONS)
-    public void reprocessLoanTransactionsAndSchedule() {
+    public void reprocessLoanTransactionsAndSchedule() throws JobExecutionException {
         // Get all loans
         final List<Pair<Long, Long>> loanIds = this.loanReadPlatformService.getLoansForReprocessing();
-        jobExecuter.executeJob(loanIds, new LoanTransactionReprocessRunner());
+        final List<JobFailureData> failures = jobExecuter.executeJob(loanIds, new LoanTransactionReprocessRunner());
+        if (!failures.isEmpty()) {
+            throw new JobExecutionException(failures.stream().map(JobFailureData::getThrowable).collect(Collectors.toList()));
+        }
     }
 
     private class LoanTransactionReprocessRunner implements JobRunner<List<Pair<Long, Long>>> {
 
         @Override
-        public void runJob(List<Pair<Long, Long>> loanIds, StringBuilder sb) {
+        public void runJob(List<Pair<Long, Long>> loanIds, List<JobFailureData> failures) {
 
             if (!loanIds.isEmpty()) {
 
@@ -365,6 +371,7 @@ public class LoanScheduleCalculationPlatformServiceImpl implements LoanScheduleC
                     } catch (Exception e) {
                         LOG.error("Error occured while reprocessing loan with id " + reprocessId + " and exception is " + e.getMessage());
                         exceptionString = e.getMessage();
+                        failures.add(JobFailureData.of(loanId, e));
                     } finally {
                         final Long endTime = System.currentTimeMillis();
                         final Long duration = endTime - startTime;
@@ -18,11 +18,12 @@
  */
 package org.apache.fineract.portfolio.loanaccount.service;
 
+import java.util.Map;
 import org.apache.fineract.portfolio.loanaccount.domain.Loan;
 
 public interface LoanArrearsAgingService {
 
-    void updateLoanArrearsAgeingDetails();
+    void updateLoanArrearsAgeingDetails(Map<String, String> jobParameters);
 
     void updateLoanArrearsAgeingDetailsWithOriginalSchedule(Loan loan);
 
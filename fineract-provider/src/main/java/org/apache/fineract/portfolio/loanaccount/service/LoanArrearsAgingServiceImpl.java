@@ -27,6 +27,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +39,7 @@ import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
 import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
 import org.apache.fineract.infrastructure.jobs.annotation.CronTarget;
 import org.apache.fineract.infrastructure.jobs.service.JobName;
+import org.apache.fineract.infrastructure.jobs.service.JobWatermarkService;
 import org.apache.fineract.portfolio.businessevent.BusinessEventListener;
 import org.apache.fineract.portfolio.businessevent.domain.loan.LoanAdjustTransactionBusinessEvent;
 import org.apache.fineract.portfolio.businessevent.domain.loan.LoanApplyOverdueChargeBusinessEvent;
@@ -59,18 +63,24 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class LoanArrearsAgingServiceImpl implements LoanArrearsAgingService {
 
+    private static final String INCREMENTAL_PARAMETER = "incremental";
+    private static final String CHUNK_SIZE_PARAMETER = "chunk-size";
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     private final JdbcTemplate jdbcTemplate;
     private final BusinessEventNotifierService businessEventNotifierService;
     private final DatabaseSpecificSQLGenerator sqlGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final JobWatermarkService jobWatermarkService;
 
     @PostConstruct
     public void registerForNotification() {
@@ -92,13 +102,117 @@ public class LoanArrearsAgingServiceImpl implements LoanArrearsAgingService {
                 new LoanForeClosureEventListener());
     }
 
-    @Transactional
     @Override
     @CronTarget(jobName = JobName.UPDATE_LOAN_ARREARS_AGEING)
-    public void updateLoanArrearsAgeingDetails() {
+    public void updateLoanArrearsAgeingDetails(final Map<String, String> jobParameters) {
+        final boolean incremental = !"0".equals(jobParameters.getOrDefault(INCREMENTAL_PARAMETER, "1"));
+        if (incremental) {
+            final int chunkSize = Integer.parseInt(jobParameters.getOrDefault(CHUNK_SIZE_PARAMETER, String.valueOf(DEFAULT_CHUNK_SIZE)));
+            updateLoanArrearsAgeingDetailsIncrementally(chunkSize);
+        } else {
+            this.transactionTemplate.executeWithoutResult(status -> rebuildLoanArrearsAgeingDetails());
+        }
+    }
+
+    private void rebuildLoanArrearsAgeingDetails() {
 
         this.jdbcTemplate.execute("truncate table m_loan_arrears_aging");
 
+        List<String> insertStatements = updateLoanArrearsAgeingDetailsWithOriginalSchedule("");
+        insertStatements.add(0, constructArrearsAgeingInsertSelect(""));
+        final int[] results = this.jdbcTemplate.batchUpdate(insertStatements.toArray(new String[0]));
+        int result = 0;
+        for (int i : results) {
+            result += i;
+        }
+
+        log.info("{}: Records affected by updateLoanArrearsAgeingDetails: {}", ThreadLocalContextUtil.getTenant().getName(), result);
+    }
+
+    /**
+     * Recomputes only the loans whose ageing can have changed since the last run: loans with an unpaid installment that
+     * fell past due (after the arrears grace) since then, loans that had one of the business events this service listens
+     * for, and aged loans that are no longer active. Loans are rewritten in chunks, each in its own transaction, so
+     * readers of m_loan_arrears_aging always see either the old or the new row of a loan.
+     * <p>
+     * A pending mark is only removed together with its chunk, and only if it was not marked again after it was read, so
+     * an event that happens while the job runs is left for the next run.
+     */
+    private void updateLoanArrearsAgeingDetailsIncrementally(final int chunkSize) {
+        final LocalDate businessDate = DateUtils.getBusinessLocalDate();
+        final LocalDate lastRunDate = this.jobWatermarkService.retrieveDateWatermark(JobName.UPDATE_LOAN_ARREARS_AGEING.name());
+        final Map<Long, Integer> pendingMarks = new HashMap<>();
+        this.jdbcTemplate.query("select loan_id, mark_count from m_loan_arrears_aging_pending", rs -> {
+            pendingMarks.put(rs.getLong("loan_id"), rs.getInt("mark_count"));
+        });
+
+        final Set<Long> loanIds = new TreeSet<>(retrieveLoansFallenDueSince(lastRunDate));
+        loanIds.addAll(pendingMarks.keySet());
+        loanIds.addAll(this.jdbcTemplate.queryForList(
+                "select mla.loan_id from m_loan_arrears_aging mla inner join m_loan ml on ml.id = mla.loan_id where ml.loan_status_id <> 300",
+                Long.class));
+
+        final List<Long> candidates = new ArrayList<>(loanIds);
+        final int effectiveChunkSize = Math.max(1, chunkSize);
+        int result = 0;
+        for (int from = 0; from < candidates.size(); from += effectiveChunkSize) {
+            final List<Long> chunk = candidates.subList(from, Math.min(from + effectiveChunkSize, candidates.size()));
+            result += this.transactionTemplate.execute(status -> {
+                final int written = refreshLoanArrearsAgeingDetails(chunk);
+                clearPendingMarks(chunk, pendingMarks);
+                return written;
+            });
+        }
+        this.jobWatermarkService.saveDateWatermark(JobName.UPDATE_LOAN_ARREARS_AGEING.name(), businessDate);
+
+        log.info("{}: Loans recomputed by incremental updateLoanArrearsAgeingDetails: {}, records written: {}",
+                ThreadLocalContextUtil.getTenant().getName(), candidates.size(), result);
+    }
+
+    private void clearPendingMarks(final List<Long> loanIds, final Map<Long, Integer> pendingMarks) {
+        final List<Object[]> marks = new ArrayList<>();
+        for (final Long loanId : loanIds) {
+            final Integer markCount = pendingMarks.get(loanId);
+            if (markCount != null) {
+                marks.add(new Object[] { loanId, markCount });
+            }
+        }
+        if (!marks.isEmpty()) {
+            this.jdbcTemplate.batchUpdate("delete from m_loan_arrears_aging_pending where loan_id = ? and mark_count = ?", marks);
+        }
+    }
+
+    private List<Long> retrieveLoansFallenDueSince(final LocalDate lastRunDate) {
+        final String arrearsCutOff = sqlGenerator.subDate(sqlGenerator.currentBusinessDate(), "COALESCE(ml.grace_on_arrears_ageing, 0)",
+                "day");
+        final StringBuilder sqlBuilder = new StringBuilder(400);
+        sqlBuilder.append("select distinct ml.id FROM m_loan ml ");
+        sqlBuilder.append("INNER JOIN m_loan_repayment_schedule mr on mr.loan_id = ml.id ");
+        sqlBuilder.append("WHERE ml.loan_status_id = 300 and mr.completed_derived is false and mr.duedate < ").append(arrearsCutOff);
+        if (lastRunDate == null) {
+            // first incremental run: refresh every loan that is, or was, in arrears
+            sqlBuilder.append(" union select mla.loan_id from m_loan_arrears_aging mla");
+            return this.jdbcTemplate.queryForList(sqlBuilder.toString(), Long.class);
+        }
+        sqlBuilder.append(" and mr.duedate >= ").append(sqlGenerator.subDate("?", "COALESCE(ml.grace_on_arrears_ageing, 0)", "day"));
+        return this.jdbcTemplate.queryForList(sqlBuilder.toString(), Long.class, lastRunDate);
+    }
+
+    private int refreshLoanArrearsAgeingDetails(final List<Long> loanIds) {
+        final String loanIdsAsString = loanIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        final String loanFilter = " and ml.id IN (" + loanIdsAsString + ") ";
+        this.jdbcTemplate.update("DELETE FROM m_loan_arrears_aging WHERE loan_id IN (" + loanIdsAsString + ")"); // NOSONAR
+
+        final List<String> insertStatements = updateLoanArrearsAgeingDetailsWithOriginalSchedule(loanFilter);
+        insertStatements.add(0, constructArrearsAgeingInsertSelect(loanFilter));
+        int result = 0;
+        for (int i : this.jdbcTemplate.batchUpdate(insertStatements.toArray(new String[0]))) {
+            result += i;
+        }
+        return result;
+    }
+
+    private String constructArrearsAgeingInsertSelect(final String loanFilter) {
         final StringBuilder updateSqlBuilder = new StringBuilder(900);
         final String principalOverdueCalculationSql = "SUM(COALESCE(mr.principal_amount, 0) - coalesce(mr.principal_completed_derived, 0) - coalesce(mr.principal_writtenoff_derived, 0))";
         final String interestOverdueCalculationSql = "SUM(COALESCE(mr.interest_amount, 0) - coalesce(mr.interest_writtenoff_derived, 0) - coalesce(mr.interest_waived_derived, 0) - "
@@ -122,22 +236,14 @@ public class LoanArrearsAgingServiceImpl implements LoanArrearsAgingService {
         updateSqlBuilder.append(" INNER JOIN m_loan_repayment_schedule mr on mr.loan_id = ml.id ");
         updateSqlBuilder.append(" left join m_product_loan_recalculation_details prd on prd.product_id = ml.product_id ");
         updateSqlBuilder.append(" WHERE ml.loan_status_id = 300 "); // active
+        updateSqlBuilder.append(loanFilter);
         updateSqlBuilder.append(" and mr.completed_derived is false ");
         updateSqlBuilder.append(" and mr.duedate < ")
                 .append(sqlGenerator.subDate(sqlGenerator.currentBusinessDate(), "COALESCE(ml.grace_on_arrears_ageing, 0)", "day"))
                 .append(" ");
         updateSqlBuilder.append(" and (prd.arrears_based_on_original_schedule = false or prd.arrears_based_on_original_schedule is null) ");
         updateSqlBuilder.append(" GROUP BY ml.id");
-
-        List<String> insertStatements = updateLoanArrearsAgeingDetailsWithOriginalSchedule();
-        insertStatements.add(0, updateSqlBuilder.toString());
-        final int[] results = this.jdbcTemplate.batchUpdate(insertStatements.toArray(new String[0]));
-        int result = 0;
-        for (int i : results) {
-            result += i;
-        }
-
-        log.info("{}: Records affected by updateLoanArrearsAgeingDetails: {}", ThreadLocalContextUtil.getTenant().getName(), result);
+        return updateSqlBuilder.toString();
     }
 
     @Override
@@ -208,7 +314,7 @@ public class LoanArrearsAgingServiceImpl implements LoanArrearsAgingService {
         return updateSql;
     }
 
-    private List<String> updateLoanArrearsAgeingDetailsWithOriginalSchedule() {
+    private List<String> updateLoanArrearsAgeingDetailsWithOriginalSchedule(final String loanFilter) {
         List<String> insertStatement = new ArrayList<>();
 
         final StringBuilder loanIdentifier = new StringBuilder();
@@ -216,7 +322,8 @@ public class LoanArrearsAgingServiceImpl implements LoanArrearsAgingService {
         loanIdentifier.append("INNER JOIN m_loan_repayment_schedule mr on mr.loan_id = ml.id ");
         loanIdentifier.append(
                 "inner join m_product_loan_recalculation_details prd on prd.product_id = ml.product_id and prd.arrears_based_on_original_schedule = true  ");
-        loanIdentifier.append("WHERE ml.loan_status_id = 300  and mr.completed_derived is false  and mr.duedate < ")
+        loanIdentifier.append("WHERE ml.loan_status_id = 300 ").append(loanFilter);
+        loanIdentifier.append(" and mr.completed_derived is false  and mr.duedate < ")
                 .append(sqlGenerator.subDate(sqlGenerator.currentBusinessDate(), "COALESCE(ml.grace_on_arrears_ageing, 0)", "day"))
                 .append(" group by ml.id");
         List<Long> loanIds = this.jdbcTemplate.queryForList(loanIdentifier.toString(), Long.class);
@@ -479,7 +586,22 @@ public class LoanArrearsAgingServiceImpl implements LoanArrearsAgingService {
         }
     }
 
+    /**
+     * Keeps a single pending row per loan; the mark count tells the incremental job whether the loan was marked again
+     * after it read the row. A single upsert, as two transactions marking a new loan at the same time would both insert
+     * it.
+     */
+    private void markLoanForArrearsAgeing(final Loan loan) {
+        final String sql = this.sqlGenerator.upsert(
+                "insert into m_loan_arrears_aging_pending (loan_id, mark_count, marked_on) values (?, 1, ?)", "loan_id",
+                "mark_count = m_loan_arrears_aging_pending.mark_count + 1, marked_on = " + this.sqlGenerator.insertedValue("marked_on"));
+        this.jdbcTemplate.update(sql, loan.getId(), DateUtils.getLocalDateTimeOfSystem());
+    }
+
     private void handleArrearsForLoan(Loan loan) {
+        if (loan != null) {
+            markLoanForArrearsAgeing(loan);
+        }
         if (loan != null && loan.isOpen() && loan.repaymentScheduleDetail().isInterestRecalculationEnabled()
                 && loan.loanProduct().isArrearsBasedOnOriginalSchedule()) {
             updateLoanArrearsAgeingDetailsWithOriginalSchedule(loan);
@@ -597,6 +719,7 @@ public class LoanArrearsAgingServiceImpl implements LoanArrearsAgingService {
         @Override
         public void onBusinessEvent(LoanDisbursalBusinessEvent event) {
             Loan loan = event.get();
+            markLoanForArrearsAgeing(loan);
             updateLoanArrearsAgeingDetails(loan);
         }
     }
@@ -0,0 +1,34 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.portfolio.loanaccount.service;
+
+/**
+ * Flags loans as non performing assets once they are overdue for longer than their product allows, and clears the flag
+ * again once they are not. The "Update Non Performing Assets" job and the Loan COB step share it, so that both apply
+ * the same rule.
+ */
+public interface LoanNpaUpdateService {
+
+    /**
+     * Updates the flag of every active loan and returns the number of records affected by setting it.
+     */
+    int updateNpa();
+
+    void updateNpa(Long loanId);
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.portfolio.loanaccount.service;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseTypeResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class LoanNpaUpdateServiceImpl implements LoanNpaUpdateService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseSpecificSQLGenerator sqlGenerator;
+    private final DatabaseTypeResolver databaseTypeResolver;
+
+    @Override
+    public int updateNpa() {
+        this.jdbcTemplate.update(resetNpaSql(""));
+        return this.jdbcTemplate.update(setNpaSql(""));
+    }
+
+    @Override
+    public void updateNpa(final Long loanId) {
+        this.jdbcTemplate.update(resetNpaSql(" and loan2.id = ?"), loanId);
+        this.jdbcTemplate.update(setNpaSql(" and loan.id = ?"), loanId);
+    }
+
+    private String resetNpaSql(final String loanFilter) {
+        final StringBuilder resetNPASqlBuilder = new StringBuilder();
+        resetNPASqlBuilder.append("update m_loan loan ");
+        final String fromPart = " (SELECT loan2.* FROM m_loan loan2 left join m_loan_arrears_aging laa on laa.loan_id = loan2.id "
+                + "inner join m_product_loan mpl on mpl.id = loan2.product_id and mpl.overdue_days_for_npa is not null "
+                + "WHERE (loan2.loan_status_id = 300 and mpl.account_moves_out_of_npa_only_on_arrears_completion = false"
+                + " or (mpl.account_moves_out_of_npa_only_on_arrears_completion = true"
+                + " and laa.overdue_since_date_derived is null))" + loanFilter + ") sl";
+        final String wherePart = " where loan.id = sl.id ";
+
+        if (this.databaseTypeResolver.isMySQL()) {
+            resetNPASqlBuilder.append(", ").append(fromPart).append(" set loan.is_npa = false").append(wherePart);
+        } else {
+            resetNPASqlBuilder.append("set is_npa = false").append(" FROM ").append(fromPart).append(wherePart);
+        }
+        return resetNPASqlBuilder.toString();
+    }
+
+    private String setNpaSql(final String loanFilter) {
+        final StringBuilder updateSqlBuilder = new StringBuilder(900);
+
+        final String fromPart = " (select loan.id " + " FROM m_loan_arrears_aging laa"
+                + " INNER JOIN  m_loan loan on laa.loan_id = loan.id "
+                + " INNER JOIN m_product_loan mpl on mpl.id = loan.product_id AND mpl.overdue_days_for_npa is not null "
+                + "WHERE loan.loan_status_id = 300 and " + "laa.overdue_since_date_derived < "
+                + this.sqlGenerator.subDate(this.sqlGenerator.currentBusinessDate(), "COALESCE(mpl.overdue_days_for_npa, 0)", "day")
+                + loanFilter + " group by loan.id) as sl ";
+        final String wherePart = " where ml.id=sl.id ";
+        updateSqlBuilder.append("UPDATE m_loan as ml ");
+        if (this.databaseTypeResolver.isMySQL()) {
+            updateSqlBuilder.append(", ").append(fromPart).append(" SET ml.is_npa = true").append(wherePart);
+        } else {
+            updateSqlBuilder.append(" SET is_npa = true").append(" FROM ").append(fromPart).append(wherePart);
+        }
+        return updateSqlBuilder.toString();
+    }
+}
@@ -135,6 +135,10 @@ public interface LoanReadPlatformService {
 
     Collection<LoanScheduleAccrualData> retrivePeriodicAccrualData(LocalDate tillDate);
 
+    Collection<LoanScheduleAccrualData> retrivePeriodicAccrualData(LocalDate tillDate, Long loanId);
+
+    List<Long> retrieveActiveLoanIds(Long maxLoanIdInList, int pageSize);
+
     Collection<Long> fetchLoansForInterestRecalculation();
 
     List<Long> fetchLoansForInterestRecalculation(Integer pageSize, Long maxLoanIdInList, String officeHierarchy);
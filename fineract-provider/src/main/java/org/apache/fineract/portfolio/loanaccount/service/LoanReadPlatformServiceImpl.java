@@ -1804,24 +1804,18 @@ public class LoanReadPlatformServiceImpl implements LoanReadPlatformService {
                 .append(" join m_charge mc on mc.id = plc.charge_id ")
                 .append(" where " + sqlGenerator.subDate(sqlGenerator.currentBusinessDate(), "?", "day") + " > ls.duedate ")
                 .append(" and ml.id > ? ").append(" and ls.completed_derived <> true and mc.charge_applies_to_enum =1 ")
-                .append(" and ls.recalculated_interest_component <> true ")
-                .append(" and mc.charge_time_enum = 9 and ml.loan_status_id = 300 ").append(" order by ml.id asc limit ? ");
+                .append(" and ls.recalculated_interest_component <> true ").append(" and mc.charge_time_enum = 9 and ml.loan_status_id = 300 ");
 
         if (backdatePenalties) {
-            try {
-                return Collections.synchronizedList(
-                        this.jdbcTemplate.queryForList(sqlBuilder.toString(), Long.class, penaltyWaitPeriod, maxLoanIdInList, pageSize));
-            } catch (final EmptyResultDataAccessException e) {
-                return new ArrayList<Long>();
-            }
-        }
-
-        try {
-            return Collections.synchronizedList(this.jdbcTemplate.queryForList(sqlBuilder.toString(), Long.class, penaltyWaitPeriod,
-                    penaltyWaitPeriod, maxLoanIdInList, pageSize));
-        } catch (final EmptyResultDataAccessException e) {
-            return null;
+            sqlBuilder.append(" order by ml.id asc limit ? ");
+            return this.jdbcTemplate.queryForList(sqlBuilder.toString(), Long.class, penaltyWaitPeriod, maxLoanIdInList, pageSize);
         }
+        // Only apply for duedate = yesterday (so that we don't apply
+        // penalties on the duedate itself)
+        sqlBuilder.append(" and ls.duedate >= " + sqlGenerator.subDate(sqlGenerator.currentBusinessDate(), "(? + 1)", "day"));
+        sqlBuilder.append(" order by ml.id asc limit ? ");
+        return this.jdbcTemplate.queryForList(sqlBuilder.toString(), Long.class, penaltyWaitPeriod, maxLoanIdInList, penaltyWaitPeriod,
+                pageSize);
     }
 
     @Override
@@ -1964,6 +1958,11 @@ public class LoanReadPlatformServiceImpl implements LoanReadPlatformService {
 
     @Override
     public Collection<LoanScheduleAccrualData> retrivePeriodicAccrualData(final LocalDate tillDate) {
+        return retrivePeriodicAccrualData(tillDate, null);
+    }
+
+    @Override
+    public Collection<LoanScheduleAccrualData> retrivePeriodicAccrualData(final LocalDate tillDate, final Long loanId) {
 
         LoanSchedulePeriodicAccrualMapper mapper = new LoanSchedulePeriodicAccrualMapper();
         LocalDate organisationStartDate = this.configurationDomainService.retrieveOrganisationStartDate();
@@ -1975,11 +1974,15 @@ public class LoanReadPlatformServiceImpl implements LoanReadPlatformService {
                 .append(" or (ls.interest_amount <> COALESCE(ls.accrual_interest_derived, 0)))")
                 .append(" and loan.loan_status_id=:active and mpl.accounting_type=:type and (loan.closedon_date <= :tillDate or loan.closedon_date is null)")
                 .append(" and loan.is_npa=false and (ls.duedate <= :tillDate or (ls.duedate > :tillDate and ls.fromdate < :tillDate))) ");
-        Map<String, Object> paramMap = new HashMap<>(4);
+        Map<String, Object> paramMap = new HashMap<>(5);
         if (organisationStartDate != null) {
             sqlBuilder.append(" and ls.duedate > :organisationStartDate ");
             paramMap.put("organisationStartDate", organisationStartDate);
         }
+        if (loanId != null) {
+            sqlBuilder.append(" and loan.id = :loanId ");
+            paramMap.put("loanId", loanId);
+        }
         sqlBuilder.append(" order by loan.id,ls.duedate ");
         paramMap.put("active", LoanStatus.ACTIVE.getValue());
         paramMap.put("type", AccountingRuleType.ACCRUAL_PERIODIC.getValue());
@@ -2135,6 +2138,12 @@ public class LoanReadPlatformServiceImpl implements LoanReadPlatformService {
         return loanTransactionData;
     }
 
+    @Override
+    public List<Long> retrieveActiveLoanIds(final Long maxLoanIdInList, final int pageSize) {
+        final String sql = "select ml.id from m_loan ml where ml.loan_status_id = ? and ml.id > ? order by ml.id asc limit ?";
+        return this.jdbcTemplate.queryForList(sql, Long.class, LoanStatus.ACTIVE.getValue(), maxLoanIdInList, pageSize);
+    }
+
     @Override
     public Collection<Long> fetchLoansForInterestRecalculation() {
         StringBuilder sqlBuilder = new StringBuilder();
@@ -2214,8 +2223,9 @@ public class LoanReadPlatformServiceImpl implements LoanReadPlatformService {
                 .append("(bfrp.id is not null and frp.is_differential_to_base_lending_rate = true and frp.from_date >= bfrp.from_date)) ");
         sqlBuilder.append("and lrr.loan_id is null");
         sqlBuilder.append(" ))");
-        sqlBuilder.append(" and ml.id >= ?  and o.hierarchy like ? ");
+        sqlBuilder.append(" and ml.id > ?  and o.hierarchy like ? ");
         sqlBuilder.append(" group by ml.id ");
+        sqlBuilder.append(" order by ml.id ");
         sqlBuilder.append(" limit ? ");
         try {
             return Collections.synchronizedList(
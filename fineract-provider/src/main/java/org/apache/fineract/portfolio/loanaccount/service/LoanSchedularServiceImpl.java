@@ -20,28 +20,24 @@ package org.apache.fineract.portfolio.loanaccount.service;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.security.SecureRandom;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
-import org.apache.fineract.infrastructure.core.domain.FineractContext;
 import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
 import org.apache.fineract.infrastructure.core.service.DateUtils;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
 import org.apache.fineract.infrastructure.jobs.annotation.CronTarget;
 import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
+import org.apache.fineract.infrastructure.jobs.service.JobItemTimings;
 import org.apache.fineract.infrastructure.jobs.service.JobName;
+import org.apache.fineract.infrastructure.jobs.service.JobRangeCheckpointService;
+import org.apache.fineract.infrastructure.jobs.service.JobRunMetricsHolder;
+import org.apache.fineract.infrastructure.jobs.service.JobWorkerPool;
+import org.apache.fineract.infrastructure.jobs.service.KeysetPartitionedJobPipeline;
 import org.apache.fineract.infrastructure.security.service.PlatformSecurityContext;
 import org.apache.fineract.notification.service.ActiveMqNotificationDomainServiceImpl;
 import org.apache.fineract.organisation.office.data.OfficeData;
@@ -81,7 +77,7 @@ public class LoanSchedularServiceImpl implements LoanSchedularService {
 
     private static final SecureRandom RANDOM = new SecureRandom();
 
-    private final int queueSize = 1;
+    private static final int SLOWEST_LOANS_REPORTED = 20;
 
     private final ConfigurationDomainService configurationDomainService;
     private final LoanReadPlatformService loanReadPlatformService;
@@ -95,153 +91,43 @@ public class LoanSchedularServiceImpl implements LoanSchedularService {
     private final LoanOverdueReminderRepository loanOverdueReminderRepository;
     private final PlatformSecurityContext context;
     private final FromJsonHelper fromApiJsonHelper;
+    private final JobWorkerPool jobWorkerPool;
+    private final JobRangeCheckpointService jobRangeCheckpointService;
     @Autowired
     private ActiveMqNotificationDomainServiceImpl activeMqNotificationDomainService;
     @Autowired
     private Environment env;
 
+    /**
+     * Overdue loan ids are read by keyset pagination and handed to the workers of the shared {@link JobWorkerPool} in
+     * ranges of {@code batch-size} loans through {@link KeysetPartitionedJobPipeline}, so reading and applying charges
+     * overlap without a barrier between pages. Each range reads the overdue installments of its loans at once, and the
+     * charges of every loan are applied in a transaction of their own. Committed ranges are checkpointed, so a re-run on
+     * the same business date resumes after them.
+     */
     @Override
     @CronTarget(jobName = JobName.APPLY_CHARGE_TO_OVERDUE_LOAN_INSTALLMENT)
     public void applyChargeForOverdueLoans(Map<String, String> jobParameters) throws JobExecutionException {
-
-        final Queue<List<Long>> queue = new ArrayDeque<>();
-        final ApplicationContext applicationContext;
         final int threadPoolSize = Integer.parseInt(jobParameters.get("thread-pool-size"));
         final int batchSize = Integer.parseInt(jobParameters.get("batch-size"));
-        final int pageSize = batchSize * threadPoolSize;
-        Long maxLoanIdInList = 0L;
+        final int queueCapacity = jobParameters.containsKey("queue-capacity") ? Integer.parseInt(jobParameters.get("queue-capacity"))
+                : threadPoolSize * 2;
         final Long penaltyWaitPeriodValue = this.configurationDomainService.retrievePenaltyWaitPeriod();
         final Boolean backdatePenalties = this.configurationDomainService.isBackdatePenaltiesEnabled();
-        final List<Long> overdueLoanIds = this.loanReadPlatformService.retrieveAllLoanIdsWithOverdueInstallments(penaltyWaitPeriodValue,
-                backdatePenalties, maxLoanIdInList, pageSize);
-
-        final ExecutorService executorService = Executors.newFixedThreadPool(threadPoolSize);
-
-        if (overdueLoanIds != null && !overdueLoanIds.isEmpty()) {
-            queue.add(overdueLoanIds.stream().toList());
-            if (!CollectionUtils.isEmpty(queue)) {
-                do {
-                    int totalFilteredRecords = overdueLoanIds.size();
-                    LOG.info("Starting Apply penalty to overdue loans- total records - {}", totalFilteredRecords);
-                    List<Long> queueElement = queue.element();
-                    maxLoanIdInList = queueElement.get(queueElement.size() - 1);
-                    applyChargeForOverdueLoans(queue.remove(), queue, threadPoolSize, executorService, pageSize, maxLoanIdInList,
-                            penaltyWaitPeriodValue, backdatePenalties);
-                } while (!CollectionUtils.isEmpty(queue));
-            }
-            // shutdown the executor when done
-            executorService.shutdownNow();
-        }
-    }
-
-    private void applyChargeForOverdueLoans(List<Long> overdueLoanIds, Queue<List<Long>> queue, int threadPoolSize,
-            ExecutorService executorService, int pageSize, Long maxLoanIdInList, Long penaltyWaitPeriodValue, Boolean backdatePenalties) {
-        List<Callable<Void>> posters = new ArrayList<>();
-        int fromIndex = 0;
-        int size = overdueLoanIds.size();
-        int batchSize = (int) Math.ceil((double) size / threadPoolSize);
-        if (batchSize == 0) {
-            return;
-        }
-        int toIndex = (batchSize > size - 1) ? size : batchSize;
-        while (toIndex < size && overdueLoanIds.get(toIndex - 1).equals(overdueLoanIds.get(toIndex))) {
-            toIndex++;
-        }
-        boolean lastBatch = false;
-        int loopCount = size / batchSize + 1;
-
-        FineractContext context = ThreadLocalContextUtil.getContext();
-
-        Callable<Void> fetchData = () -> {
-            ThreadLocalContextUtil.init(context);
-            Long maxId = maxLoanIdInList;
-            if (!queue.isEmpty()) {
-                maxId = Math.max(maxLoanIdInList, queue.element().get(queue.element().size() - 1));
-            }
-            while (queue.size() <= queueSize) {
-                LOG.info("Fetching while threads are running!");
-                List<Long> loanIds = this.loanReadPlatformService.retrieveAllLoanIdsWithOverdueInstallments(penaltyWaitPeriodValue,
-                        backdatePenalties, maxId, pageSize);
-
-                if (loanIds.isEmpty()) {
-                    break;
-                }
-                maxId = loanIds.get(loanIds.size() - 1);
-                queue.add(loanIds);
-            }
-            return null;
-        };
-        posters.add(fetchData);
-
-        for (long i = 0; i < loopCount; i++) {
-            List<Long> subList = safeSubList(overdueLoanIds, fromIndex, toIndex);
-            ApplyChargeToOverdueLoansPoster poster = (ApplyChargeToOverdueLoansPoster) applicationContext
-                    .getBean("applyChargeToOverdueLoansPoster");
-            poster.setLoanIds(subList);
-            poster.setLoanWritePlatformService(loanWritePlatformService);
-            poster.setLoanReadPlatformService(loanReadPlatformService);
-            poster.setConfigurationDomainService(configurationDomainService);
-            poster.setContext(ThreadLocalContextUtil.getContext());
-
-            posters.add(poster);
-            if (lastBatch) {
-                break;
-            }
-            if (toIndex + batchSize > size - 1) {
-                lastBatch = true;
-            }
-            fromIndex = fromIndex + (toIndex - fromIndex);
-            toIndex = (toIndex + batchSize > size - 1) ? size : toIndex + batchSize;
-            while (toIndex < size && overdueLoanIds.get(toIndex - 1).equals(overdueLoanIds.get(toIndex))) {
-                toIndex++;
-            }
-        }
-        try {
-            List<Future<Void>> responses = executorService.invokeAll(posters);
-            Long maxId = maxLoanIdInList;
-            if (!queue.isEmpty()) {
-                maxId = Math.max(maxLoanIdInList, queue.element().get(queue.element().size() - 1));
-            }
-            while (queue.size() <= queueSize) {
-                LOG.info("Fetching while threads are running!..:: this is not supposed to run........");
-                overdueLoanIds = this.loanReadPlatformService.retrieveAllLoanIdsWithOverdueInstallments(penaltyWaitPeriodValue,
-                        backdatePenalties, maxId, pageSize);
-
-                if (overdueLoanIds.isEmpty()) {
-                    break;
-                }
-                maxId = overdueLoanIds.get(overdueLoanIds.size() - 1);
-                LOG.info("Add to the Queue");
-                queue.add(overdueLoanIds);
-            }
-            checkTaskCompletion(responses);
-            LOG.info("Queue size {}", queue.size());
-        } catch (InterruptedException e1) {
-            LOG.error("Interrupted while AddPenalty", e1);
-        }
-    }
 
-    private void checkTaskCompletion(List<Future<Void>> responses) {
-        try {
-            for (Future<Void> f : responses) {
-                f.get();
-            }
-            boolean allThreadsExecuted;
-            int noOfThreadsExecuted = 0;
-            for (Future<Void> future : responses) {
-                if (future.isDone()) {
-                    noOfThreadsExecuted++;
-                }
-            }
-            allThreadsExecuted = noOfThreadsExecuted == responses.size();
-            if (!allThreadsExecuted) {
-                LOG.error("All threads could not execute.");
-            }
-        } catch (InterruptedException e1) {
-            LOG.error("Interrupted while interest posting entries", e1);
-        } catch (ExecutionException e2) {
-            LOG.error("Execution exception while interest posting entries", e2);
-        }
+        new KeysetPartitionedJobPipeline(JobName.APPLY_CHARGE_TO_OVERDUE_LOAN_INSTALLMENT.name(), threadPoolSize, batchSize,
+                queueCapacity, (maxLoanIdInList, pageSize) -> this.loanReadPlatformService
+                        .retrieveAllLoanIdsWithOverdueInstallments(penaltyWaitPeriodValue, backdatePenalties, maxLoanIdInList, pageSize),
+                loanIds -> {
+                    ApplyChargeToOverdueLoansPoster poster = (ApplyChargeToOverdueLoansPoster) this.applicationContext
+                            .getBean("applyChargeToOverdueLoansPoster");
+                    poster.setLoanIds(loanIds);
+                    poster.setLoanWritePlatformService(loanWritePlatformService);
+                    poster.setLoanReadPlatformService(loanReadPlatformService);
+                    poster.setConfigurationDomainService(configurationDomainService);
+                    poster.setContext(ThreadLocalContextUtil.getContext());
+                    poster.call();
+                }, this.jobWorkerPool, this.jobRangeCheckpointService).run();
     }
 
     @Override
@@ -301,7 +187,7 @@ public class LoanSchedularServiceImpl implements LoanSchedularService {
 
     @Override
     @CronTarget(jobName = JobName.RECALCULATE_INTEREST_FOR_LOAN)
-    public void recalculateInterest(Map<String, String> jobParameters) {
+    public void recalculateInterest(Map<String, String> jobParameters) throws JobExecutionException {
         // gets the officeId
         final String officeId = jobParameters.get("officeId");
         log.info("recalculateInterest: officeId={}", officeId);
@@ -318,116 +204,35 @@ public class LoanSchedularServiceImpl implements LoanSchedularService {
         recalculateInterest(office, threadPoolSize, batchSize);
     }
 
-    private void recalculateInterest(OfficeData office, int threadPoolSize, int batchSize) {
-        final int pageSize = batchSize * threadPoolSize;
-
-        // initialise the executor service with fetched configurations
-        final ExecutorService executorService = Executors.newFixedThreadPool(threadPoolSize);
-
-        Long maxLoanIdInList = 0L;
+    /**
+     * Loans are handed to the workers of the shared {@link JobWorkerPool} in ranges of {@code batchSize}, and a worker
+     * takes the next range as soon as it is done with its current one, so a loan with a pathological schedule only holds
+     * up its own (small) range rather than a fixed share of the page. The time spent on every loan is recorded and the
+     * slowest loans of the run are reported in the job run history.
+     */
+    private void recalculateInterest(OfficeData office, int threadPoolSize, int batchSize) throws JobExecutionException {
         final String officeHierarchy = office.getHierarchy() + "%";
+        final JobItemTimings loanTimings = new JobItemTimings(SLOWEST_LOANS_REPORTED);
 
-        // get the loanIds from service
-        List<Long> loanIds = Collections.synchronizedList(
-                this.loanReadPlatformService.fetchLoansForInterestRecalculation(pageSize, maxLoanIdInList, officeHierarchy));
-
-        // gets the loanIds data set iteratively and call addAccuruals for that
-        // paginated dataset
-        do {
-            int totalFilteredRecords = loanIds.size();
-            log.info("Starting accrual - total filtered records - {}", totalFilteredRecords);
-            recalculateInterest(loanIds, threadPoolSize, batchSize, executorService);
-            maxLoanIdInList += pageSize + 1;
-            loanIds = Collections.synchronizedList(
-                    this.loanReadPlatformService.fetchLoansForInterestRecalculation(pageSize, maxLoanIdInList, officeHierarchy));
-        } while (!CollectionUtils.isEmpty(loanIds));
-
-        // shutdown the executor when done
-        executorService.shutdownNow();
-    }
-
-    private void recalculateInterest(List<Long> loanIds, int threadPoolSize, int batchSize, final ExecutorService executorService) {
-
-        List<Callable<Void>> posters = new ArrayList<>();
-        int fromIndex = 0;
-        // get the size of current paginated dataset
-        int size = loanIds.size();
-        // calculate the batch size
-        double toGetCeilValue = size / threadPoolSize;
-        batchSize = (int) Math.ceil(toGetCeilValue);
-
-        if (batchSize == 0) {
-            return;
-        }
-
-        int toIndex = (batchSize > size - 1) ? size : batchSize;
-        while (toIndex < size && loanIds.get(toIndex - 1).equals(loanIds.get(toIndex))) {
-            toIndex++;
-        }
-        boolean lastBatch = false;
-        int loopCount = size / batchSize + 1;
-
-        for (long i = 0; i < loopCount; i++) {
-            List<Long> subList = safeSubList(loanIds, fromIndex, toIndex);
-            RecalculateInterestPoster poster = (RecalculateInterestPoster) this.applicationContext.getBean("recalculateInterestPoster");
-            poster.setLoanIds(subList);
-            poster.setLoanWritePlatformService(loanWritePlatformService);
-            posters.add(poster);
-            if (lastBatch) {
-                break;
-            }
-            if (toIndex + batchSize > size - 1) {
-                lastBatch = true;
-            }
-            fromIndex = fromIndex + (toIndex - fromIndex);
-            toIndex = (toIndex + batchSize > size - 1) ? size : toIndex + batchSize;
-            while (toIndex < size && loanIds.get(toIndex - 1).equals(loanIds.get(toIndex))) {
-                toIndex++;
-            }
-        }
-
-        try {
-            List<Future<Void>> responses = executorService.invokeAll(posters);
-            checkCompletion(responses);
-        } catch (InterruptedException e1) {
-            log.error("Interrupted while recalculateInterest", e1);
-        }
-    }
-
-    // break the lists into sub lists
-    private <T> List<T> safeSubList(List<T> list, int fromIndex, int toIndex) {
-        int size = list.size();
-        if (fromIndex >= size || toIndex <= 0 || fromIndex >= toIndex) {
-            return Collections.emptyList();
-        }
-
-        fromIndex = Math.max(0, fromIndex);
-        toIndex = Math.min(size, toIndex);
-
-        return list.subList(fromIndex, toIndex);
-    }
-
-    // checks the execution of task by each thread in the executor service
-    private void checkCompletion(List<Future<Void>> responses) {
         try {
-            for (Future<Void> f : responses) {
-                f.get();
-            }
-            boolean allThreadsExecuted = false;
-            int noOfThreadsExecuted = 0;
-            for (Future<Void> future : responses) {
-                if (future.isDone()) {
-                    noOfThreadsExecuted++;
-                }
-            }
-            allThreadsExecuted = noOfThreadsExecuted == responses.size();
-            if (!allThreadsExecuted) {
-                log.error("All threads could not execute.");
+            // checkpoints are kept per office, as the office hierarchy filters the loan ids of a run
+            new KeysetPartitionedJobPipeline(JobName.RECALCULATE_INTEREST_FOR_LOAN.name() + "_" + office.getId(), threadPoolSize,
+                    batchSize, threadPoolSize * 2,
+                    (maxLoanIdInList, pageSize) -> this.loanReadPlatformService.fetchLoansForInterestRecalculation(pageSize,
+                            maxLoanIdInList, officeHierarchy),
+                    loanIds -> {
+                        RecalculateInterestPoster poster = (RecalculateInterestPoster) this.applicationContext
+                                .getBean("recalculateInterestPoster");
+                        poster.setLoanIds(loanIds);
+                        poster.setLoanWritePlatformService(loanWritePlatformService);
+                        poster.setLoanTimings(loanTimings);
+                        poster.call();
+                    }, this.jobWorkerPool, this.jobRangeCheckpointService).run();
+        } finally {
+            final Map<String, Object> runMetrics = JobRunMetricsHolder.getRunMetrics();
+            if (runMetrics != null) {
+                runMetrics.put("loanTimings", loanTimings.toMetrics());
             }
-        } catch (InterruptedException e1) {
-            log.error("Interrupted while posting IR entries", e1);
-        } catch (ExecutionException e2) {
-            log.error("Execution exception while posting IR entries", e2);
         }
     }
 
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
 import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
+import org.apache.fineract.infrastructure.jobs.service.JobItemTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
@@ -42,6 +43,7 @@ public class RecalculateInterestPoster implements Callable<Void> {
 
     private Collection<Long> loanIds;
     private LoanWritePlatformService loanWritePlatformService;
+    private JobItemTimings loanTimings;
 
     public void setLoanIds(final Collection<Long> loanIds) {
         this.loanIds = loanIds;
@@ -51,6 +53,10 @@ public class RecalculateInterestPoster implements Callable<Void> {
         this.loanWritePlatformService = loanWritePlatformService;
     }
 
+    public void setLoanTimings(final JobItemTimings loanTimings) {
+        this.loanTimings = loanTimings;
+    }
+
     @Override
     @SuppressFBWarnings(value = {
             "DMI_RANDOM_USED_ONLY_ONCE" }, justification = "False positive for random object created and used only once")
@@ -63,6 +69,7 @@ public class RecalculateInterestPoster implements Callable<Void> {
             List<Throwable> errors = new ArrayList<>();
             for (Long loanId : loanIds) {
                 LOG.info("Loan ID {}", loanId);
+                final long startNanos = System.nanoTime();
                 Integer numberOfRetries = 0;
                 while (numberOfRetries <= maxNumberOfRetries) {
                     try {
@@ -96,6 +103,9 @@ public class RecalculateInterestPoster implements Callable<Void> {
                     }
                     i++;
                 }
+                if (this.loanTimings != null) {
+                    this.loanTimings.record(loanId, System.nanoTime() - startNanos);
+                }
                 LOG.info("Loans count {}", i);
             }
             if (!errors.isEmpty()) {
@@ -79,6 +79,8 @@ public interface SavingsAccountReadPlatformService {
 
     List<Long> retrieveActiveOverdraftSavingAccounts();
 
+    List<Long> retrieveActiveSavingAccountsForInterestPosting(Long maxSavingsAccountId, int pageSize);
+
     RecurringMissedTargetData findRecurringDepositAccountWithMissedTarget(Long savingsAccountId);
 
     Collection<SavingsAccountTransactionData> retrieveSavingsTransactions(final String filterConstraintJson, final Integer limit,
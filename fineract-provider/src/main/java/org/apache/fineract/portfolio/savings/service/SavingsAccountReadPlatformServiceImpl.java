@@ -712,6 +712,17 @@ public class SavingsAccountReadPlatformServiceImpl implements SavingsAccountRead
         return this.jdbcTemplate.queryForList(sql, Long.class, true);
     }
 
+    @Override
+    public List<Long> retrieveActiveSavingAccountsForInterestPosting(Long maxSavingsAccountId, int pageSize) {
+        // the accounts of retrieveActiveSavingAccountsWithZeroInterest and retrieveActiveOverdraftSavingAccounts, each only once
+        StringBuilder sql = new StringBuilder(" SELECT msa.id ");
+        sql.append(" FROM m_savings_account msa ");
+        sql.append(" WHERE msa.status_enum = 300 AND msa.deposit_type_enum != 200 ");
+        sql.append(" and (msa.nominal_annual_interest_rate != 0 or msa.allow_overdraft = true or msa.account_balance_derived <= 0) ");
+        sql.append(" and msa.id > ? order by msa.id asc limit ? ");
+        return this.jdbcTemplate.queryForList(sql.toString(), Long.class, maxSavingsAccountId, pageSize);
+    }
+
     @Override
     public RecurringMissedTargetData findRecurringDepositAccountWithMissedTarget(Long savingsAccountId) {
         RecurringMissedTargetData result = null;
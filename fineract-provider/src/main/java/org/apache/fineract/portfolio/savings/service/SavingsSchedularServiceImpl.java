@@ -21,42 +21,39 @@ package org.apache.fineract.portfolio.savings.service;
 import static org.apache.fineract.portfolio.savings.domain.SavingsAccountStatusType.ACTIVE;
 
 import java.time.LocalDate;
-import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.fineract.accounting.journalentry.exception.JournalEntryInvalidException;
 import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
-import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
-import org.apache.fineract.infrastructure.core.exception.ExceptionHelper;
 import org.apache.fineract.infrastructure.core.service.DateUtils;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
 import org.apache.fineract.infrastructure.jobs.annotation.CronTarget;
 import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
-import org.apache.fineract.infrastructure.jobs.service.JobExecuter;
+import org.apache.fineract.infrastructure.jobs.exception.JobRangeFailureException;
 import org.apache.fineract.infrastructure.jobs.service.JobName;
-import org.apache.fineract.infrastructure.jobs.service.JobRunner;
+import org.apache.fineract.infrastructure.jobs.service.JobRangeCheckpointService;
+import org.apache.fineract.infrastructure.jobs.service.JobRunMetricsHolder;
+import org.apache.fineract.infrastructure.jobs.service.JobWorkerPool;
+import org.apache.fineract.infrastructure.jobs.service.KeysetPartitionedJobPipeline;
 import org.apache.fineract.portfolio.client.domain.Client;
 import org.apache.fineract.portfolio.client.exception.ClientNotActiveException;
 import org.apache.fineract.portfolio.group.domain.Group;
 import org.apache.fineract.portfolio.group.exception.GroupNotActiveException;
-import org.apache.fineract.portfolio.savings.data.SavingsAccountData;
 import org.apache.fineract.portfolio.savings.domain.SavingsAccount;
 import org.apache.fineract.portfolio.savings.domain.SavingsAccountAssembler;
 import org.apache.fineract.portfolio.savings.domain.SavingsAccountRepositoryWrapper;
 import org.apache.fineract.portfolio.savings.domain.SavingsProduct;
 import org.apache.fineract.portfolio.savings.domain.SavingsProductRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
 
@@ -73,13 +70,11 @@ public class SavingsSchedularServiceImpl implements SavingsSchedularService {
     private final ConfigurationDomainService configurationDomainService;
     private final JdbcTemplate jdbcTemplate;
     private final TransactionTemplate transactionTemplate;
-    private Queue<List<SavingsAccountData>> queue = new ArrayDeque<>();
     private final SavingsAccountRepositoryWrapper savingAccountRepositoryWrapper;
 
     private final SavingsProductRepository savingsProductRepository;
-    private final JobExecuter jobExecuter;
-
-    private static final Logger logger = LoggerFactory.getLogger(SavingsSchedularServiceImpl.class);
+    private final JobWorkerPool jobWorkerPool;
+    private final JobRangeCheckpointService jobRangeCheckpointService;
 
     @Override
     @CronTarget(jobName = JobName.UPDATE_SAVINGS_DORMANT_ACCOUNTS)
@@ -132,134 +127,104 @@ public class SavingsSchedularServiceImpl implements SavingsSchedularService {
         }
     }
 
+    /**
+     * Savings accounts due for interest posting are read by keyset pagination and handed to the workers of the shared
+     * {@link JobWorkerPool} in ranges of {@code batch-size} accounts through {@link KeysetPartitionedJobPipeline}. Every
+     * account is loaded and posted in a transaction of its own and retried after a random back-off when it loses a lock.
+     * The outcome of every account is counted by {@link InterestPostingProgress}, whose totals are added to the run
+     * metrics of the job.
+     */
     @Override
     @CronTarget(jobName = JobName.POST_INTEREST_FOR_SAVINGS)
     public void postInterestForAccountsThreaded(Map<String, String> jobParameters) throws JobExecutionException {
+        final int threadPoolSize = Integer.parseInt(jobParameters.getOrDefault("thread-pool-size", "1"));
+        final int batchSize = Integer.parseInt(jobParameters.getOrDefault("batch-size", "100"));
+        final int queueCapacity = jobParameters.containsKey("queue-capacity") ? Integer.parseInt(jobParameters.get("queue-capacity"))
+                : threadPoolSize * 2;
+        final LocalDate jobRunDate = DateUtils.getLocalDateOfTenant();
+        final int maxNumberOfRetries = ThreadLocalContextUtil.getTenant().getConnection().getMaxRetriesOnDeadlock();
+        final int maxIntervalBetweenRetries = ThreadLocalContextUtil.getTenant().getConnection().getMaxIntervalBetweenRetries();
+        final InterestPostingProgress progress = new InterestPostingProgress();
 
         try {
-            Thread nonInterestRecalculationThread = new Thread(new SavingsInterestRunnable());
-            nonInterestRecalculationThread.start();
-            nonInterestRecalculationThread.join();
-        } catch (InterruptedException e) {
-            logger.error("Thread Interrupted for Post  : " + e.getMessage());
-        }
-    }
-
-    private class SavingsInterestRunnable implements Runnable {
-
-        final FineractPlatformTenant tenant;
-        final Authentication auth;
-        final Map<String, Object> jobParams;
-        final LocalDate jobRunDate;
-
-        public SavingsInterestRunnable() {
-            this.tenant = ThreadLocalContextUtil.getTenant();
-            if (SecurityContextHolder.getContext() == null) {
-                this.auth = null;
-            } else {
-                this.auth = SecurityContextHolder.getContext().getAuthentication();
-            }
-
-            this.jobParams = ThreadLocalContextUtil.getJobParams();
-            this.jobRunDate = DateUtils.getLocalDateOfTenant();
-        }
-
-        @Override
-        public void run() {
-            ThreadLocalContextUtil.setTenant(tenant);
-            ThreadLocalContextUtil.setJobParams(jobParams);
-            if (this.auth != null) {
-                SecurityContextHolder.getContext().setAuthentication(this.auth);
+            new KeysetPartitionedJobPipeline(JobName.POST_INTEREST_FOR_SAVINGS.name(), threadPoolSize, batchSize, queueCapacity,
+                    this.savingAccountReadPlatformService::retrieveActiveSavingAccountsForInterestPosting,
+                    savingIds -> postInterest(savingIds, maxNumberOfRetries, maxIntervalBetweenRetries, jobRunDate, progress),
+                    this.jobWorkerPool, this.jobRangeCheckpointService).run();
+        } finally {
+            final Map<String, Object> runMetrics = JobRunMetricsHolder.getRunMetrics();
+            if (runMetrics != null) {
+                runMetrics.put("interestPosting", progress.toMetrics());
             }
-            final List<Long> activeSavingsAccounts = savingAccountReadPlatformService.retrieveActiveSavingAccountsWithZeroInterest();
-            activeSavingsAccounts.addAll(savingAccountReadPlatformService.retrieveActiveOverdraftSavingAccounts());
-            JobRunner<List<Long>> runner = new SavingsInterestJobRunner(jobRunDate);
-            jobExecuter.executeJob(activeSavingsAccounts, runner);
         }
     }
 
-    private class SavingsInterestJobRunner implements JobRunner<List<Long>> {
-
-        final Integer maxNumberOfRetries;
-        final Integer maxIntervalBetweenRetries;
-        final LocalDate jobRunDate;
-
-        public SavingsInterestJobRunner(final LocalDate jobRunDate) {
-            this.jobRunDate = jobRunDate;
-            maxNumberOfRetries = ThreadLocalContextUtil.getTenant().getConnection().getMaxRetriesOnDeadlock();
-            maxIntervalBetweenRetries = ThreadLocalContextUtil.getTenant().getConnection().getMaxIntervalBetweenRetries();
-        }
-
-        @Override
-        public void runJob(final List<Long> savingIds, StringBuilder sb) {
-            postInterest(sb, this.maxNumberOfRetries, this.maxIntervalBetweenRetries, savingIds, this.jobRunDate);
-        }
-
-    }
-
-    private void postInterest(final StringBuilder sb, Integer maxNumberOfRetries, Integer maxIntervalBetweenRetries, List<Long> savingIds,
-            LocalDate jobRunDate) {
-        final String errorMessage = "Post Interest failed for account:";
-
-        for (Long savingAccountId : savingIds) {
-            if (savingAccountId == 0) {
-                continue;
-            }
-            logger.info("Interest Saving ID " + savingAccountId + " which is " + savingIds.indexOf(savingAccountId) + " of "
-                    + savingIds.size());
-            Integer numberOfRetries = 0;
-            String savingsAccountNumber = "";
-            while (numberOfRetries <= maxNumberOfRetries) {
+    private void postInterest(final List<Long> savingIds, final int maxNumberOfRetries, final int maxIntervalBetweenRetries,
+            final LocalDate jobRunDate, final InterestPostingProgress progress) throws JobExecutionException {
+        final List<Throwable> errors = new ArrayList<>();
+        final List<Long> failedSavingIds = new ArrayList<>();
+        for (int i = 0; i < savingIds.size(); i++) {
+            final Long savingAccountId = savingIds.get(i);
+            log.debug("Posting interest for savings account {}", savingAccountId);
+            int numberOfRetries = 0;
+            while (true) {
                 try {
-                    final SavingsAccount savingAccount = this.savingAccountAssembler.assembleFrom(savingAccountId);
-                    savingsAccountNumber = savingAccount.getAccountNumber();
-                    checkClientOrGroupActive(savingAccount);
-                    if (!savingAccount.isPostOverdraftInterestOnDeposit()) {
-                        this.savingsAccountWritePlatformService.postInterest(savingAccount, false, jobRunDate);
-                    }
-                    numberOfRetries = maxNumberOfRetries + 1;
+                    final Boolean posted = this.transactionTemplate.execute(status -> postInterest(savingAccountId, jobRunDate));
+                    progress.recordDone(Boolean.TRUE.equals(posted));
+                    break;
+                } catch (ClientNotActiveException | GroupNotActiveException e) {
+                    log.debug("Interest not posted for savings account {}: {}", savingAccountId, e.getDefaultUserMessage());
+                    progress.recordDone(false);
+                    break;
                 } catch (CannotAcquireLockException | ObjectOptimisticLockingFailureException exception) {
-                    logger.info("Recalulate interest job has been retried  " + numberOfRetries + " time(s)");
-                    /***
-                     * Fail if the transaction has been retired for maxNumberOfRetries
-                     **/
                     if (numberOfRetries >= maxNumberOfRetries) {
-                        logger.warn("Post interest job has been retried for the max allowed attempts of " + numberOfRetries
-                                + " and will be rolled back. ");
-                        sb.append("Post interest job has been retried for the max allowed attempts of " + numberOfRetries
-                                + " and will be rolled back. ");
+                        log.warn("Post interest for savings account {} has been retried for the max allowed attempts of {}",
+                                savingAccountId, numberOfRetries);
+                        errors.add(exception);
+                        failedSavingIds.add(savingAccountId);
+                        progress.recordFailed();
                         break;
                     }
-                    /***
-                     * Else sleep for a random time (between 1 to 10 seconds) and continue
-                     **/
+                    numberOfRetries++;
+                    progress.recordRetry();
+                    log.info("Post interest for savings account {} is retried for the {}. time", savingAccountId, numberOfRetries);
                     try {
-                        Random random = new Random();
-                        int randomNum = random.nextInt(maxIntervalBetweenRetries + 1);
-                        Thread.sleep(1000 + (randomNum * 1000));
-                        numberOfRetries = numberOfRetries + 1;
+                        // sleep for a random time (between 1 and 1 + maxIntervalBetweenRetries seconds) before retrying
+                        Thread.sleep(1000L + ThreadLocalRandom.current().nextInt(maxIntervalBetweenRetries + 1) * 1000L);
                     } catch (InterruptedException e) {
-                        sb.append("Post interest for savings failed " + exception.getMessage());
-                        break;
+                        Thread.currentThread().interrupt();
+                        errors.add(e);
+                        failedSavingIds.addAll(savingIds.subList(i, savingIds.size()));
+                        throw new JobRangeFailureException(failedSavingIds, errors);
                     }
-                } catch (Exception e) {
-                    if (e instanceof JournalEntryInvalidException) {
-                        Throwable realCause = e;
-                        if (e.getCause() != null) {
-                            realCause = e.getCause();
-                        }
-                        String message = realCause.getMessage();
-                        if (message == null && realCause instanceof JournalEntryInvalidException) {
-                            message = ((JournalEntryInvalidException) realCause).getDefaultUserMessage();
-                        }
-                        sb.append(" Failed to post interest for Savings with id " + savingsAccountNumber + " with message " + message);
-                    } else {
-                        ExceptionHelper.handleExceptions(e, sb, errorMessage, savingAccountId, logger);
-                    }
-                    numberOfRetries = maxNumberOfRetries + 1;
+                } catch (JournalEntryInvalidException e) {
+                    log.error("Failed to post interest for savings account {}: {}", savingAccountId, e.getDefaultUserMessage());
+                    errors.add(e);
+                    failedSavingIds.add(savingAccountId);
+                    progress.recordFailed();
+                    break;
+                } catch (RuntimeException e) {
+                    log.error("Failed to post interest for savings account {}", savingAccountId, e);
+                    errors.add(e);
+                    failedSavingIds.add(savingAccountId);
+                    progress.recordFailed();
+                    break;
                 }
             }
         }
+        if (!errors.isEmpty()) {
+            throw new JobRangeFailureException(failedSavingIds, errors);
+        }
+    }
+
+    private boolean postInterest(final Long savingAccountId, final LocalDate jobRunDate) {
+        final SavingsAccount savingAccount = this.savingAccountAssembler.assembleFrom(savingAccountId);
+        checkClientOrGroupActive(savingAccount);
+        if (savingAccount.isPostOverdraftInterestOnDeposit()) {
+            return false;
+        }
+        this.savingsAccountWritePlatformService.postInterest(savingAccount, false, jobRunDate);
+        return true;
     }
 
     private void checkClientOrGroupActive(final SavingsAccount account) {
@@ -276,4 +241,36 @@ public class SavingsSchedularServiceImpl implements SavingsSchedularService {
             }
         }
     }
+
+    /**
+     * Lock-free counters for the accounts handled by a run of the interest posting job, updated by all partitions.
+     */
+    private static final class InterestPostingProgress {
+
+        private final LongAdder posted = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+
+        void recordDone(final boolean interestPosted) {
+            (interestPosted ? this.posted : this.skipped).increment();
+        }
+
+        void recordFailed() {
+            this.failed.increment();
+        }
+
+        void recordRetry() {
+            this.retries.increment();
+        }
+
+        Map<String, Object> toMetrics() {
+            final Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("posted", this.posted.sum());
+            metrics.put("skipped", this.skipped.sum());
+            metrics.put("failed", this.failed.sum());
+            metrics.put("lockRetries", this.retries.sum());
+            return metrics;
+        }
+    }
 }
@@ -55,7 +55,7 @@ public class ValidationLimitReadPlatformServiceImpl implements ValidationLimitRe
     }
 
     @Override
-    @Cacheable(value = "ValidationLimit", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('ch')")
+    @Cacheable(value = "validationLimit", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('ch')")
     public Collection<ValidationLimitData> retrieveAllValidationLimits() {
         final ValidationLimitMapper rm = new ValidationLimitMapper();
         String sql = "select " + rm.validationLimitSchema() + " order by cvclientlevel.order_position";
@@ -103,7 +103,7 @@ public class ValidationLimitWritePlatformServiceJpaRepositoryImpl implements Val
 
     @Transactional
     @Override
-    @CacheEvict(value = "validationlimit", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('ch')")
+    @CacheEvict(value = "validationLimit", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat('ch')")
     public CommandProcessingResult updateValidationLimit(final Long validationLimitId, final JsonCommand command) {
 
         try {
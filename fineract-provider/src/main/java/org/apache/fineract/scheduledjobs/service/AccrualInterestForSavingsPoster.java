@@ -27,7 +27,7 @@ import org.apache.fineract.infrastructure.core.domain.FineractContext;
 import org.apache.fineract.infrastructure.core.service.DateUtils;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
 import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
-import org.apache.fineract.portfolio.loanaccount.service.ApplyChargeToOverdueLoansPoster;
+import org.apache.fineract.infrastructure.jobs.exception.JobRangeFailureException;
 import org.apache.fineract.portfolio.savings.service.SavingsAccountWritePlatformService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,7 +40,7 @@ import org.springframework.stereotype.Component;
 @Scope("prototype")
 public class AccrualInterestForSavingsPoster implements Callable<Void> {
 
-    private static final Logger LOG = LoggerFactory.getLogger(ApplyChargeToOverdueLoansPoster.class);
+    private static final Logger LOG = LoggerFactory.getLogger(AccrualInterestForSavingsPoster.class);
     private static final SecureRandom random = new SecureRandom();
     private List<Long> savingsAccountIds;
     private SavingsAccountWritePlatformService savingsAccountWritePlatformService;
@@ -59,6 +59,10 @@ public class AccrualInterestForSavingsPoster implements Callable<Void> {
         this.savingsAccountWritePlatformService = savingsAccountWritePlatformService;
     }
 
+    /**
+     * Posts the accruals of every account in its own transaction and throws a {@link JobRangeFailureException} naming the
+     * accounts that failed, so that the job checkpoints the others and only posts the failed ones again when resumed.
+     */
     @Override
     @SuppressFBWarnings(value = {
             "DMI_RANDOM_USED_ONLY_ONCE" }, justification = "False positive for random object created and used only once")
@@ -68,7 +72,9 @@ public class AccrualInterestForSavingsPoster implements Callable<Void> {
         Integer maxIntervalBetweenRetries = this.context.getTenantContext().getConnection().getMaxIntervalBetweenRetries();
         if (!savingsAccountIds.isEmpty()) {
             List<Throwable> errors = new ArrayList<>();
-            for (Long savingAccountId : savingsAccountIds) {
+            List<Long> failedSavingsAccountIds = new ArrayList<>();
+            for (int i = 0; i < savingsAccountIds.size(); i++) {
+                final Long savingAccountId = savingsAccountIds.get(i);
                 if (savingAccountId == 0) {
                     continue;
                 }
@@ -88,6 +94,7 @@ public class AccrualInterestForSavingsPoster implements Callable<Void> {
                                     "Accrual Interest For Savings job has been retried for the max allowed attempts of {} and will be rolled back",
                                     numberOfRetries);
                             errors.add(exception);
+                            failedSavingsAccountIds.add(savingAccountId);
                             break;
                         }
                         // Else sleep for a random time (between 1 to 10
@@ -98,18 +105,22 @@ public class AccrualInterestForSavingsPoster implements Callable<Void> {
                             numberOfRetries = numberOfRetries + 1;
                         } catch (InterruptedException e) {
                             LOG.error("Accrual Interest For Savings retry failed due to InterruptedException", e);
+                            Thread.currentThread().interrupt();
                             errors.add(e);
-                            break;
+                            // the job is being stopped, the rest of the range is left for a resume
+                            failedSavingsAccountIds.addAll(savingsAccountIds.subList(i, savingsAccountIds.size()));
+                            throw new JobRangeFailureException(failedSavingsAccountIds, errors);
                         }
                     } catch (Exception e) {
                         LOG.error("Accrual Interest For Savings failed for account {}", savingAccountId, e);
                         numberOfRetries = maxNumberOfRetries + 1;
                         errors.add(e);
+                        failedSavingsAccountIds.add(savingAccountId);
                     }
                 }
             }
             if (!errors.isEmpty()) {
-                throw new JobExecutionException(errors);
+                throw new JobRangeFailureException(failedSavingsAccountIds, errors);
             }
         }
         return null;
@@ -35,7 +35,7 @@ public interface ScheduledJobRunnerService {
 
     void postDividends() throws JobExecutionException;
 
-    void updateTrialBalanceDetails() throws JobExecutionException;
+    void updateTrialBalanceDetails(Map<String, String> jobParameters) throws JobExecutionException;
 
     void executeMissMatchedJobs() throws JobExecutionException;
 
@@ -21,37 +21,28 @@ package org.apache.fineract.scheduledjobs.service;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import org.apache.fineract.accounting.glaccount.domain.TrialBalance;
-import org.apache.fineract.accounting.glaccount.domain.TrialBalanceRepositoryWrapper;
+import org.apache.fineract.accounting.trialbalance.service.TrialBalanceIncrementalUpdateService;
 import org.apache.fineract.infrastructure.core.config.FineractProperties;
 import org.apache.fineract.infrastructure.core.data.ApiParameterError;
-import org.apache.fineract.infrastructure.core.domain.FineractContext;
 import org.apache.fineract.infrastructure.core.exception.PlatformApiDataValidationException;
 import org.apache.fineract.infrastructure.core.service.DateUtils;
 import org.apache.fineract.infrastructure.core.service.RoutingDataSourceServiceFactory;
 import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
-import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
-import org.apache.fineract.infrastructure.core.service.database.DatabaseTypeResolver;
 import org.apache.fineract.infrastructure.jobs.annotation.CronTarget;
 import org.apache.fineract.infrastructure.jobs.domain.ScheduledJobDetail;
 import org.apache.fineract.infrastructure.jobs.domain.ScheduledJobDetailRepository;
 import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
 import org.apache.fineract.infrastructure.jobs.service.JobExecuter;
 import org.apache.fineract.infrastructure.jobs.service.JobName;
+import org.apache.fineract.infrastructure.jobs.service.JobRangeCheckpointService;
 import org.apache.fineract.infrastructure.jobs.service.JobRegisterService;
+import org.apache.fineract.infrastructure.jobs.service.JobWorkerPool;
+import org.apache.fineract.infrastructure.jobs.service.KeysetPartitionedJobPipeline;
+import org.apache.fineract.portfolio.loanaccount.service.LoanNpaUpdateService;
 import org.apache.fineract.portfolio.savings.DepositAccountUtils;
 import org.apache.fineract.portfolio.savings.WithdrawalFrequency;
 import org.apache.fineract.portfolio.savings.data.DepositAccountData;
@@ -73,13 +64,12 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.CollectionUtils;
 
 @Service(value = "scheduledJobRunnerService")
 public class ScheduledJobRunnerServiceImpl implements ScheduledJobRunnerService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobRunnerServiceImpl.class);
-    private final int queueSize = 1;
+    private static final String INCREMENTAL_PARAMETER = "incremental";
 
     private final RoutingDataSourceServiceFactory dataSourceServiceFactory;
     private final SavingsAccountWritePlatformService savingsAccountWritePlatformService;
@@ -88,16 +78,17 @@ public class ScheduledJobRunnerServiceImpl implements ScheduledJobRunnerService
     private final DepositAccountWritePlatformService depositAccountWritePlatformService;
     private final ShareAccountDividendReadPlatformService shareAccountDividendReadPlatformService;
     private final ShareAccountSchedularService shareAccountSchedularService;
-    private final TrialBalanceRepositoryWrapper trialBalanceRepositoryWrapper;
     private final JobRegisterService jobRegisterService;
     private final ScheduledJobDetailRepository scheduledJobDetailsRepository;
     private final FineractProperties fineractProperties;
-    private final DatabaseSpecificSQLGenerator sqlGenerator;
-    private final DatabaseTypeResolver databaseTypeResolver;
+    private final LoanNpaUpdateService loanNpaUpdateService;
     private final SavingsAccountReadPlatformService savingsAccountReadPlatformService;
     private final JobExecuter jobExecuter;
     private final SavingsAccountRepositoryWrapper savingAccountRepositoryWrapper;
     private final ApplicationContext applicationContext;
+    private final JobWorkerPool jobWorkerPool;
+    private final JobRangeCheckpointService jobRangeCheckpointService;
+    private final TrialBalanceIncrementalUpdateService trialBalanceIncrementalUpdateService;
 
     @Autowired
     public ScheduledJobRunnerServiceImpl(final RoutingDataSourceServiceFactory dataSourceServiceFactory,
@@ -106,12 +97,13 @@ public class ScheduledJobRunnerServiceImpl implements ScheduledJobRunnerService
             final DepositAccountReadPlatformService depositAccountReadPlatformService,
             final DepositAccountWritePlatformService depositAccountWritePlatformService,
             final ShareAccountDividendReadPlatformService shareAccountDividendReadPlatformService,
-            final ShareAccountSchedularService shareAccountSchedularService,
-            final TrialBalanceRepositoryWrapper trialBalanceRepositoryWrapper, @Lazy final JobRegisterService jobRegisterService,
+            final ShareAccountSchedularService shareAccountSchedularService, @Lazy final JobRegisterService jobRegisterService,
             final ScheduledJobDetailRepository scheduledJobDetailsRepository, final FineractProperties fineractProperties,
-            DatabaseSpecificSQLGenerator sqlGenerator, DatabaseTypeResolver databaseTypeResolver,
-            final SavingsAccountReadPlatformService savingsAccountReadPlatformService, final JobExecuter jobExecuter,
-            SavingsAccountRepositoryWrapper savingAccountRepositoryWrapper, final ApplicationContext applicationContext) {
+            final LoanNpaUpdateService loanNpaUpdateService, final SavingsAccountReadPlatformService savingsAccountReadPlatformService,
+            final JobExecuter jobExecuter, SavingsAccountRepositoryWrapper savingAccountRepositoryWrapper,
+            final ApplicationContext applicationContext, final JobWorkerPool jobWorkerPool,
+            final JobRangeCheckpointService jobRangeCheckpointService,
+            final TrialBalanceIncrementalUpdateService trialBalanceIncrementalUpdateService) {
         this.dataSourceServiceFactory = dataSourceServiceFactory;
         this.savingsAccountWritePlatformService = savingsAccountWritePlatformService;
         this.savingsAccountChargeReadPlatformService = savingsAccountChargeReadPlatformService;
@@ -119,16 +111,17 @@ public class ScheduledJobRunnerServiceImpl implements ScheduledJobRunnerService
         this.depositAccountWritePlatformService = depositAccountWritePlatformService;
         this.shareAccountDividendReadPlatformService = shareAccountDividendReadPlatformService;
         this.shareAccountSchedularService = shareAccountSchedularService;
-        this.trialBalanceRepositoryWrapper = trialBalanceRepositoryWrapper;
         this.jobRegisterService = jobRegisterService;
         this.scheduledJobDetailsRepository = scheduledJobDetailsRepository;
         this.fineractProperties = fineractProperties;
-        this.sqlGenerator = sqlGenerator;
-        this.databaseTypeResolver = databaseTypeResolver;
+        this.loanNpaUpdateService = loanNpaUpdateService;
         this.savingsAccountReadPlatformService = savingsAccountReadPlatformService;
         this.jobExecuter = jobExecuter;
         this.savingAccountRepositoryWrapper = savingAccountRepositoryWrapper;
         this.applicationContext = applicationContext;
+        this.jobWorkerPool = jobWorkerPool;
+        this.jobRangeCheckpointService = jobRangeCheckpointService;
+        this.trialBalanceIncrementalUpdateService = trialBalanceIncrementalUpdateService;
     }
 
     @Override
@@ -189,41 +182,7 @@ public class ScheduledJobRunnerServiceImpl implements ScheduledJobRunnerService
     @Override
     @CronTarget(jobName = JobName.UPDATE_NPA)
     public void updateNPA() {
-
-        final JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSourceServiceFactory.determineDataSourceService().retrieveDataSource());
-
-        final StringBuilder resetNPASqlBuilder = new StringBuilder();
-        resetNPASqlBuilder.append("update m_loan loan ");
-        String fromPart = " (SELECT loan2.* FROM m_loan loan2 left join m_loan_arrears_aging laa on laa.loan_id = loan2.id "
-                + "inner join m_product_loan mpl on mpl.id = loan2.product_id and mpl.overdue_days_for_npa is not null "
-                + "WHERE loan2.loan_status_id = 300 and mpl.account_moves_out_of_npa_only_on_arrears_completion = false"
-                + " or (mpl.account_moves_out_of_npa_only_on_arrears_completion = true"
-                + " and laa.overdue_since_date_derived is null)) sl";
-        String wherePart = " where loan.id = sl.id ";
-
-        if (databaseTypeResolver.isMySQL()) {
-            resetNPASqlBuilder.append(", ").append(fromPart).append(" set loan.is_npa = false").append(wherePart);
-        } else {
-            resetNPASqlBuilder.append("set is_npa = false").append(" FROM ").append(fromPart).append(wherePart);
-        }
-        jdbcTemplate.update(resetNPASqlBuilder.toString());
-
-        final StringBuilder updateSqlBuilder = new StringBuilder(900);
-
-        fromPart = " (select loan.id " + " FROM m_loan_arrears_aging laa" + " INNER JOIN  m_loan loan on laa.loan_id = loan.id "
-                + " INNER JOIN m_product_loan mpl on mpl.id = loan.product_id AND mpl.overdue_days_for_npa is not null "
-                + "WHERE loan.loan_status_id = 300 and " + "laa.overdue_since_date_derived < "
-                + sqlGenerator.subDate(sqlGenerator.currentBusinessDate(), "COALESCE(mpl.overdue_days_for_npa, 0)", "day")
-                + " group by loan.id) as sl ";
-        wherePart = " where ml.id=sl.id ";
-        updateSqlBuilder.append("UPDATE m_loan as ml ");
-        if (databaseTypeResolver.isMySQL()) {
-            updateSqlBuilder.append(", ").append(fromPart).append(" SET ml.is_npa = true").append(wherePart);
-        } else {
-            updateSqlBuilder.append(" SET is_npa = true").append(" FROM ").append(fromPart).append(wherePart);
-        }
-
-        final int result = jdbcTemplate.update(updateSqlBuilder.toString());
+        final int result = this.loanNpaUpdateService.updateNpa();
 
         LOG.info("{}: Records affected by updateNPA: {}", ThreadLocalContextUtil.getTenant().getName(), result);
     }
@@ -346,62 +305,13 @@ public class ScheduledJobRunnerServiceImpl implements ScheduledJobRunnerService
 
     @Override
     @CronTarget(jobName = JobName.UPDATE_TRIAL_BALANCE_DETAILS)
-    public void updateTrialBalanceDetails() throws JobExecutionException {
-        final JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSourceServiceFactory.determineDataSourceService().retrieveDataSource());
-        final StringBuilder tbGapSqlBuilder = new StringBuilder(500);
-        tbGapSqlBuilder.append("select distinct(je.transaction_date) ").append("from acc_gl_journal_entry je ")
-                .append("where je.transaction_date > (select coalesce(MAX(created_date),'2010-01-01') from m_trial_balance)");
-
-        final List<LocalDate> tbGaps = jdbcTemplate.queryForList(tbGapSqlBuilder.toString(), LocalDate.class);
-
-        for (LocalDate tbGap : tbGaps) {
-            int days = Math.toIntExact(ChronoUnit.DAYS.between(tbGap, DateUtils.getBusinessLocalDate()));
-            if (days < 1) {
-                continue;
-            }
-            final StringBuilder sqlBuilder = new StringBuilder(600);
-            sqlBuilder.append("Insert Into m_trial_balance(office_id, account_id, Amount, entry_date, created_date,closing_balance) ")
-                    .append("Select je.office_id, je.account_id, SUM(CASE WHEN je.type_enum=1 THEN (-1) * je.amount ELSE je.amount END) ")
-                    .append("as Amount, Date(je.entry_date) as Entry_Date, je.transaction_date as Created_Date,sum(je.amount) as closing_balance ")
-                    .append("from acc_gl_journal_entry je WHERE je.transaction_date = ? ")
-                    .append("group by je.account_id, je.office_id, je.transaction_date, Date(je.entry_date)");
-
-            final int result = jdbcTemplate.update(sqlBuilder.toString(), tbGap);
-            LOG.info("{}: Records affected by updateTrialBalanceDetails: {}", ThreadLocalContextUtil.getTenant().getName(), result);
-        }
-
-        // Updating closing balance
-        String distinctOfficeQuery = "select distinct(office_id) from m_trial_balance where closing_balance is null group by office_id";
-        final List<Long> officeIds = jdbcTemplate.queryForList(distinctOfficeQuery, Long.class);
-
-        for (Long officeId : officeIds) {
-            String distinctAccountQuery = "select distinct(account_id) from m_trial_balance where office_id=? and closing_balance is null group by account_id";
-            final List<Long> accountIds = jdbcTemplate.queryForList(distinctAccountQuery, Long.class, officeId);
-            for (Long accountId : accountIds) {
-                final String closingBalanceQuery = "select closing_balance from m_trial_balance where office_id=? and account_id=? and closing_balance "
-                        + "is not null order by created_date desc, entry_date desc limit 1";
-                List<BigDecimal> closingBalanceData = jdbcTemplate.queryForList(closingBalanceQuery, BigDecimal.class, officeId, accountId);
-                List<TrialBalance> tbRows = this.trialBalanceRepositoryWrapper.findNewByOfficeAndAccount(officeId, accountId);
-                BigDecimal closingBalance = null;
-                if (!CollectionUtils.isEmpty(closingBalanceData)) {
-                    closingBalance = closingBalanceData.get(0);
-                }
-                if (CollectionUtils.isEmpty(closingBalanceData)) {
-                    closingBalance = BigDecimal.ZERO;
-                    for (TrialBalance row : tbRows) {
-                        closingBalance = closingBalance.add(row.getAmount());
-                        row.setClosingBalance(closingBalance);
-                    }
-                } else {
-                    for (TrialBalance tbRow : tbRows) {
-                        closingBalance = closingBalance.add(tbRow.getAmount());
-                        tbRow.setClosingBalance(closingBalance);
-                    }
-                }
-                this.trialBalanceRepositoryWrapper.save(tbRows);
-            }
+    public void updateTrialBalanceDetails(final Map<String, String> jobParameters) throws JobExecutionException {
+        final boolean incremental = !"0".equals(jobParameters.getOrDefault(INCREMENTAL_PARAMETER, "1"));
+        if (incremental) {
+            this.trialBalanceIncrementalUpdateService.rollPendingJournalEntries(DateUtils.getBusinessLocalDate());
+        } else {
+            this.trialBalanceIncrementalUpdateService.rebuildFromLastTrialBalanceDate(DateUtils.getBusinessLocalDate());
         }
-
     }
 
     @Override
@@ -419,118 +329,24 @@ public class ScheduledJobRunnerServiceImpl implements ScheduledJobRunnerService
     @Override
     @CronTarget(jobName = JobName.POST_ACCRUAL_INTEREST_FOR_SAVINGS)
     public void postAccrualInterestForSavings(Map<String, String> jobParameters) throws JobExecutionException {
-
-        final Queue<List<Long>> queue = new ArrayDeque<>();
-        final ApplicationContext applicationContext;
         final int threadPoolSize = Integer.parseInt(jobParameters.get("thread-pool-size"));
         final int batchSize = Integer.parseInt(jobParameters.get("batch-size"));
-        final int pageSize = batchSize * threadPoolSize;
-        Long maxSavingsAccountIdInList = 0L;
-
-        final List<Long> activeSavingsAccounts = this.savingsAccountReadPlatformService
-                .retrieveActiveSavingsAccrualAccounts(maxSavingsAccountIdInList, pageSize);
+        final int queueCapacity = jobParameters.containsKey("queue-capacity") ? Integer.parseInt(jobParameters.get("queue-capacity"))
+                : threadPoolSize * 2;
 
-        final ExecutorService executorService = Executors.newFixedThreadPool(threadPoolSize);
-
-        if (activeSavingsAccounts != null && !activeSavingsAccounts.isEmpty()) {
-            queue.add(activeSavingsAccounts.stream().toList());
-            if (!CollectionUtils.isEmpty(queue)) {
-                LOG.info("Starting Post Accrual Interest for Savings");
-                do {
-                    List<Long> queueElement = queue.element();
-                    LOG.info("Post Accrual Interest for Savings- total records in batch - {}", queueElement.size());
-                    maxSavingsAccountIdInList = queueElement.get(queueElement.size() - 1);
-                    postAccrualInterestForSavings(queue.remove(), queue, threadPoolSize, executorService, pageSize,
-                            maxSavingsAccountIdInList);
-                } while (!CollectionUtils.isEmpty(queue));
-            }
-            // shutdown the executor when done
-            executorService.shutdownNow();
-        }
+        LOG.info("Starting Post Accrual Interest for Savings");
+        new KeysetPartitionedJobPipeline(JobName.POST_ACCRUAL_INTEREST_FOR_SAVINGS.name(), threadPoolSize, batchSize, queueCapacity,
+                this.savingsAccountReadPlatformService::retrieveActiveSavingsAccrualAccounts, this::postAccrualInterestForSavingsRange,
+                this.jobWorkerPool, this.jobRangeCheckpointService).run();
     }
 
-    private void postAccrualInterestForSavings(List<Long> activeSavingsAccounts, Queue<List<Long>> queue, int threadPoolSize,
-            ExecutorService executorService, int pageSize, Long maxSavingsAccountIdInList) {
-        List<Callable<Void>> posters = new ArrayList<>();
-        int fromIndex = 0;
-        int size = activeSavingsAccounts.size();
-        int batchSize = (int) Math.ceil((double) size / threadPoolSize);
-        if (batchSize == 0) {
-            return;
-        }
-        int toIndex = (batchSize > size - 1) ? size : batchSize;
-        while (toIndex < size && activeSavingsAccounts.get(toIndex - 1).equals(activeSavingsAccounts.get(toIndex))) {
-            toIndex++;
-        }
-        boolean lastBatch = false;
-        int loopCount = size / batchSize + 1;
-
-        FineractContext context = ThreadLocalContextUtil.getContext();
-
-        Callable<Void> fetchData = () -> {
-            ThreadLocalContextUtil.init(context);
-            Long maxId = maxSavingsAccountIdInList;
-            if (!queue.isEmpty()) {
-                maxId = Math.max(maxSavingsAccountIdInList, queue.element().get(queue.element().size() - 1));
-            }
-            while (queue.size() <= queueSize) {
-                LOG.info("Fetching while threads are running!");
-                final List<Long> activeSavingsAccountsNextBatch = this.savingsAccountReadPlatformService
-                        .retrieveActiveSavingsAccrualAccounts(maxId, pageSize);
-
-                if (activeSavingsAccountsNextBatch == null || activeSavingsAccountsNextBatch.isEmpty()) {
-                    break;
-                }
-                maxId = activeSavingsAccountsNextBatch.get(activeSavingsAccountsNextBatch.size() - 1);
-                queue.add(activeSavingsAccountsNextBatch);
-            }
-            return null;
-        };
-        posters.add(fetchData);
-
-        for (long i = 0; i < loopCount; i++) {
-            List<Long> subList = safeSubList(activeSavingsAccounts, fromIndex, toIndex);
-            AccrualInterestForSavingsPoster poster = (AccrualInterestForSavingsPoster) applicationContext
-                    .getBean("accrualInterestForSavingsPoster");
-            poster.setSavingsAccountIds(subList);
-            poster.setSavingsAccountWritePlatformService(this.savingsAccountWritePlatformService);
-            poster.setContext(ThreadLocalContextUtil.getContext());
-
-            posters.add(poster);
-            if (lastBatch) {
-                break;
-            }
-            if (toIndex + batchSize > size - 1) {
-                lastBatch = true;
-            }
-            fromIndex = fromIndex + (toIndex - fromIndex);
-            toIndex = (toIndex + batchSize > size - 1) ? size : toIndex + batchSize;
-            while (toIndex < size && activeSavingsAccounts.get(toIndex - 1).equals(activeSavingsAccounts.get(toIndex))) {
-                toIndex++;
-            }
-        }
-        try {
-            List<Future<Void>> responses = executorService.invokeAll(posters);
-            Long maxId = maxSavingsAccountIdInList;
-            if (!queue.isEmpty()) {
-                maxId = Math.max(maxSavingsAccountIdInList, queue.element().get(queue.element().size() - 1));
-            }
-            while (queue.size() <= queueSize) {
-                LOG.info("Fetching while threads are running!..:: this is not supposed to run........");
-                activeSavingsAccounts = this.savingsAccountReadPlatformService.retrieveActiveSavingsAccrualAccounts(maxId, pageSize);
-
-                if (activeSavingsAccounts == null || activeSavingsAccounts.isEmpty()) {
-                    break;
-                }
-                maxId = activeSavingsAccounts.get(activeSavingsAccounts.size() - 1);
-                LOG.info("Add to the Queue");
-                queue.add(activeSavingsAccounts);
-            }
-            checkTaskCompletion(responses);
-            LOG.info("Queue size {}", queue.size());
-        } catch (InterruptedException e1) {
-            LOG.error("Interrupted while AddPenalty", e1);
-        }
+    private void postAccrualInterestForSavingsRange(List<Long> savingsAccountIds) throws JobExecutionException {
+        AccrualInterestForSavingsPoster poster = (AccrualInterestForSavingsPoster) applicationContext
+                .getBean("accrualInterestForSavingsPoster");
+        poster.setSavingsAccountIds(savingsAccountIds);
+        poster.setSavingsAccountWritePlatformService(this.savingsAccountWritePlatformService);
+        poster.setContext(ThreadLocalContextUtil.getContext());
+        poster.call();
     }
 
     @Override
@@ -567,39 +383,4 @@ public class ScheduledJobRunnerServiceImpl implements ScheduledJobRunnerService
             throw new JobExecutionException(exceptions);
         }
     }
-
-    private <T> List<T> safeSubList(List<T> list, int fromIndex, int toIndex) {
-        int size = list.size();
-        if (fromIndex >= size || toIndex <= 0 || fromIndex >= toIndex) {
-            return Collections.emptyList();
-        }
-
-        fromIndex = Math.max(0, fromIndex);
-        toIndex = Math.min(size, toIndex);
-
-        return list.subList(fromIndex, toIndex);
-    }
-
-    private void checkTaskCompletion(List<Future<Void>> responses) {
-        try {
-            for (Future<Void> f : responses) {
-                f.get();
-            }
-            boolean allThreadsExecuted;
-            int noOfThreadsExecuted = 0;
-            for (Future<Void> future : responses) {
-                if (future.isDone()) {
-                    noOfThreadsExecuted++;
-                }
-            }
-            allThreadsExecuted = noOfThreadsExecuted == responses.size();
-            if (!allThreadsExecuted) {
-                LOG.error("All threads could not execute.");
-            }
-        } catch (InterruptedException e1) {
-            LOG.error("Interrupted while interest posting entries", e1);
-        } catch (ExecutionException e2) {
-            LOG.error("Execution exception while interest posting entries", e2);
-        }
-    }
 }
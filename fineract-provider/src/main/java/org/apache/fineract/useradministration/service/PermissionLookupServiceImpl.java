@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.useradministration.service;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class PermissionLookupServiceImpl implements PermissionLookupService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Cacheable(value = "makerCheckerPermissions", key = "T(org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil).getTenant().getTenantIdentifier().concat(#permissionCode)", unless = "#result == null")
+    public Boolean isMakerCheckerEnabledForTask(final String permissionCode) {
+        final List<Boolean> makerCheckerEnabled = this.jdbcTemplate.query(
+                "select p.can_maker_checker as taskEnabled, c.enabled as globallyEnabled from m_permission p "
+                        + "left join c_configuration c on c.name = 'maker-checker' where p.code = ?",
+                (rs, rowNum) -> rs.getBoolean("taskEnabled") && rs.getBoolean("globallyEnabled"), permissionCode);
+        return makerCheckerEnabled.isEmpty() ? null : makerCheckerEnabled.get(0);
+    }
+}
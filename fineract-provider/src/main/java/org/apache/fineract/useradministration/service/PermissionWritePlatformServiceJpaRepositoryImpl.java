@@ -51,7 +51,8 @@ public class PermissionWritePlatformServiceJpaRepositoryImpl implements Permissi
         this.fromApiJsonDeserializer = fromApiJsonDeserializer;
     }
 
-    @Caching(evict = { @CacheEvict(value = "users", allEntries = true), @CacheEvict(value = "usersByUsername", allEntries = true) })
+    @Caching(evict = { @CacheEvict(value = "users", allEntries = true), @CacheEvict(value = "usersByUsername", allEntries = true),
+            @CacheEvict(value = "makerCheckerPermissions", allEntries = true) })
     @Transactional
     @Override
     public CommandProcessingResult updateMakerCheckerPermissions(final JsonCommand command) {
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.journalentry.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Optional;
+import org.apache.fineract.accounting.journalentry.domain.JournalEntryRepository;
+import org.apache.fineract.accounting.journalentry.domain.JournalEntryType;
+import org.apache.fineract.accounting.journalentry.exception.JournalEntryInvalidException;
+import org.apache.fineract.accounting.journalentry.service.JournalEntryBatchWriter.PendingJournalEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class JournalEntryBatchWriterTest {
+
+    private static final LocalDate TRANSACTION_DATE = LocalDate.of(2022, 6, 1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private JournalEntryRepository journalEntryRepository;
+    @Mock
+    private AuditorAware<Long> auditorAware;
+
+    @InjectMocks
+    private JournalEntryBatchWriter underTest;
+
+    @BeforeEach
+    void setUp() {
+        when(this.auditorAware.getCurrentAuditor()).thenReturn(Optional.of(1L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void writesTheLinesOfABusinessTransactionInOneBatch() {
+        this.underTest.collect(() -> {
+            this.underTest.add(line(JournalEntryType.DEBIT, "USD", "100"));
+            this.underTest.add(line(JournalEntryType.CREDIT, "USD", "60"));
+            this.underTest.add(line(JournalEntryType.CREDIT, "USD", "40"));
+        });
+
+        assertEquals(3, writtenBatch().size());
+        verify(this.journalEntryRepository).flush();
+    }
+
+    @Test
+    void rejectsABatchWhoseDebitsAndCreditsDoNotBalance() {
+        assertThrows(JournalEntryInvalidException.class, () -> this.underTest.collect(() -> {
+            this.underTest.add(line(JournalEntryType.DEBIT, "USD", "100"));
+            this.underTest.add(line(JournalEntryType.CREDIT, "USD", "99"));
+        }));
+
+        verifyNothingWritten();
+    }
+
+    @Test
+    void rejectsABatchThatOnlyBalancesAcrossCurrencies() {
+        assertThrows(JournalEntryInvalidException.class, () -> this.underTest.collect(() -> {
+            this.underTest.add(line(JournalEntryType.DEBIT, "USD", "100"));
+            this.underTest.add(line(JournalEntryType.CREDIT, "EUR", "100"));
+        }));
+
+        verifyNothingWritten();
+    }
+
+    @Test
+    void rejectsASingleLine() {
+        assertThrows(JournalEntryInvalidException.class,
+                () -> this.underTest.collect(() -> this.underTest.add(line(JournalEntryType.DEBIT, "USD", "100"))));
+
+        verifyNothingWritten();
+    }
+
+    @Test
+    void rejectsALineAddedOutsideOfABatchAndATransaction() {
+        assertThrows(IllegalStateException.class, () -> this.underTest.add(line(JournalEntryType.DEBIT, "USD", "100")));
+
+        verifyNothingWritten();
+    }
+
+    @Test
+    void writesTheLinesAddedOutsideOfABatchInOneBatchBeforeTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        this.underTest.add(line(JournalEntryType.DEBIT, "USD", "100"));
+        this.underTest.add(line(JournalEntryType.CREDIT, "USD", "100"));
+        verifyNothingWritten();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.beforeCommit(false));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(2, writtenBatch().size());
+    }
+
+    @Test
+    void rejectsUnbalancedLinesAddedOutsideOfABatchBeforeTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        this.underTest.add(line(JournalEntryType.DEBIT, "USD", "100"));
+
+        assertThrows(JournalEntryInvalidException.class, () -> TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.beforeCommit(false)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verifyNothingWritten();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<PendingJournalEntry> writtenBatch() {
+        final ArgumentCaptor<Collection<PendingJournalEntry>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(this.jdbcTemplate).batchUpdate(anyString(), batch.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        return batch.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verifyNothingWritten() {
+        verify(this.jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    private static PendingJournalEntry line(final JournalEntryType type, final String currencyCode, final String amount) {
+        return new PendingJournalEntry(1L, 10L, currencyCode, "L1", TRANSACTION_DATE, type, new BigDecimal(amount), 1, 5L, 1L, null,
+                null, null);
+    }
+}
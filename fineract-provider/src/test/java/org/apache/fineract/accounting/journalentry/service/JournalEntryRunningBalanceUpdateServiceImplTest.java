@@ -0,0 +1,347 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.journalentry.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.apache.fineract.accounting.glaccount.domain.GLAccountType;
+import org.apache.fineract.accounting.journalentry.data.JournalEntryDataValidator;
+import org.apache.fineract.accounting.journalentry.domain.JournalEntryType;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseTypeResolver;
+import org.apache.fineract.infrastructure.jobs.service.JobWorkerPool;
+import org.apache.fineract.organisation.office.domain.OfficeRepositoryWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the running balance calculation against an in-memory journal entry table, which answers the statements of the
+ * service the way the database would.
+ */
+class JournalEntryRunningBalanceUpdateServiceImplTest {
+
+    private static final long ASSET_ACCOUNT = 10L;
+    private static final long LIABILITY_ACCOUNT = 20L;
+    private static final long HEAD_OFFICE = 1L;
+    private static final long BRANCH_OFFICE = 2L;
+    private static final String WATERMARK_UPSERT = "insert into acc_gl_running_balance_watermark (account_id, entry_date, "
+            + "journal_entry_id, updated_on) values (?, ?, ?, ?) ON DUPLICATE KEY UPDATE entry_date = VALUES(entry_date), "
+            + "journal_entry_id = VALUES(journal_entry_id), updated_on = VALUES(updated_on)";
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Long, Entry> watermarks = new HashMap<>();
+    private final List<String> watermarkStatements = new ArrayList<>();
+    private final List<String> pageStarts = new ArrayList<>();
+    private final List<Long> updatedEntryIds = new ArrayList<>();
+    private JobWorkerPool jobWorkerPool;
+    private JournalEntryRunningBalanceUpdateServiceImpl underTest;
+
+    @BeforeEach
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, LocalDate.of(2022, 10, 31))));
+        final DatabaseTypeResolver databaseTypeResolver = mock(DatabaseTypeResolver.class);
+        when(databaseTypeResolver.isMySQL()).thenReturn(true);
+        final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        this.jobWorkerPool = new JobWorkerPool(new FineractProperties(), new SimpleMeterRegistry());
+        this.underTest = new JournalEntryRunningBalanceUpdateServiceImpl(mock(JdbcTemplate.class, this::answer),
+                mock(OfficeRepositoryWrapper.class), mock(JournalEntryDataValidator.class), new FromJsonHelper(),
+                new DatabaseSpecificSQLGenerator(databaseTypeResolver), new TransactionTemplate(transactionManager), this.jobWorkerPool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.jobWorkerPool.destroy();
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void calculatesTheBalancesOfEveryAccountAndOffice() throws Exception {
+        entry(1L, ASSET_ACCOUNT, HEAD_OFFICE, "2022-10-01", JournalEntryType.DEBIT, "100");
+        entry(2L, LIABILITY_ACCOUNT, HEAD_OFFICE, "2022-10-01", JournalEntryType.CREDIT, "100");
+        entry(3L, ASSET_ACCOUNT, BRANCH_OFFICE, "2022-10-02", JournalEntryType.DEBIT, "50");
+        entry(4L, LIABILITY_ACCOUNT, BRANCH_OFFICE, "2022-10-02", JournalEntryType.CREDIT, "50");
+        entry(5L, ASSET_ACCOUNT, HEAD_OFFICE, "2022-10-03", JournalEntryType.CREDIT, "30");
+        entry(6L, LIABILITY_ACCOUNT, HEAD_OFFICE, "2022-10-03", JournalEntryType.DEBIT, "30");
+        entry(7L, ASSET_ACCOUNT, BRANCH_OFFICE, "2022-10-03", JournalEntryType.DEBIT, "20");
+
+        this.underTest.updateRunningBalance();
+
+        assertBalances(1L, "100", "100");
+        assertBalances(3L, "150", "50");
+        assertBalances(5L, "120", "70");
+        assertBalances(7L, "140", "70");
+        assertBalances(2L, "100", "100");
+        assertBalances(4L, "150", "50");
+        assertBalances(6L, "120", "70");
+        assertThat(this.entries).allMatch(entry -> entry.calculated);
+        assertThat(this.pageStarts).containsExactlyInAnyOrder("10@2022-10-01/0", "20@2022-10-01/0");
+        assertWatermark(ASSET_ACCOUNT, 7L);
+        assertWatermark(LIABILITY_ACCOUNT, 6L);
+        assertThat(this.watermarkStatements).containsOnly(WATERMARK_UPSERT);
+    }
+
+    @Test
+    void continuesFromTheWatermarkWhenAllPendingEntriesComeAfterIt() throws Exception {
+        calculatedEntry(1L, "2022-10-01", JournalEntryType.DEBIT, "100", "100");
+        calculatedEntry(2L, "2022-10-02", JournalEntryType.DEBIT, "50", "150");
+        calculatedEntry(3L, "2022-10-03", JournalEntryType.CREDIT, "30", "120");
+        this.watermarks.put(ASSET_ACCOUNT, find(3L));
+        // posted later on the day of the watermark, and on the next day
+        entry(4L, ASSET_ACCOUNT, HEAD_OFFICE, "2022-10-03", JournalEntryType.DEBIT, "10");
+        entry(5L, ASSET_ACCOUNT, HEAD_OFFICE, "2022-10-04", JournalEntryType.DEBIT, "5");
+
+        this.underTest.updateRunningBalance();
+
+        assertThat(this.pageStarts).containsExactly("10@2022-10-03/3");
+        assertThat(this.updatedEntryIds).containsExactly(4L, 5L);
+        assertBalances(4L, "130", "130");
+        assertBalances(5L, "135", "135");
+        assertWatermark(ASSET_ACCOUNT, 5L);
+    }
+
+    @Test
+    void recalculatesFromABackdatedEntryBeforeTheWatermark() throws Exception {
+        calculatedEntry(1L, "2022-10-01", JournalEntryType.DEBIT, "100", "100");
+        calculatedEntry(2L, "2022-10-02", JournalEntryType.DEBIT, "50", "150");
+        calculatedEntry(3L, "2022-10-03", JournalEntryType.CREDIT, "30", "120");
+        this.watermarks.put(ASSET_ACCOUNT, find(3L));
+        // posted after entry 3 was calculated, but dated before it
+        entry(4L, ASSET_ACCOUNT, HEAD_OFFICE, "2022-10-02", JournalEntryType.CREDIT, "40");
+
+        this.underTest.updateRunningBalance();
+
+        assertThat(this.pageStarts).containsExactly("10@2022-10-02/0");
+        assertThat(this.updatedEntryIds).containsExactly(2L, 4L, 3L);
+        assertBalances(1L, "100", "100");
+        assertBalances(2L, "150", "150");
+        assertBalances(4L, "110", "110");
+        assertBalances(3L, "80", "80");
+        assertWatermark(ASSET_ACCOUNT, 3L);
+    }
+
+    private void entry(final long id, final long accountId, final long officeId, final String date, final JournalEntryType type,
+            final String amount) {
+        this.entries.add(new Entry(id, accountId, officeId, LocalDate.parse(date), type, new BigDecimal(amount)));
+    }
+
+    private void calculatedEntry(final long id, final String date, final JournalEntryType type, final String amount,
+            final String balance) {
+        entry(id, ASSET_ACCOUNT, HEAD_OFFICE, date, type, amount);
+        final Entry entry = find(id);
+        entry.calculated = true;
+        entry.organizationBalance = new BigDecimal(balance);
+        entry.officeBalance = new BigDecimal(balance);
+    }
+
+    private Entry find(final long id) {
+        return this.entries.stream().filter(entry -> entry.id == id).findFirst().orElseThrow();
+    }
+
+    private void assertBalances(final long id, final String organizationBalance, final String officeBalance) {
+        final Entry entry = find(id);
+        assertThat(entry.organizationBalance).as("organization balance of entry %s", id).isEqualByComparingTo(organizationBalance);
+        assertThat(entry.officeBalance).as("office balance of entry %s", id).isEqualByComparingTo(officeBalance);
+    }
+
+    private void assertWatermark(final long accountId, final long entryId) {
+        assertThat(this.watermarks.get(accountId)).isSameAs(find(entryId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized Object answer(final InvocationOnMock invocation) throws Exception {
+        final String method = invocation.getMethod().getName();
+        final Object[] args = invocation.getArguments();
+        if (method.equals("toString")) {
+            return "jdbcTemplate";
+        } else if (method.equals("hashCode")) {
+            return System.identityHashCode(invocation.getMock());
+        } else if (method.equals("equals")) {
+            return invocation.getMock() == args[0];
+        }
+        final String sql = (String) args[0];
+        final Object[] params = Arrays.copyOfRange(args, method.equals("update") ? 1 : 2, args.length);
+        if (method.equals("query") && sql.startsWith("select je.account_id as accountId")) {
+            return pendingAccounts((RowCallbackHandler) args[1], sql.contains("je.office_id = ?") ? (Long) params[0] : null);
+        } else if (method.equals("query") && sql.startsWith("select entry_date, journal_entry_id from acc_gl_running_balance_watermark")) {
+            final Entry watermark = this.watermarks.get((Long) params[0]);
+            if (watermark == null) {
+                return List.of();
+            }
+            return List.of(((RowMapper<?>) args[1]).mapRow(resultSet("entry_date", watermark.date, "journal_entry_id", watermark.id), 0));
+        } else if (method.equals("query") && sql.startsWith("select je.id as id")) {
+            return page((RowMapper<?>) args[1], sql, params);
+        } else if (method.equals("queryForObject") && sql.startsWith("select classification_enum")) {
+            return ((Long) params[0] == ASSET_ACCOUNT ? GLAccountType.ASSET : GLAccountType.LIABILITY).getValue();
+        } else if (method.equals("queryForObject") && sql.startsWith("select min(je.id)")) {
+            return this.entries.stream().filter(entry -> !entry.calculated && entry.accountId == (Long) params[0])
+                    .filter(entry -> entry.date.equals(params[1])).map(entry -> entry.id).min(Comparator.naturalOrder()).orElse(null);
+        } else if (method.equals("queryForList") && sql.startsWith("select je.")) {
+            return balanceUpTo(sql, params);
+        } else if (method.equals("batchUpdate") && sql.startsWith("update acc_gl_journal_entry set is_running_balance_calculated")) {
+            for (final Object[] row : (List<Object[]>) args[1]) {
+                final Entry entry = find((Long) row[2]);
+                entry.calculated = true;
+                entry.organizationBalance = (BigDecimal) row[0];
+                entry.officeBalance = (BigDecimal) row[1];
+                this.updatedEntryIds.add(entry.id);
+            }
+            return new int[0][];
+        } else if (method.equals("update") && sql.contains("acc_gl_running_balance_watermark")) {
+            this.watermarkStatements.add(sql);
+            this.watermarks.put((Long) params[0], find((Long) params[2]));
+            return 1;
+        }
+        throw new AssertionError("Unexpected statement " + method + ": " + sql);
+    }
+
+    private Object pendingAccounts(final RowCallbackHandler handler, final Long officeId) throws Exception {
+        final Map<Long, LocalDate> accounts = new TreeMap<>();
+        for (final Entry entry : this.entries) {
+            if (!entry.calculated && (officeId == null || entry.officeId == officeId)) {
+                accounts.merge(entry.accountId, entry.date, (a, b) -> a.isBefore(b) ? a : b);
+            }
+        }
+        for (final Map.Entry<Long, LocalDate> account : accounts.entrySet()) {
+            handler.processRow(resultSet("accountId", account.getKey(), "entryDate", account.getValue()));
+        }
+        return null;
+    }
+
+    private List<Object> page(final RowMapper<?> mapper, final String sql, final Object[] params) throws Exception {
+        final Long officeId = sql.contains("je.office_id = ?") ? (Long) params[1] : null;
+        final LocalDate date = (LocalDate) params[params.length - 3];
+        final Long id = (Long) params[params.length - 1];
+        this.pageStarts.add(params[0] + "@" + date + "/" + id);
+        final List<Object> rows = new ArrayList<>();
+        for (final Entry entry : sorted((Long) params[0], officeId)) {
+            if (entry.date.isAfter(date) || (entry.date.equals(date) && entry.id > id)) {
+                rows.add(mapper.mapRow(resultSet("id", entry.id, "officeId", entry.officeId, "entryDate", entry.date, "entryType",
+                        entry.type.getValue(), "amount", entry.amount), rows.size()));
+            }
+        }
+        return rows;
+    }
+
+    private List<BigDecimal> balanceUpTo(final String sql, final Object[] params) {
+        final String column = sql.substring("select je.".length(), sql.indexOf(" from"));
+        final Long officeId = sql.contains("je.office_id = ?") ? (Long) params[1] : null;
+        final LocalDate date = (LocalDate) params[params.length - 3];
+        final Long id = (Long) params[params.length - 1];
+        Entry last = null;
+        for (final Entry entry : sorted((Long) params[0], officeId)) {
+            if (entry.date.isBefore(date) || (entry.date.equals(date) && entry.id <= id)) {
+                last = entry;
+            }
+        }
+        if (last == null) {
+            return List.of();
+        }
+        return Collections.singletonList(column.equals("organization_running_balance") ? last.organizationBalance : last.officeBalance);
+    }
+
+    private List<Entry> sorted(final Long accountId, final Long officeId) {
+        return this.entries.stream().filter(entry -> entry.accountId == accountId)
+                .filter(entry -> officeId == null || entry.officeId == officeId)
+                .sorted(Comparator.comparing((Entry entry) -> entry.date).thenComparing(entry -> entry.id)).collect(Collectors.toList());
+    }
+
+    private static ResultSet resultSet(final Object... columnsAndValues) {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < columnsAndValues.length; i += 2) {
+            values.put((String) columnsAndValues[i], columnsAndValues[i + 1]);
+        }
+        final List<String> columns = new ArrayList<>(values.keySet());
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findColumn":
+                            return columns.indexOf((String) args[0]) + 1;
+                        case "getLong":
+                            return ((Number) values.get((String) args[0])).longValue();
+                        case "getInt":
+                            return ((Number) values.get(columns.get((Integer) args[0] - 1))).intValue();
+                        case "getDate":
+                            return Date.valueOf((LocalDate) values.get((String) args[0]));
+                        case "getBigDecimal":
+                            return values.get((String) args[0]);
+                        case "wasNull":
+                            return false;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static final class Entry {
+
+        private final long id;
+        private final long accountId;
+        private final long officeId;
+        private final LocalDate date;
+        private final JournalEntryType type;
+        private final BigDecimal amount;
+        private boolean calculated;
+        private BigDecimal organizationBalance;
+        private BigDecimal officeBalance;
+
+        private Entry(final long id, final long accountId, final long officeId, final LocalDate date, final JournalEntryType type,
+                final BigDecimal amount) {
+            this.id = id;
+            this.accountId = accountId;
+            this.officeId = officeId;
+            this.date = date;
+            this.type = type;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.producttoaccountmapping.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import org.apache.fineract.accounting.glaccount.domain.GLAccount;
+import org.apache.fineract.accounting.glaccount.domain.GLAccountRepository;
+import org.apache.fineract.accounting.glaccount.exception.GLAccountNotFoundException;
+import org.apache.fineract.accounting.glaccount.serialization.GLAccountCommandFromApiJsonDeserializer;
+import org.apache.fineract.accounting.glaccount.service.GLAccountWritePlatformService;
+import org.apache.fineract.accounting.glaccount.service.GLAccountWritePlatformServiceJpaRepositoryImpl;
+import org.apache.fineract.accounting.journalentry.domain.JournalEntryRepository;
+import org.apache.fineract.accounting.producttoaccountmapping.domain.PortfolioProductType;
+import org.apache.fineract.accounting.producttoaccountmapping.serialization.ProductToGLAccountMappingFromApiJsonDeserializer;
+import org.apache.fineract.infrastructure.codes.domain.CodeValueRepositoryWrapper;
+import org.apache.fineract.infrastructure.core.api.JsonCommand;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.portfolio.savings.DepositAccountType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+/**
+ * The mapping snapshots are cached per tenant and product, every write to the mappings of a product or to a GL account
+ * has to evict them.
+ */
+@SpringJUnitConfig
+class ProductToGLAccountMappingCacheEvictionTest {
+
+    private static final Long PRODUCT_ID = 1L;
+    private static final Long OTHER_PRODUCT_ID = 2L;
+    private static final Long GL_ACCOUNT_ID = 10L;
+    private static final String NO_ACCOUNTING = "{\"accountingRule\":1}";
+
+    @Configuration
+    @EnableCaching
+    static class MappingCacheConfiguration {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager("productToGLAccountMappings");
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate() {
+            return mock(JdbcTemplate.class);
+        }
+
+        @Bean
+        GLAccountRepository glAccountRepository() {
+            return mock(GLAccountRepository.class);
+        }
+
+        @Bean
+        ProductToGLAccountMappingLookupService productToGLAccountMappingLookupService(final JdbcTemplate jdbcTemplate) {
+            return new ProductToGLAccountMappingLookupServiceImpl(jdbcTemplate);
+        }
+
+        @Bean
+        ProductToGLAccountMappingWritePlatformService productToGLAccountMappingWritePlatformService() {
+            final FromJsonHelper fromJsonHelper = new FromJsonHelper();
+            return new ProductToGLAccountMappingWritePlatformServiceImpl(fromJsonHelper,
+                    new ProductToGLAccountMappingFromApiJsonDeserializer(fromJsonHelper), mock(LoanProductToGLAccountMappingHelper.class),
+                    mock(SavingsProductToGLAccountMappingHelper.class), mock(ShareProductToGLAccountMappingHelper.class));
+        }
+
+        @Bean
+        GLAccountWritePlatformService glAccountWritePlatformService(final GLAccountRepository glAccountRepository,
+                final JdbcTemplate jdbcTemplate) {
+            return new GLAccountWritePlatformServiceJpaRepositoryImpl(glAccountRepository, mock(JournalEntryRepository.class),
+                    new GLAccountCommandFromApiJsonDeserializer(new FromJsonHelper()), mock(CodeValueRepositoryWrapper.class),
+                    jdbcTemplate);
+        }
+    }
+
+    @Autowired
+    private ProductToGLAccountMappingLookupService lookupService;
+    @Autowired
+    private ProductToGLAccountMappingWritePlatformService mappingWritePlatformService;
+    @Autowired
+    private GLAccountWritePlatformService glAccountWritePlatformService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private GLAccountRepository glAccountRepository;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        reset(this.jdbcTemplate, this.glAccountRepository);
+        this.cacheManager.getCache("productToGLAccountMappings").clear();
+        when(this.glAccountRepository.findById(GL_ACCOUNT_ID)).thenReturn(Optional.of(mock(GLAccount.class)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void cachesTheSnapshotPerTenantAndProduct() {
+        this.lookupService.retrieveSnapshot(PortfolioProductType.LOAN, PRODUCT_ID);
+        this.lookupService.retrieveSnapshot(PortfolioProductType.LOAN, PRODUCT_ID);
+        this.lookupService.retrieveSnapshot(PortfolioProductType.SAVING, PRODUCT_ID);
+        verifyLoaded(PortfolioProductType.LOAN, PRODUCT_ID, 1);
+        verifyLoaded(PortfolioProductType.SAVING, PRODUCT_ID, 1);
+
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(2L, "other", "Other", "Asia/Kolkata", null));
+        this.lookupService.retrieveSnapshot(PortfolioProductType.LOAN, PRODUCT_ID);
+        verifyLoaded(PortfolioProductType.LOAN, PRODUCT_ID, 2);
+    }
+
+    @Test
+    void creatingLoanProductMappingsEvictsTheirSnapshot() {
+        assertEvictsOnlyTheWrittenProduct(PortfolioProductType.LOAN,
+                () -> this.mappingWritePlatformService.createLoanProductToGLAccountMapping(PRODUCT_ID, command()));
+    }
+
+    @Test
+    void updatingLoanProductMappingsEvictsTheirSnapshot() {
+        assertEvictsOnlyTheWrittenProduct(PortfolioProductType.LOAN,
+                () -> this.mappingWritePlatformService.updateLoanProductToGLAccountMapping(PRODUCT_ID, command(), false, 1));
+    }
+
+    @Test
+    void creatingSavingsProductMappingsEvictsTheirSnapshot() {
+        assertEvictsOnlyTheWrittenProduct(PortfolioProductType.SAVING, () -> this.mappingWritePlatformService
+                .createSavingProductToGLAccountMapping(PRODUCT_ID, command(), DepositAccountType.SAVINGS_DEPOSIT));
+    }
+
+    @Test
+    void updatingSavingsProductMappingsEvictsTheirSnapshot() {
+        assertEvictsOnlyTheWrittenProduct(PortfolioProductType.SAVING, () -> this.mappingWritePlatformService
+                .updateSavingsProductToGLAccountMapping(PRODUCT_ID, command(), false, 1, DepositAccountType.SAVINGS_DEPOSIT));
+    }
+
+    @Test
+    void creatingShareProductMappingsEvictsTheirSnapshot() {
+        assertEvictsOnlyTheWrittenProduct(PortfolioProductType.SHARES,
+                () -> this.mappingWritePlatformService.createShareProductToGLAccountMapping(PRODUCT_ID, command()));
+    }
+
+    @Test
+    void updatingShareProductMappingsEvictsTheirSnapshot() {
+        assertEvictsOnlyTheWrittenProduct(PortfolioProductType.SHARES,
+                () -> this.mappingWritePlatformService.updateShareProductToGLAccountMapping(PRODUCT_ID, command(), false, 1));
+    }
+
+    @Test
+    void deletingAGLAccountEvictsAllSnapshots() {
+        this.lookupService.retrieveSnapshot(PortfolioProductType.LOAN, PRODUCT_ID);
+        this.lookupService.retrieveSnapshot(PortfolioProductType.SAVING, OTHER_PRODUCT_ID);
+
+        this.glAccountWritePlatformService.deleteGLAccount(GL_ACCOUNT_ID);
+
+        this.lookupService.retrieveSnapshot(PortfolioProductType.LOAN, PRODUCT_ID);
+        this.lookupService.retrieveSnapshot(PortfolioProductType.SAVING, OTHER_PRODUCT_ID);
+        verifyLoaded(PortfolioProductType.LOAN, PRODUCT_ID, 2);
+        verifyLoaded(PortfolioProductType.SAVING, OTHER_PRODUCT_ID, 2);
+    }
+
+    @Test
+    void aFailedWriteKeepsTheSnapshots() {
+        this.lookupService.retrieveSnapshot(PortfolioProductType.LOAN, PRODUCT_ID);
+
+        assertThrows(GLAccountNotFoundException.class, () -> this.glAccountWritePlatformService.deleteGLAccount(GL_ACCOUNT_ID + 1));
+
+        this.lookupService.retrieveSnapshot(PortfolioProductType.LOAN, PRODUCT_ID);
+        verifyLoaded(PortfolioProductType.LOAN, PRODUCT_ID, 1);
+    }
+
+    private void assertEvictsOnlyTheWrittenProduct(final PortfolioProductType productType, final Runnable write) {
+        final PortfolioProductType otherType = productType == PortfolioProductType.LOAN ? PortfolioProductType.SAVING
+                : PortfolioProductType.LOAN;
+        this.lookupService.retrieveSnapshot(productType, PRODUCT_ID);
+        this.lookupService.retrieveSnapshot(productType, OTHER_PRODUCT_ID);
+        this.lookupService.retrieveSnapshot(otherType, PRODUCT_ID);
+
+        write.run();
+
+        this.lookupService.retrieveSnapshot(productType, PRODUCT_ID);
+        this.lookupService.retrieveSnapshot(productType, OTHER_PRODUCT_ID);
+        this.lookupService.retrieveSnapshot(otherType, PRODUCT_ID);
+        verifyLoaded(productType, PRODUCT_ID, 2);
+        verifyLoaded(productType, OTHER_PRODUCT_ID, 1);
+        verifyLoaded(otherType, PRODUCT_ID, 1);
+    }
+
+    private void verifyLoaded(final PortfolioProductType productType, final Long productId, final int times) {
+        verify(this.jdbcTemplate, times(times)).query(anyString(), any(RowCallbackHandler.class), eq(productId),
+                eq(productType.getValue()));
+    }
+
+    private static JsonCommand command() {
+        return JsonCommand.from(NO_ACCOUNTING);
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.provisioning.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.apache.fineract.accounting.glaccount.domain.GLAccount;
+import org.apache.fineract.accounting.glaccount.domain.GLAccountRepository;
+import org.apache.fineract.accounting.provisioning.data.LoanProductProvisioningEntryData;
+import org.apache.fineract.accounting.provisioning.domain.LoanProductProvisioningEntry;
+import org.apache.fineract.accounting.provisioning.domain.ProvisioningEntry;
+import org.apache.fineract.accounting.provisioning.domain.ProvisioningEntryRepository;
+import org.apache.fineract.infrastructure.core.api.JsonCommand;
+import org.apache.fineract.infrastructure.core.domain.AbstractPersistableCustom;
+import org.apache.fineract.organisation.monetary.domain.MonetaryCurrency;
+import org.apache.fineract.organisation.monetary.domain.Money;
+import org.apache.fineract.organisation.monetary.domain.MoneyHelper;
+import org.apache.fineract.organisation.office.domain.Office;
+import org.apache.fineract.organisation.office.domain.OfficeRepositoryWrapper;
+import org.apache.fineract.organisation.provisioning.domain.ProvisioningCategory;
+import org.apache.fineract.organisation.provisioning.domain.ProvisioningCategoryRepository;
+import org.apache.fineract.portfolio.loanproduct.domain.LoanProduct;
+import org.apache.fineract.portfolio.loanproduct.domain.LoanProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProvisioningEntriesWritePlatformServiceJpaRepositoryImplTest {
+
+    private static final LocalDate PROVISIONING_DATE = LocalDate.of(2022, 6, 30);
+    private static final String LINK_SQL = "insert into m_loanproduct_provisioning_entry_loans (loan_id, loanproduct_provision_entry_id)"
+            + " values (?, ?)";
+
+    @Mock
+    private ProvisioningEntriesReadPlatformService provisioningEntriesReadPlatformService;
+    @Mock
+    private LoanProductRepository loanProductRepository;
+    @Mock
+    private GLAccountRepository glAccountRepository;
+    @Mock
+    private OfficeRepositoryWrapper officeRepositoryWrapper;
+    @Mock
+    private ProvisioningCategoryRepository provisioningCategoryRepository;
+    @Mock
+    private ProvisioningEntryRepository provisioningEntryRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ProvisioningEntriesWritePlatformServiceJpaRepositoryImpl underTest;
+
+    private final JsonCommand command = JsonCommand.from("{}");
+    private ProvisioningEntry provisioningEntry;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(MoneyHelper.class, "roundingMode", RoundingMode.HALF_EVEN);
+
+        this.provisioningEntry = new ProvisioningEntry(null, PROVISIONING_DATE, null, null, new HashSet<>());
+        ReflectionTestUtils.setField(this.provisioningEntry, "id", 5L);
+        when(this.provisioningEntryRepository.findById(5L)).thenReturn(Optional.of(this.provisioningEntry));
+
+        LoanProduct loanProduct = withId(mock(LoanProduct.class), 1L);
+        when(loanProduct.getPrincipalAmount()).thenReturn(Money.of(new MonetaryCurrency("USD", 2, null), BigDecimal.ZERO));
+        when(this.loanProductRepository.findById(1L)).thenReturn(Optional.of(loanProduct));
+        Office office = withId(mock(Office.class), 2L);
+        when(this.officeRepositoryWrapper.findOneWithNotFoundDetection(2L)).thenReturn(office);
+        ProvisioningCategory category = withId(mock(ProvisioningCategory.class), 3L);
+        when(this.provisioningCategoryRepository.findById(3L)).thenReturn(Optional.of(category));
+        when(this.glAccountRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(withId(mock(GLAccount.class), invocation.getArgument(0))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(MoneyHelper.class, "roundingMode", null);
+    }
+
+    @Test
+    void aggregatesTheLoansOfAnEntryAndLinksThemToTheSavedEntry() {
+        streamRows(row(11L, 30L, "100", "10"), row(12L, 30L, "50.004", "10"), row(13L, 60L, "30", "20"));
+        when(this.provisioningEntryRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            ProvisioningEntry saved = invocation.getArgument(0);
+            for (LoanProductProvisioningEntry entry : saved.getLoanProductProvisioningEntries()) {
+                ReflectionTestUtils.setField(entry, "id", entry.getOverdueInDays() == 30L ? 100L : 101L);
+            }
+            return saved;
+        });
+
+        this.underTest.reCreateProvisioningEntries(5L, this.command);
+
+        List<LoanProductProvisioningEntry> entries = new ArrayList<>(this.provisioningEntry.getLoanProductProvisioningEntries());
+        entries.sort(Comparator.comparing(LoanProductProvisioningEntry::getOverdueInDays));
+        assertEquals(2, entries.size());
+        assertEquals(0, new BigDecimal("15.00").compareTo(entries.get(0).getReservedAmount()));
+        assertEquals(0, new BigDecimal("6.00").compareTo(entries.get(1).getReservedAmount()));
+
+        List<Object[]> links = linkedLoans();
+        assertEquals(3, links.size());
+        assertArrayEquals(new Object[] { 11L, 100L }, links.get(0));
+        assertArrayEquals(new Object[] { 12L, 100L }, links.get(1));
+        assertArrayEquals(new Object[] { 13L, 101L }, links.get(2));
+    }
+
+    @Test
+    void matchesMergedCopiesOfTheEntriesByTheirGroupingKey() {
+        streamRows(row(11L, 30L, "100", "10"), row(13L, 60L, "30", "20"));
+        // the saved copies come back with the scale of the column, which makes them unequal by value
+        when(this.provisioningEntryRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0))
+                .thenAnswer(invocation -> mergedCopy(invocation.getArgument(0)));
+
+        this.underTest.reCreateProvisioningEntries(5L, this.command);
+
+        List<Object[]> links = linkedLoans();
+        assertEquals(2, links.size());
+        assertArrayEquals(new Object[] { 11L, 230L }, links.get(0));
+        assertArrayEquals(new Object[] { 13L, 260L }, links.get(1));
+    }
+
+    @Test
+    void skipsTheLoansOfACategoryThatNoLongerExists() {
+        // category 9 was deleted after the rows were read
+        when(this.provisioningCategoryRepository.findById(9L)).thenReturn(Optional.empty());
+        streamRows(row(11L, 3L, 30L, "100", "10"), row(12L, 9L, 60L, "50", "10"));
+        when(this.provisioningEntryRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0))
+                .thenAnswer(invocation -> mergedCopy(invocation.getArgument(0)));
+
+        this.underTest.reCreateProvisioningEntries(5L, this.command);
+
+        List<LoanProductProvisioningEntry> entries = new ArrayList<>(this.provisioningEntry.getLoanProductProvisioningEntries());
+        assertEquals(1, entries.size());
+        assertEquals(3L, entries.get(0).getProvisioningCategory().getId());
+        List<Object[]> links = linkedLoans();
+        assertEquals(1, links.size());
+        assertArrayEquals(new Object[] { 11L, 230L }, links.get(0));
+    }
+
+    @Test
+    void loadsNothingWhileTheRowsAreStreamed() {
+        doAnswer(invocation -> {
+            Consumer<LoanProductProvisioningEntryData> consumer = invocation.getArgument(1);
+            consumer.accept(row(11L, 30L, "100", "10"));
+            consumer.accept(row(13L, 60L, "30", "20"));
+            verifyNoInteractions(this.loanProductRepository, this.officeRepositoryWrapper, this.provisioningCategoryRepository,
+                    this.glAccountRepository);
+            return null;
+        }).when(this.provisioningEntriesReadPlatformService).retrieveLoanProductsProvisioningData(eq(PROVISIONING_DATE), any());
+        when(this.provisioningEntryRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        this.underTest.reCreateProvisioningEntries(5L, this.command);
+
+        verify(this.loanProductRepository).findById(1L);
+        verify(this.officeRepositoryWrapper).findOneWithNotFoundDetection(2L);
+        verify(this.provisioningCategoryRepository).findById(3L);
+    }
+
+    private void streamRows(LoanProductProvisioningEntryData... rows) {
+        doAnswer(invocation -> {
+            Consumer<LoanProductProvisioningEntryData> consumer = invocation.getArgument(1);
+            for (LoanProductProvisioningEntryData row : rows) {
+                consumer.accept(row);
+            }
+            return null;
+        }).when(this.provisioningEntriesReadPlatformService).retrieveLoanProductsProvisioningData(eq(PROVISIONING_DATE), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> linkedLoans() {
+        ArgumentCaptor<List<Object[]>> links = ArgumentCaptor.forClass(List.class);
+        verify(this.jdbcTemplate).batchUpdate(eq(LINK_SQL), links.capture());
+        return links.getValue();
+    }
+
+    private static LoanProductProvisioningEntryData row(Long loanId, Long overdueInDays, String balance, String percentage) {
+        return row(loanId, 3L, overdueInDays, balance, percentage);
+    }
+
+    private static LoanProductProvisioningEntryData row(Long loanId, Long categoryId, Long overdueInDays, String balance,
+            String percentage) {
+        return new LoanProductProvisioningEntryData(null, 2L, "USD", 1L, categoryId, overdueInDays, new BigDecimal(percentage),
+                new BigDecimal(balance), 7L, 8L, 4L, loanId);
+    }
+
+    private static ProvisioningEntry mergedCopy(ProvisioningEntry saved) {
+        ProvisioningEntry copy = new ProvisioningEntry(null, saved.getCreatedDate(), null, null, new HashSet<>());
+        ReflectionTestUtils.setField(copy, "id", saved.getId());
+        List<LoanProductProvisioningEntry> entries = new ArrayList<>();
+        for (LoanProductProvisioningEntry entry : saved.getLoanProductProvisioningEntries()) {
+            LoanProductProvisioningEntry merged = new LoanProductProvisioningEntry(entry.getLoanProduct(), entry.getOffice(),
+                    entry.getCurrencyCode(), entry.getProvisioningCategory(), entry.getOverdueInDays(),
+                    entry.getReservedAmount().setScale(6), entry.getLiabilityAccount(), entry.getExpenseAccount(), entry.getCriteriaId());
+            merged.setProvisioningEntry(copy);
+            ReflectionTestUtils.setField(merged, "id", 200L + entry.getOverdueInDays());
+            entries.add(merged);
+        }
+        copy.setProvisioningEntries(entries);
+        return copy;
+    }
+
+    private static <T extends AbstractPersistableCustom> T withId(T mock, Long id) {
+        when(mock.getId()).thenReturn(id);
+        return mock;
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.accounting.trialbalance.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class TrialBalanceIncrementalUpdateServiceImplTest {
+
+    private static final long OFFICE_ID = 1L;
+    private static final long ACCOUNT_ID = 10L;
+    private static final LocalDate CUTOFF_DATE = LocalDate.of(2022, 10, 12);
+
+    @InjectMocks
+    private TrialBalanceIncrementalUpdateServiceImpl underTest;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> rowsCaptor;
+
+    @BeforeEach
+    public void init() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    public void testEntriesFromTheCutoffDateOnAreLeftPending() {
+        givenPendingEntries();
+
+        underTest.rollPendingJournalEntries(CUTOFF_DATE);
+
+        verify(jdbcTemplate).query(contains("is_trial_balance_calculated = false and je.transaction_date < ?"),
+                any(RowCallbackHandler.class), eq(CUTOFF_DATE));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void testEntryCommittedLateIsRolledInByTheNextRun() throws SQLException {
+        // entry 5 got its id first but only commits after the first run has read the pending entries
+        givenPendingEntries(journalEntry(7L, "2022-10-10", "100"));
+        givenTrialBalanceRows();
+
+        underTest.rollPendingJournalEntries(CUTOFF_DATE);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into m_trial_balance"), rowsCaptor.capture());
+        assertRow(rowsCaptor.getValue().get(0), OFFICE_ID, ACCOUNT_ID, "100", "2022-10-10", "2022-10-10", "100");
+        assertMarkedEntries(7L);
+
+        clearInvocations(jdbcTemplate);
+        givenPendingEntries(journalEntry(5L, "2022-10-10", "50"));
+        givenTrialBalanceRows(trialBalanceRow("2022-10-10", "100", "100"));
+
+        underTest.rollPendingJournalEntries(CUTOFF_DATE);
+
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("insert into m_trial_balance"), anyList());
+        verify(jdbcTemplate).batchUpdate(startsWith("update m_trial_balance"), rowsCaptor.capture());
+        assertEquals(1, rowsCaptor.getValue().size());
+        assertRow(rowsCaptor.getValue().get(0), "150", "150", OFFICE_ID, ACCOUNT_ID, "2022-10-10", "2022-10-10");
+        assertMarkedEntries(5L);
+    }
+
+    @Test
+    public void testBackDatedEntryCorrectsTheClosingBalancesAfterIt() throws SQLException {
+        givenPendingEntries(journalEntry(20L, "2022-10-05", "30"));
+        when(jdbcTemplate.queryForList(startsWith("select closing_balance"), eq(BigDecimal.class), eq(OFFICE_ID), eq(ACCOUNT_ID),
+                eq(LocalDate.of(2022, 10, 5)))).thenReturn(List.of(new BigDecimal("1000")));
+        givenTrialBalanceRows(trialBalanceRow("2022-10-08", "100", "1100"), trialBalanceRow("2022-10-09", "-20", "1080"));
+
+        underTest.rollPendingJournalEntries(CUTOFF_DATE);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into m_trial_balance"), rowsCaptor.capture());
+        assertEquals(1, rowsCaptor.getValue().size());
+        assertRow(rowsCaptor.getValue().get(0), OFFICE_ID, ACCOUNT_ID, "30", "2022-10-05", "2022-10-05", "1030");
+
+        verify(jdbcTemplate).batchUpdate(startsWith("update m_trial_balance"), rowsCaptor.capture());
+        assertEquals(2, rowsCaptor.getValue().size());
+        assertRow(rowsCaptor.getValue().get(0), "100", "1130", OFFICE_ID, ACCOUNT_ID, "2022-10-08", "2022-10-08");
+        assertRow(rowsCaptor.getValue().get(1), "-20", "1110", OFFICE_ID, ACCOUNT_ID, "2022-10-09", "2022-10-09");
+        assertMarkedEntries(20L);
+    }
+
+    @Test
+    public void testRebuildFollowedByAnIncrementalRunAgreesWithARebuildOfAllEntries() throws SQLException {
+        givenEntriesAfterLastTrialBalance(journalEntry(1L, "2022-10-08", "100"), journalEntry(2L, "2022-10-09", "-30"));
+
+        underTest.rebuildFromLastTrialBalanceDate(CUTOFF_DATE);
+
+        verify(jdbcTemplate).query(contains("je.transaction_date > (select coalesce(max(created_date)"), any(RowCallbackHandler.class),
+                eq(CUTOFF_DATE));
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into m_trial_balance"), rowsCaptor.capture());
+        final List<Object[]> rebuiltRows = rowsCaptor.getValue();
+        assertEquals(2, rebuiltRows.size());
+        assertRow(rebuiltRows.get(0), OFFICE_ID, ACCOUNT_ID, "100", "2022-10-08", "2022-10-08", "100");
+        assertRow(rebuiltRows.get(1), OFFICE_ID, ACCOUNT_ID, "-30", "2022-10-09", "2022-10-09", "70");
+        assertMarkedEntries(1L, 2L);
+
+        // the same entries, the first day rebuilt and the second one rolled in incrementally
+        clearInvocations(jdbcTemplate);
+        givenEntriesAfterLastTrialBalance(journalEntry(1L, "2022-10-08", "100"));
+        underTest.rebuildFromLastTrialBalanceDate(CUTOFF_DATE);
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into m_trial_balance"), rowsCaptor.capture());
+        final BigDecimal rebuiltClosingBalance = (BigDecimal) rowsCaptor.getValue().get(0)[5];
+
+        clearInvocations(jdbcTemplate);
+        givenPendingEntries(journalEntry(2L, "2022-10-09", "-30"));
+        when(jdbcTemplate.queryForList(startsWith("select closing_balance"), eq(BigDecimal.class), eq(OFFICE_ID), eq(ACCOUNT_ID),
+                eq(LocalDate.of(2022, 10, 9)))).thenReturn(List.of(rebuiltClosingBalance));
+        underTest.rollPendingJournalEntries(CUTOFF_DATE);
+
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into m_trial_balance"), rowsCaptor.capture());
+        assertEquals(1, rowsCaptor.getValue().size());
+        assertRow(rowsCaptor.getValue().get(0), OFFICE_ID, ACCOUNT_ID, "-30", "2022-10-09", "2022-10-09", "70");
+        assertMarkedEntries(2L);
+    }
+
+    private void givenEntriesAfterLastTrialBalance(final ResultSet... rows) {
+        doAnswer(invocation -> {
+            final RowCallbackHandler handler = invocation.getArgument(1);
+            for (final ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("je.transaction_date > (select"), any(RowCallbackHandler.class), any(LocalDate.class));
+    }
+
+    private void givenPendingEntries(final ResultSet... rows) {
+        doAnswer(invocation -> {
+            final RowCallbackHandler handler = invocation.getArgument(1);
+            for (final ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("je.is_trial_balance_calculated = false"), any(RowCallbackHandler.class),
+                any(LocalDate.class));
+    }
+
+    private void givenTrialBalanceRows(final ResultSet... rows) {
+        doAnswer(invocation -> {
+            final RowCallbackHandler handler = invocation.getArgument(1);
+            for (final ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("select created_date"), any(RowCallbackHandler.class), eq(OFFICE_ID), eq(ACCOUNT_ID),
+                any(LocalDate.class));
+    }
+
+    private void assertMarkedEntries(final Long... journalEntryIds) {
+        verify(jdbcTemplate).batchUpdate(startsWith("update acc_gl_journal_entry set is_trial_balance_calculated = true"),
+                rowsCaptor.capture());
+        final List<Object[]> marked = rowsCaptor.getValue();
+        assertEquals(journalEntryIds.length, marked.size());
+        for (int i = 0; i < journalEntryIds.length; i++) {
+            assertEquals(journalEntryIds[i], marked.get(i)[0]);
+        }
+    }
+
+    private static void assertRow(final Object[] row, final Object... expected) {
+        assertEquals(expected.length, row.length);
+        for (int i = 0; i < expected.length; i++) {
+            if (row[i] instanceof BigDecimal) {
+                assertEquals(0, new BigDecimal((String) expected[i]).compareTo((BigDecimal) row[i]), "column " + i);
+            } else if (row[i] instanceof LocalDate) {
+                assertEquals(LocalDate.parse((String) expected[i]), row[i], "column " + i);
+            } else {
+                assertEquals(expected[i], row[i], "column " + i);
+            }
+        }
+    }
+
+    private static ResultSet journalEntry(final long id, final String transactionDate, final String amount) throws SQLException {
+        final ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getLong("office_id")).thenReturn(OFFICE_ID);
+        when(rs.getLong("account_id")).thenReturn(ACCOUNT_ID);
+        when(rs.getDate("transaction_date")).thenReturn(Date.valueOf(transactionDate));
+        when(rs.getDate("entry_date")).thenReturn(Date.valueOf(transactionDate));
+        when(rs.getBigDecimal("amount")).thenReturn(new BigDecimal(amount));
+        return rs;
+    }
+
+    private static ResultSet trialBalanceRow(final String date, final String amount, final String closingBalance) throws SQLException {
+        final ResultSet rs = mock(ResultSet.class);
+        when(rs.getDate("created_date")).thenReturn(Date.valueOf(date));
+        when(rs.getDate("entry_date")).thenReturn(Date.valueOf(date));
+        when(rs.getBigDecimal("amount")).thenReturn(new BigDecimal(amount));
+        when(rs.getBigDecimal("closing_balance")).thenReturn(new BigDecimal(closingBalance));
+        return rs;
+    }
+}
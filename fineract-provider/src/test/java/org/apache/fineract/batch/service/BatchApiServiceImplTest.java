@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.batch.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import javax.ws.rs.core.UriInfo;
+import org.apache.fineract.batch.command.CommandContext;
+import org.apache.fineract.batch.command.CommandStrategy;
+import org.apache.fineract.batch.command.CommandStrategyProvider;
+import org.apache.fineract.batch.domain.BatchRequest;
+import org.apache.fineract.batch.domain.BatchResponse;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractContext;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class BatchApiServiceImplTest {
+
+    private static final LocalDate BUSINESS_DATE = LocalDate.of(2022, 6, 30);
+
+    private final CommandStrategyProvider strategyProvider = mock(CommandStrategyProvider.class);
+    private final Map<String, CommandStrategy> strategies = new ConcurrentHashMap<>();
+    private final Map<Long, String> threads = new ConcurrentHashMap<>();
+    private final Map<Long, String> tenants = new ConcurrentHashMap<>();
+    private final Map<Long, LocalDate> businessDates = new ConcurrentHashMap<>();
+    private BatchRequestWorkerPool workerPool;
+    private BatchApiServiceImpl underTest;
+
+    @BeforeEach
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, BUSINESS_DATE)));
+        when(this.strategyProvider.getCommandStrategy(any())).thenAnswer(invocation -> {
+            final CommandContext context = invocation.getArgument(0);
+            return this.strategies.entrySet().stream()
+                    .filter(entry -> context.equals(CommandContext.resource(entry.getKey()).method("POST").build())).findFirst()
+                    .map(Map.Entry::getValue).orElseThrow(() -> new AssertionError("No strategy stubbed for " + context));
+        });
+        this.strategies.put("ok", (request, uriInfo) -> ok(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (this.workerPool != null) {
+            this.workerPool.destroy();
+        }
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void runsIndependentTreesConcurrentlyWithTheCallerContext() {
+        start(4, 10);
+        // both roots have to be running at the same time to get past the latch
+        final CountDownLatch bothRootsRunning = new CountDownLatch(2);
+        this.strategies.put("root", (request, uriInfo) -> {
+            bothRootsRunning.countDown();
+            try {
+                assertTrue(bothRootsRunning.await(5, TimeUnit.SECONDS), "roots did not run in parallel");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return ok(request);
+        });
+
+        final List<BatchResponse> responses = this.underTest.handleBatchRequestsInParallel(
+                List.of(request(1L, "root", null), request(2L, "ok", 1L), request(3L, "root", null), request(4L, "ok", 3L)),
+                mock(UriInfo.class));
+
+        assertThat(responses).extracting(BatchResponse::getRequestId).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(responses).extracting(BatchResponse::getStatusCode).containsOnly(200);
+        assertThat(this.threads.get(1L)).isNotEqualTo(this.threads.get(3L)).startsWith("fineract-batch-worker-");
+        // a child runs after its parent, on the thread of its tree
+        assertThat(this.threads.get(2L)).isEqualTo(this.threads.get(1L));
+        assertThat(this.threads.get(4L)).isEqualTo(this.threads.get(3L));
+        assertThat(this.tenants.values()).hasSize(4).containsOnly("default");
+        assertThat(this.businessDates.values()).hasSize(4).containsOnly(BUSINESS_DATE);
+    }
+
+    @Test
+    void failureOfATreeOnlyAffectsThatTree() {
+        start(4, 10);
+        this.strategies.put("fail", (request, uriInfo) -> {
+            throw new IllegalStateException("rejected by the strategy");
+        });
+        this.strategies.put("broken", (request, uriInfo) -> {
+            throw new AssertionError("not a runtime exception");
+        });
+
+        final List<BatchResponse> responses = this.underTest.handleBatchRequestsInParallel(List.of(request(1L, "ok", null),
+                request(2L, "ok", 1L), request(3L, "fail", null), request(4L, "ok", 3L), request(5L, "ok", null),
+                request(6L, "broken", 5L), request(8L, "broken", null), request(9L, "ok", 8L)), mock(UriInfo.class));
+
+        final Map<Long, Integer> statusCodes = responses.stream()
+                .collect(Collectors.toMap(BatchResponse::getRequestId, BatchResponse::getStatusCode));
+        final Map<Long, String> bodies = responses.stream().collect(Collectors.toMap(BatchResponse::getRequestId, BatchResponse::getBody));
+        assertThat(responses).extracting(BatchResponse::getRequestId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 8L, 9L);
+        // an untouched tree
+        assertThat(statusCodes.get(1L)).isEqualTo(200);
+        assertThat(statusCodes.get(2L)).isEqualTo(200);
+        // a failed root answers its children with a conflict
+        assertThat(statusCodes.get(3L)).isEqualTo(500);
+        assertThat(statusCodes.get(4L)).isEqualTo(409);
+        // the root keeps its response when the tree fails further down
+        assertThat(statusCodes.get(5L)).isEqualTo(200);
+        assertThat(statusCodes.get(6L)).isEqualTo(500);
+        // a tree that fails as a whole has all its requests answered
+        assertThat(statusCodes.get(8L)).isEqualTo(500);
+        assertThat(statusCodes.get(9L)).isEqualTo(500);
+        assertThat(bodies.get(9L)).isEqualTo("not a runtime exception");
+        assertThat(this.threads).containsOnlyKeys(1L, 2L, 5L);
+    }
+
+    @Test
+    void treesThatDoNotFitIntoTheQueueAreAnsweredWithServiceUnavailable() throws Exception {
+        start(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        // keeps the only worker busy, so that the first tree takes the only queue slot
+        final Future<Boolean> blocker = this.workerPool.submit(() -> release.await(5, TimeUnit.SECONDS));
+
+        final FineractContext context = ThreadLocalContextUtil.getContext();
+        final AtomicReference<List<BatchResponse>> result = new AtomicReference<>();
+        final Thread batch = new Thread(() -> {
+            ThreadLocalContextUtil.init(context);
+            result.set(this.underTest.handleBatchRequestsInParallel(
+                    List.of(request(1L, "ok", null), request(2L, "ok", null), request(3L, "ok", 2L)), mock(UriInfo.class)));
+        });
+        batch.start();
+        // the batch waits for the first tree once every tree is submitted or rejected
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (batch.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        batch.join(5000);
+
+        assertThat(blocker.get()).isTrue();
+        final List<BatchResponse> responses = result.get();
+        assertThat(responses).extracting(BatchResponse::getRequestId).containsExactly(1L, 2L, 3L);
+        assertThat(responses).extracting(BatchResponse::getStatusCode).containsExactly(200, 503, 503);
+        assertThat(this.threads).containsOnlyKeys(1L);
+    }
+
+    private void start(final int poolSize, final int queueCapacity) {
+        final FineractProperties properties = new FineractProperties();
+        final FineractProperties.FineractBatchProperties batch = new FineractProperties.FineractBatchProperties();
+        batch.setWorkerPoolSize(poolSize);
+        batch.setQueueCapacity(queueCapacity);
+        properties.setBatch(batch);
+        this.workerPool = new BatchRequestWorkerPool(properties);
+        this.underTest = new BatchApiServiceImpl(this.strategyProvider, new ResolutionHelper(new FromJsonHelper()),
+                mock(TransactionTemplate.class), this.workerPool);
+    }
+
+    private BatchResponse ok(final BatchRequest request) {
+        this.threads.put(request.getRequestId(), Thread.currentThread().getName());
+        this.tenants.put(request.getRequestId(), ThreadLocalContextUtil.getTenant().getTenantIdentifier());
+        this.businessDates.put(request.getRequestId(), ThreadLocalContextUtil.getBusinessDateByType(BusinessDateType.BUSINESS_DATE));
+        final BatchResponse response = new BatchResponse();
+        response.setRequestId(request.getRequestId());
+        response.setStatusCode(200);
+        response.setBody("{}");
+        return response;
+    }
+
+    private static BatchRequest request(final Long requestId, final String relativeUrl, final Long reference) {
+        return new BatchRequest(requestId, relativeUrl, "POST", Set.of(), reference, "{}");
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.cob.loan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.apache.fineract.cob.service.BusinessStepService;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractJobProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenantConnection;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
+import org.apache.fineract.infrastructure.jobs.service.JobName;
+import org.apache.fineract.infrastructure.jobs.service.JobRangeCheckpointService;
+import org.apache.fineract.infrastructure.jobs.service.JobRunMetricsHolder;
+import org.apache.fineract.infrastructure.jobs.service.JobWorkerPool;
+import org.apache.fineract.portfolio.loanaccount.domain.Loan;
+import org.apache.fineract.portfolio.loanaccount.domain.LoanRepositoryWrapper;
+import org.apache.fineract.portfolio.loanaccount.service.LoanReadPlatformService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LoanCOBExecutionServiceImplTest {
+
+    private static final LocalDate RUN_DATE = LocalDate.of(2022, 6, 1);
+    private static final String LOCK_OWNER = JobName.LOAN_COB.name();
+    private static final Map<String, String> JOB_PARAMETERS = Map.of("thread-pool-size", "1", "batch-size", "5");
+
+    @Mock
+    private LoanCOBBusinessStep step;
+    @Mock
+    private BusinessStepService businessStepService;
+    @Mock
+    private LoanAccountLockService loanAccountLockService;
+    @Mock
+    private LoanReadPlatformService loanReadPlatformService;
+    @Mock
+    private LoanRepositoryWrapper loanRepositoryWrapper;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private JobRangeCheckpointService jobRangeCheckpointService;
+
+    private final FineractProperties fineractProperties = new FineractProperties();
+    private JobWorkerPool jobWorkerPool;
+    private LoanCOBExecutionServiceImpl underTest;
+
+    @BeforeEach
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(
+                new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", mock(FineractPlatformTenantConnection.class)));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, RUN_DATE)));
+        final FineractJobProperties jobProperties = new FineractJobProperties();
+        jobProperties.setLoanCobEnabled(true);
+        this.fineractProperties.setJob(jobProperties);
+        this.jobWorkerPool = new JobWorkerPool(this.fineractProperties, new SimpleMeterRegistry());
+
+        when(this.step.getEnumStyledName()).thenReturn("TEST_STEP");
+        when(this.step.execute(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(this.businessStepService.retrieveStepNames(LOCK_OWNER)).thenReturn(List.of("TEST_STEP"));
+        when(this.loanReadPlatformService.retrieveActiveLoanIds(anyLong(), anyInt())).thenAnswer(invocation -> LongStream
+                .rangeClosed(invocation.<Long>getArgument(0) + 1, 5L).limit(invocation.<Integer>getArgument(1)).boxed()
+                .collect(Collectors.toList()));
+        when(this.loanRepositoryWrapper.findOneWithNotFoundDetection(anyLong())).thenAnswer(invocation -> mock(Loan.class));
+        when(this.transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(this.jobRangeCheckpointService.retrieveCompletedRanges(LOCK_OWNER, RUN_DATE)).thenReturn(new TreeMap<>());
+
+        this.underTest = new LoanCOBExecutionServiceImpl(List.of(this.step), this.businessStepService, this.loanAccountLockService,
+                this.loanReadPlatformService, this.loanRepositoryWrapper, new TransactionTemplate(this.transactionManager),
+                this.jobWorkerPool, this.jobRangeCheckpointService, this.fineractProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.jobWorkerPool.destroy();
+        JobRunMetricsHolder.clear();
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void failsTheLoansOfARangeThatAreLockedOrFailAndCheckpointsTheOthers() {
+        // loan 4 is locked by someone else, the step fails for loan 3
+        when(this.loanAccountLockService.lockLoans(anyList(), eq(LOCK_OWNER))).thenAnswer(invocation -> {
+            final List<Long> locked = new ArrayList<>(invocation.<List<Long>>getArgument(0));
+            locked.remove(Long.valueOf(4L));
+            return locked;
+        });
+        final Loan failingLoan = mock(Loan.class);
+        when(this.loanRepositoryWrapper.findOneWithNotFoundDetection(3L)).thenReturn(failingLoan);
+        when(this.step.execute(failingLoan)).thenThrow(new IllegalStateException("step failed"));
+
+        final JobExecutionException exception = assertThrows(JobExecutionException.class,
+                () -> this.underTest.executeLoanCOB(JOB_PARAMETERS));
+
+        assertEquals(2, exception.getCauses().size());
+        verify(this.jobRangeCheckpointService).saveCompletedRange(LOCK_OWNER, RUN_DATE, 1L, 2L, 2);
+        verify(this.jobRangeCheckpointService).saveCompletedRange(LOCK_OWNER, RUN_DATE, 5L, 5L, 1);
+        verify(this.jobRangeCheckpointService, never()).clearCompletedRanges(anyString(), any());
+        // every loan locked by the job is unlocked again, also the one that failed
+        verify(this.loanAccountLockService).unlockLoan(1L);
+        verify(this.loanAccountLockService).unlockLoan(2L);
+        verify(this.loanAccountLockService).unlockLoan(3L);
+        verify(this.loanAccountLockService).unlockLoan(5L);
+        verify(this.loanAccountLockService, never()).unlockLoan(4L);
+        verify(this.loanAccountLockService, times(2)).releaseLocks(LOCK_OWNER);
+        verify(this.transactionManager).rollback(any());
+        verify(this.transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void refusesToRunWhileLoanCobIsDisabled() {
+        this.fineractProperties.getJob().setLoanCobEnabled(false);
+
+        assertThrows(JobExecutionException.class, () -> this.underTest.executeLoanCOB(JOB_PARAMETERS));
+
+        verify(this.loanAccountLockService, never()).lockLoans(anyList(), anyString());
+    }
+
+    @Test
+    void refusesToRunWithoutJobProperties() {
+        this.fineractProperties.setJob(null);
+
+        assertThrows(JobExecutionException.class, () -> this.underTest.executeLoanCOB(JOB_PARAMETERS));
+
+        verify(this.loanAccountLockService, never()).lockLoans(anyList(), anyString());
+    }
+}
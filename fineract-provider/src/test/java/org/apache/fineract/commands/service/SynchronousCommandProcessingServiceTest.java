@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.commands.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import org.apache.fineract.cob.exceptions.LoanAccountLockedException;
+import org.apache.fineract.cob.loan.LoanAccountLockService;
+import org.apache.fineract.commands.domain.CommandSourceRepository;
+import org.apache.fineract.commands.domain.CommandWrapper;
+import org.apache.fineract.commands.provider.CommandHandlerProvider;
+import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
+import org.apache.fineract.infrastructure.core.api.JsonCommand;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractJobProperties;
+import org.apache.fineract.infrastructure.core.data.CommandProcessingResult;
+import org.apache.fineract.infrastructure.core.serialization.ToApiJsonSerializer;
+import org.apache.fineract.infrastructure.security.service.PlatformSecurityContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationContext;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SynchronousCommandProcessingServiceTest {
+
+    private static final Long LOAN_ID = 7L;
+
+    @Mock
+    private PlatformSecurityContext context;
+    @Mock
+    private ApplicationContext applicationContext;
+    @Mock
+    private ToApiJsonSerializer<Map<String, Object>> toApiJsonSerializer;
+    @Mock
+    private ToApiJsonSerializer<CommandProcessingResult> toApiResultJsonSerializer;
+    @Mock
+    private CommandSourceRepository commandSourceRepository;
+    @Mock
+    private ConfigurationDomainService configurationDomainService;
+    @Mock
+    private CommandHandlerProvider commandHandlerProvider;
+    @Mock
+    private LoanAccountLockService loanAccountLockService;
+
+    private final FineractProperties fineractProperties = new FineractProperties();
+    private SynchronousCommandProcessingService underTest;
+
+    @BeforeEach
+    void setUp() {
+        // the tests stop at looking up the handler, which only happens once the command has passed the lock check
+        when(this.commandHandlerProvider.getHandler(any())).thenThrow(new IllegalStateException("handler looked up"));
+        this.underTest = new SynchronousCommandProcessingService(this.context, this.applicationContext, this.toApiJsonSerializer,
+                this.toApiResultJsonSerializer, this.commandSourceRepository, this.configurationDomainService,
+                this.commandHandlerProvider, this.loanAccountLockService, this.fineractProperties);
+    }
+
+    @Test
+    void rejectsCommandsAgainstALoanLockedByLoanCob() {
+        enableLoanCob(true);
+        when(this.loanAccountLockService.isLoanLocked(LOAN_ID)).thenReturn(true);
+
+        final LoanAccountLockedException exception = assertThrows(LoanAccountLockedException.class,
+                () -> this.underTest.processAndLogCommand(approveLoan(), JsonCommand.from("{}"), false));
+
+        assertEquals("error.msg.loan.locked.by.cob", exception.getGlobalisationMessageCode());
+        verify(this.commandHandlerProvider, never()).getHandler(any());
+    }
+
+    @Test
+    void processesCommandsAgainstALoanThatIsNotLocked() {
+        enableLoanCob(true);
+        when(this.loanAccountLockService.isLoanLocked(LOAN_ID)).thenReturn(false);
+
+        assertHandlerLookedUp(approveLoan());
+        verify(this.loanAccountLockService).isLoanLocked(LOAN_ID);
+    }
+
+    @Test
+    void doesNotCheckCommandsThatAreNotAgainstALoan() {
+        enableLoanCob(true);
+
+        assertHandlerLookedUp(new CommandWrapperBuilder().createClient().build());
+        verify(this.loanAccountLockService, never()).isLoanLocked(anyLong());
+    }
+
+    @Test
+    void doesNotCheckLocksWhileLoanCobIsDisabled() {
+        enableLoanCob(false);
+
+        assertHandlerLookedUp(approveLoan());
+        verify(this.loanAccountLockService, never()).isLoanLocked(anyLong());
+    }
+
+    @Test
+    void doesNotCheckLocksWithoutJobProperties() {
+        this.fineractProperties.setJob(null);
+
+        assertHandlerLookedUp(approveLoan());
+        verify(this.loanAccountLockService, never()).isLoanLocked(anyLong());
+    }
+
+    private void assertHandlerLookedUp(final CommandWrapper wrapper) {
+        final IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> this.underTest.processAndLogCommand(wrapper, JsonCommand.from("{}"), false));
+        assertEquals("handler looked up", exception.getMessage());
+    }
+
+    private void enableLoanCob(final boolean enabled) {
+        final FineractJobProperties jobProperties = new FineractJobProperties();
+        jobProperties.setLoanCobEnabled(enabled);
+        this.fineractProperties.setJob(jobProperties);
+    }
+
+    private static CommandWrapper approveLoan() {
+        return new CommandWrapperBuilder().approveLoanApplication(LOAN_ID).build();
+    }
+}
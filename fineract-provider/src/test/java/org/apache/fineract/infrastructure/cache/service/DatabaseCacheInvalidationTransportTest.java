@@ -0,0 +1,223 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.cache.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.fineract.infrastructure.cache.data.CacheInvalidationData;
+import org.apache.fineract.infrastructure.cache.domain.CacheType;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class DatabaseCacheInvalidationTransportTest {
+
+    private static final String OTHER_NODE = "other-node";
+
+    private InvalidationTable table;
+    private DatabaseCacheInvalidationTransport underTest;
+    private final List<CacheInvalidationData> received = new ArrayList<>();
+
+    @BeforeEach
+    public void init() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        this.table = new InvalidationTable();
+        // polled by the tests themselves, the scheduled poll never comes round
+        this.underTest = new DatabaseCacheInvalidationTransport(this.table, Duration.ofHours(1).toMillis(), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.underTest.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    public void testPublishWithinTransactionWaitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        this.underTest.publish(new CacheInvalidationData("users", 1L));
+        assertTrue(this.table.rows.isEmpty());
+
+        for (final TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertEquals(1, this.table.rows.size());
+        assertEquals("users", this.table.rows.get(0).cacheName);
+        assertEquals("1", this.table.rows.get(0).key);
+    }
+
+    @Test
+    public void testPublishOutsideTransactionInsertsRightAway() {
+        this.underTest.publish(CacheInvalidationData.allEntries("offices"));
+
+        assertEquals(1, this.table.rows.size());
+        assertEquals("offices", this.table.rows.get(0).cacheName);
+    }
+
+    @Test
+    public void testRowCommittedLateIsAppliedOnLaterPoll() {
+        this.table.add(OTHER_NODE, "users", "1", "long");
+        this.underTest.start(this.received::add);
+
+        this.table.add(OTHER_NODE, "users", "2", "long");
+        final Row lateRow = this.table.add(OTHER_NODE, "users", "3", "long");
+        lateRow.visible = false;
+        this.table.add(OTHER_NODE, "users", "4", "long");
+
+        this.underTest.poll(this.received::add);
+        assertEquals(Arrays.asList(2L, 4L), receivedKeys());
+
+        lateRow.visible = true;
+        this.underTest.poll(this.received::add);
+        assertEquals(Arrays.asList(2L, 4L, 3L), receivedKeys());
+
+        this.underTest.poll(this.received::add);
+        assertEquals(Arrays.asList(2L, 4L, 3L), receivedKeys());
+    }
+
+    @Test
+    public void testOwnRowsAreSkippedWithoutLeavingGaps() {
+        this.underTest.start(this.received::add);
+        this.underTest.publish(new CacheInvalidationData("users", 1L));
+        this.table.add(OTHER_NODE, "users", "2", "long");
+
+        this.underTest.poll(this.received::add);
+        this.underTest.poll(this.received::add);
+
+        assertEquals(Arrays.asList(2L), receivedKeys());
+        assertEquals(0, this.table.gapLookups);
+    }
+
+    @Test
+    public void testCacheTypeSwitchIsPassedOn() {
+        this.underTest.start(this.received::add);
+        this.underTest.publish(CacheInvalidationData.cacheTypeSwitch(CacheType.MULTI_NODE));
+        final Row published = this.table.rows.get(0);
+        this.table.add(OTHER_NODE, published.cacheName, published.key, published.keyType);
+
+        this.underTest.poll(this.received::add);
+
+        assertEquals(1, this.received.size());
+        assertTrue(this.received.get(0).isCacheTypeSwitch());
+        assertEquals(CacheType.MULTI_NODE, this.received.get(0).getCacheType());
+    }
+
+    private List<Object> receivedKeys() {
+        return this.received.stream().map(CacheInvalidationData::getKey).collect(Collectors.toList());
+    }
+
+    private static final class Row {
+
+        private final long id;
+        private final String nodeId;
+        private final String cacheName;
+        private final String key;
+        private final String keyType;
+        private boolean visible = true;
+
+        private Row(final long id, final String nodeId, final String cacheName, final String key, final String keyType) {
+            this.id = id;
+            this.nodeId = nodeId;
+            this.cacheName = cacheName;
+            this.key = key;
+            this.keyType = keyType;
+        }
+
+        private ResultSet toResultSet() throws SQLException {
+            final ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn(this.id);
+            when(rs.getString("node_id")).thenReturn(this.nodeId);
+            when(rs.getString("cache_name")).thenReturn(this.cacheName);
+            when(rs.getString("cache_key")).thenReturn(this.key);
+            when(rs.getString("key_type")).thenReturn(this.keyType);
+            return rs;
+        }
+    }
+
+    /**
+     * Stands in for the c_cache_invalidation table, with rows that can be held back as an uncommitted insert would be.
+     */
+    private static final class InvalidationTable extends JdbcTemplate {
+
+        private final List<Row> rows = new ArrayList<>();
+        private int gapLookups;
+
+        private Row add(final String nodeId, final String cacheName, final String key, final String keyType) {
+            final Row row = new Row(this.rows.size() + 1L, nodeId, cacheName, key, keyType);
+            this.rows.add(row);
+            return row;
+        }
+
+        @Override
+        public int update(final String sql, final Object... args) {
+            if (sql.startsWith("insert")) {
+                add((String) args[0], (String) args[1], (String) args[2], (String) args[3]);
+                return 1;
+            }
+            return 0;
+        }
+
+        @Override
+        public <T> T queryForObject(final String sql, final Class<T> requiredType) {
+            return requiredType.cast(this.rows.stream().filter(row -> row.visible).mapToLong(row -> row.id).max().orElse(0L));
+        }
+
+        @Override
+        public <T> List<T> query(final String sql, final RowMapper<T> rowMapper, final Object... args) {
+            final List<Row> matching;
+            if (sql.contains("where id in")) {
+                this.gapLookups++;
+                final List<Object> ids = Arrays.asList(args);
+                matching = this.rows.stream().filter(row -> row.visible && ids.contains(row.id)).collect(Collectors.toList());
+            } else {
+                final long afterId = (Long) args[0];
+                matching = this.rows.stream().filter(row -> row.visible && row.id > afterId).collect(Collectors.toList());
+            }
+            final List<T> mapped = new ArrayList<>();
+            try {
+                for (final Row row : matching) {
+                    mapped.add(rowMapper.mapRow(row.toResultSet(), mapped.size()));
+                }
+            } catch (final SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return mapped;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.cache.service;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.function.Consumer;
+import org.apache.fineract.infrastructure.cache.data.CacheInvalidationData;
+import org.apache.fineract.infrastructure.cache.domain.CacheType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.cache.Cache;
+import org.springframework.cache.jcache.JCacheCacheManager;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class RuntimeDelegatingCacheManagerTest {
+
+    @Mock
+    private JCacheCacheManager jCacheCacheManager;
+
+    @Mock
+    private CacheInvalidationTransport transport;
+
+    @Mock
+    private Cache usersCache;
+
+    @Captor
+    private ArgumentCaptor<Consumer<CacheInvalidationData>> receiverCaptor;
+
+    private RuntimeDelegatingCacheManager underTest;
+
+    @BeforeEach
+    public void init() {
+        when(this.jCacheCacheManager.getCache("users")).thenReturn(this.usersCache);
+        this.underTest = new RuntimeDelegatingCacheManager(this.jCacheCacheManager, this.transport);
+    }
+
+    @Test
+    public void testCacheTypeSwitchOfAnotherNodeIsFollowed() {
+        final Consumer<CacheInvalidationData> receiver = start(CacheType.NO_CACHE);
+
+        receiver.accept(CacheInvalidationData.cacheTypeSwitch(CacheType.SINGLE_NODE));
+
+        assertSame(this.usersCache, this.underTest.getCache("users"));
+    }
+
+    @Test
+    public void testEvictionsOfOtherNodesOnlyApplyToMultiNodeCache() {
+        final Consumer<CacheInvalidationData> receiver = start(CacheType.SINGLE_NODE);
+
+        receiver.accept(new CacheInvalidationData("users", 1L));
+        verify(this.usersCache, never()).evict(any());
+
+        receiver.accept(CacheInvalidationData.cacheTypeSwitch(CacheType.MULTI_NODE));
+        receiver.accept(new CacheInvalidationData("users", 1L));
+        verify(this.usersCache).evict(1L);
+    }
+
+    @Test
+    public void testCacheTypeSwitchIsPublished() {
+        this.underTest.publishCacheTypeSwitch(CacheType.MULTI_NODE);
+
+        final ArgumentCaptor<CacheInvalidationData> published = ArgumentCaptor.forClass(CacheInvalidationData.class);
+        verify(this.transport).publish(published.capture());
+        assertSame(CacheType.MULTI_NODE, published.getValue().getCacheType());
+    }
+
+    private Consumer<CacheInvalidationData> start(final CacheType cacheType) {
+        this.underTest.switchToCache(cacheType, cacheType);
+        verify(this.transport).start(this.receiverCaptor.capture());
+        return this.receiverCaptor.getValue();
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.configuration.domain;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.fineract.useradministration.exception.PermissionNotFoundException;
+import org.apache.fineract.useradministration.service.PermissionLookupService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class ConfigurationDomainServiceJpaTest {
+
+    @InjectMocks
+    private ConfigurationDomainServiceJpa underTest;
+
+    @Mock
+    private PermissionLookupService permissionLookupService;
+
+    @Mock
+    private GlobalConfigurationRepositoryWrapper globalConfigurationRepository;
+
+    @Test
+    public void testMakerCheckerIsLookedUpPerPermission() {
+        when(this.permissionLookupService.isMakerCheckerEnabledForTask("CREATE_LOAN")).thenReturn(true);
+        when(this.permissionLookupService.isMakerCheckerEnabledForTask("DISBURSE_LOAN")).thenReturn(false);
+
+        assertTrue(this.underTest.isMakerCheckerEnabledForTask("CREATE_LOAN"));
+        assertFalse(this.underTest.isMakerCheckerEnabledForTask("DISBURSE_LOAN"));
+        // the global flag comes with the permission, not from this node's configuration map
+        verify(this.globalConfigurationRepository, never()).findOneByNameWithNotFoundDetection(anyString());
+    }
+
+    @Test
+    public void testUnknownPermissionIsRejected() {
+        when(this.permissionLookupService.isMakerCheckerEnabledForTask("UNKNOWN")).thenReturn(null);
+
+        assertThrows(PermissionNotFoundException.class, () -> this.underTest.isMakerCheckerEnabledForTask("UNKNOWN"));
+        assertThrows(PermissionNotFoundException.class, () -> this.underTest.isMakerCheckerEnabledForTask(" "));
+    }
+}
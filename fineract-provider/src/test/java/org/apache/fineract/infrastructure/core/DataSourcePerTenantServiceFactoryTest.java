@@ -25,13 +25,16 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Properties;
 import javax.sql.DataSource;
 import org.apache.fineract.infrastructure.core.config.FineractProperties;
@@ -99,6 +102,9 @@ public class DataSourcePerTenantServiceFactoryTest {
     @Mock
     private HikariDataSourceFactory hikariDataSourceFactory;
 
+    @Mock
+    private MeterRegistry meterRegistry;
+
     @Captor
     private ArgumentCaptor<HikariConfig> hikariConfigCaptor;
 
@@ -222,6 +228,27 @@ public class DataSourcePerTenantServiceFactoryTest {
         assertEquals(MASTER_DB_AUTO_COMMIT_ENABLED, hikariConfig.isAutoCommit());
     }
 
+    @Test
+    void testCreateReplacementDataSourceFor_ShouldUseAPoolNameOfItsOwn() {
+        // given
+        FineractProperties.FineractModeProperties modeProperties = createModeProps(MASTER_DB_AUTO_COMMIT_ENABLED,
+                MASTER_DB_AUTO_COMMIT_ENABLED, MASTER_DB_AUTO_COMMIT_ENABLED, MASTER_DB_AUTO_COMMIT_ENABLED);
+        given(fineractProperties.getMode()).willReturn(modeProperties);
+
+        // when
+        underTest.createNewDataSourceFor(defaultTenant.getConnection());
+        underTest.createReplacementDataSourceFor(defaultTenant.getConnection());
+        underTest.createReplacementDataSourceFor(defaultTenant.getConnection());
+
+        // then
+        verify(hikariDataSourceFactory, times(3)).create(hikariConfigCaptor.capture());
+        List<HikariConfig> hikariConfigs = hikariConfigCaptor.getAllValues();
+        assertEquals(MASTER_DB_SCHEMA_NAME + "_pool", hikariConfigs.get(0).getPoolName());
+        assertEquals(MASTER_DB_SCHEMA_NAME + "_pool_1", hikariConfigs.get(1).getPoolName());
+        assertEquals(MASTER_DB_SCHEMA_NAME + "_pool_2", hikariConfigs.get(2).getPoolName());
+        assertEquals(MASTER_DB_JDBC_URL, hikariConfigs.get(2).getJdbcUrl());
+    }
+
     private FineractProperties.FineractModeProperties createModeProps(boolean readEnabled, boolean writeEnabled, boolean batchWorkerEnabled,
             boolean batchManagerEnabled) {
         FineractProperties.FineractModeProperties modeProperties = new FineractProperties.FineractModeProperties();
@@ -23,6 +23,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -33,12 +34,14 @@ import java.util.List;
 import javax.sql.DataSource;
 import org.apache.fineract.infrastructure.core.config.FineractProperties;
 import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.service.migration.ChangelogChecksumService;
 import org.apache.fineract.infrastructure.core.service.migration.ExtendedSpringLiquibase;
 import org.apache.fineract.infrastructure.core.service.migration.ExtendedSpringLiquibaseFactory;
 import org.apache.fineract.infrastructure.core.service.migration.SchemaUpgradeNeededException;
 import org.apache.fineract.infrastructure.core.service.migration.TenantDataSourceFactory;
 import org.apache.fineract.infrastructure.core.service.migration.TenantDatabaseStateVerifier;
 import org.apache.fineract.infrastructure.core.service.migration.TenantDatabaseUpgradeService;
+import org.apache.fineract.infrastructure.core.service.migration.TenantUpgradeTracker;
 import org.apache.fineract.infrastructure.security.service.TenantDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -60,6 +63,7 @@ public class LiquibaseStepDefinitions implements En {
     private List<FineractPlatformTenant> allTenants;
     private SchemaUpgradeNeededException executionException;
     private DataSource defaultTenantDataSource;
+    private ChangelogChecksumService changelogChecksumService;
 
     public LiquibaseStepDefinitions() {
         Given("Liquibase is disabled with a default tenant", () -> {
@@ -90,6 +94,10 @@ public class LiquibaseStepDefinitions implements En {
             given(databaseStateVerifier.isFlywayPresent(defaultTenantDataSource)).willReturn(true);
             given(databaseStateVerifier.isTenantOnLatestUpgradableVersion(defaultTenantDataSource)).willReturn(false);
         });
+        Given("The default tenant database was migrated with the current changelog", () -> {
+            given(changelogChecksumService.calculateChecksum("tenant_db")).willReturn("checksum");
+            given(changelogChecksumService.isOnChecksum(defaultTenantDataSource, "checksum")).willReturn(true);
+        });
 
         When("The database migration process is executed", () -> {
             try {
@@ -135,6 +143,12 @@ public class LiquibaseStepDefinitions implements En {
             verify(tenantLiquibase).afterPropertiesSet();
         });
 
+        Then("The tenant store gets upgraded and Liquibase is skipped for the default tenant", () -> {
+            verify(tenantStoreLiquibase).afterPropertiesSet();
+            verifyNoInteractions(initialTenantLiquibase, tenantLiquibase);
+            verify(changelogChecksumService, never()).saveChecksum(any(), any());
+        });
+
         Then("The tenant store and the default tenant gets synced and then upgraded", () -> {
             verify(initialTenantStoreLiquibase).changeLogSync();
             verify(tenantStoreLiquibase).afterPropertiesSet();
@@ -162,6 +176,7 @@ public class LiquibaseStepDefinitions implements En {
         tenantStoreLiquibase = mock(ExtendedSpringLiquibase.class);
 
         defaultTenantDataSource = mock(DataSource.class);
+        changelogChecksumService = mock(ChangelogChecksumService.class);
 
         given(databaseStateVerifier.isLiquibaseDisabled()).willReturn(!liquibaseEnabled);
         given(liquibaseFactory.create(tenantStoreDataSource, "tenant_store_db", "initial_switch")).willReturn(initialTenantStoreLiquibase);
@@ -173,6 +188,6 @@ public class LiquibaseStepDefinitions implements En {
         given(liquibaseFactory.create(defaultTenantDataSource, "tenant_db")).willReturn(tenantLiquibase);
 
         tenantDatabaseUpgradeService = new TenantDatabaseUpgradeService(tenantDetailsService, tenantStoreDataSource, fineractProperties,
-                databaseStateVerifier, liquibaseFactory, tenantDataSourceFactory);
+                databaseStateVerifier, liquibaseFactory, tenantDataSourceFactory, changelogChecksumService, new TenantUpgradeTracker());
     }
 }
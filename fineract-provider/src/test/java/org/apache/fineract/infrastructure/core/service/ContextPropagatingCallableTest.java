@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.core.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.domain.ActionContext;
+import org.apache.fineract.infrastructure.core.domain.FineractContext;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+class ContextPropagatingCallableTest {
+
+    private static final FineractPlatformTenant TENANT = new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null);
+    private static final FineractPlatformTenant OTHER_TENANT = new FineractPlatformTenant(2L, "other", "Other", "Asia/Kolkata", null);
+
+    @AfterEach
+    void tearDown() {
+        ThreadLocalContextUtil.restore(new FineractContext(null, null, null, null, null));
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void runsTheTaskWithTheContextOfTheCreatingThread() throws Exception {
+        final Authentication authentication = new TestingAuthenticationToken("mifos", "password");
+        init("tenant-ds", TENANT, "token", LocalDate.of(2022, 6, 30), ActionContext.COB, authentication);
+        final ContextPropagatingCallable<FineractContext> callable = new ContextPropagatingCallable<>(() -> {
+            assertThat(SecurityContextHolder.getContext().getAuthentication()).isSameAs(authentication);
+            return ThreadLocalContextUtil.snapshot();
+        });
+
+        final FineractContext seen = runOnFreshThread(callable);
+
+        assertThat(seen.getContextHolder()).isEqualTo("tenant-ds");
+        assertThat(seen.getTenantContext()).isSameAs(TENANT);
+        assertThat(seen.getAuthTokenContext()).isEqualTo("token");
+        assertThat(seen.getBusinessDateContext()).containsEntry(BusinessDateType.BUSINESS_DATE, LocalDate.of(2022, 6, 30));
+        assertThat(seen.getActionContext()).isEqualTo(ActionContext.COB);
+    }
+
+    @Test
+    void leavesNothingBehindOnAPooledThread() throws Exception {
+        init("tenant-ds", TENANT, "token", LocalDate.of(2022, 6, 30), ActionContext.COB,
+                new TestingAuthenticationToken("mifos", "password"));
+        final ContextPropagatingCallable<Boolean> callable = new ContextPropagatingCallable<>(() -> true);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(callable).get(5, TimeUnit.SECONDS);
+            final FineractContext left = executor.submit(ThreadLocalContextUtil::snapshot).get(5, TimeUnit.SECONDS);
+            final Authentication leftAuthentication = executor.submit(() -> SecurityContextHolder.getContext().getAuthentication())
+                    .get(5, TimeUnit.SECONDS);
+
+            assertThat(left.getContextHolder()).isNull();
+            assertThat(left.getTenantContext()).isNull();
+            assertThat(left.getAuthTokenContext()).isNull();
+            assertThat(left.getBusinessDateContext()).isNull();
+            assertThat(left.getActionContext()).isNull();
+            assertThat(leftAuthentication).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void restoresTheContextOfAThreadRunningTheTaskItself() throws Exception {
+        final Authentication authentication = new TestingAuthenticationToken("mifos", "password");
+        init("tenant-ds", TENANT, "token", LocalDate.of(2022, 6, 30), ActionContext.COB, authentication);
+        final ContextPropagatingCallable<Boolean> callable = new ContextPropagatingCallable<>(() -> true);
+        final Authentication ownAuthentication = new TestingAuthenticationToken("other", "password");
+        init("other-ds", OTHER_TENANT, "other-token", LocalDate.of(2022, 7, 1), ActionContext.DEFAULT, ownAuthentication);
+
+        callable.call();
+
+        assertThat(ThreadLocalContextUtil.getDataSourceContext()).isEqualTo("other-ds");
+        assertThat(ThreadLocalContextUtil.getTenant()).isSameAs(OTHER_TENANT);
+        assertThat(ThreadLocalContextUtil.getAuthToken()).isEqualTo("other-token");
+        assertThat(ThreadLocalContextUtil.getBusinessDateByType(BusinessDateType.BUSINESS_DATE)).isEqualTo(LocalDate.of(2022, 7, 1));
+        assertThat(ThreadLocalContextUtil.getActionContext()).isEqualTo(ActionContext.DEFAULT);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isSameAs(ownAuthentication);
+    }
+
+    private static void init(final String dataSource, final FineractPlatformTenant tenant, final String authToken,
+            final LocalDate businessDate, final ActionContext actionContext, final Authentication authentication) {
+        ThreadLocalContextUtil.init(new FineractContext(dataSource, tenant, authToken,
+                new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, businessDate)), actionContext));
+        final SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(authentication);
+        SecurityContextHolder.setContext(securityContext);
+    }
+
+    private static <T> T runOnFreshThread(final ContextPropagatingCallable<T> callable) throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(callable).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
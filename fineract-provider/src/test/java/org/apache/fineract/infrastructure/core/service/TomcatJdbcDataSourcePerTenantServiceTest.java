@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.core.service;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.List;
+import javax.sql.DataSource;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenantConnection;
+import org.apache.fineract.infrastructure.security.service.TenantDetailsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TomcatJdbcDataSourcePerTenantServiceTest {
+
+    @Mock
+    private DataSource tenantDataSource;
+    @Mock
+    private DataSourcePerTenantServiceFactory dataSourcePerTenantServiceFactory;
+    @Mock
+    private TenantDetailsService tenantDetailsService;
+    @Mock
+    private FineractProperties fineractProperties;
+    @Mock
+    private FineractPlatformTenantConnection connection;
+    @Mock
+    private FineractPlatformTenantConnection updatedConnection;
+
+    private final HikariDataSource oldPool = mock(HikariDataSource.class);
+    private final HikariDataSource newPool = mock(HikariDataSource.class);
+
+    private TomcatJdbcDataSourcePerTenantService underTest;
+
+    @BeforeEach
+    void setUp() {
+        when(this.connection.getConnectionId()).thenReturn(1L);
+        when(this.updatedConnection.getConnectionId()).thenReturn(1L);
+        when(this.dataSourcePerTenantServiceFactory.createNewDataSourceFor(this.connection)).thenReturn(this.oldPool);
+        when(this.dataSourcePerTenantServiceFactory.createReplacementDataSourceFor(this.updatedConnection)).thenReturn(this.newPool);
+        when(this.dataSourcePerTenantServiceFactory.isSameDatabase(this.connection, this.updatedConnection)).thenReturn(false);
+        when(this.dataSourcePerTenantServiceFactory.isSameDatabase(this.updatedConnection, this.updatedConnection)).thenReturn(true);
+        when(this.tenantDetailsService.findAllTenantConnections()).thenReturn(List.of(this.updatedConnection));
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", this.connection));
+
+        this.underTest = new TomcatJdbcDataSourcePerTenantService(this.tenantDataSource, this.dataSourcePerTenantServiceFactory,
+                this.tenantDetailsService, this.fineractProperties);
+        assertSame(this.oldPool, this.underTest.retrieveDataSource());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void keepsAReplacedPoolOpenUntilItsConnectionsAreReturned() {
+        when(this.dataSourcePerTenantServiceFactory.isInUse(this.oldPool)).thenReturn(true);
+
+        this.underTest.refreshDataSources();
+
+        assertSame(this.newPool, this.underTest.retrieveDataSource());
+        verify(this.dataSourcePerTenantServiceFactory).retireDataSource(this.oldPool);
+        verify(this.oldPool, never()).close();
+
+        when(this.dataSourcePerTenantServiceFactory.isInUse(this.oldPool)).thenReturn(false);
+        this.underTest.refreshDataSources();
+
+        verify(this.oldPool).close();
+        verify(this.newPool, never()).close();
+    }
+
+    @Test
+    void retiresThePoolOfARemovedConnection() {
+        when(this.tenantDetailsService.findAllTenantConnections()).thenReturn(List.of());
+        when(this.dataSourcePerTenantServiceFactory.isInUse(any())).thenReturn(true);
+
+        this.underTest.refreshDataSources();
+
+        verify(this.dataSourcePerTenantServiceFactory).retireDataSource(this.oldPool);
+        verify(this.oldPool, never()).close();
+    }
+
+    @Test
+    void closesRetiredPoolsOnShutdown() {
+        when(this.dataSourcePerTenantServiceFactory.isInUse(any())).thenReturn(true);
+        this.underTest.refreshDataSources();
+
+        this.underTest.shutdown();
+
+        verify(this.oldPool).close();
+        verify(this.newPool).close();
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.dataqueries.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.exception.PlatformDataIntegrityException;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
+import org.apache.fineract.infrastructure.security.service.PlatformSecurityContext;
+import org.apache.fineract.infrastructure.security.service.SqlInjectionPreventerService;
+import org.apache.fineract.organisation.office.domain.Office;
+import org.apache.fineract.useradministration.domain.AppUser;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the report exports through a real {@link JdbcTemplate} on top of a mocked JDBC driver, which hands out a given
+ * number of rows.
+ */
+class ReadReportingServiceImplTest {
+
+    private static final String REPORT_SQL = "select id, name from m_client";
+    private static final int FETCH_SIZE = 250;
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final AtomicInteger rowsRead = new AtomicInteger();
+    private final AtomicInteger rowsReadWhenFirstWritten = new AtomicInteger(-1);
+    private int rowCount;
+    private ReadReportingServiceImpl underTest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(this.transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        final DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(this.connection);
+        when(this.connection.prepareStatement(REPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+                .thenReturn(this.statement);
+        when(this.statement.executeQuery()).thenReturn(this.resultSet);
+        final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnTypeName(1)).thenReturn("BIGINT");
+        when(metaData.getColumnTypeName(2)).thenReturn("VARCHAR");
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        when(metaData.getColumnLabel(2)).thenReturn("name");
+        when(this.resultSet.getMetaData()).thenReturn(metaData);
+        when(this.resultSet.next()).thenAnswer(invocation -> this.rowsRead.get() < this.rowCount && this.rowsRead.incrementAndGet() > 0);
+        when(this.resultSet.getString(1)).thenAnswer(invocation -> String.valueOf(this.rowsRead.get()));
+        when(this.resultSet.getString(2)).thenAnswer(invocation -> "client \"" + this.rowsRead.get() + "\"");
+        when(this.resultSet.getDouble(1)).thenAnswer(invocation -> (double) this.rowsRead.get());
+
+        final JdbcTemplate jdbcTemplate = spy(new JdbcTemplate(dataSource));
+        final SqlRowSet reportDefinition = mock(SqlRowSet.class);
+        when(reportDefinition.next()).thenReturn(true);
+        when(reportDefinition.getString("the_sql")).thenReturn(REPORT_SQL);
+        doReturn(reportDefinition).when(jdbcTemplate).queryForRowSet(anyString(), eq("Client Listing"));
+
+        final AppUser user = mock(AppUser.class);
+        final Office office = mock(Office.class);
+        when(office.getHierarchy()).thenReturn(".");
+        when(user.getOffice()).thenReturn(office);
+        when(user.getId()).thenReturn(1L);
+        final PlatformSecurityContext context = mock(PlatformSecurityContext.class);
+        when(context.authenticatedUser()).thenReturn(user);
+        final GenericDataService genericDataService = mock(GenericDataService.class);
+        when(genericDataService.replace(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> invocation.<String>getArgument(0).replace(invocation.getArgument(1), invocation.getArgument(2)));
+        when(genericDataService.wrapSQL(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        final SqlInjectionPreventerService sqlInjectionPreventerService = mock(SqlInjectionPreventerService.class);
+        when(sqlInjectionPreventerService.encodeSql(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        final FineractProperties properties = new FineractProperties();
+        final FineractProperties.FineractReportProperties reportProperties = new FineractProperties.FineractReportProperties();
+        reportProperties.setExportFetchSize(FETCH_SIZE);
+        reportProperties.setXlsxRowWindow(10);
+        properties.setReport(reportProperties);
+        final DatabaseSpecificSQLGenerator sqlGenerator = mock(DatabaseSpecificSQLGenerator.class);
+        when(sqlGenerator.currentBusinessDate()).thenReturn("'2022-06-30'");
+        when(sqlGenerator.currentTenantDateTime()).thenReturn("'2022-06-30 10:00:00'");
+        this.underTest = new ReadReportingServiceImpl(jdbcTemplate, context, genericDataService, sqlInjectionPreventerService, sqlGenerator,
+                properties, new TransactionTemplate(this.transactionManager));
+    }
+
+    @Test
+    void streamsTheCsvRowsWhileTheyAreRead() throws Exception {
+        this.rowCount = 10000;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        this.underTest.retrieveReportCSV("Client Listing", "report", Map.of(), false, null, null).write(recording(out));
+
+        final String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(10001);
+        assertThat(lines[0]).isEqualTo("\"id\",\"name\"");
+        assertThat(lines[1]).isEqualTo("1,\"client \"\"1\"\"\"");
+        assertThat(lines[10000]).isEqualTo("10000,\"client \"\"10000\"\"\"");
+        // the first rows reached the client long before the cursor was exhausted
+        assertThat(this.rowsReadWhenFirstWritten.get()).isGreaterThan(0).isLessThan(this.rowCount);
+        verify(this.statement).setFetchSize(FETCH_SIZE);
+        assertReadOnlyTransaction();
+        verify(this.transactionManager).commit(any());
+        assertClosed();
+    }
+
+    @Test
+    void stopsReadingWhenTheClientGoesAwayDuringACsvExport() throws Exception {
+        this.rowCount = 10000;
+
+        final StreamingOutput export = this.underTest.retrieveReportCSV("Client Listing", "report", Map.of(), false, null, null);
+
+        assertThrows(PlatformDataIntegrityException.class, () -> export.write(closedAfterFirstWrite()));
+
+        assertThat(this.rowsRead.get()).isLessThan(this.rowCount);
+        verify(this.transactionManager).rollback(any());
+        verify(this.transactionManager, never()).commit(any());
+        assertClosed();
+    }
+
+    @Test
+    void writesTheXlsxRowsReadFromTheCursorWithTypedCells() throws Exception {
+        this.rowCount = 50;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        this.underTest.retrieveReportXLSX("Client Listing", "report", Map.of(), false, null, null).write(out);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            final Sheet sheet = workbook.getSheetAt(0);
+            assertThat(sheet.getLastRowNum()).isEqualTo(50);
+            assertThat(sheet.getRow(0).getCell(0).getStringCellValue()).isEqualTo("id");
+            assertThat(sheet.getRow(0).getCell(1).getStringCellValue()).isEqualTo("name");
+            // rows older than the window of 10 were flushed to the temporary file and still end up in the workbook
+            assertThat(sheet.getRow(1).getCell(0).getCellType()).isEqualTo(CellType.NUMERIC);
+            assertThat(sheet.getRow(1).getCell(0).getNumericCellValue()).isEqualTo(1.0);
+            assertThat(sheet.getRow(50).getCell(0).getNumericCellValue()).isEqualTo(50.0);
+            assertThat(sheet.getRow(50).getCell(1).getStringCellValue()).isEqualTo("client \"\"50\"\"");
+        }
+        verify(this.statement).setFetchSize(FETCH_SIZE);
+        assertReadOnlyTransaction();
+        assertClosed();
+    }
+
+    @Test
+    void removesTheTemporaryFilesWhenTheClientGoesAwayDuringAnXlsxExport() throws Exception {
+        this.rowCount = 50;
+        final Set<String> temporaryFilesBefore = temporaryPoiFiles();
+        final StreamingOutput export = this.underTest.retrieveReportXLSX("Client Listing", "report", Map.of(), false, null, null);
+
+        assertThrows(PlatformDataIntegrityException.class, () -> export.write(closedAfterFirstWrite()));
+
+        assertThat(temporaryPoiFiles()).isSubsetOf(temporaryFilesBefore);
+        assertClosed();
+    }
+
+    private static Set<String> temporaryPoiFiles() {
+        final String[] files = new File(System.getProperty("java.io.tmpdir"), "poifiles").list();
+        return files == null ? Set.of() : Set.of(files);
+    }
+
+    private void assertReadOnlyTransaction() {
+        final ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(this.transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().isReadOnly()).isTrue();
+    }
+
+    private void assertClosed() throws Exception {
+        verify(this.resultSet).close();
+        verify(this.statement).close();
+        verify(this.connection, atLeastOnce()).close();
+    }
+
+    /**
+     * Records how many rows the cursor had handed out when the first bytes reached the client.
+     */
+    private OutputStream recording(final OutputStream out) {
+        return new OutputStream() {
+
+            @Override
+            public void write(final int b) throws IOException {
+                this.first();
+                out.write(b);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                this.first();
+                out.write(b, off, len);
+            }
+
+            private void first() {
+                rowsReadWhenFirstWritten.compareAndSet(-1, rowsRead.get());
+            }
+        };
+    }
+
+    /**
+     * A client that disconnects once the first chunk has been sent to it.
+     */
+    private static OutputStream closedAfterFirstWrite() {
+        return new OutputStream() {
+
+            private boolean written;
+
+            @Override
+            public void write(final int b) throws IOException {
+                this.write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                if (this.written) {
+                    throw new IOException("Broken pipe");
+                }
+                this.written = true;
+            }
+        };
+    }
+}
@@ -0,0 +1,340 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.hooks.listener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractHookProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.hooks.domain.Hook;
+import org.apache.fineract.infrastructure.hooks.domain.HookRepository;
+import org.apache.fineract.infrastructure.hooks.domain.HookRoutingTable;
+import org.apache.fineract.infrastructure.hooks.domain.HookRoutingTable.HookRoute;
+import org.apache.fineract.infrastructure.hooks.event.HookEvent;
+import org.apache.fineract.infrastructure.hooks.event.HookEventSource;
+import org.apache.fineract.infrastructure.hooks.processor.HookProcessor;
+import org.apache.fineract.infrastructure.hooks.processor.HookProcessorProvider;
+import org.apache.fineract.infrastructure.hooks.service.HookReadPlatformService;
+import org.apache.fineract.useradministration.domain.AppUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class HookEventDispatcherTest {
+
+    private static final long HOOK_ID = 1L;
+
+    @Mock
+    private HookReadPlatformService hookReadPlatformService;
+    @Mock
+    private HookProcessorProvider hookProcessorProvider;
+    @Mock
+    private HookRepository hookRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private HookProcessor processor;
+    @Mock
+    private Hook hook;
+    @Mock
+    private AppUser appUser;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HookEventDispatcher underTest;
+
+    @BeforeEach
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, LocalDate.of(2022, 6, 1))));
+        when(this.hookReadPlatformService.retrieveHookRoutingTable())
+                .thenReturn(HookRoutingTable.builder().route("LOAN", "CREATE", HOOK_ID, "Web").build());
+        when(this.hookProcessorProvider.getProcessor("Web")).thenReturn(this.processor);
+        when(this.hookRepository.findById(HOOK_ID)).thenReturn(Optional.of(this.hook));
+        when(this.transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (this.underTest != null) {
+            this.underTest.destroy();
+        }
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    private void start(final Consumer<FineractHookProperties> customizer) {
+        final FineractHookProperties hookProperties = new FineractHookProperties();
+        hookProperties.setWorkerPoolSize(1);
+        hookProperties.setCircuitBreakerFailureThreshold(1);
+        hookProperties.setCircuitBreakerOpenMillis(500);
+        customizer.accept(hookProperties);
+        final FineractProperties fineractProperties = new FineractProperties();
+        fineractProperties.setHook(hookProperties);
+        this.underTest = new HookEventDispatcher(fineractProperties, this.hookReadPlatformService, this.hookProcessorProvider,
+                this.hookRepository, new TransactionTemplate(this.transactionManager), this.meterRegistry);
+    }
+
+    @Test
+    void routingTableKeepsOneRoutePerHookAndEvent() {
+        final HookRoutingTable routingTable = HookRoutingTable.builder().route("LOAN", "CREATE", 1L, "Web")
+                .route("LOAN", "CREATE", 1L, "Web").route("LOAN", "CREATE", 2L, "SMS").route("CLIENT", "CREATE", 1L, "Web").build();
+
+        assertEquals(List.of(new HookRoute(1L, "Web"), new HookRoute(2L, "SMS")), routingTable.routesFor("LOAN", "CREATE"));
+        assertEquals(List.of(new HookRoute(1L, "Web")), routingTable.routesFor("CLIENT", "CREATE"));
+        assertTrue(routingTable.routesFor("LOAN", "DELETE").isEmpty());
+    }
+
+    @Test
+    void deliversEventToTheHookLoadedAtDelivery() throws Exception {
+        start(properties -> {});
+        this.underTest.dispatch(event("{\"loanId\":1}"));
+
+        verify(this.processor, timeout(2000)).process(eq(this.hook), eq("{\"loanId\":1}"), eq("LOAN"), eq("CREATE"), any());
+        verify(this.hookRepository).findById(HOOK_ID);
+    }
+
+    @Test
+    void loadsTheHookInAReadOnlyTransactionAndCallsTheEndpointAfterItHasEnded() throws Exception {
+        start(properties -> {});
+        final InOrder inOrder = inOrder(this.transactionManager, this.hookRepository, this.processor);
+
+        this.underTest.dispatch(event("{}"));
+
+        verify(this.processor, timeout(2000)).process(any(), anyString(), anyString(), anyString(), any());
+        inOrder.verify(this.transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        inOrder.verify(this.hookRepository).findById(HOOK_ID);
+        inOrder.verify(this.transactionManager).commit(any());
+        inOrder.verify(this.processor).process(eq(this.hook), eq("{}"), eq("LOAN"), eq("CREATE"), any());
+    }
+
+    @Test
+    void dropsDeliveriesOfADeletedHook() throws Exception {
+        start(properties -> {});
+        when(this.hookRepository.findById(HOOK_ID)).thenReturn(Optional.empty());
+
+        this.underTest.dispatch(event("{}"));
+
+        verify(this.hookRepository, timeout(2000)).findById(HOOK_ID);
+        verify(this.processor, after(200).never()).process(any(), anyString(), anyString(), anyString(), any());
+        assertEquals(0.0, this.meterRegistry.get("fineract.hook.delivery.failures").counter().count());
+        assertEquals(0.0, this.meterRegistry.get("fineract.hook.delivery.retries").counter().count());
+    }
+
+    @Test
+    void dropsEventsOnceTheQueueIsFull() throws Exception {
+        start(properties -> {
+            properties.setQueueCapacity(1);
+            properties.setBatchSize(1);
+        });
+        final CountDownLatch routing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final HookRoutingTable routingTable = HookRoutingTable.builder().route("LOAN", "CREATE", HOOK_ID, "Web").build();
+        when(this.hookReadPlatformService.retrieveHookRoutingTable()).thenAnswer(invocation -> {
+            routing.countDown();
+            assertTrue(release.await(2, TimeUnit.SECONDS));
+            return routingTable;
+        });
+
+        // the only worker is busy routing the first event, the second one fills the queue
+        this.underTest.dispatch(event("first"));
+        assertTrue(routing.await(2, TimeUnit.SECONDS));
+        this.underTest.dispatch(event("second"));
+        this.underTest.dispatch(event("third"));
+        release.countDown();
+
+        verify(this.processor, timeout(2000)).process(any(), eq("first"), anyString(), anyString(), any());
+        verify(this.processor, timeout(2000)).process(any(), eq("second"), anyString(), anyString(), any());
+        verify(this.processor, after(200).never()).process(any(), eq("third"), anyString(), anyString(), any());
+        assertEquals(1.0, this.meterRegistry.get("fineract.hook.events.dropped").counter().count());
+    }
+
+    @Test
+    void retriesFailedDeliveriesWithExponentialBackoff() throws Exception {
+        start(properties -> {
+            properties.setMaxRetries(2);
+            properties.setRetryBackoffMillis(50L);
+            properties.setCircuitBreakerFailureThreshold(10);
+        });
+        final List<Long> attempts = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            attempts.add(System.nanoTime());
+            if (attempts.size() <= 2) {
+                throw new IOException("connection reset");
+            }
+            return null;
+        }).when(this.processor).process(any(), anyString(), anyString(), anyString(), any());
+
+        this.underTest.dispatch(event("{}"));
+
+        await(() -> attempts.size() == 3);
+        verify(this.processor, after(200).times(3)).process(any(), anyString(), anyString(), anyString(), any());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(attempts.get(1) - attempts.get(0)) >= 50L);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(attempts.get(2) - attempts.get(1)) >= 100L);
+        assertEquals(2.0, this.meterRegistry.get("fineract.hook.delivery.retries").counter().count());
+        assertEquals(0.0, this.meterRegistry.get("fineract.hook.delivery.failures").counter().count());
+    }
+
+    @Test
+    void givesUpAfterTheLastRetry() throws Exception {
+        start(properties -> {
+            properties.setMaxRetries(1);
+            properties.setRetryBackoffMillis(10L);
+            properties.setCircuitBreakerFailureThreshold(10);
+        });
+        doThrow(new IOException("connection refused")).when(this.processor).process(any(), anyString(), anyString(), anyString(), any());
+
+        this.underTest.dispatch(event("{}"));
+
+        await(() -> this.meterRegistry.get("fineract.hook.delivery.failures").counter().count() == 1.0);
+        verify(this.processor, after(200).times(2)).process(any(), anyString(), anyString(), anyString(), any());
+        assertEquals(1.0, this.meterRegistry.get("fineract.hook.delivery.retries").counter().count());
+    }
+
+    @Test
+    void holdsDeliveriesWhileTheCircuitIsOpenAndDeliversThemOnceItCloses() throws Exception {
+        start(properties -> {});
+        doThrow(new IllegalStateException("endpoint down")).when(this.processor).process(any(), eq("first"), anyString(), anyString(),
+                any());
+
+        this.underTest.dispatch(event("first"));
+        await(() -> this.meterRegistry.get("fineract.hook.delivery.failures").counter().count() == 1.0);
+        this.underTest.dispatch(event("second"));
+        this.underTest.dispatch(event("third"));
+
+        verify(this.processor, timeout(2000)).process(any(), eq("second"), anyString(), anyString(), any());
+        verify(this.processor, timeout(2000)).process(any(), eq("third"), anyString(), anyString(), any());
+        assertEquals(2.0, this.meterRegistry.get("fineract.hook.delivery.held").counter().count());
+        assertEquals(0.0, this.meterRegistry.get("fineract.hook.delivery.rejected").counter().count());
+    }
+
+    @Test
+    void reopensTheCircuitWhenTheProbeFailsAndClosesItWhenAProbeSucceeds() throws Exception {
+        start(properties -> {
+            properties.setCircuitBreakerFailureThreshold(2);
+            properties.setCircuitBreakerOpenMillis(300L);
+        });
+        final Map<String, Long> deliveredAt = new ConcurrentHashMap<>();
+        doAnswer(invocation -> {
+            final String payload = invocation.getArgument(1);
+            deliveredAt.put(payload, System.nanoTime());
+            if (List.of("a", "b", "c").contains(payload)) {
+                throw new IllegalStateException("endpoint down");
+            }
+            return null;
+        }).when(this.processor).process(any(), anyString(), anyString(), anyString(), any());
+
+        // closed: both deliveries go ahead, the second failure opens the circuit
+        this.underTest.dispatch(event("a"));
+        await(() -> deliveredAt.containsKey("a"));
+        this.underTest.dispatch(event("b"));
+        await(() -> this.meterRegistry.get("fineract.hook.delivery.failures").counter().count() == 2.0);
+
+        // open: deliveries are held back
+        this.underTest.dispatch(event("c"));
+        this.underTest.dispatch(event("d"));
+        await(() -> this.meterRegistry.get("fineract.hook.delivery.held").counter().count() == 2.0);
+        verify(this.processor, after(150).never()).process(any(), eq("c"), anyString(), anyString(), any());
+
+        // half open: the oldest held delivery is the probe, it fails and the circuit opens again
+        await(() -> deliveredAt.containsKey("c"));
+        // the next probe only goes once the circuit has been open for another while, and closes it
+        await(() -> deliveredAt.containsKey("d"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(deliveredAt.get("d") - deliveredAt.get("c")) >= 300L);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(deliveredAt.get("c") - deliveredAt.get("b")) >= 300L);
+
+        // closed again: deliveries go straight through
+        this.underTest.dispatch(event("e"));
+        await(() -> deliveredAt.containsKey("e"));
+        assertEquals(3.0, this.meterRegistry.get("fineract.hook.delivery.failures").counter().count());
+        assertEquals(2.0, this.meterRegistry.get("fineract.hook.delivery.held").counter().count());
+        assertEquals(0.0, this.meterRegistry.get("fineract.hook.delivery.rejected").counter().count());
+    }
+
+    @Test
+    void removesIdleLanesWithTheirMeters() throws Exception {
+        start(properties -> {});
+        this.underTest.dispatch(event("{}"));
+        verify(this.processor, timeout(2000)).process(any(), anyString(), anyString(), anyString(), any());
+        assertNotNull(this.meterRegistry.find("fineract.hook.delivery.duration").tag("hook", "1").timer());
+
+        // the lane is only idle once its thread is done with the delivery, just after the processor returns
+        await(() -> {
+            this.underTest.removeIdleLanes(0L);
+            return this.meterRegistry.find("fineract.hook.delivery.duration").tag("hook", "1").timer() == null;
+        });
+
+        assertNull(this.meterRegistry.find("fineract.hook.delivery.duration").tag("hook", "1").timer());
+        assertNull(this.meterRegistry.find("fineract.hook.lane.queue.depth").tag("hook", "1").gauge());
+        this.underTest.dispatch(event("{}"));
+        verify(this.processor, timeout(2000).times(2)).process(any(), anyString(), anyString(), anyString(), any());
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 2 seconds");
+            Thread.sleep(10L);
+        }
+    }
+
+    private HookEvent event(final String payload) {
+        return new HookEvent(new HookEventSource("LOAN", "CREATE"), payload, this.appUser, ThreadLocalContextUtil.getContext());
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.hooks.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.config.FineractProperties.FineractHookProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.hooks.api.HookApiConstants;
+import org.apache.fineract.infrastructure.hooks.domain.Hook;
+import org.apache.fineract.infrastructure.hooks.domain.HookConfiguration;
+import org.apache.fineract.template.domain.Template;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Covers the failures a web hook delivery reports back to the hook worker that runs it: server side errors, timeouts
+ * and unreachable endpoints surface as {@link IOException} so the dispatcher retries them, anything else is not
+ * retried.
+ */
+class WebHookProcessorTest {
+
+    private static final long DELIVERY_TIMEOUT_MILLIS = 500L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final Hook hook = mock(Hook.class);
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicInteger delayMillis = new AtomicInteger();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private WebHookProcessor underTest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, LocalDate.of(2022, 6, 1))));
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/hook/", exchange -> {
+            this.received.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            try {
+                TimeUnit.MILLISECONDS.sleep(this.delayMillis.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(this.status.get(), -1);
+            exchange.close();
+        });
+        this.server.start();
+        when(this.hook.getHookConfig()).thenReturn(Set.of(
+                HookConfiguration.createNewWithoutHook("string", HookApiConstants.payloadURLName,
+                        "http://localhost:" + this.server.getAddress().getPort() + "/hook/"),
+                HookConfiguration.createNewWithoutHook("string", HookApiConstants.contentTypeName, "json")));
+
+        final FineractHookProperties hookProperties = new FineractHookProperties();
+        hookProperties.setDeliveryTimeoutMillis(DELIVERY_TIMEOUT_MILLIS);
+        final FineractProperties fineractProperties = new FineractProperties();
+        fineractProperties.setHook(hookProperties);
+        this.underTest = new WebHookProcessor(new ProcessorHelper(fineractProperties),
+                new WebHookPayloadEnricher(this.jdbcTemplate, fineractProperties), fineractProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.server.stop(0);
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void deliversThePayload() throws Exception {
+        process("{\"response\":{\"resourceId\":1}}");
+
+        assertEquals(1, this.received.size());
+        assertTrue(this.received.get(0).contains("\"resourceId\":1"));
+    }
+
+    @Test
+    void serverErrorsAndThrottlingAreReportedAsRetryableFailures() {
+        this.status.set(503);
+        final IOException serverError = assertThrows(IOException.class, () -> process("{}"));
+        assertTrue(serverError.getMessage().contains("Status: 503"));
+
+        this.status.set(429);
+        final IOException throttled = assertThrows(IOException.class, () -> process("{}"));
+        assertTrue(throttled.getMessage().contains("Status: 429"));
+        assertEquals(2, this.received.size());
+    }
+
+    @Test
+    void clientErrorsAreNotRetried() throws Exception {
+        this.status.set(400);
+
+        process("{}");
+
+        assertEquals(1, this.received.size());
+    }
+
+    @Test
+    void slowEndpointIsCancelledAfterTheDeliveryTimeout() {
+        this.delayMillis.set(5000);
+
+        final long started = System.nanoTime();
+        assertThrows(InterruptedIOException.class, () -> process("{}"));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 4000);
+    }
+
+    @Test
+    void unreachableEndpointIsReportedAsRetryableFailure() {
+        this.server.stop(0);
+
+        assertThrows(IOException.class, () -> process("{}"));
+    }
+
+    @Test
+    void failedEnrichmentQueryIsNotSentAndNotRetried() {
+        when(this.jdbcTemplate.queryForList(anyString(), eq(7L))).thenThrow(new DataAccessResourceFailureException("no connection"));
+
+        final Exception failure = assertThrows(DataAccessResourceFailureException.class,
+                () -> process("{\"response\":{\"loanId\":7}}"));
+
+        // the dispatcher only retries failures caused by an IOException
+        assertEquals(-1, ExceptionUtils.indexOfType(failure, IOException.class));
+        assertTrue(this.received.isEmpty());
+    }
+
+    @Test
+    void missingAccountIsLeftOutOfThePayload() throws Exception {
+        final Template template = mock(Template.class);
+        when(template.getText()).thenReturn("{\"loanFound\":\"{{#loan}}yes{{/loan}}{{^loan}}no{{/loan}}\"}");
+        when(this.hook.getUgdTemplate()).thenReturn(template);
+        when(this.jdbcTemplate.queryForList(anyString(), eq(7L))).thenReturn(List.of());
+
+        process("{\"response\":{\"loanId\":7}}");
+
+        assertEquals(List.of("{\"loanFound\":\"no\"}"), this.received);
+    }
+
+    private void process(final String payload) throws IOException {
+        this.underTest.process(this.hook, payload, "LOAN", "CREATE", ThreadLocalContextUtil.getContext());
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.hooks.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.gson.JsonParser;
+import java.util.Optional;
+import org.apache.fineract.infrastructure.core.api.JsonCommand;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.hooks.domain.Hook;
+import org.apache.fineract.infrastructure.hooks.domain.HookRepository;
+import org.apache.fineract.infrastructure.hooks.domain.HookTemplate;
+import org.apache.fineract.infrastructure.hooks.domain.HookTemplateRepository;
+import org.apache.fineract.infrastructure.hooks.exception.HookNotFoundException;
+import org.apache.fineract.infrastructure.hooks.processor.ProcessorHelper;
+import org.apache.fineract.infrastructure.hooks.serialization.HookCommandFromApiJsonDeserializer;
+import org.apache.fineract.infrastructure.security.service.PlatformSecurityContext;
+import org.apache.fineract.template.domain.TemplateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+/**
+ * The routing table of the hooks is cached per tenant, every write to a hook has to refresh it.
+ */
+@SpringJUnitConfig
+class HookRoutingTableRefreshTest {
+
+    private static final Long HOOK_ID = 1L;
+
+    @Configuration
+    @EnableCaching
+    static class HookCacheConfiguration {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager("hooks");
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate() {
+            return mock(JdbcTemplate.class);
+        }
+
+        @Bean
+        HookRepository hookRepository() {
+            return mock(HookRepository.class);
+        }
+
+        @Bean
+        HookTemplateRepository hookTemplateRepository() {
+            return mock(HookTemplateRepository.class);
+        }
+
+        @Bean
+        PlatformSecurityContext platformSecurityContext() {
+            return mock(PlatformSecurityContext.class);
+        }
+
+        @Bean
+        HookReadPlatformService hookReadPlatformService(final JdbcTemplate jdbcTemplate, final HookRepository hookRepository,
+                final PlatformSecurityContext context) {
+            return new HookReadPlatformServiceImpl(jdbcTemplate, hookRepository, context);
+        }
+
+        @Bean
+        HookWritePlatformService hookWritePlatformService(final PlatformSecurityContext context, final HookRepository hookRepository,
+                final HookTemplateRepository hookTemplateRepository) throws Exception {
+            return new HookWritePlatformServiceJpaRepositoryImpl(context, hookRepository, hookTemplateRepository,
+                    mock(TemplateRepository.class), mock(HookCommandFromApiJsonDeserializer.class), new FromJsonHelper(),
+                    new ProcessorHelper(new FineractProperties()));
+        }
+    }
+
+    @Autowired
+    private HookReadPlatformService hookReadPlatformService;
+    @Autowired
+    private HookWritePlatformService hookWritePlatformService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private HookRepository hookRepository;
+    @Autowired
+    private HookTemplateRepository hookTemplateRepository;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        reset(this.jdbcTemplate, this.hookRepository, this.hookTemplateRepository);
+        this.cacheManager.getCache("hooks").clear();
+
+        final HookTemplate webTemplate = mock(HookTemplate.class);
+        when(webTemplate.getName()).thenReturn("Web");
+        when(this.hookTemplateRepository.findOne("Web")).thenReturn(webTemplate);
+        when(this.hookRepository.findById(HOOK_ID)).thenReturn(Optional.of(mock(Hook.class)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void cachesTheRoutingTablePerTenant() {
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+        verify(this.jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(2L, "other", "Other", "Asia/Kolkata", null));
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+        verify(this.jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void creatingAHookRefreshesTheRoutingTable() {
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+
+        this.hookWritePlatformService.createHook(command("{\"name\":\"Web\",\"displayName\":\"Loan hook\",\"isActive\":true,"
+                + "\"events\":[{\"entityName\":\"LOAN\",\"actionName\":\"CREATE\"}],\"config\":{}}"));
+
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+        verify(this.hookRepository).saveAndFlush(any(Hook.class));
+        verify(this.jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void updatingAHookRefreshesTheRoutingTable() {
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+
+        this.hookWritePlatformService.updateHook(HOOK_ID, command("{\"events\":[{\"entityName\":\"LOAN\",\"actionName\":\"APPROVE\"}]}"));
+
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+        verify(this.jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void deletingAHookRefreshesTheRoutingTable() {
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+
+        this.hookWritePlatformService.deleteHook(HOOK_ID);
+
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+        verify(this.hookRepository).delete(any(Hook.class));
+        verify(this.jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void aFailedWriteKeepsTheRoutingTable() {
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+
+        assertThrows(HookNotFoundException.class, () -> this.hookWritePlatformService.deleteHook(2L));
+
+        this.hookReadPlatformService.retrieveHookRoutingTable();
+        verify(this.jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    private static JsonCommand command(final String json) {
+        return JsonCommand.from(json, JsonParser.parseString(json), new FromJsonHelper(), null, null, null, null, null, null, null, null,
+                null, null, null, null);
+    }
+}
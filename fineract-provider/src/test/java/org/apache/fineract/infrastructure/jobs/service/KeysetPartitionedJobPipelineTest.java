@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.infrastructure.jobs.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.jobs.exception.JobExecutionException;
+import org.apache.fineract.infrastructure.jobs.exception.JobRangeFailureException;
+import org.apache.fineract.infrastructure.jobs.service.KeysetPartitionedJobPipeline.PageReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class KeysetPartitionedJobPipelineTest {
+
+    private static final String JOB_NAME = "TEST_JOB";
+    private static final LocalDate RUN_DATE = LocalDate.of(2022, 6, 1);
+
+    @Mock
+    private JobRangeCheckpointService checkpointService;
+
+    private JobWorkerPool workerPool;
+
+    @BeforeEach
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, RUN_DATE)));
+        final FineractProperties.FineractJobProperties jobProperties = new FineractProperties.FineractJobProperties();
+        jobProperties.setWorkerPoolSize(8);
+        jobProperties.setMaxWorkersPerJob(2);
+        final FineractProperties fineractProperties = new FineractProperties();
+        fineractProperties.setJob(jobProperties);
+        this.workerPool = new JobWorkerPool(fineractProperties, new SimpleMeterRegistry());
+        when(this.checkpointService.retrieveCompletedRanges(JOB_NAME, RUN_DATE)).thenReturn(new TreeMap<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.workerPool.destroy();
+        JobRunMetricsHolder.clear();
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void cutsIdsIntoRangesAndCheckpointsEveryRange() throws Exception {
+        final List<List<Long>> ranges = Collections.synchronizedList(new ArrayList<>());
+
+        new KeysetPartitionedJobPipeline(JOB_NAME, 2, 3, 4, pageReader(10), ranges::add, this.workerPool, this.checkpointService)
+                .run();
+
+        ranges.sort((first, second) -> Long.compare(first.get(0), second.get(0)));
+        assertEquals(List.of(List.of(1L, 2L, 3L), List.of(4L, 5L, 6L), List.of(7L, 8L, 9L), List.of(10L)), ranges);
+        verify(this.checkpointService).saveCompletedRange(JOB_NAME, RUN_DATE, 1L, 3L, 3);
+        verify(this.checkpointService).saveCompletedRange(JOB_NAME, RUN_DATE, 4L, 6L, 3);
+        verify(this.checkpointService).saveCompletedRange(JOB_NAME, RUN_DATE, 7L, 9L, 3);
+        verify(this.checkpointService).saveCompletedRange(JOB_NAME, RUN_DATE, 10L, 10L, 1);
+        verify(this.checkpointService).clearCompletedRanges(JOB_NAME, RUN_DATE);
+        assertEquals(10L, JobRunMetricsHolder.getRunMetrics().get("processed"));
+    }
+
+    @Test
+    void runsNoMoreRangesAtATimeThanTheJobMayUse() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        new KeysetPartitionedJobPipeline(JOB_NAME, 8, 2, 8, pageReader(40), ids -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(10L);
+            running.decrementAndGet();
+        }, this.workerPool, this.checkpointService).run();
+
+        assertTrue(maxRunning.get() <= 2, "at most two ranges may run at a time, but " + maxRunning.get() + " did");
+        assertEquals(2, JobRunMetricsHolder.getRunMetrics().get("partitions"));
+        assertEquals(40L, JobRunMetricsHolder.getRunMetrics().get("processed"));
+    }
+
+    @Test
+    void checkpointsTheIdsOfAFailedRangeThatDidNotFail() {
+        final KeysetPartitionedJobPipeline pipeline = new KeysetPartitionedJobPipeline(JOB_NAME, 1, 5, 1, pageReader(5), ids -> {
+            throw new JobRangeFailureException(List.of(3L), List.of(new IllegalStateException("loan 3 failed")));
+        }, this.workerPool, this.checkpointService);
+
+        final JobExecutionException exception = assertThrows(JobExecutionException.class, pipeline::run);
+
+        assertEquals(1, exception.getCauses().size());
+        verify(this.checkpointService).saveCompletedRange(JOB_NAME, RUN_DATE, 1L, 2L, 2);
+        verify(this.checkpointService).saveCompletedRange(JOB_NAME, RUN_DATE, 4L, 5L, 2);
+        verify(this.checkpointService, never()).clearCompletedRanges(any(), any());
+        assertEquals(4L, JobRunMetricsHolder.getRunMetrics().get("processed"));
+        assertEquals(1L, JobRunMetricsHolder.getRunMetrics().get("failed"));
+    }
+
+    @Test
+    void doesNotCheckpointARangeThatFailedAsAWhole() {
+        final KeysetPartitionedJobPipeline pipeline = new KeysetPartitionedJobPipeline(JOB_NAME, 2, 2, 2, pageReader(4), ids -> {
+            if (ids.contains(3L)) {
+                throw new IllegalStateException("range failed");
+            }
+        }, this.workerPool, this.checkpointService);
+
+        assertThrows(JobExecutionException.class, pipeline::run);
+
+        verify(this.checkpointService).saveCompletedRange(JOB_NAME, RUN_DATE, 1L, 2L, 2);
+        verify(this.checkpointService, never()).saveCompletedRange(eq(JOB_NAME), eq(RUN_DATE), eq(3L), anyLong(), anyInt());
+        verify(this.checkpointService, never()).clearCompletedRanges(any(), any());
+    }
+
+    @Test
+    void resumeSkipsTheCheckpointedIds() throws Exception {
+        when(this.checkpointService.retrieveCompletedRanges(JOB_NAME, RUN_DATE)).thenReturn(new TreeMap<>(Map.of(1L, 2L, 4L, 5L)));
+        final List<Long> processed = Collections.synchronizedList(new ArrayList<>());
+
+        new KeysetPartitionedJobPipeline(JOB_NAME, 2, 5, 2, pageReader(6), processed::addAll, this.workerPool, this.checkpointService)
+                .run();
+
+        Collections.sort(processed);
+        assertEquals(List.of(3L, 6L), processed);
+        assertEquals(4L, JobRunMetricsHolder.getRunMetrics().get("skippedFromCheckpoint"));
+        assertEquals(Boolean.TRUE, JobRunMetricsHolder.getRunMetrics().get("resumed"));
+        verify(this.checkpointService).clearCompletedRanges(JOB_NAME, RUN_DATE);
+    }
+
+    private static PageReader pageReader(final long lastId) {
+        return (afterId, pageSize) -> LongStream.rangeClosed(afterId + 1, lastId).limit(pageSize).boxed().collect(Collectors.toList());
+    }
+}
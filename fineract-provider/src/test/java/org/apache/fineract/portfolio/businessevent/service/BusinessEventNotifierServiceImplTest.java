@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.portfolio.businessevent.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.config.FineractProperties;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.portfolio.businessevent.BusinessEventDeliveryMode;
+import org.apache.fineract.portfolio.businessevent.domain.BusinessEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class BusinessEventNotifierServiceImplTest {
+
+    private final List<String> log = new CopyOnWriteArrayList<>();
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager(this.log);
+    private final TransactionTemplate businessTransaction = new TransactionTemplate(this.transactionManager);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BusinessEventNotifierServiceImpl underTest;
+
+    @BeforeEach
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, LocalDate.of(2022, 6, 30))));
+        this.underTest = new BusinessEventNotifierServiceImpl(new FineractProperties(), this.transactionManager, this.meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.underTest.destroy();
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void deferredListenersRunOnlyOnceTheBusinessTransactionCommitted() throws Exception {
+        final CountDownLatch asyncDelivered = new CountDownLatch(1);
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> this.log.add("in transaction " + event.get()));
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> this.log.add("after commit " + event.get()),
+                BusinessEventDeliveryMode.AFTER_COMMIT);
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> {
+            assertThat(Thread.currentThread().getName()).startsWith("fineract-business-event-");
+            assertThat(ThreadLocalContextUtil.getTenant().getTenantIdentifier()).isEqualTo("default");
+            asyncDelivered.countDown();
+        }, BusinessEventDeliveryMode.ASYNC);
+
+        this.businessTransaction.executeWithoutResult(status -> {
+            this.underTest.notifyPostBusinessEvent(new TestEvent("1"));
+            this.log.add("business work done");
+        });
+
+        assertTrue(asyncDelivered.await(5, TimeUnit.SECONDS), "asynchronous listener was not invoked");
+        // the after commit listener runs in a transaction of its own, after the business transaction committed
+        assertThat(this.log).startsWith("begin", "in transaction 1", "business work done", "commit", "begin", "after commit 1",
+                "commit");
+    }
+
+    @Test
+    void deferredListenersAreNotInvokedWhenTheBusinessTransactionRollsBack() throws Exception {
+        final CountDownLatch asyncDelivered = new CountDownLatch(1);
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> this.log.add("in transaction " + event.get()));
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> this.log.add("after commit " + event.get()),
+                BusinessEventDeliveryMode.AFTER_COMMIT);
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> asyncDelivered.countDown(),
+                BusinessEventDeliveryMode.ASYNC);
+
+        this.businessTransaction.executeWithoutResult(status -> {
+            this.underTest.notifyPostBusinessEvent(new TestEvent("1"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(asyncDelivered.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(this.log).containsExactly("begin", "in transaction 1", "rollback");
+    }
+
+    @Test
+    void failingInTransactionListenerRollsTheBusinessTransactionBack() {
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> {
+            throw new IllegalStateException("listener failed");
+        });
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> this.log.add("after commit " + event.get()),
+                BusinessEventDeliveryMode.AFTER_COMMIT);
+
+        assertThrows(IllegalStateException.class,
+                () -> this.businessTransaction.executeWithoutResult(status -> this.underTest.notifyPostBusinessEvent(new TestEvent("1"))));
+
+        assertThat(this.log).containsExactly("begin", "rollback");
+    }
+
+    @Test
+    void failingAfterCommitListenerOnlyRollsBackItsOwnTransaction() {
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> {
+            throw new IllegalStateException("listener failed");
+        }, BusinessEventDeliveryMode.AFTER_COMMIT);
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> this.log.add("after commit " + event.get()),
+                BusinessEventDeliveryMode.AFTER_COMMIT);
+
+        this.businessTransaction.executeWithoutResult(status -> this.underTest.notifyPostBusinessEvent(new TestEvent("1")));
+
+        assertThat(this.log).containsExactly("begin", "commit", "begin", "rollback", "begin", "after commit 1", "commit");
+        assertThat(this.meterRegistry.get("fineract.businessevent.listener.failures").tag("mode", "AFTER_COMMIT").counters().stream()
+                .mapToDouble(Counter::count).sum()).isEqualTo(1.0);
+    }
+
+    @Test
+    void deferredListenersRunRightAwayWithoutATransaction() {
+        this.underTest.addPostBusinessEventListener(TestEvent.class, event -> this.log.add("after commit " + event.get()),
+                BusinessEventDeliveryMode.AFTER_COMMIT);
+
+        this.underTest.notifyPostBusinessEvent(new TestEvent("1"));
+
+        assertThat(this.log).containsExactly("begin", "after commit 1", "commit");
+    }
+
+    private static final class TestEvent implements BusinessEvent<String> {
+
+        private final String value;
+
+        private TestEvent(final String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String get() {
+            return this.value;
+        }
+    }
+
+    /**
+     * Runs the transaction synchronization like a real transaction manager, and records where transactions begin and
+     * end.
+     */
+    private static final class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final List<String> log;
+
+        private RecordingTransactionManager(final List<String> log) {
+            this.log = log;
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(final Object transaction, final TransactionDefinition definition) {
+            this.log.add("begin");
+        }
+
+        @Override
+        protected void doCommit(final DefaultTransactionStatus status) {
+            this.log.add("commit");
+        }
+
+        @Override
+        protected void doRollback(final DefaultTransactionStatus status) {
+            this.log.add("rollback");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.portfolio.loanaccount.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseSpecificSQLGenerator;
+import org.apache.fineract.infrastructure.core.service.database.DatabaseTypeResolver;
+import org.apache.fineract.infrastructure.jobs.service.JobWatermarkService;
+import org.apache.fineract.portfolio.businessevent.BusinessEventListener;
+import org.apache.fineract.portfolio.businessevent.domain.loan.LoanDisbursalBusinessEvent;
+import org.apache.fineract.portfolio.businessevent.service.BusinessEventNotifierService;
+import org.apache.fineract.portfolio.loanaccount.domain.Loan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LoanArrearsAgingServiceImplTest {
+
+    private static final Long LOAN_ID = 5L;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private BusinessEventNotifierService businessEventNotifierService;
+    @Mock
+    private DatabaseTypeResolver databaseTypeResolver;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private JobWatermarkService jobWatermarkService;
+    @Mock
+    private Loan loan;
+
+    private BusinessEventListener<LoanDisbursalBusinessEvent> disbursalListener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, LocalDate.of(2022, 6, 1))));
+        when(this.loan.getId()).thenReturn(LOAN_ID);
+        when(this.loan.getRepaymentScheduleInstallments()).thenReturn(List.of());
+        when(this.jdbcTemplate.queryForObject(startsWith("select count(mla.loan_id)"), eq(Integer.class), eq(LOAN_ID))).thenReturn(0);
+
+        new LoanArrearsAgingServiceImpl(this.jdbcTemplate, this.businessEventNotifierService,
+                new DatabaseSpecificSQLGenerator(this.databaseTypeResolver), this.transactionTemplate, this.jobWatermarkService)
+                .registerForNotification();
+        final ArgumentCaptor<BusinessEventListener<LoanDisbursalBusinessEvent>> listener = ArgumentCaptor
+                .forClass(BusinessEventListener.class);
+        verify(this.businessEventNotifierService).addPostBusinessEventListener(eq(LoanDisbursalBusinessEvent.class), listener.capture());
+        this.disbursalListener = listener.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void marksALoanWithASingleUpsertOnMySql() {
+        when(this.databaseTypeResolver.isMySQL()).thenReturn(true);
+
+        this.disbursalListener.onBusinessEvent(new LoanDisbursalBusinessEvent(this.loan));
+        this.disbursalListener.onBusinessEvent(new LoanDisbursalBusinessEvent(this.loan));
+
+        assertMarkedTwiceWith("insert into m_loan_arrears_aging_pending (loan_id, mark_count, marked_on) values (?, 1, ?) "
+                + "ON DUPLICATE KEY UPDATE mark_count = m_loan_arrears_aging_pending.mark_count + 1, marked_on = VALUES(marked_on)");
+    }
+
+    @Test
+    void marksALoanWithASingleUpsertOnPostgreSql() {
+        when(this.databaseTypeResolver.isPostgreSQL()).thenReturn(true);
+
+        this.disbursalListener.onBusinessEvent(new LoanDisbursalBusinessEvent(this.loan));
+        this.disbursalListener.onBusinessEvent(new LoanDisbursalBusinessEvent(this.loan));
+
+        assertMarkedTwiceWith("insert into m_loan_arrears_aging_pending (loan_id, mark_count, marked_on) values (?, 1, ?) "
+                + "ON CONFLICT (loan_id) DO UPDATE SET mark_count = m_loan_arrears_aging_pending.mark_count + 1, "
+                + "marked_on = EXCLUDED.marked_on");
+    }
+
+    private void assertMarkedTwiceWith(final String upsert) {
+        final ArgumentCaptor<String> statements = ArgumentCaptor.forClass(String.class);
+        verify(this.jdbcTemplate, times(2)).update(statements.capture(), eq(LOAN_ID), any(LocalDateTime.class));
+        assertEquals(List.of(upsert, upsert), statements.getAllValues());
+        // no separate update that two transactions marking the same new loan could both find nothing to update with
+        verify(this.jdbcTemplate, never()).update(startsWith("update m_loan_arrears_aging_pending"), any(), any());
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.scheduledjobs.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.fineract.infrastructure.businessdate.domain.BusinessDateType;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenantConnection;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.jobs.exception.JobRangeFailureException;
+import org.apache.fineract.portfolio.savings.service.SavingsAccountWritePlatformService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.CannotAcquireLockException;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AccrualInterestForSavingsPosterTest {
+
+    @Mock
+    private SavingsAccountWritePlatformService savingsAccountWritePlatformService;
+
+    private final AccrualInterestForSavingsPoster underTest = new AccrualInterestForSavingsPoster();
+
+    @BeforeEach
+    void setUp() {
+        // no retries on a lock failure
+        ThreadLocalContextUtil.setTenant(
+                new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", mock(FineractPlatformTenantConnection.class)));
+        ThreadLocalContextUtil.setBusinessDates(new HashMap<>(Map.of(BusinessDateType.BUSINESS_DATE, LocalDate.of(2022, 6, 1))));
+        this.underTest.setSavingsAccountWritePlatformService(this.savingsAccountWritePlatformService);
+        this.underTest.setContext(ThreadLocalContextUtil.getContext());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void namesTheAccountsThatFailedSoThatTheOthersAreCheckpointed() {
+        when(this.savingsAccountWritePlatformService.postAccrualInterest(eq(2L), any(LocalDate.class), anyBoolean()))
+                .thenThrow(new IllegalStateException("accrual failed"));
+        when(this.savingsAccountWritePlatformService.postAccrualInterest(eq(4L), any(LocalDate.class), anyBoolean()))
+                .thenThrow(new CannotAcquireLockException("deadlock"));
+        this.underTest.setSavingsAccountIds(List.of(1L, 2L, 3L, 4L, 5L));
+
+        final JobRangeFailureException exception = assertThrows(JobRangeFailureException.class, this.underTest::call);
+
+        assertEquals(List.of(2L, 4L), exception.getFailedIds());
+        assertEquals(2, exception.getCauses().size());
+        // a failed account does not stop the others of the range
+        verify(this.savingsAccountWritePlatformService).postAccrualInterest(eq(3L), any(LocalDate.class), eq(false));
+        verify(this.savingsAccountWritePlatformService).postAccrualInterest(eq(5L), any(LocalDate.class), eq(false));
+    }
+
+    @Test
+    void postsARangeWithoutFailures() throws Exception {
+        this.underTest.setSavingsAccountIds(List.of(1L, 2L));
+
+        this.underTest.call();
+
+        verify(this.savingsAccountWritePlatformService).postAccrualInterest(eq(1L), any(LocalDate.class), eq(false));
+        verify(this.savingsAccountWritePlatformService).postAccrualInterest(eq(2L), any(LocalDate.class), eq(false));
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.useradministration.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.fineract.infrastructure.configuration.data.GlobalConfigurationDataValidator;
+import org.apache.fineract.infrastructure.configuration.domain.ConfigurationDomainService;
+import org.apache.fineract.infrastructure.configuration.domain.GlobalConfigurationProperty;
+import org.apache.fineract.infrastructure.configuration.domain.GlobalConfigurationRepositoryWrapper;
+import org.apache.fineract.infrastructure.configuration.service.GlobalConfigurationWritePlatformService;
+import org.apache.fineract.infrastructure.configuration.service.GlobalConfigurationWritePlatformServiceJpaRepositoryImpl;
+import org.apache.fineract.infrastructure.core.api.JsonCommand;
+import org.apache.fineract.infrastructure.core.domain.FineractPlatformTenant;
+import org.apache.fineract.infrastructure.core.serialization.FromJsonHelper;
+import org.apache.fineract.infrastructure.core.service.ThreadLocalContextUtil;
+import org.apache.fineract.infrastructure.security.service.PlatformSecurityContext;
+import org.apache.fineract.useradministration.domain.Permission;
+import org.apache.fineract.useradministration.domain.PermissionRepository;
+import org.apache.fineract.useradministration.exception.PermissionNotFoundException;
+import org.apache.fineract.useradministration.serialization.PermissionsCommandFromApiJsonDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+/**
+ * The maker checker flag of every permission is cached per tenant, changing the permissions or the global maker checker
+ * configuration has to evict it.
+ */
+@SpringJUnitConfig
+class MakerCheckerPermissionCacheEvictionTest {
+
+    private static final String PERMISSION_CODE = "CREATE_LOAN";
+    private static final Long CONFIGURATION_ID = 1L;
+
+    @Configuration
+    @EnableCaching
+    static class PermissionCacheConfiguration {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager("makerCheckerPermissions", "users", "usersByUsername");
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate() {
+            return mock(JdbcTemplate.class);
+        }
+
+        @Bean
+        PermissionRepository permissionRepository() {
+            return mock(PermissionRepository.class);
+        }
+
+        @Bean
+        GlobalConfigurationRepositoryWrapper globalConfigurationRepositoryWrapper() {
+            return mock(GlobalConfigurationRepositoryWrapper.class);
+        }
+
+        @Bean
+        PermissionLookupService permissionLookupService(final JdbcTemplate jdbcTemplate) {
+            return new PermissionLookupServiceImpl(jdbcTemplate);
+        }
+
+        @Bean
+        PermissionWritePlatformService permissionWritePlatformService(final PermissionRepository permissionRepository) {
+            return new PermissionWritePlatformServiceJpaRepositoryImpl(mock(PlatformSecurityContext.class), permissionRepository,
+                    new PermissionsCommandFromApiJsonDeserializer(new FromJsonHelper()));
+        }
+
+        @Bean
+        GlobalConfigurationWritePlatformService globalConfigurationWritePlatformService(
+                final GlobalConfigurationRepositoryWrapper globalConfigurationRepositoryWrapper) {
+            return new GlobalConfigurationWritePlatformServiceJpaRepositoryImpl(mock(PlatformSecurityContext.class),
+                    globalConfigurationRepositoryWrapper, new GlobalConfigurationDataValidator(new FromJsonHelper()),
+                    mock(ConfigurationDomainService.class));
+        }
+    }
+
+    @Autowired
+    private PermissionLookupService permissionLookupService;
+    @Autowired
+    private PermissionWritePlatformService permissionWritePlatformService;
+    @Autowired
+    private GlobalConfigurationWritePlatformService globalConfigurationWritePlatformService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PermissionRepository permissionRepository;
+    @Autowired
+    private GlobalConfigurationRepositoryWrapper globalConfigurationRepositoryWrapper;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(1L, "default", "Default", "Asia/Kolkata", null));
+        reset(this.jdbcTemplate, this.permissionRepository, this.globalConfigurationRepositoryWrapper);
+        this.cacheManager.getCache("makerCheckerPermissions").clear();
+
+        when(this.jdbcTemplate.query(anyString(), any(RowMapper.class), eq(PERMISSION_CODE))).thenReturn(List.of(Boolean.TRUE));
+        when(this.permissionRepository.findAll()).thenReturn(List.of(new Permission("portfolio", "LOAN", "CREATE")));
+        final GlobalConfigurationProperty makerChecker = mock(GlobalConfigurationProperty.class);
+        when(makerChecker.getName()).thenReturn("maker-checker");
+        when(makerChecker.update(any(JsonCommand.class))).thenReturn(Map.of("enabled", false));
+        when(this.globalConfigurationRepositoryWrapper.findOneWithNotFoundDetection(CONFIGURATION_ID)).thenReturn(makerChecker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ThreadLocalContextUtil.clearTenant();
+    }
+
+    @Test
+    void cachesTheLookupPerTenantAndPermission() {
+        assertTrue(this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE));
+        assertTrue(this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE));
+        verifyLookedUp(1);
+
+        ThreadLocalContextUtil.setTenant(new FineractPlatformTenant(2L, "other", "Other", "Asia/Kolkata", null));
+        this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE);
+        verifyLookedUp(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unknownPermissionsAreNotCached() {
+        when(this.jdbcTemplate.query(anyString(), any(RowMapper.class), eq("UNKNOWN"))).thenReturn(List.of());
+
+        this.permissionLookupService.isMakerCheckerEnabledForTask("UNKNOWN");
+        this.permissionLookupService.isMakerCheckerEnabledForTask("UNKNOWN");
+
+        verify(this.jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), eq("UNKNOWN"));
+    }
+
+    @Test
+    void updatingThePermissionsEvictsTheLookup() {
+        this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE);
+
+        this.permissionWritePlatformService.updateMakerCheckerPermissions(JsonCommand.from("{\"permissions\":{\"CREATE_LOAN\":true}}"));
+
+        this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE);
+        verify(this.permissionRepository).saveAndFlush(any(Permission.class));
+        verifyLookedUp(2);
+    }
+
+    @Test
+    void updatingTheGlobalConfigurationEvictsTheLookup() {
+        this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE);
+
+        this.globalConfigurationWritePlatformService.update(CONFIGURATION_ID, JsonCommand.from("{\"enabled\":false}"));
+
+        this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE);
+        verifyLookedUp(2);
+    }
+
+    @Test
+    void aFailedPermissionUpdateKeepsTheLookup() {
+        this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE);
+
+        assertThrows(PermissionNotFoundException.class, () -> this.permissionWritePlatformService
+                .updateMakerCheckerPermissions(JsonCommand.from("{\"permissions\":{\"DELETE_LOAN\":true}}")));
+
+        this.permissionLookupService.isMakerCheckerEnabledForTask(PERMISSION_CODE);
+        verifyLookedUp(1);
+        assertEquals(Boolean.TRUE, this.cacheManager.getCache("makerCheckerPermissions").get("default" + PERMISSION_CODE).get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verifyLookedUp(final int times) {
+        verify(this.jdbcTemplate, times(times)).query(anyString(), any(RowMapper.class), eq(PERMISSION_CODE));
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.fineract.useradministration.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class PermissionLookupServiceImplTest {
+
+    @InjectMocks
+    private PermissionLookupServiceImpl underTest;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testMakerCheckerNeedsPermissionAndGlobalFlag() throws SQLException {
+        givenPermission("CREATE_LOAN", true, true);
+        givenPermission("APPROVE_LOAN", true, false);
+        givenPermission("DISBURSE_LOAN", false, true);
+
+        assertEquals(Boolean.TRUE, this.underTest.isMakerCheckerEnabledForTask("CREATE_LOAN"));
+        assertEquals(Boolean.FALSE, this.underTest.isMakerCheckerEnabledForTask("APPROVE_LOAN"));
+        assertEquals(Boolean.FALSE, this.underTest.isMakerCheckerEnabledForTask("DISBURSE_LOAN"));
+    }
+
+    @Test
+    public void testUnknownPermissionIsNull() {
+        when(this.jdbcTemplate.query(anyString(), any(RowMapper.class), eq("UNKNOWN"))).thenReturn(Collections.emptyList());
+
+        assertNull(this.underTest.isMakerCheckerEnabledForTask("UNKNOWN"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenPermission(final String code, final boolean taskEnabled, final boolean globallyEnabled) throws SQLException {
+        final ResultSet rs = mock(ResultSet.class);
+        when(rs.getBoolean("taskEnabled")).thenReturn(taskEnabled);
+        when(rs.getBoolean("globallyEnabled")).thenReturn(globallyEnabled);
+        when(this.jdbcTemplate.query(anyString(), any(RowMapper.class), eq(code)))
+                .thenAnswer(invocation -> List.of(((RowMapper<Boolean>) invocation.getArgument(1)).mapRow(rs, 0)));
+    }
+}
@@ -81,6 +81,13 @@ Feature: Core Infrastructure
     When The database migration process is executed
     Then The default tenant upgrade fails with a schema upgrade needed
 
+  @infrastructure
+  Scenario: Verify that Liquibase is skipped for a tenant already migrated with the current changelog
+    Given Liquibase is enabled with a default tenant
+    Given The default tenant database was migrated with the current changelog
+    When The database migration process is executed
+    Then The tenant store gets upgraded and Liquibase is skipped for the default tenant
+
   @infrastructure
   Scenario Outline: Verify empty multi exceptions
     Given A multi exception with exceptions <exception1> and <exception2>